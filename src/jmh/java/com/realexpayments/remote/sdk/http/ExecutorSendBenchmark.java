@@ -0,0 +1,99 @@
+package com.realexpayments.remote.sdk.http;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.transform.stream.StreamSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.realexpayments.remote.sdk.RealexClient;
+import com.realexpayments.remote.sdk.domain.payment.PaymentRequest;
+import com.realexpayments.remote.sdk.domain.payment.PaymentResponse;
+import com.realexpayments.remote.sdk.utils.ExecutorUtils;
+import com.realexpayments.remote.sdk.utils.SampleXmlValidationUtils;
+
+/**
+ * Measures the time to send a batch of concurrent requests, 10,000 by default, with
+ * {@link RealexClient#sendAsync(com.realexpayments.remote.sdk.domain.Request)} over the HTTP/2 java.net.http
+ * transport against a local stub server, either on the default executor of {@link ExecutorUtils}, a virtual
+ * thread per request on Java 21 or later, or asynchronously by the transport. The peak number of platform
+ * threads is printed at the end of each trial, showing whether blocking sends held a platform thread each.
+ * Requires Java 11 or later, and Java 21 or later for virtual threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExecutorSendBenchmark {
+
+	@Param({ "executor", "transport" })
+	public String sendMode;
+
+	@Param({ "10000" })
+	public int requests;
+
+	private Http2StubServer server;
+
+	private Transport transport;
+
+	private RealexClient client;
+
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		String responseXml = new PaymentResponse().fromXml(new StreamSource(
+				getClass().getResourceAsStream(SampleXmlValidationUtils.PAYMENT_RESPONSE_XML_PATH))).toXml();
+
+		server = new Http2StubServer(responseXml);
+		HttpConfiguration httpConfiguration = server.createHttpConfiguration();
+		httpConfiguration.setTimeout(60000);
+		transport = HttpUtils.getHttp2Transport(httpConfiguration);
+
+		client = new RealexClient(SampleXmlValidationUtils.SECRET, httpConfiguration);
+		client.setTransport(transport);
+		if ("executor".equals(sendMode)) {
+			client.setExecutor(ExecutorUtils.getDefaultExecutor());
+		}
+		threads.resetPeakThreadCount();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		System.out.println();
+		System.out.println(sendMode + ": peak of " + threads.getPeakThreadCount() + " platform threads, virtual threads "
+				+ (ExecutorUtils.isVirtualThreadExecutor() ? "used" : "not available") + ", " + server.getConnectionCount()
+				+ " connection(s)");
+		client.close();
+		transport.close();
+		server.close();
+	}
+
+	@Benchmark
+	public int sendAll() {
+		CompletableFuture<?>[] responses = new CompletableFuture<?>[requests];
+		for (int i = 0; i < requests; i++) {
+			responses[i] = client.sendAsync(new PaymentRequest().addMerchantId("thestore").addAmount(29900).addCurrency("EUR"));
+		}
+		CompletableFuture.allOf(responses).join();
+		return responses.length;
+	}
+
+}
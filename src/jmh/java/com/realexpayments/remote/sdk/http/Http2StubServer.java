@@ -0,0 +1,116 @@
+package com.realexpayments.remote.sdk.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.io.ConnectionStatistics;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+
+/**
+ * Local Jetty server standing in for the Realex endpoint in benchmarks, accepting both HTTP/1.1 and cleartext 
+ * HTTP/2 (h2c, by upgrade or prior knowledge) on the same port. Every POST is answered with the same XML. The 
+ * number of connections opened and the protocols used are recorded, to show how many connections concurrent 
+ * requests share.
+ */
+public class Http2StubServer implements AutoCloseable {
+
+	/**
+	 * The streams a client may open at once on each HTTP/2 connection, enough for every request of the
+	 * concurrent benchmarks to share one connection.
+	 */
+	private static final int MAX_CONCURRENT_STREAMS = 20000;
+
+	private final Server server;
+
+	private final ServerConnector connector;
+
+	private final ConnectionStatistics connectionStatistics = new ConnectionStatistics();
+
+	private final Set<String> protocols = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Starts a stub server on an ephemeral local port, always answering with the given XML.
+	 * 
+	 * @param responseXml
+	 */
+	public Http2StubServer(String responseXml) throws Exception {
+		final byte[] body = responseXml.getBytes(StandardCharsets.UTF_8);
+
+		org.eclipse.jetty.server.HttpConfiguration config = new org.eclipse.jetty.server.HttpConfiguration();
+		server = new Server();
+		HTTP2CServerConnectionFactory h2c = new HTTP2CServerConnectionFactory(config);
+		h2c.setMaxConcurrentStreams(MAX_CONCURRENT_STREAMS);
+		connector = new ServerConnector(server, new HttpConnectionFactory(config), h2c);
+		connector.setHost("localhost");
+		connector.setPort(0);
+		connector.addBean(connectionStatistics);
+		server.addConnector(connector);
+		server.setHandler(new AbstractHandler() {
+			@Override
+			public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+					throws IOException {
+				protocols.add(request.getProtocol());
+				InputStream in = request.getInputStream();
+				byte[] buffer = new byte[4096];
+				while (in.read(buffer) != -1) {
+					// discard the request
+				}
+				response.setStatus(HttpServletResponse.SC_OK);
+				response.setContentType("application/xml");
+				response.setContentLength(body.length);
+				OutputStream out = response.getOutputStream();
+				out.write(body);
+				baseRequest.setHandled(true);
+			}
+		});
+		server.start();
+	}
+
+	/**
+	 * Returns a HttpConfiguration pointing at this server, with plain HTTP allowed.
+	 * 
+	 * @return HttpConfiguration
+	 */
+	public HttpConfiguration createHttpConfiguration() {
+		HttpConfiguration httpConfiguration = new HttpConfiguration();
+		httpConfiguration.setEndpoint("http://localhost:" + connector.getLocalPort() + "/epage-remote.cgi");
+		httpConfiguration.setOnlyAllowHttps(false);
+		return httpConfiguration;
+	}
+
+	/**
+	 * Returns the number of connections opened to this server.
+	 * 
+	 * @return long
+	 */
+	public long getConnectionCount() {
+		return connectionStatistics.getConnectionsTotal();
+	}
+
+	/**
+	 * Returns the protocols of the requests received, e.g. HTTP/1.1 and HTTP/2.0.
+	 * 
+	 * @return Set
+	 */
+	public Set<String> getProtocols() {
+		return protocols;
+	}
+
+	@Override
+	public void close() throws Exception {
+		server.stop();
+	}
+
+}
@@ -0,0 +1,87 @@
+package com.realexpayments.remote.sdk.http;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.transform.stream.StreamSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.realexpayments.remote.sdk.RealexClient;
+import com.realexpayments.remote.sdk.domain.payment.PaymentRequest;
+import com.realexpayments.remote.sdk.domain.payment.PaymentResponse;
+import com.realexpayments.remote.sdk.utils.SampleXmlValidationUtils;
+
+/**
+ * Measures throughput of {@link RealexClient#send(com.realexpayments.remote.sdk.domain.Request)} from many 
+ * concurrent threads over the Apache transport, the java.net.http transport over HTTP/1.1, and the java.net.http 
+ * transport over HTTP/2, against a local stub server accepting both HTTP/1.1 and cleartext HTTP/2. The number of 
+ * connections opened and the protocols used are printed at the end of each trial. The java.net.http transports 
+ * require Java 11 or later.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(64)
+public class Http2TransportBenchmark {
+
+	@Param({ "apache", "javaNetHttp", "http2" })
+	public String transportType;
+
+	private Http2StubServer server;
+
+	private Transport transport;
+
+	private RealexClient client;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		String responseXml = new PaymentResponse().fromXml(new StreamSource(
+				getClass().getResourceAsStream(SampleXmlValidationUtils.PAYMENT_RESPONSE_XML_PATH))).toXml();
+
+		server = new Http2StubServer(responseXml);
+		HttpConfiguration httpConfiguration = server.createHttpConfiguration();
+
+		if ("apache".equals(transportType)) {
+			transport = new ApacheTransport(httpConfiguration);
+		} else if ("javaNetHttp".equals(transportType)) {
+			transport = HttpUtils.getJavaNetHttpTransport(httpConfiguration);
+		} else {
+			transport = HttpUtils.getHttp2Transport(httpConfiguration);
+		}
+
+		client = new RealexClient(SampleXmlValidationUtils.SECRET, httpConfiguration);
+		client.setTransport(transport);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		System.out.println();
+		System.out.println(transportType + ": " + server.getConnectionCount() + " connection(s), protocols "
+				+ server.getProtocols());
+		client.close();
+		transport.close();
+		server.close();
+	}
+
+	@Benchmark
+	public PaymentResponse send() {
+		return client.send(new PaymentRequest().addMerchantId("thestore").addAmount(29900).addCurrency("EUR"));
+	}
+
+}
@@ -0,0 +1,83 @@
+package com.realexpayments.remote.sdk.http;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.transform.stream.StreamSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.realexpayments.remote.sdk.RealexClient;
+import com.realexpayments.remote.sdk.domain.payment.PaymentRequest;
+import com.realexpayments.remote.sdk.domain.payment.PaymentResponse;
+import com.realexpayments.remote.sdk.utils.SampleXmlValidationUtils;
+
+/**
+ * Measures {@link RealexClient#send(com.realexpayments.remote.sdk.domain.Request)} over each {@link Transport}: 
+ * the in-memory loopback transport, which isolates the cost of the SDK itself, and the Apache and java.net.http 
+ * transports against a local stub server over plain HTTP. The stub server disables Nagle's algorithm, which 
+ * otherwise dominates local round trips. The java.net.http transport requires Java 11 or later.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class TransportBenchmark {
+
+	@Param({ "loopback", "apache", "javaNetHttp" })
+	public String transportType;
+
+	private StubServer server;
+
+	private Transport transport;
+
+	private RealexClient client;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		String responseXml = new PaymentResponse().fromXml(new StreamSource(
+				getClass().getResourceAsStream(SampleXmlValidationUtils.PAYMENT_RESPONSE_XML_PATH))).toXml();
+
+		server = new StubServer(responseXml);
+		HttpConfiguration httpConfiguration = server.createHttpConfiguration();
+
+		if ("loopback".equals(transportType)) {
+			transport = LoopbackTransport.fixedResponse(responseXml.getBytes(StandardCharsets.UTF_8));
+		} else if ("apache".equals(transportType)) {
+			transport = new ApacheTransport(httpConfiguration);
+		} else {
+			transport = HttpUtils.getJavaNetHttpTransport(httpConfiguration);
+		}
+
+		client = new RealexClient(SampleXmlValidationUtils.SECRET, httpConfiguration);
+		client.setTransport(transport);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		client.close();
+		transport.close();
+		server.close();
+	}
+
+	@Benchmark
+	public PaymentResponse send() {
+		return client.send(new PaymentRequest().addMerchantId("thestore").addAmount(29900).addCurrency("EUR"));
+	}
+
+}
@@ -0,0 +1,132 @@
+package com.realexpayments.remote.sdk.utils;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.realexpayments.remote.sdk.domain.payment.PaymentResponse;
+
+/**
+ * Compares the {@link HashEngine}, with the secret given as a string and held by a {@link KeyedHasher}, with the previous string concatenation and commons-codec implementation 
+ * of the Realex hash, for signing a request and verifying a response. Run with <code>-prof gc</code> to 
+ * compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashEngineBenchmark {
+
+	private static final String SECRET = SampleXmlValidationUtils.SECRET;
+
+	private final KeyedHasher hasher = new KeyedHasher(SECRET);
+
+	private PaymentResponse response;
+
+	@Setup
+	public void setup() {
+		response = new PaymentResponse();
+		response.setTimeStamp("20120926112654");
+		response.setMerchantId("thestore");
+		response.setOrderId("ORD453-11");
+		response.setResult("00");
+		response.setMessage("Successful");
+		response.setPaymentsReference("3737468273643");
+		response.setAuthCode("79347");
+		response.setHash(legacyHash(responseHashFields(), SECRET));
+	}
+
+	@Benchmark
+	public String signEngine() {
+		return HashEngine.start()
+				.append(response.getTimeStamp())
+				.append(response.getMerchantId())
+				.append(response.getOrderId())
+				.append(29900L)
+				.append("EUR")
+				.append("420000000000000000")
+				.hash(SECRET);
+	}
+
+	@Benchmark
+	public String signKeyed() {
+		return hasher.start()
+				.append(response.getTimeStamp())
+				.append(response.getMerchantId())
+				.append(response.getOrderId())
+				.append(29900L)
+				.append("EUR")
+				.append("420000000000000000")
+				.hash(hasher);
+	}
+
+	@Benchmark
+	public String signLegacy() {
+		String toHash = new StringBuilder().append(response.getTimeStamp())
+				.append(".")
+				.append(response.getMerchantId())
+				.append(".")
+				.append(response.getOrderId())
+				.append(".")
+				.append(Long.valueOf(29900L).toString())
+				.append(".")
+				.append("EUR")
+				.append(".")
+				.append("420000000000000000")
+				.toString();
+		return legacyHash(toHash, SECRET);
+	}
+
+	@Benchmark
+	public boolean verifyEngine() {
+		return response.isHashValid(SECRET);
+	}
+
+	@Benchmark
+	public boolean verifyKeyed() {
+		return response.isHashValid(hasher);
+	}
+
+	@Benchmark
+	public boolean verifyLegacy() {
+		return legacyHash(responseHashFields(), SECRET).equals(response.getHash());
+	}
+
+	private String responseHashFields() {
+		return new StringBuilder().append(response.getTimeStamp())
+				.append(".")
+				.append(response.getMerchantId())
+				.append(".")
+				.append(response.getOrderId())
+				.append(".")
+				.append(response.getResult())
+				.append(".")
+				.append(response.getMessage())
+				.append(".")
+				.append(response.getPaymentsReference())
+				.append(".")
+				.append(response.getAuthCode())
+				.toString();
+	}
+
+	/**
+	 * The previous implementation of {@link GenerationUtils#generateHash(String, String)}.
+	 */
+	private static String legacyHash(String toHash, String secret) {
+		String toHashFirstPass = DigestUtils.sha1Hex(toHash);
+		String toHashSecondPass = new StringBuilder().append(toHashFirstPass).append(".").append(secret).toString();
+		return DigestUtils.sha1Hex(toHashSecondPass);
+	}
+}
@@ -0,0 +1,58 @@
+package com.realexpayments.remote.sdk.utils;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the {@link OrderIdGenerator} implementations with the previous {@link UUID#randomUUID()} based 
+ * order ID generation, with many threads generating order IDs at once. The number of threads may be changed 
+ * with <code>-t</code>, for example <code>-t 1</code> for the uncontended cost. Run with <code>-prof gc</code> 
+ * to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(16)
+@Fork(1)
+public class OrderIdGeneratorBenchmark {
+
+	private final OrderIdGenerator random = new RandomOrderIdGenerator();
+
+	private final OrderIdGenerator snowflake = new SnowflakeOrderIdGenerator(1);
+
+	@Benchmark
+	public String random() {
+		return random.generateOrderId();
+	}
+
+	@Benchmark
+	public String snowflake() {
+		return snowflake.generateOrderId();
+	}
+
+	@Benchmark
+	public String legacyUuid() {
+		UUID uuid = UUID.randomUUID();
+		ByteBuffer bb = ByteBuffer.wrap(new byte[16]);
+
+		bb.putLong(uuid.getMostSignificantBits());
+		bb.putLong(uuid.getLeastSignificantBits());
+		return Base64.encodeBase64URLSafeString(bb.array());
+	}
+
+}
@@ -0,0 +1,78 @@
+package com.realexpayments.remote.sdk.utils;
+
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.transform.stream.StreamSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.realexpayments.remote.sdk.domain.payment.PaymentRequest;
+import com.realexpayments.remote.sdk.domain.payment.PaymentResponse;
+import com.realexpayments.remote.sdk.utils.XmlUtils.MessageType;
+
+/**
+ * Compares the pooled marshallers/unmarshallers in {@link XmlUtils} with creating a new instance from 
+ * the {@link JAXBContext} on every call. Run with <code>-prof gc</code> to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XmlUtilsBenchmark {
+
+	private JAXBContext jaxbContext;
+
+	private PaymentRequest request;
+
+	private String responseXml;
+
+	@Setup
+	public void setup() throws Exception {
+		jaxbContext = XmlUtils.getJaxbContext(MessageType.PAYMENT);
+
+		InputStream requestXml = getClass().getResourceAsStream(SampleXmlValidationUtils.PAYMENT_REQUEST_XML_PATH);
+		request = new PaymentRequest().fromXml(new StreamSource(requestXml));
+
+		InputStream sampleResponseXml = getClass().getResourceAsStream(SampleXmlValidationUtils.PAYMENT_RESPONSE_XML_PATH);
+		responseXml = new PaymentResponse().fromXml(new StreamSource(sampleResponseXml)).toXml();
+	}
+
+	@Benchmark
+	public String marshalPooled() {
+		return XmlUtils.toXml(request, MessageType.PAYMENT);
+	}
+
+	@Benchmark
+	public String marshalPerCall() throws JAXBException {
+		StringWriter result = new StringWriter();
+		jaxbContext.createMarshaller().marshal(request, result);
+		return result.toString();
+	}
+
+	@Benchmark
+	public Object unmarshalPooled() {
+		return XmlUtils.fromXml(new StreamSource(new StringReader(responseXml)), MessageType.PAYMENT);
+	}
+
+	@Benchmark
+	public Object unmarshalPerCall() throws JAXBException {
+		return jaxbContext.createUnmarshaller().unmarshal(new StreamSource(new StringReader(responseXml)));
+	}
+
+}
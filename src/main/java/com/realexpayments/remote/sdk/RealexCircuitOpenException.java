@@ -0,0 +1,37 @@
+package com.realexpayments.remote.sdk;
+
+/**
+ * This exception will be thrown when a request is rejected without being sent to Realex because the circuit 
+ * breaker is open, after too many recent requests failed or were slow. See 
+ * {@link com.realexpayments.remote.sdk.resilience.CircuitBreaker}.
+ */
+public class RealexCircuitOpenException extends RealexRejectedException {
+
+	private static final long serialVersionUID = 7113559840628315542L;
+
+	/**
+	 * The time, in milli-seconds, until the circuit breaker lets a trial request through.
+	 */
+	private final long retryAfter;
+
+	/**
+	 * Constructor for RealexCircuitOpenException.
+	 * 
+	 * @param message
+	 * @param retryAfter
+	 */
+	public RealexCircuitOpenException(String message, long retryAfter) {
+		super(message);
+		this.retryAfter = retryAfter;
+	}
+
+	/**
+	 * Get the time, in milli-seconds, until the circuit breaker lets a trial request through.
+	 * 
+	 * @return long
+	 */
+	public long getRetryAfter() {
+		return retryAfter;
+	}
+
+}
@@ -1,18 +1,80 @@
 package com.realexpayments.remote.sdk;
 
-import java.io.StringReader;
-
-import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.apache.http.client.HttpClient;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.nio.client.HttpAsyncClient;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.realexpayments.remote.sdk.batch.BatchProgress;
+import com.realexpayments.remote.sdk.batch.BatchSender;
+import com.realexpayments.remote.sdk.batch.ProgressListener;
 import com.realexpayments.remote.sdk.domain.Request;
 import com.realexpayments.remote.sdk.domain.Response;
+import com.realexpayments.remote.sdk.domain.payment.PaymentRequest;
+import com.realexpayments.remote.sdk.domain.payment.PaymentRequest.PaymentType;
+import com.realexpayments.remote.sdk.domain.threeDSecure.ThreeDSecureRequest;
+import com.realexpayments.remote.sdk.http.ApacheTransport;
+import com.realexpayments.remote.sdk.http.Deadline;
+import com.realexpayments.remote.sdk.http.EndpointStats;
+import com.realexpayments.remote.sdk.http.FailurePhase;
 import com.realexpayments.remote.sdk.http.HttpConfiguration;
 import com.realexpayments.remote.sdk.http.HttpUtils;
+import com.realexpayments.remote.sdk.http.Lane;
+import com.realexpayments.remote.sdk.http.LanePolicy;
+import com.realexpayments.remote.sdk.http.PriorityTransport;
+import com.realexpayments.remote.sdk.http.RequestWriter;
+import com.realexpayments.remote.sdk.http.ResponseReader;
+import com.realexpayments.remote.sdk.http.RoutingTransport;
+import com.realexpayments.remote.sdk.http.TimeoutProfile;
+import com.realexpayments.remote.sdk.http.Transport;
+import com.realexpayments.remote.sdk.http.WeightedEndpoint;
+import com.realexpayments.remote.sdk.reactive.SendPublisher;
+import com.realexpayments.remote.sdk.resilience.Bulkhead;
+import com.realexpayments.remote.sdk.resilience.CircuitBreaker;
+import com.realexpayments.remote.sdk.resilience.CircuitBreakerPolicy;
+import com.realexpayments.remote.sdk.resilience.ConcurrencyLimitPolicy;
+import com.realexpayments.remote.sdk.resilience.ConcurrencyLimiter;
+import com.realexpayments.remote.sdk.resilience.HedgingPolicy;
+import com.realexpayments.remote.sdk.resilience.RateLimit;
+import com.realexpayments.remote.sdk.resilience.RateLimitPolicy;
+import com.realexpayments.remote.sdk.resilience.RequestHedger;
+import com.realexpayments.remote.sdk.resilience.RequestRetrier;
+import com.realexpayments.remote.sdk.resilience.RetryPolicy;
+import com.realexpayments.remote.sdk.resilience.TokenBucket;
+import com.realexpayments.remote.sdk.utils.ExecutorUtils;
+import com.realexpayments.remote.sdk.utils.GenerationContext;
+import com.realexpayments.remote.sdk.utils.JaxbXmlCodec;
+import com.realexpayments.remote.sdk.utils.KeyedHasher;
+import com.realexpayments.remote.sdk.utils.OrderIdGenerator;
+import com.realexpayments.remote.sdk.utils.RandomOrderIdGenerator;
 import com.realexpayments.remote.sdk.utils.ResponseUtils;
+import com.realexpayments.remote.sdk.utils.TimestampSource;
+import com.realexpayments.remote.sdk.utils.WarmUpUtils;
+import com.realexpayments.remote.sdk.utils.XmlCodec;
 
 /**
  * <p>
@@ -53,10 +115,116 @@ import com.realexpayments.remote.sdk.utils.ResponseUtils;
  * 
  * </ol>
  * </p>
+ * <p>
+ * Where the client creates the default {@link HttpClient} itself, connections are pooled and kept alive 
+ * between requests unless disabled via {@link HttpConfiguration#setConnectionPooling(boolean)}. Such a 
+ * client should be {@link #close() closed} when it is no longer required to release pooled connections.
+ * </p>
+ * <p>
+ * Requests may also be sent without blocking the calling thread using {@link #sendAsync(Request)}. A default 
+ * non-blocking {@link HttpAsyncClient} is created on first use, configured from the {@link HttpConfiguration}, 
+ * unless one has been supplied via {@link #setHttpAsyncClient(HttpAsyncClient)}.
+ * </p>
+ * <p>
+ * Alternatively, where an {@link Executor} has been set with {@link #setExecutor(Executor)}, 
+ * {@link #sendAsync(Request)} sends each request with the blocking {@link #send(Request)} on the executor. 
+ * On Java 21 or later the default executor of {@link ExecutorUtils#getDefaultExecutor()} runs each request on 
+ * its own virtual thread, so that many requests may wait on Realex at once without a platform thread each:
+ * <code><pre>
+ * client.setExecutor(ExecutorUtils.getDefaultExecutor());
+ * </pre></code>
+ * </p>
+ * <p>
+ * No executor is set by default, even where virtual threads are available. Without one 
+ * {@link #sendAsync(Request)} holds no thread while a request is in flight, so an executor gains nothing 
+ * with the default transport. It suits a {@link Transport} whose asynchronous send blocks, or callers who 
+ * want {@link #sendAsync(Request)} to wait for rate limit permits as {@link #send(Request)} does rather 
+ * than fail at once, so the choice is left to the caller.
+ * </p>
+ * <p>
+ * Large runs of requests, such as recurring receipt-in payments, may be sent as a Reactive Streams 
+ * {@link Publisher} with {@link #sendStream(Publisher)}, which pulls requests only as fast as results are 
+ * consumed and the client has capacity to send them, publishing each failure as a {@link SendResult}. 
+ * Batches may instead be sent with {@link #sendAll(Iterable, int, Consumer, ProgressListener)}, which 
+ * delivers the result of each request in the order of the requests with bounded parallelism and memory.
+ * </p>
+ * <p>
+ * Where such bulk work shares a client with live authorisations, a {@link LanePolicy} set on the 
+ * {@link HttpConfiguration} sends each request in a priority {@link Lane}, by its type or as given with 
+ * {@link #send(Request, Deadline, Lane)}, so that bulk requests yield connections to interactive ones, as 
+ * described in {@link PriorityTransport}.
+ * </p>
+ * <p>
+ * The wire layer may be replaced by setting a {@link Transport}, for example the java.net.http transport on 
+ * Java 11 or later, or an in-memory {@link com.realexpayments.remote.sdk.http.LoopbackTransport} in tests:
+ * <code><pre>
+ * client.setTransport(HttpUtils.getJavaNetHttpTransport(httpConfiguration));
+ * </pre></code>
+ * </p>
+ * <p>
+ * Where several weighted endpoints are configured with {@link HttpConfiguration#setEndpoints(List)} requests 
+ * are routed between them by their measured latency and error rate, failing over from endpoints which cannot 
+ * be reached, as described in {@link RoutingTransport}. The statistics of each endpoint are available from 
+ * {@link #getEndpointStats()}.
+ * </p>
+ * <p>
+ * Timeouts may be set for each type of request with a {@link TimeoutProfile}, see 
+ * {@link HttpConfiguration#setTimeoutProfile(com.realexpayments.remote.sdk.domain.payment.PaymentRequest.PaymentType, TimeoutProfile)}, 
+ * and a {@link Deadline} may be given with each request, see {@link #send(Request, Deadline)}.
+ * </p>
+ * <p>
+ * A circuit breaker, which rejects requests with a {@link RealexCircuitOpenException} while Realex is failing 
+ * or slow, and a limit on the requests in progress at once may be configured with 
+ * {@link HttpConfiguration#setCircuitBreakerPolicy(CircuitBreakerPolicy)} and 
+ * {@link HttpConfiguration#setMaxConcurrentRequests(int)}, see {@link CircuitBreaker} and {@link Bulkhead}. 
+ * Requests which fail before they are sent, such as those whose deadline passes waiting for the bulkhead, do 
+ * not count against Realex in the circuit breaker. The requests in progress for each merchant account may instead be limited adaptively, following the latency 
+ * of Realex and the acquirer, with {@link HttpConfiguration#setConcurrencyLimitPolicy(ConcurrencyLimitPolicy)}, 
+ * see {@link ConcurrencyLimiter}.
+ * </p>
+ * <p>
+ * Requests may be kept within the rates agreed with Realex by setting a {@link RateLimitPolicy} with 
+ * {@link HttpConfiguration#setRateLimitPolicy(RateLimitPolicy)}, which limits each merchant ID and type of 
+ * request with its own {@link TokenBucket}. The permit is taken before the request's defaults are generated, 
+ * so that rejected requests are not hashed or marshalled.
+ * </p>
+ * <p>
+ * Requests which fail communicating with Realex may be retried by setting a {@link RetryPolicy} with 
+ * {@link HttpConfiguration#setRetryPolicy(RetryPolicy)}. Requests which cannot have reached Realex are sent 
+ * again whatever their type, requests which may have reached Realex only if they are safe to repeat, see 
+ * {@link RequestRetrier}.
+ * </p>
+ * <p>
+ * Requests without side effects, such as DCC rate lookups, OTB and 3D Secure enrolment checks, may be hedged 
+ * by setting a {@link HedgingPolicy}: if no response has arrived within a percentile of recent latencies a 
+ * second attempt is sent and the first response used, see {@link RequestHedger}. Authorisations, settlements, 
+ * credits and other requests with side effects are never hedged.
+ * <code><pre>
+ * client.setHedgingPolicy(new HedgingPolicy());
+ * </pre></code>
+ * </p>
+ * <p>
+ * Requests are marshalled and responses unmarshalled using JAXB by default. The faster StAX codec may be 
+ * selected for payment requests using {@link #setXmlCodec(XmlCodec)}:
+ * <code><pre>
+ * client.setXmlCodec(new StaxXmlCodec());
+ * </pre></code>
+ * </p>
+ * <p>
+ * Order IDs are generated for requests which do not have one by a {@link RandomOrderIdGenerator}, unless 
+ * another {@link OrderIdGenerator} is set using {@link #setOrderIdGenerator(OrderIdGenerator)}. Timestamps are 
+ * taken from the system clock unless another {@link TimestampSource} is set using 
+ * {@link #setTimestampSource(TimestampSource)}.
+ * </p>
+ * <p>
+ * The first requests sent by a new client are slower than those that follow. Calling {@link #warmUp(int, int)} 
+ * before the client is put into service initialises the codec, exercises the request processing and opens 
+ * connections ahead of them.
+ * </p>
  * @author markstanford
  *
  */
-public class RealexClient {
+public class RealexClient implements Closeable {
 
 	/**
 	 * Logger 
@@ -69,6 +237,12 @@ public class RealexClient {
 	 */
 	private String secret;
 
+	/**
+	 * Context used to generate request defaults, holding the hasher for the shared secret, which is also 
+	 * used to verify responses, the order ID generator and the timestamp source.
+	 */
+	private GenerationContext generationContext;
+
 	/**
 	 * HttpClient instance.
 	 */
@@ -79,6 +253,104 @@ public class RealexClient {
 	 */
 	private HttpConfiguration httpConfiguration;
 
+	/**
+	 * Whether the HttpClient was created by this client, and so should be closed by it.
+	 */
+	private boolean httpClientOwned;
+
+	/**
+	 * The connection manager of the HttpClient created by this client, used to open connections on warm up.
+	 */
+	private HttpClientConnectionManager connectionManager;
+
+	/**
+	 * HttpAsyncClient instance, used for asynchronous requests. Created on first use if not supplied.
+	 */
+	private volatile HttpAsyncClient httpAsyncClient;
+
+	/**
+	 * Whether the HttpAsyncClient was created by this client, and so should be closed by it.
+	 */
+	private boolean httpAsyncClientOwned;
+
+	/**
+	 * Guards the creation and closing of the HttpAsyncClient. A lock rather than a monitor, so that virtual 
+	 * threads waiting on it are not pinned to their carrier thread.
+	 */
+	private final ReentrantLock asyncClientLock = new ReentrantLock();
+
+	/**
+	 * Executor on which {@link #sendAsync(Request)} sends requests with {@link #send(Request)}, if set.
+	 */
+	private volatile Executor executor;
+
+	/**
+	 * Transport used to send requests. If not set, requests are sent using the {@link HttpClient} and 
+	 * {@link HttpAsyncClient} of this client.
+	 */
+	private Transport transport;
+
+	/**
+	 * Transport sending requests using the {@link HttpClient} and {@link HttpAsyncClient} of this client.
+	 */
+	private final Transport defaultTransport = new ApacheTransport(this::getHttpClient, this::getHttpAsyncClient);
+
+	/**
+	 * Routes requests between the weighted endpoints of the {@link HttpConfiguration}, if any, sending them 
+	 * with the current {@link Transport}.
+	 */
+	private final RoutingTransport routingTransport = new RoutingTransport(this::getTransport);
+
+	/**
+	 * Dispatches requests to the {@link #routingTransport} in the lanes of the {@link LanePolicy} of the 
+	 * {@link HttpConfiguration}, replaced when the policy or maximum connections change.
+	 */
+	private final AtomicReference<PriorityTransport> priorityTransport = new AtomicReference<PriorityTransport>();
+
+	/**
+	 * Hedges side-effect-free requests, if a {@link HedgingPolicy} has been set.
+	 */
+	private volatile RequestHedger hedger;
+
+	/**
+	 * The circuit breaker for the {@link CircuitBreakerPolicy} of the {@link HttpConfiguration}, replaced when 
+	 * the policy changes.
+	 */
+	private final AtomicReference<CircuitBreaker> circuitBreaker = new AtomicReference<CircuitBreaker>();
+
+	/**
+	 * The bulkhead for the maximum concurrent requests of the {@link HttpConfiguration}, replaced when the 
+	 * maximum changes.
+	 */
+	private final AtomicReference<Bulkhead> bulkhead = new AtomicReference<Bulkhead>();
+
+	/**
+	 * The retrier for the {@link RetryPolicy} of the {@link HttpConfiguration}, replaced when the policy changes.
+	 */
+	private final AtomicReference<RequestRetrier> retrier = new AtomicReference<RequestRetrier>();
+
+	/**
+	 * The concurrency limiters for the {@link ConcurrencyLimitPolicy} of the {@link HttpConfiguration}, keyed 
+	 * by merchant ID and account, each replaced when the policy changes.
+	 */
+	private final ConcurrentHashMap<String, ConcurrencyLimiter> concurrencyLimiters = new ConcurrentHashMap<String, ConcurrencyLimiter>();
+
+	/**
+	 * The token buckets for the {@link RateLimitPolicy} of the {@link HttpConfiguration}, keyed by merchant ID 
+	 * and type of request, each replaced when its rate limit changes.
+	 */
+	private final ConcurrentHashMap<String, TokenBucket> tokenBuckets = new ConcurrentHashMap<String, TokenBucket>();
+
+	/**
+	 * XmlCodec instance, used to marshal requests and unmarshal responses.
+	 */
+	private XmlCodec xmlCodec = new JaxbXmlCodec();
+
+	/**
+	 * Whether {@link #warmUp(int, int)} has completed.
+	 */
+	private volatile boolean warmedUp;
+
 	/**
 	 * Realex client constructor. Will use default HTTP configuration. 
 	 * 
@@ -86,8 +358,11 @@ public class RealexClient {
 	 */
 	public RealexClient(String secret) {
 		this.secret = secret;
+		this.generationContext = new GenerationContext(new KeyedHasher(secret), new RandomOrderIdGenerator());
 		this.httpConfiguration = new HttpConfiguration();
-		this.httpClient = HttpUtils.getDefaultClient(httpConfiguration);
+		this.connectionManager = HttpUtils.getDefaultConnectionManager(httpConfiguration);
+		this.httpClient = HttpUtils.getDefaultClient(httpConfiguration, connectionManager);
+		this.httpClientOwned = true;
 	}
 
 	/**
@@ -99,8 +374,11 @@ public class RealexClient {
 	 */
 	public RealexClient(String secret, HttpConfiguration httpConfiguration) {
 		this.secret = secret;
+		this.generationContext = new GenerationContext(new KeyedHasher(secret), new RandomOrderIdGenerator());
 		this.httpConfiguration = httpConfiguration;
-		this.httpClient = HttpUtils.getDefaultClient(httpConfiguration);
+		this.connectionManager = HttpUtils.getDefaultConnectionManager(httpConfiguration);
+		this.httpClient = HttpUtils.getDefaultClient(httpConfiguration, connectionManager);
+		this.httpClientOwned = true;
 	}
 
 	/**
@@ -113,6 +391,7 @@ public class RealexClient {
 	 */
 	public RealexClient(String secret, HttpClient httpClient, HttpConfiguration httpConfiguration) {
 		this.secret = secret;
+		this.generationContext = new GenerationContext(new KeyedHasher(secret), new RandomOrderIdGenerator());
 		this.httpConfiguration = httpConfiguration;
 		this.httpClient = httpClient;
 	}
@@ -133,6 +412,56 @@ public class RealexClient {
 	 */
 	public void setSecret(String secret) {
 		this.secret = secret;
+		this.generationContext = new GenerationContext(new KeyedHasher(secret), generationContext.getOrderIdGenerator(),
+				generationContext.getTimestampSource());
+	}
+
+	/**
+	 * Getter for the {@link KeyedHasher} used to sign requests and verify responses with the shared secret.
+	 * 
+	 * @return KeyedHasher
+	 */
+	public KeyedHasher getKeyedHasher() {
+		return generationContext.getHasher();
+	}
+
+	/**
+	 * Getter for the {@link OrderIdGenerator} used to generate the order IDs of requests which do not have one.
+	 * 
+	 * @return OrderIdGenerator
+	 */
+	public OrderIdGenerator getOrderIdGenerator() {
+		return generationContext.getOrderIdGenerator();
+	}
+
+	/**
+	 * Setter for the {@link OrderIdGenerator} used to generate the order IDs of requests which do not have one.
+	 * 
+	 * @param orderIdGenerator
+	 */
+	public void setOrderIdGenerator(OrderIdGenerator orderIdGenerator) {
+		this.generationContext = new GenerationContext(generationContext.getHasher(), orderIdGenerator,
+				generationContext.getTimestampSource());
+	}
+
+	/**
+	 * Getter for the {@link TimestampSource} used to generate the timestamps of requests which do not have one.
+	 * 
+	 * @return TimestampSource
+	 */
+	public TimestampSource getTimestampSource() {
+		return generationContext.getTimestampSource();
+	}
+
+	/**
+	 * Setter for the {@link TimestampSource} used to generate the timestamps of requests which do not have one, 
+	 * for example to generate timestamps from a fixed {@link java.time.Clock} in tests.
+	 * 
+	 * @param timestampSource
+	 */
+	public void setTimestampSource(TimestampSource timestampSource) {
+		this.generationContext = new GenerationContext(generationContext.getHasher(), generationContext.getOrderIdGenerator(),
+				timestampSource);
 	}
 
 	/**
@@ -151,6 +480,71 @@ public class RealexClient {
 	 */
 	public void setHttpClient(HttpClient httpClient) {
 		this.httpClient = httpClient;
+		this.httpClientOwned = false;
+		this.connectionManager = null;
+	}
+
+	/**
+	 * Getter for HttpAsyncClient. If no HttpAsyncClient has been supplied a default client will be created, 
+	 * based on the {@link HttpConfiguration}, on first use.
+	 * 
+	 * @return HttpAsyncClient
+	 */
+	public HttpAsyncClient getHttpAsyncClient() {
+		HttpAsyncClient client = httpAsyncClient;
+		if (null == client) {
+			asyncClientLock.lock();
+			try {
+				client = httpAsyncClient;
+				if (null == client) {
+					LOGGER.debug("Creating default HttpAsyncClient.");
+					client = HttpUtils.getDefaultAsyncClient(httpConfiguration);
+					httpAsyncClientOwned = true;
+					httpAsyncClient = client;
+				}
+			} finally {
+				asyncClientLock.unlock();
+			}
+		}
+		return client;
+	}
+
+	/**
+	 * Setter for HttpAsyncClient. The supplied client must already be started.
+	 * 
+	 * @param httpAsyncClient
+	 */
+	public void setHttpAsyncClient(HttpAsyncClient httpAsyncClient) {
+		asyncClientLock.lock();
+		try {
+			this.httpAsyncClient = httpAsyncClient;
+			this.httpAsyncClientOwned = false;
+		} finally {
+			asyncClientLock.unlock();
+		}
+	}
+
+	/**
+	 * Getter for the {@link Executor} on which {@link #sendAsync(Request)} sends requests, <code>null</code> 
+	 * if requests are sent asynchronously by the {@link Transport}.
+	 * 
+	 * @return Executor
+	 */
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Setter for the {@link Executor} on which {@link #sendAsync(Request)} sends requests. Once set, each 
+	 * asynchronous request is sent with the blocking {@link #send(Request)} as a task on the executor, rather 
+	 * than asynchronously by the {@link Transport}. This suits executors starting a virtual thread per task, 
+	 * such as {@link ExecutorUtils#getDefaultExecutor()} on Java 21 or later. The executor is not shut down by 
+	 * this client. Setting <code>null</code> restores sending by the transport.
+	 * 
+	 * @param executor
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
 	}
 
 	/**
@@ -171,43 +565,892 @@ public class RealexClient {
 		this.httpConfiguration = httpConfiguration;
 	}
 
+	/**
+	 * Getter for the {@link Transport} used to send requests. Unless a transport has been set, this is a 
+	 * transport which sends requests using the {@link HttpClient} and {@link HttpAsyncClient} of this client.
+	 * 
+	 * @return Transport
+	 */
+	public Transport getTransport() {
+		Transport current = transport;
+		return null == current ? defaultTransport : current;
+	}
+
+	/**
+	 * Setter for the {@link Transport} used to send requests, in place of the {@link HttpClient} and 
+	 * {@link HttpAsyncClient} of this client. The transport is not closed by this client. Setting 
+	 * <code>null</code> restores the default transport.
+	 * 
+	 * @param transport
+	 */
+	public void setTransport(Transport transport) {
+		this.transport = transport;
+	}
+
+	/**
+	 * Returns the live statistics of the weighted endpoints requests are routed between, for monitoring. 
+	 * Empty if no weighted endpoints are configured in the {@link HttpConfiguration}, or no request has been 
+	 * sent since they were.
+	 * 
+	 * @return List
+	 */
+	public List<EndpointStats> getEndpointStats() {
+		return routingTransport.getEndpointStats();
+	}
+
+	/**
+	 * Getter for the {@link HedgingPolicy}, <code>null</code> if requests are not hedged.
+	 * 
+	 * @return HedgingPolicy
+	 */
+	public HedgingPolicy getHedgingPolicy() {
+		RequestHedger current = hedger;
+		return null == current ? null : current.getPolicy();
+	}
+
+	/**
+	 * Setter for the {@link HedgingPolicy}. Once set, requests without side effects are hedged as described 
+	 * in {@link RequestHedger}; the latencies recorded are discarded each time a policy is set. Setting 
+	 * <code>null</code> stops hedging.
+	 * 
+	 * @param hedgingPolicy
+	 */
+	public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+		this.hedger = null == hedgingPolicy ? null : new RequestHedger(hedgingPolicy);
+	}
+
+	/**
+	 * Returns the {@link RequestHedger} hedging requests, for monitoring, or <code>null</code> if no 
+	 * {@link HedgingPolicy} has been set.
+	 * 
+	 * @return RequestHedger
+	 */
+	public RequestHedger getRequestHedger() {
+		return hedger;
+	}
+
+	/**
+	 * Returns the circuit breaker around requests, for monitoring, or <code>null</code> if no 
+	 * {@link CircuitBreakerPolicy} is configured in the {@link HttpConfiguration}.
+	 * 
+	 * @return CircuitBreaker
+	 */
+	public CircuitBreaker getCircuitBreaker() {
+		CircuitBreakerPolicy policy = httpConfiguration.getCircuitBreakerPolicy();
+		if (null == policy) {
+			return null;
+		}
+		for (;;) {
+			CircuitBreaker current = circuitBreaker.get();
+			if (null != current && current.getPolicy() == policy) {
+				return current;
+			}
+			CircuitBreaker created = new CircuitBreaker(policy);
+			if (circuitBreaker.compareAndSet(current, created)) {
+				return created;
+			}
+		}
+	}
+
+	/**
+	 * Returns the transport dispatching requests in priority lanes, for monitoring, or <code>null</code> if 
+	 * no {@link LanePolicy} is configured in the {@link HttpConfiguration}.
+	 * 
+	 * @return PriorityTransport
+	 */
+	public PriorityTransport getPriorityTransport() {
+		HttpConfiguration current = httpConfiguration;
+		LanePolicy policy = current.getLanePolicy();
+		if (null == policy) {
+			return null;
+		}
+		int maxConnections = policy.getMaxConnections();
+		if (maxConnections <= 0) {
+			//no more than the pool gives the endpoints, so requests queue in the lanes rather than in the pool
+			int routes = Math.max(1, current.getEndpoints().size());
+			maxConnections = (int) Math.min((long) current.getMaxConnectionsPerRoute() * routes, current.getMaxConnectionsTotal());
+		}
+		for (;;) {
+			PriorityTransport existing = priorityTransport.get();
+			if (null != existing && existing.getPolicy() == policy && existing.getMaxConnections() == maxConnections) {
+				return existing;
+			}
+			PriorityTransport created = new PriorityTransport(routingTransport, policy, maxConnections);
+			if (priorityTransport.compareAndSet(existing, created)) {
+				return created;
+			}
+		}
+	}
+
+	/**
+	 * Returns the transport requests are sent with: the {@link PriorityTransport} where a {@link LanePolicy} 
+	 * is configured, otherwise the routing transport.
+	 * 
+	 * @return Transport
+	 */
+	private Transport dispatcher() {
+		PriorityTransport current = getPriorityTransport();
+		return null == current ? routingTransport : current;
+	}
+
+	/**
+	 * Returns the retrier of requests which failed communicating with Realex, for monitoring, or 
+	 * <code>null</code> if no {@link RetryPolicy} is configured in the {@link HttpConfiguration}.
+	 * 
+	 * @return RequestRetrier
+	 */
+	public RequestRetrier getRequestRetrier() {
+		RetryPolicy policy = httpConfiguration.getRetryPolicy();
+		if (null == policy) {
+			return null;
+		}
+		for (;;) {
+			RequestRetrier current = retrier.get();
+			if (null != current && current.getPolicy() == policy) {
+				return current;
+			}
+			RequestRetrier created = new RequestRetrier(policy);
+			if (retrier.compareAndSet(current, created)) {
+				return created;
+			}
+		}
+	}
+
+	/**
+	 * Returns the bulkhead limiting the requests in progress at once, for monitoring, or <code>null</code> 
+	 * if there is no limit configured in the {@link HttpConfiguration}.
+	 * 
+	 * @return Bulkhead
+	 */
+	public Bulkhead getBulkhead() {
+		HttpConfiguration current = httpConfiguration;
+		int maxConcurrentRequests = current.getMaxConcurrentRequests();
+		if (maxConcurrentRequests <= 0) {
+			return null;
+		}
+		long maxWait = current.getMaxConcurrentRequestsWait();
+		for (;;) {
+			Bulkhead existing = bulkhead.get();
+			if (null != existing && existing.getMaxConcurrentRequests() == maxConcurrentRequests && existing.getMaxWait() == maxWait) {
+				return existing;
+			}
+			Bulkhead created = new Bulkhead(maxConcurrentRequests, maxWait);
+			if (bulkhead.compareAndSet(existing, created)) {
+				return created;
+			}
+		}
+	}
+
+	/**
+	 * Returns the adaptive concurrency limiter for the merchant account, for monitoring, or <code>null</code> 
+	 * if no {@link ConcurrencyLimitPolicy} is configured in the {@link HttpConfiguration}.
+	 * 
+	 * @param merchantId
+	 * @param account
+	 * @return ConcurrencyLimiter
+	 */
+	public ConcurrencyLimiter getConcurrencyLimiter(String merchantId, String account) {
+		final ConcurrencyLimitPolicy policy = httpConfiguration.getConcurrencyLimitPolicy();
+		if (null == policy) {
+			return null;
+		}
+		String key = merchantId + "/" + account;
+		ConcurrencyLimiter existing = concurrencyLimiters.get(key);
+		if (null != existing && existing.getPolicy() == policy) {
+			return existing;
+		}
+		return concurrencyLimiters.compute(key,
+				(name, current) -> null != current && current.getPolicy() == policy ? current : new ConcurrencyLimiter(name, policy));
+	}
+
+	/**
+	 * Returns the adaptive concurrency limiters of the merchant accounts requests have been sent for, for 
+	 * monitoring.
+	 * 
+	 * @return Collection
+	 */
+	public Collection<ConcurrencyLimiter> getConcurrencyLimiters() {
+		return Collections.unmodifiableCollection(concurrencyLimiters.values());
+	}
+
+	/**
+	 * Returns the token bucket limiting the rate of payment requests of the type for the merchant, for 
+	 * monitoring, or <code>null</code> if they are not rate limited by a {@link RateLimitPolicy} configured 
+	 * in the {@link HttpConfiguration}.
+	 * 
+	 * @param merchantId
+	 * @param paymentType
+	 * @return TokenBucket
+	 */
+	public TokenBucket getTokenBucket(String merchantId, PaymentType paymentType) {
+		RateLimitPolicy policy = httpConfiguration.getRateLimitPolicy();
+		return null == policy ? null : tokenBucket(merchantId, paymentType.getType(), policy.getRateLimit(paymentType));
+	}
+
+	/**
+	 * Returns <code>true</code> if the request could be sent now without being held or rejected by the rate 
+	 * limit, the limit on concurrent requests or the concurrency limit of its merchant account, where they are 
+	 * configured. Another thread may take the capacity before the request is sent.
+	 * 
+	 * @param request
+	 * @return boolean
+	 */
+	public boolean hasCapacity(Request<?, ?> request) {
+		TokenBucket tokenBucket = tokenBucket(request);
+		if (null != tokenBucket && tokenBucket.getAvailablePermits() <= 0) {
+			return false;
+		}
+		Bulkhead currentBulkhead = getBulkhead();
+		if (null != currentBulkhead && currentBulkhead.getConcurrentRequests() >= currentBulkhead.getMaxConcurrentRequests()) {
+			return false;
+		}
+		ConcurrencyLimiter concurrencyLimiter = getConcurrencyLimiter(request.getMerchantId(), request.getAccount());
+		return null == concurrencyLimiter || concurrencyLimiter.getInFlight() < concurrencyLimiter.getLimit();
+	}
+
+	/**
+	 * Returns the token bucket limiting the rate of the request, <code>null</code> if it is not rate limited.
+	 * 
+	 * @param request
+	 * @return TokenBucket
+	 */
+	private TokenBucket tokenBucket(Request<?, ?> request) {
+		RateLimitPolicy policy = httpConfiguration.getRateLimitPolicy();
+		if (null == policy) {
+			return null;
+		}
+		if (request instanceof PaymentRequest) {
+			PaymentRequest paymentRequest = (PaymentRequest) request;
+			return tokenBucket(request.getMerchantId(), paymentRequest.getType(), policy.getRateLimit(paymentRequest.getPaymentType()));
+		}
+		if (request instanceof ThreeDSecureRequest) {
+			return tokenBucket(request.getMerchantId(), ((ThreeDSecureRequest) request).getType(), policy.getRateLimit());
+		}
+		return tokenBucket(request.getMerchantId(), null, policy.getRateLimit());
+	}
+
+	private TokenBucket tokenBucket(String merchantId, String type, final RateLimit rateLimit) {
+		if (null == rateLimit) {
+			return null;
+		}
+		String key = merchantId + "/" + type;
+		TokenBucket existing = tokenBuckets.get(key);
+		if (null != existing && existing.getRateLimit() == rateLimit) {
+			return existing;
+		}
+		return tokenBuckets.compute(key,
+				(name, current) -> null != current && current.getRateLimit() == rateLimit ? current : new TokenBucket(name, rateLimit));
+	}
+
+	/**
+	 * Takes a permit to send the request if it is rate limited, waiting up to the maximum wait of the 
+	 * {@link RateLimitPolicy}, within the deadline, if <code>wait</code> is set. Throws a 
+	 * {@link RealexRejectedException} if no permit is issued.
+	 * 
+	 * @param request
+	 * @param deadline
+	 * @param wait
+	 */
+	private void acquirePermit(Request<?, ?> request, Deadline deadline, boolean wait) {
+		TokenBucket tokenBucket = tokenBucket(request);
+		if (null == tokenBucket) {
+			return;
+		}
+		long maxWait = wait ? httpConfiguration.getRateLimitPolicy().getMaxWait() : 0;
+		if (null != deadline) {
+			maxWait = Math.min(maxWait, deadline.remainingMillis());
+		}
+		if (maxWait > 0 ? !tokenBucket.tryAcquire(maxWait, TimeUnit.MILLISECONDS) : !tokenBucket.tryAcquire()) {
+			throw new RealexRejectedException("Rate limit of " + tokenBucket.getRateLimit().getPermitsPerSecond()
+					+ " requests per second reached for " + tokenBucket.getName() + ".");
+		}
+	}
+
+	/**
+	 * Getter for XmlCodec.
+	 * 
+	 * @return XmlCodec
+	 */
+	public XmlCodec getXmlCodec() {
+		return xmlCodec;
+	}
+
+	/**
+	 * Setter for XmlCodec.
+	 * 
+	 * @param xmlCodec
+	 */
+	public void setXmlCodec(XmlCodec xmlCodec) {
+		this.xmlCodec = xmlCodec;
+	}
+
+	/**
+	 * <p>
+	 * Prepares the client for its first requests, which are otherwise much slower than those that follow. 
+	 * Blocks until complete. Actions:
+	 * 
+	 * <ol>
+	 * <li>Runs the given number of synthetic cycles of generating request defaults, marshalling the request 
+	 * and unmarshalling and validating the response, for payment and 3D Secure messages, with the 
+	 * {@link XmlCodec}. This initialises the codec and JAXB contexts, populates the marshaller pools and 
+	 * gives the JIT the chance to compile the hashing and marshalling code. No requests are sent.</li>
+	 * <li>Opens the given number of pooled connections to the configured endpoint, including the TLS 
+	 * handshake, with the {@link Transport} if one has been set, otherwise with the connection manager of the 
+	 * default {@link HttpClient}. Connections are not opened for a supplied {@link HttpClient}, or for the 
+	 * {@link HttpAsyncClient}.</li>
+	 * </ol>
+	 * </p>
+	 * <p>
+	 * A failure to open connections is logged rather than thrown, requests then opening connections as usual. 
+	 * Once complete {@link #isWarmedUp()} returns <code>true</code>, for example for a readiness check:
+	 * <code><pre>
+	 * client.warmUp(10, 2000);
+	 * </pre></code>
+	 * </p>
+	 * 
+	 * @param connections
+	 * @param cycles
+	 */
+	public void warmUp(int connections, int cycles) {
+
+		if (connections < 0) {
+			throw new IllegalArgumentException("Connections must not be negative.");
+		}
+
+		LOGGER.info("Warming up Realex client.");
+
+		//initialise the codec and exercise the request/response processing
+		WarmUpUtils.warmUpCodec(xmlCodec, generationContext, cycles);
+
+		//open connections to Realex, to each endpoint requests are routed between
+		List<WeightedEndpoint> endpoints = httpConfiguration.getEndpoints();
+		if (endpoints.isEmpty()) {
+			openConnections(httpConfiguration, connections);
+		}
+		for (WeightedEndpoint endpoint : endpoints) {
+			openConnections(httpConfiguration.withEndpoint(endpoint.getEndpoint()), connections);
+		}
+
+		warmedUp = true;
+		LOGGER.info("Realex client warmed up.");
+	}
+
+	/**
+	 * Opens connections to the endpoint with the {@link Transport} if one has been set, otherwise with the 
+	 * connection manager of the default {@link HttpClient}.
+	 * 
+	 * @param endpointConfiguration
+	 * @param connections
+	 */
+	private void openConnections(HttpConfiguration endpointConfiguration, int connections) {
+		Transport current = transport;
+		if (null != current) {
+			current.warmUp(endpointConfiguration, connections);
+		} else if (null != connectionManager) {
+			HttpUtils.openConnections(connectionManager, endpointConfiguration, connections);
+		} else {
+			LOGGER.debug("Connections not opened on warm up for a supplied HttpClient.");
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> once {@link #warmUp(int, int)} has completed.
+	 * 
+	 * @return boolean
+	 */
+	public boolean isWarmedUp() {
+		return warmedUp;
+	}
+
 	/**
 	 * <p>
 	 * Sends the request to Realex. Actions:
 	 * 
 	 * <ol>
 	 * <li>Generates any defaults on the request e.g. hash, time stamp order ID.</li>
-	 * <li>Marshals request to XML.</li>
-	 * <li>Sends request to Realex.</li>
-	 * <li>Unmarshals response.</li>
+	 * <li>Sends request to Realex, marshalling the request directly to the HTTP request body.</li>
+	 * <li>Unmarshals response directly from the HTTP response body.</li>
 	 * <li>Checks result code (If response is an error then throws {@link RealexServerException}).</li>
 	 * <li>Validates response hash (If invalid throws {@link RealexException}).</li>
 	 * </ol>
 	 * </p>
+	 * <p>
+	 * If a {@link HedgingPolicy} has been set and the request has no side effects, the request is hedged. 
+	 * If a rate limit, circuit breaker or limit on concurrent requests is configured, a request may be rejected 
+	 * without being sent with a {@link RealexCircuitOpenException} or {@link RealexRejectedException}.
+	 * </p>
 	 * 
 	 * @param request
 	 * @return Response
 	 */
 	public <T, U extends Response<U>> U send(Request<T, U> request) {
+		return send(request, null);
+	}
+
+	/**
+	 * <p>
+	 * Sends the request to Realex, as for {@link #send(Request)}, completing within the deadline. The time 
+	 * remaining is checked before each stage of sending the request, and the connect, connection request and 
+	 * socket timeouts of the {@link TimeoutProfile} for the request are cut to the time remaining, so that no 
+	 * stage waits beyond the deadline. Where the profile has a total timeout the earlier of the two applies. 
+	 * If the deadline passes a {@link RealexTimeoutException} is thrown and the request aborted; the request 
+	 * may or may not have been processed by Realex.
+	 * </p>
+	 * 
+	 * @param request
+	 * @param deadline the deadline, or <code>null</code> for none beyond the timeouts
+	 * @return Response
+	 */
+	public <T, U extends Response<U>> U send(Request<T, U> request, Deadline deadline) {
+		return send(request, deadline, null);
+	}
+
+	/**
+	 * Sends the request to Realex, as for {@link #send(Request, Deadline)}, in the priority lane given rather 
+	 * than that of its type, where a {@link LanePolicy} is configured in the {@link HttpConfiguration}.
+	 * 
+	 * @param request
+	 * @param deadline the deadline, or <code>null</code> for none beyond the timeouts
+	 * @param lane the lane, or <code>null</code> for the lane of the type of request
+	 * @return Response
+	 */
+	public <T, U extends Response<U>> U send(Request<T, U> request, Deadline deadline, Lane lane) {
 
 		LOGGER.info("Sending XML request to Realex.");
 
+		if (null != deadline) {
+			deadline.check("before sending the request to Realex");
+		}
+
+		//take a permit first, so that requests over the rate limit are not hashed or marshalled
+		acquirePermit(request, deadline, true);
+
 		//generate any required defaults e.g. order ID, time stamp, hash
-		request.generateDefaults(secret);
+		request.generateDefaults(generationContext);
 
-		//convert request to XML
-		LOGGER.debug("Marshalling request object to XML.");
-		String xmlRequest = request.toXml();
+		final HttpConfiguration requestConfiguration = requestConfiguration(request, deadline, lane);
+		final AtomicBoolean written = new AtomicBoolean();
+		Supplier<U> call = () -> sendChecked(request, requestConfiguration, written);
 
-		//send request to Realex.
-		String xmlResult = HttpUtils.sendMessage(xmlRequest, httpClient, httpConfiguration);
+		//retry failures communicating with Realex where the request cannot have reached Realex or may be repeated
+		final RequestRetrier currentRetrier = getRequestRetrier();
+		if (null != currentRetrier) {
+			final Supplier<U> attempt = call;
+			final boolean repeatable = currentRetrier.getPolicy().isRepeatable(request);
+			call = () -> currentRetrier.call(attempt, failure -> FailurePhase.of(failure, written.get()), repeatable, deadline);
+		}
 
-		//log the response
-		LOGGER.trace("Response XML from server: {}", xmlResult);
+		//reject requests while Realex is failing, limit the requests in progress, and adapt the limit for the account
+		final CircuitBreaker currentCircuitBreaker = getCircuitBreaker();
+		if (null != currentCircuitBreaker) {
+			final Supplier<U> guarded = call;
+			call = () -> currentCircuitBreaker.call(guarded, failure -> notSent(failure, written));
+		}
+		final Bulkhead currentBulkhead = getBulkhead();
+		if (null != currentBulkhead) {
+			final Supplier<U> limited = call;
+			call = () -> currentBulkhead.call(limited, deadline);
+		}
+		ConcurrencyLimiter concurrencyLimiter = getConcurrencyLimiter(request.getMerchantId(), request.getAccount());
+		return null == concurrencyLimiter ? call.get() : concurrencyLimiter.call(call, deadline);
+	}
 
-		//convert XML to response object
-		LOGGER.debug("Unmarshalling XML to response object.");
-		U response = request.responseFromXml(new StreamSource(new StringReader(xmlResult)));
+	/**
+	 * Sends the request, hedging it if a {@link HedgingPolicy} has been set and the request has no side 
+	 * effects, and checks the response.
+	 * 
+	 * @param request
+	 * @param requestConfiguration
+	 * @param written set once the request has been written in full
+	 * @return Response
+	 */
+	private <T, U extends Response<U>> U sendChecked(Request<T, U> request, HttpConfiguration requestConfiguration, AtomicBoolean written) {
+
+		XmlCodec codec = xmlCodec;
+		RequestHedger currentHedger = hedger;
+		if (null != currentHedger && request.isSideEffectFree()) {
+			try {
+				return sendHedged(currentHedger, requestConfiguration, request, codec, written).join();
+			} catch (CompletionException ex) {
+				Throwable cause = ex.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				throw new RealexException("Exception communicating with Realex.", cause);
+			}
+		}
+
+		//send request to Realex, marshalling the request to and unmarshalling the response from the connection
+		written.set(false);
+		U response = dispatcher().send(requestConfiguration, requestWriter(request, codec, written), responseReader(request, codec));
+
+		return checkResponse(response);
+	}
+
+	/**
+	 * <p>
+	 * Sends the request to Realex without blocking the calling thread. The same actions are performed as 
+	 * for {@link #send(Request)}, with the request sent asynchronously by the {@link Transport}, by default 
+	 * using the {@link HttpAsyncClient}. Generating the defaults happens on the calling thread; the response 
+	 * is unmarshalled and validated when it arrives.
+	 * </p>
+	 * <p>
+	 * The returned future completes exceptionally with a {@link RealexServerException} if the response is 
+	 * an error, or a {@link RealexException} if the response hash is invalid or the request could not be sent.
+	 * </p>
+	 * <p>
+	 * If an {@link Executor} has been set with {@link #setExecutor(Executor)} the request is instead sent with 
+	 * {@link #send(Request)} as a task on the executor, generating the defaults on the executor's thread and 
+	 * waiting for rate limit permits as a blocking send does. Cancelling the future before the task starts 
+	 * stops the request being sent.
+	 * </p>
+	 * 
+	 * @param request
+	 * @return CompletableFuture
+	 */
+	public <T, U extends Response<U>> CompletableFuture<U> sendAsync(final Request<T, U> request) {
+		return sendAsync(request, null);
+	}
+
+	/**
+	 * Sends the request to Realex without blocking the calling thread, as for {@link #sendAsync(Request)}, 
+	 * within the deadline as described for {@link #send(Request, Deadline)}. The returned future completes 
+	 * exceptionally with a {@link RealexTimeoutException} if the deadline passes.
+	 * 
+	 * @param request
+	 * @param deadline the deadline, or <code>null</code> for none beyond the timeouts
+	 * @return CompletableFuture
+	 */
+	public <T, U extends Response<U>> CompletableFuture<U> sendAsync(final Request<T, U> request, Deadline deadline) {
+		return sendAsync(request, deadline, null);
+	}
+
+	/**
+	 * Sends the request to Realex without blocking the calling thread, as for 
+	 * {@link #sendAsync(Request, Deadline)}, in the priority lane given rather than that of its type, where a 
+	 * {@link LanePolicy} is configured in the {@link HttpConfiguration}.
+	 * 
+	 * @param request
+	 * @param deadline the deadline, or <code>null</code> for none beyond the timeouts
+	 * @param lane the lane, or <code>null</code> for the lane of the type of request
+	 * @return CompletableFuture
+	 */
+	public <T, U extends Response<U>> CompletableFuture<U> sendAsync(final Request<T, U> request, Deadline deadline, Lane lane) {
+
+		final Executor currentExecutor = executor;
+		if (null != currentExecutor) {
+			return sendOnExecutor(currentExecutor, request, deadline, lane);
+		}
+
+		LOGGER.info("Sending XML request to Realex asynchronously.");
+
+		HttpConfiguration requestConfiguration;
+		try {
+			if (null != deadline) {
+				deadline.check("before sending the request to Realex");
+			}
+
+			//take a permit first, without waiting, so that requests over the rate limit are not hashed or marshalled
+			acquirePermit(request, deadline, false);
+
+			//generate any required defaults e.g. order ID, time stamp, hash
+			request.generateDefaults(generationContext);
+			requestConfiguration = requestConfiguration(request, deadline, lane);
+		} catch (RuntimeException ex) {
+			CompletableFuture<U> failed = new CompletableFuture<U>();
+			failed.completeExceptionally(ex);
+			return failed;
+		}
+
+		final HttpConfiguration permittedConfiguration = requestConfiguration;
+		final AtomicBoolean written = new AtomicBoolean();
+		Supplier<CompletableFuture<U>> call = () -> sendAsyncChecked(request, permittedConfiguration, written);
+
+		//retry failures communicating with Realex where the request cannot have reached Realex or may be repeated
+		final RequestRetrier currentRetrier = getRequestRetrier();
+		if (null != currentRetrier) {
+			final Supplier<CompletableFuture<U>> attempt = call;
+			final boolean repeatable = currentRetrier.getPolicy().isRepeatable(request);
+			call = () -> currentRetrier.callAsync(attempt, failure -> FailurePhase.of(failure, written.get()), repeatable, deadline);
+		}
+
+		//reject requests while Realex is failing, limit the requests in progress, and adapt the limit for the account
+		final CircuitBreaker currentCircuitBreaker = getCircuitBreaker();
+		if (null != currentCircuitBreaker) {
+			final Supplier<CompletableFuture<U>> guarded = call;
+			call = () -> currentCircuitBreaker.callAsync(guarded, failure -> notSent(failure, written));
+		}
+		final Bulkhead currentBulkhead = getBulkhead();
+		if (null != currentBulkhead) {
+			final Supplier<CompletableFuture<U>> limited = call;
+			call = () -> currentBulkhead.callAsync(limited);
+		}
+		ConcurrencyLimiter concurrencyLimiter = getConcurrencyLimiter(request.getMerchantId(), request.getAccount());
+		return null == concurrencyLimiter ? call.get() : concurrencyLimiter.callAsync(call);
+	}
+
+	/**
+	 * <p>
+	 * Returns a Reactive Streams {@link Publisher} which, once subscribed to, sends each request published by 
+	 * <code>requests</code> with {@link #sendAsync(Request)} and publishes its {@link SendResult}, pulling 
+	 * requests only as results are requested and the client has capacity for them, as described in 
+	 * {@link SendPublisher}. Failed requests are published as failed results rather than ending the stream.
+	 * </p>
+	 * <p>
+	 * No more requests are in flight at once than the maximum concurrent requests of the 
+	 * {@link HttpConfiguration}, where set, otherwise the maximum connections per route.
+	 * </p>
+	 * 
+	 * @param requests
+	 * @return Publisher
+	 */
+	public <T, U extends Response<U>> Publisher<SendResult<T, U>> sendStream(Publisher<? extends Request<T, U>> requests) {
+		int maxConcurrentRequests = httpConfiguration.getMaxConcurrentRequests();
+		return sendStream(requests, maxConcurrentRequests > 0 ? maxConcurrentRequests : httpConfiguration.getMaxConnectionsPerRoute());
+	}
+
+	/**
+	 * Returns a Reactive Streams {@link Publisher} of the {@link SendResult} of each request published by 
+	 * <code>requests</code>, as for {@link #sendStream(Publisher)}, with no more than <code>maxInFlight</code> 
+	 * requests in flight at once.
+	 * 
+	 * @param requests
+	 * @param maxInFlight
+	 * @return Publisher
+	 */
+	public <T, U extends Response<U>> Publisher<SendResult<T, U>> sendStream(Publisher<? extends Request<T, U>> requests, int maxInFlight) {
+		return new SendPublisher<T, U>(this, requests, maxInFlight);
+	}
+
+	/**
+	 * Sends the batch of requests, no more than <code>parallelism</code> at once, and returns the result of 
+	 * each in the order of the requests once all have completed, as described in {@link BatchSender}. Failed 
+	 * requests are returned as failed results. For large batches, use 
+	 * {@link #sendAll(Iterable, int, Consumer, ProgressListener)} to consume the results as they are delivered.
+	 * 
+	 * @param requests
+	 * @param parallelism the maximum number of requests in flight at once
+	 * @return List
+	 */
+	public <T, U extends Response<U>> List<SendResult<T, U>> sendAll(Collection<? extends Request<T, U>> requests, int parallelism) {
+		List<SendResult<T, U>> results = new ArrayList<SendResult<T, U>>(requests.size());
+		sendAll(requests, parallelism, results::add, null);
+		return results;
+	}
+
+	/**
+	 * Sends the batch of requests, no more than <code>parallelism</code> at once, delivering the result of 
+	 * each to the consumer in the order of the requests as soon as the results before it have been delivered, 
+	 * and reporting progress to the listener after each, as described in {@link BatchSender}. Requests are 
+	 * taken from <code>requests</code> as they are sent, so neither the requests nor their results need be 
+	 * held in memory. Returns once every result has been delivered.
+	 * 
+	 * @param requests
+	 * @param parallelism the maximum number of requests in flight at once
+	 * @param resultConsumer
+	 * @param progressListener may be <code>null</code>
+	 * @return the progress of the completed batch
+	 */
+	public <T, U extends Response<U>> BatchProgress sendAll(Iterable<? extends Request<T, U>> requests, int parallelism,
+			Consumer<? super SendResult<T, U>> resultConsumer, ProgressListener progressListener) {
+		return new BatchSender<T, U>(this, parallelism).send(requests, resultConsumer, progressListener);
+	}
+
+	/**
+	 * Sends the request with {@link #send(Request, Deadline, Lane)} as a task on the executor, unless the 
+	 * returned future has been completed, by cancellation, before the task starts.
+	 * 
+	 * @param executor
+	 * @param request
+	 * @param deadline
+	 * @param lane
+	 * @return CompletableFuture
+	 */
+	private <T, U extends Response<U>> CompletableFuture<U> sendOnExecutor(Executor executor, final Request<T, U> request,
+			final Deadline deadline, final Lane lane) {
+		final CompletableFuture<U> result = new CompletableFuture<U>();
+		try {
+			executor.execute(() -> {
+				if (result.isDone()) {
+					return;
+				}
+				try {
+					result.complete(send(request, deadline, lane));
+				} catch (RuntimeException ex) {
+					result.completeExceptionally(ex);
+				}
+			});
+		} catch (RejectedExecutionException ex) {
+			LOGGER.error("Executor rejected request to Realex.", ex);
+			result.completeExceptionally(new RealexRejectedException("Request rejected by the executor."));
+		}
+		return result;
+	}
+
+	/**
+	 * Sends the request asynchronously, hedging it if a {@link HedgingPolicy} has been set and the request 
+	 * has no side effects, validating the response on completion.
+	 * 
+	 * @param request
+	 * @param requestConfiguration
+	 * @param written set once the request has been written in full
+	 * @return CompletableFuture
+	 */
+	private <T, U extends Response<U>> CompletableFuture<U> sendAsyncChecked(Request<T, U> request,
+			HttpConfiguration requestConfiguration, AtomicBoolean written) {
+
+		//send request to Realex, validating the response on completion
+		XmlCodec codec = xmlCodec;
+		RequestHedger currentHedger = hedger;
+		if (null != currentHedger && request.isSideEffectFree()) {
+			return sendHedged(currentHedger, requestConfiguration, request, codec, written);
+		}
+
+		CompletableFuture<U> response;
+		try {
+			written.set(false);
+			response = dispatcher().sendAsync(requestConfiguration, requestWriter(request, codec, written), responseReader(request, codec));
+		} catch (RuntimeException ex) {
+			response = new CompletableFuture<U>();
+			response.completeExceptionally(ex);
+		}
+		return response.thenApply(this::checkResponse);
+	}
+
+	/**
+	 * Returns the HTTP configuration for sending the request: a copy with the lane of the request, where a 
+	 * {@link LanePolicy} has been set, and the {@link TimeoutProfile} for the type of request and the deadline, 
+	 * where either has been set, otherwise the configuration itself.
+	 * 
+	 * @param request
+	 * @param deadline
+	 * @param lane the lane given with the request, may be <code>null</code>
+	 * @return HttpConfiguration
+	 */
+	private HttpConfiguration requestConfiguration(Request<?, ?> request, Deadline deadline, Lane lane) {
+		HttpConfiguration current = httpConfiguration;
+		LanePolicy lanePolicy = current.getLanePolicy();
+		if (null != lanePolicy) {
+			current = current.withLane(null == lane ? lanePolicy.getLane(request) : lane);
+		}
+		if (null == deadline && !current.hasTimeoutProfiles()) {
+			return current;
+		}
+
+		TimeoutProfile timeoutProfile;
+		if (request instanceof PaymentRequest && null != ((PaymentRequest) request).getPaymentType()) {
+			timeoutProfile = current.getTimeoutProfile(((PaymentRequest) request).getPaymentType());
+		} else if (request instanceof ThreeDSecureRequest && null != ((ThreeDSecureRequest) request).getThreeDSecureType()) {
+			timeoutProfile = current.getTimeoutProfile(((ThreeDSecureRequest) request).getThreeDSecureType());
+		} else {
+			timeoutProfile = current.getTimeoutProfile();
+		}
+		return current.withTimeouts(timeoutProfile, deadline);
+	}
+
+	/**
+	 * Sends the request asynchronously with the hedger, each attempt's response being validated before it 
+	 * is accepted.
+	 * 
+	 * @param requestHedger
+	 * @param requestConfiguration
+	 * @param request
+	 * @param codec
+	 * @param written set once either attempt has written the request in full
+	 * @return CompletableFuture
+	 */
+	private <T, U extends Response<U>> CompletableFuture<U> sendHedged(RequestHedger requestHedger,
+			final HttpConfiguration requestConfiguration, Request<T, U> request, XmlCodec codec, AtomicBoolean written) {
+		written.set(false);
+		final RequestWriter requestWriter = requestWriter(request, codec, written);
+		final ResponseReader<U> responseReader = responseReader(request, codec);
+		final Transport currentDispatcher = dispatcher();
+		return requestHedger.hedge(() -> {
+			final CompletableFuture<U> sent = currentDispatcher.sendAsync(requestConfiguration, requestWriter, responseReader);
+			final CompletableFuture<U> checked = sent.thenApply(this::checkResponse);
+			//cancel the request itself if the hedger cancels the attempt
+			checked.whenComplete((response, throwable) -> {
+				if (checked.isCancelled()) {
+					sent.cancel(true);
+				}
+			});
+			return checked;
+		});
+	}
+
+	/**
+	 * Returns <code>true</code> if the request failed before it was sent to Realex: it had not been written, 
+	 * and the failure was not in communicating with Realex, for example a deadline passing before sending or 
+	 * a request which could not be marshalled.
+	 * 
+	 * @param failure
+	 * @param written set once the request has been written in full
+	 * @return boolean
+	 */
+	private static boolean notSent(Throwable failure, AtomicBoolean written) {
+		return !written.get() && null == FailurePhase.of(failure, false);
+	}
+
+	/**
+	 * Returns a {@link RequestWriter} which marshals the request directly to the HTTP request body, setting 
+	 * <code>written</code>, if given, once the request has been written in full.
+	 * 
+	 * @param request
+	 * @param codec
+	 * @param written may be <code>null</code>
+	 * @return RequestWriter
+	 */
+	private static RequestWriter requestWriter(final Request<?, ?> request, final XmlCodec codec, final AtomicBoolean written) {
+		return out -> {
+			LOGGER.debug("Marshalling request object to XML.");
+			codec.toXml(request, out);
+			if (null != written) {
+				written.set(true);
+			}
+		};
+	}
+
+	/**
+	 * Returns a {@link ResponseReader} which unmarshals the response directly from the HTTP response body. 
+	 * If trace logging is enabled the body is first read in full so that the response XML can be logged.
+	 * 
+	 * @param request
+	 * @param codec
+	 * @return ResponseReader
+	 */
+	private static <T, U extends Response<U>> ResponseReader<U> responseReader(final Request<T, U> request, final XmlCodec codec) {
+		return content -> {
+			InputStream xmlResult = content;
+			if (LOGGER.isTraceEnabled()) {
+				ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+				byte[] bytes = new byte[4096];
+				for (int read; (read = content.read(bytes)) != -1;) {
+					buffer.write(bytes, 0, read);
+				}
+
+				//log the response
+				LOGGER.trace("Response XML from server: {}", new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+				xmlResult = new ByteArrayInputStream(buffer.toByteArray());
+			}
+
+			//convert XML to response object
+			LOGGER.debug("Unmarshalling XML to response object.");
+			return codec.responseFromXml(request, xmlResult);
+		};
+	}
+
+	/**
+	 * Checks the unmarshalled response. Actions:
+	 * 
+	 * <ol>
+	 * <li>Checks result code (If response is an error then throws {@link RealexServerException}).</li>
+	 * <li>Validates response hash (If invalid throws {@link RealexException}).</li>
+	 * </ol>
+	 * 
+	 * @param response
+	 * @return Response
+	 */
+	private <U extends Response<U>> U checkResponse(U response) {
 
 		//throw exception if short response returned (indicating request could not be processed).
 		if (ResponseUtils.isBasicResponse(response.getResult())) {
@@ -217,7 +1460,7 @@ public class RealexClient {
 
 		//validate response hash
 		LOGGER.debug("Verifying response hash.");
-		if (!response.isHashValid(secret)) {
+		if (!response.isHashValid(generationContext.getHasher())) {
 			//Hash invalid. Throw exception.
 			LOGGER.error("Response hash is invalid. This response's validity cannot be verified.");
 			throw new RealexException("Response hash is invalid. This response's validity cannot be verified.");
@@ -225,4 +1468,28 @@ public class RealexClient {
 
 		return response;
 	}
+
+	/**
+	 * Closes the default {@link HttpClient} and {@link HttpAsyncClient} created by this client, releasing 
+	 * any pooled connections. Clients supplied to this client are left open and remain the responsibility 
+	 * of the caller.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (httpClientOwned && httpClient instanceof Closeable) {
+			LOGGER.debug("Closing default HttpClient.");
+			((Closeable) httpClient).close();
+		}
+		asyncClientLock.lock();
+		try {
+			if (httpAsyncClientOwned && httpAsyncClient instanceof Closeable) {
+				LOGGER.debug("Closing default HttpAsyncClient.");
+				((Closeable) httpAsyncClient).close();
+				httpAsyncClient = null;
+				httpAsyncClientOwned = false;
+			}
+		} finally {
+			asyncClientLock.unlock();
+		}
+	}
 }
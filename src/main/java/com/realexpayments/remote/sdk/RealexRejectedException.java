@@ -0,0 +1,20 @@
+package com.realexpayments.remote.sdk;
+
+/**
+ * This exception will be thrown when a request is rejected by the client without being sent to Realex, for 
+ * example because too many requests are already in progress. The request may be sent again later.
+ */
+public class RealexRejectedException extends RealexException {
+
+	private static final long serialVersionUID = -4629720405376781306L;
+
+	/**
+	 * Constructor for RealexRejectedException.
+	 * 
+	 * @param message
+	 */
+	public RealexRejectedException(String message) {
+		super(message);
+	}
+
+}
@@ -1,5 +1,8 @@
 package com.realexpayments.remote.sdk;
 
+import com.realexpayments.remote.sdk.domain.ResultCode;
+import com.realexpayments.remote.sdk.domain.ResultCode.Category;
+
 /**
  * This exception will be thrown when an error occurs on the Realex server when attempting to process
  * the request.
@@ -25,6 +28,11 @@ public class RealexServerException extends RealexException {
 	 */
 	private final String timeStamp;
 
+	/**
+	 * The category of the error code.
+	 */
+	private final Category resultCategory;
+
 	/**
 	 * Constructor for RealexServerException. 
 	 * 
@@ -38,6 +46,7 @@ public class RealexServerException extends RealexException {
 		this.errorCode = errorCode;
 		this.orderId = orderId;
 		this.timeStamp = timeStamp;
+		this.resultCategory = ResultCode.category(errorCode);
 	}
 
 	/**
@@ -67,4 +76,13 @@ public class RealexServerException extends RealexException {
 		return timeStamp;
 	}
 
+	/**
+	 * Get the category of the error code, for example {@link Category#GATEWAY_ERROR} for a 3xx code.
+	 * 
+	 * @return Category
+	 */
+	public Category getResultCategory() {
+		return resultCategory;
+	}
+
 }
@@ -0,0 +1,30 @@
+package com.realexpayments.remote.sdk;
+
+/**
+ * This exception will be thrown when a request to Realex does not complete within its total timeout or 
+ * {@link com.realexpayments.remote.sdk.http.Deadline}. The request may or may not have been processed by Realex.
+ */
+public class RealexTimeoutException extends RealexException {
+
+	private static final long serialVersionUID = 2809316187733457112L;
+
+	/**
+	 * Constructor for RealexTimeoutException.
+	 * 
+	 * @param message
+	 * @param throwable
+	 */
+	public RealexTimeoutException(String message, Throwable throwable) {
+		super(message, throwable);
+	}
+
+	/**
+	 * Constructor for RealexTimeoutException.
+	 * 
+	 * @param message
+	 */
+	public RealexTimeoutException(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,100 @@
+package com.realexpayments.remote.sdk;
+
+import java.util.concurrent.CompletionException;
+
+import com.realexpayments.remote.sdk.domain.Request;
+import com.realexpayments.remote.sdk.domain.Response;
+
+/**
+ * The result of sending one of many requests to Realex: the request with either its response or the exception
+ * it failed with, which would have been thrown by {@link RealexClient#send(Request)}. Failed requests are
+ * reported as results so that one failure does not end the rest of the requests.
+ *
+ * @param <T> the request type
+ * @param <U> the response type
+ */
+public final class SendResult<T, U extends Response<U>> {
+
+	private final Request<T, U> request;
+
+	private final U response;
+
+	private final RealexException exception;
+
+	private SendResult(Request<T, U> request, U response, RealexException exception) {
+		this.request = request;
+		this.response = response;
+		this.exception = exception;
+	}
+
+	/**
+	 * Returns the result of a request which succeeded.
+	 *
+	 * @param request
+	 * @param response
+	 * @return SendResult
+	 */
+	public static <T, U extends Response<U>> SendResult<T, U> success(Request<T, U> request, U response) {
+		return new SendResult<T, U>(request, response, null);
+	}
+
+	/**
+	 * Returns the result of a request which failed. Exceptions other than a {@link RealexException} are
+	 * wrapped in one.
+	 *
+	 * @param request
+	 * @param failure
+	 * @return SendResult
+	 */
+	public static <T, U extends Response<U>> SendResult<T, U> failure(Request<T, U> request, Throwable failure) {
+		if (failure instanceof CompletionException && null != failure.getCause()) {
+			failure = failure.getCause();
+		}
+		RealexException exception = failure instanceof RealexException ? (RealexException) failure
+				: new RealexException("Exception sending request to Realex.", failure);
+		return new SendResult<T, U>(request, null, exception);
+	}
+
+	/**
+	 * Returns the request sent.
+	 *
+	 * @return Request
+	 */
+	public Request<T, U> getRequest() {
+		return request;
+	}
+
+	/**
+	 * Returns the response, <code>null</code> if the request failed.
+	 *
+	 * @return Response
+	 */
+	public U getResponse() {
+		return response;
+	}
+
+	/**
+	 * Returns the exception the request failed with, for example a {@link RealexServerException} if Realex
+	 * returned an error, <code>null</code> if the request succeeded.
+	 *
+	 * @return RealexException
+	 */
+	public RealexException getException() {
+		return exception;
+	}
+
+	/**
+	 * Returns <code>true</code> if the request succeeded.
+	 *
+	 * @return boolean
+	 */
+	public boolean isSuccess() {
+		return null == exception;
+	}
+
+	@Override
+	public String toString() {
+		return isSuccess() ? "SendResult [success]" : "SendResult [" + exception.getMessage() + "]";
+	}
+
+}
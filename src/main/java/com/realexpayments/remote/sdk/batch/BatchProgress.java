@@ -0,0 +1,82 @@
+package com.realexpayments.remote.sdk.batch;
+
+/**
+ * Immutable snapshot of the progress of a batch of requests sent by a {@link BatchSender}.
+ */
+public final class BatchProgress {
+
+	private final long total;
+
+	private final long completed;
+
+	private final long failed;
+
+	private final long elapsedMillis;
+
+	/**
+	 * Creates a snapshot of the progress of a batch.
+	 *
+	 * @param total the number of requests in the batch, -1 if not known
+	 * @param completed the number of requests whose results have been delivered
+	 * @param failed the number of those requests which failed
+	 * @param elapsedMillis the time, in milli-seconds, since the batch started
+	 */
+	public BatchProgress(long total, long completed, long failed, long elapsedMillis) {
+		this.total = total;
+		this.completed = completed;
+		this.failed = failed;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	/**
+	 * Returns the number of requests in the batch, -1 if not known because the requests are not a collection.
+	 *
+	 * @return long
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 * Returns the number of requests whose results have been delivered.
+	 *
+	 * @return long
+	 */
+	public long getCompleted() {
+		return completed;
+	}
+
+	/**
+	 * Returns the number of requests whose results have been delivered and which failed.
+	 *
+	 * @return long
+	 */
+	public long getFailed() {
+		return failed;
+	}
+
+	/**
+	 * Returns the number of requests whose results have been delivered and which succeeded.
+	 *
+	 * @return long
+	 */
+	public long getSucceeded() {
+		return completed - failed;
+	}
+
+	/**
+	 * Returns the time, in milli-seconds, since the batch started.
+	 *
+	 * @return long
+	 */
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "BatchProgress [" + completed + "/" + (total < 0 ? "?" : String.valueOf(total)) + ", " + failed + " failed, "
+				+ elapsedMillis + "ms]";
+	}
+
+}
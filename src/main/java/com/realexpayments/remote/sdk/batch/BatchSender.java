@@ -0,0 +1,202 @@
+package com.realexpayments.remote.sdk.batch;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.realexpayments.remote.sdk.RealexClient;
+import com.realexpayments.remote.sdk.RealexException;
+import com.realexpayments.remote.sdk.SendResult;
+import com.realexpayments.remote.sdk.domain.Request;
+import com.realexpayments.remote.sdk.domain.Response;
+
+/**
+ * <p>
+ * Sends a batch of requests with {@link RealexClient#sendAsync(Request)}, no more than the parallelism at
+ * once, delivering the {@link SendResult} of each request to a consumer in the order of the requests. As the
+ * requests are sent by the client they share its connections, hasher and limits. Failed requests are
+ * delivered as failed results and the batch continues.
+ * </p>
+ * <p>
+ * Requests are taken from the iterator only as they are sent, and results are delivered as soon as the
+ * results of all earlier requests have been, so memory use does not grow with the size of the batch: a
+ * request is only sent while fewer than twice the parallelism are awaiting delivery, so that a slow request
+ * holds back at most that many results. A request is held back while the client has no capacity for it,
+ * see {@link RealexClient#hasCapacity(Request)}, rather than being rejected by the client's own rate and
+ * concurrency limits.
+ * </p>
+ * <p>
+ * Results are delivered, and progress reported to the {@link ProgressListener}, on the thread sending the
+ * batch, which waits for the batch to complete. An exception thrown by the consumer or listener stops the
+ * batch; requests already sent are allowed to complete.
+ * </p>
+ *
+ * @param <T> the request type
+ * @param <U> the response type
+ */
+public final class BatchSender<T, U extends Response<U>> {
+
+	private final static Logger logger = LoggerFactory.getLogger(BatchSender.class);
+
+	/**
+	 * The delay, in milli-seconds, before checking again whether the client has capacity for a request when
+	 * none are in flight.
+	 */
+	private static final long CAPACITY_RECHECK_MILLIS = 10;
+
+	private final RealexClient client;
+
+	private final int parallelism;
+
+	/**
+	 * The most requests sent but whose results are not yet delivered.
+	 */
+	private final int window;
+
+	/**
+	 * Creates a sender of batches of requests with the client.
+	 *
+	 * @param client
+	 * @param parallelism the maximum number of requests in flight at once
+	 */
+	public BatchSender(RealexClient client, int parallelism) {
+		if (null == client) {
+			throw new IllegalArgumentException("Client must not be null.");
+		}
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("Parallelism must be positive.");
+		}
+		this.client = client;
+		this.parallelism = parallelism;
+		this.window = parallelism * 2;
+	}
+
+	/**
+	 * Returns the maximum number of requests in flight at once.
+	 *
+	 * @return int
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Sends the requests, delivering the result of each to the consumer in the order of the requests, and
+	 * waits until every result has been delivered.
+	 *
+	 * @param requests
+	 * @param resultConsumer
+	 * @param progressListener may be <code>null</code>
+	 * @return the progress of the completed batch
+	 */
+	public BatchProgress send(Iterable<? extends Request<T, U>> requests, Consumer<? super SendResult<T, U>> resultConsumer,
+			ProgressListener progressListener) {
+		if (null == resultConsumer) {
+			throw new IllegalArgumentException("Result consumer must not be null.");
+		}
+		long total = requests instanceof Collection ? ((Collection<?>) requests).size() : -1;
+		long start = System.nanoTime();
+		logger.debug("Sending batch of {} requests to Realex, {} at once.", total, parallelism);
+
+		Iterator<? extends Request<T, U>> iterator = requests.iterator();
+		LinkedBlockingQueue<Completion<T, U>> completions = new LinkedBlockingQueue<Completion<T, U>>();
+		@SuppressWarnings("unchecked")
+		SendResult<T, U>[] undelivered = new SendResult[window];
+		long sent = 0;
+		long delivered = 0;
+		long failed = 0;
+		int inFlight = 0;
+		Request<T, U> next = null;
+
+		for (;;) {
+			while (inFlight < parallelism && sent - delivered < window) {
+				if (null == next) {
+					if (!iterator.hasNext()) {
+						break;
+					}
+					next = iterator.next();
+					if (null == next) {
+						throw new IllegalArgumentException("Request must not be null.");
+					}
+				}
+				if (!client.hasCapacity(next)) {
+					break;
+				}
+				send(next, sent++, completions);
+				inFlight++;
+				next = null;
+			}
+
+			if (0 == inFlight && null == next) {
+				BatchProgress progress = new BatchProgress(total, delivered, failed, elapsedMillis(start));
+				logger.debug("Sent batch of requests to Realex: {}.", progress);
+				return progress;
+			}
+
+			Completion<T, U> completion;
+			try {
+				completion = inFlight > 0 ? completions.take() : completions.poll(CAPACITY_RECHECK_MILLIS, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				throw new RealexException("Interrupted sending batch of requests to Realex.", ie);
+			}
+
+			for (; null != completion; completion = completions.poll()) {
+				inFlight--;
+				undelivered[(int) (completion.index % window)] = completion.result;
+			}
+
+			//deliver the results of the requests which follow those already delivered
+			for (int slot = (int) (delivered % window); null != undelivered[slot]; slot = (int) (delivered % window)) {
+				SendResult<T, U> result = undelivered[slot];
+				undelivered[slot] = null;
+				delivered++;
+				if (!result.isSuccess()) {
+					failed++;
+				}
+				resultConsumer.accept(result);
+				if (null != progressListener) {
+					progressListener.onProgress(new BatchProgress(total, delivered, failed, elapsedMillis(start)));
+				}
+			}
+		}
+	}
+
+	private void send(final Request<T, U> request, final long index, final LinkedBlockingQueue<Completion<T, U>> completions) {
+		CompletableFuture<U> response;
+		try {
+			response = client.sendAsync(request);
+		} catch (RuntimeException ex) {
+			response = new CompletableFuture<U>();
+			response.completeExceptionally(ex);
+		}
+		response.whenComplete((result, failure) -> completions.offer(new Completion<T, U>(index,
+				null == failure ? SendResult.success(request, result) : SendResult.failure(request, failure))));
+	}
+
+	private static long elapsedMillis(long start) {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+
+	/**
+	 * The result of the request at an index of the batch.
+	 */
+	private static final class Completion<T, U extends Response<U>> {
+
+		private final long index;
+
+		private final SendResult<T, U> result;
+
+		Completion(long index, SendResult<T, U> result) {
+			this.index = index;
+			this.result = result;
+		}
+	}
+
+}
@@ -0,0 +1,17 @@
+package com.realexpayments.remote.sdk.batch;
+
+/**
+ * Listener notified of the progress of a batch of requests sent by a {@link BatchSender}, on the thread
+ * sending the batch, each time a result is delivered.
+ */
+public interface ProgressListener {
+
+	/**
+	 * Called after each result of the batch is delivered, in the order of the requests. Should return quickly,
+	 * as no further results are delivered until it returns.
+	 *
+	 * @param progress
+	 */
+	void onProgress(BatchProgress progress);
+
+}
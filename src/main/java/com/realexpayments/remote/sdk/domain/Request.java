@@ -1,9 +1,17 @@
 package com.realexpayments.remote.sdk.domain;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
 import javax.xml.transform.Source;
 
+import com.realexpayments.remote.sdk.utils.GenerationContext;
+import com.realexpayments.remote.sdk.utils.KeyedHasher;
+
 /**
- * Interface to be implemented by all classes which represent Realex requests.
+ * Interface to be implemented by all classes which represent Realex requests. The default methods are 
+ * fallbacks for implementations which do not support them, and should be overridden.
  * 
  * @author markstanford
  *
@@ -19,6 +27,18 @@ public interface Request<T, U extends Response<U>> {
 	 */
 	String toXml();
 
+	/**
+	 * <p>
+	 * Method writes a UTF-8 encoded XML representation of the interface implementation to the stream.
+	 * </p>
+	 * 
+	 * @param out
+	 * @throws IOException
+	 */
+	default void toXml(OutputStream out) throws IOException {
+		out.write(toXml().getBytes(StandardCharsets.UTF_8));
+	}
+
 	/**
 	 * <p>
 	 * Method returns a concrete implementation of the request class from an XML source.
@@ -39,6 +59,66 @@ public interface Request<T, U extends Response<U>> {
 	 */
 	T generateDefaults(String secret);
 
+	/**
+	 * <p>
+	 * Generates default values for fields such as hash, timestamp and order ID, using the 
+	 * {@link KeyedHasher} for the hash.
+	 * </p>
+	 * 
+	 * @param hasher
+	 * @return T
+	 */
+	default T generateDefaults(KeyedHasher hasher) {
+		return generateDefaults(hasher.getSecret());
+	}
+
+	/**
+	 * <p>
+	 * Generates default values for fields such as hash, timestamp and order ID, using the 
+	 * {@link GenerationContext}'s hasher for the hash and order ID generator for the order ID.
+	 * </p>
+	 * 
+	 * @param context
+	 * @return T
+	 */
+	default T generateDefaults(GenerationContext context) {
+		return generateDefaults(context.getHasher());
+	}
+
+	/**
+	 * <p>
+	 * Returns <code>true</code> if the request has no financial side effect, so may safely be sent more 
+	 * than once, for example to hedge against a slow response.
+	 * </p>
+	 * 
+	 * @return boolean
+	 */
+	default boolean isSideEffectFree() {
+		return false;
+	}
+
+	/**
+	 * <p>
+	 * Returns the merchant ID the request is sent for.
+	 * </p>
+	 * 
+	 * @return String
+	 */
+	default String getMerchantId() {
+		return null;
+	}
+
+	/**
+	 * <p>
+	 * Returns the merchant's account the request is sent for.
+	 * </p>
+	 * 
+	 * @return String
+	 */
+	default String getAccount() {
+		return null;
+	}
+
 	/**
 	 * <p>
 	 * Method returns a concrete implementation of the response class from an XML source.
@@ -2,8 +2,11 @@ package com.realexpayments.remote.sdk.domain;
 
 import javax.xml.transform.Source;
 
+import com.realexpayments.remote.sdk.utils.KeyedHasher;
+
 /**
- * Interface to be implemented by all classes which represent Realex responses.
+ * Interface to be implemented by all classes which represent Realex responses. The default methods are 
+ * fallbacks for implementations which do not support them, and should be overridden.
  * 
  * @author markstanford
  *
@@ -51,6 +54,19 @@ public interface Response<T> {
 	 */
 	boolean isHashValid(String secret);
 
+	/**
+	 * <p>
+	 * Validates the hash in the response is correct, using the {@link KeyedHasher}. Returns 
+	 * <code>true</code> if valid, <code>false</code> if not.
+	 * </p>
+	 * 
+	 * @param hasher
+	 * @return boolean
+	 */
+	default boolean isHashValid(KeyedHasher hasher) {
+		return isHashValid(hasher.getSecret());
+	}
+
 	/**
 	 * Returns the result from the response. 
 	 * 
@@ -85,4 +101,23 @@ public interface Response<T> {
 	 * @return boolean
 	 */
 	boolean isSuccess();
+
+	/**
+	 * Returns the time, in seconds, Realex took to process the request, <code>null</code> if not reported.
+	 * 
+	 * @return Long
+	 */
+	default Long getTimeTaken() {
+		return null;
+	}
+
+	/**
+	 * Returns the time, in seconds, the acquirer took to authorise the request, <code>null</code> if not 
+	 * reported.
+	 * 
+	 * @return Long
+	 */
+	default Long getAuthTimeTaken() {
+		return null;
+	}
 }
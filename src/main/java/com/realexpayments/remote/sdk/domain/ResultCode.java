@@ -0,0 +1,167 @@
+package com.realexpayments.remote.sdk.domain;
+
+/**
+ * <p>
+ * Classifies the result codes returned by Realex into their {@link Category}. The category of every three
+ * digit code is held in a table indexed by the code, built once, so a result is classified without parsing,
+ * exceptions or string comparisons:
+ * </p>
+ * <ul>
+ * <li>0x - success.</li>
+ * <li>1xx - declined by the bank, or referred.</li>
+ * <li>2xx - error communicating with the bank.</li>
+ * <li>3xx - error in the Realex gateway.</li>
+ * <li>5xx - the request was malformed or invalid.</li>
+ * </ul>
+ * <p>
+ * Codes in the other ranges, such as 666 for a deactivated client, are other errors. Results of three or
+ * more digits are classified by their first three digits, and other results by their first digit as Realex
+ * error responses always have been. Every result whose first digit is 0 is therefore a success, as 00 is the
+ * only such code Realex returns.
+ * </p>
+ * <code><pre>
+ * if (ResultCode.category(response.getResult()) == Category.BANK_ERROR) {
+ *     //try again later
+ * }
+ * </pre></code>
+ */
+public final class ResultCode {
+
+	/**
+	 * The categories of result code.
+	 */
+	public enum Category {
+
+		/**
+		 * The request succeeded (00, or any other result whose first digit is 0).
+		 */
+		SUCCESS(false, false),
+
+		/**
+		 * The bank declined or referred the transaction (1xx).
+		 */
+		DECLINE(false, false),
+
+		/**
+		 * Realex could not communicate with the bank (2xx). The transaction was not processed and may
+		 * succeed later.
+		 */
+		BANK_ERROR(false, true),
+
+		/**
+		 * An error in the Realex gateway (3xx). The request was not processed and may succeed later.
+		 */
+		GATEWAY_ERROR(true, true),
+
+		/**
+		 * The request was malformed or invalid (5xx), and will fail again if repeated.
+		 */
+		MALFORMED_REQUEST(true, false),
+
+		/**
+		 * An error code in another range, such as 666 for a deactivated client.
+		 */
+		OTHER_ERROR(true, false),
+
+		/**
+		 * The result is missing or not a result code.
+		 */
+		UNKNOWN(false, false);
+
+		private final boolean basicResponse;
+
+		private final boolean transientError;
+
+		Category(boolean basicResponse, boolean transientError) {
+			this.basicResponse = basicResponse;
+			this.transientError = transientError;
+		}
+
+		/**
+		 * Returns <code>true</code> if responses with a result in this category are basic responses, holding
+		 * only the result and message, for which the SDK throws a
+		 * {@link com.realexpayments.remote.sdk.RealexServerException}.
+		 *
+		 * @return boolean
+		 */
+		public boolean isBasicResponse() {
+			return basicResponse;
+		}
+
+		/**
+		 * Returns <code>true</code> if the request was not processed because of a temporary error, so may
+		 * succeed if sent again later.
+		 *
+		 * @return boolean
+		 */
+		public boolean isTransientError() {
+			return transientError;
+		}
+	}
+
+	/**
+	 * The category of each three digit code, indexed by the code.
+	 */
+	private static final Category[] CATEGORIES = new Category[1000];
+
+	static {
+		for (int code = 0; code < CATEGORIES.length; code++) {
+			switch (code / 100) {
+			case 0:
+				CATEGORIES[code] = Category.SUCCESS;
+				break;
+			case 1:
+				CATEGORIES[code] = Category.DECLINE;
+				break;
+			case 2:
+				CATEGORIES[code] = Category.BANK_ERROR;
+				break;
+			case 3:
+				CATEGORIES[code] = Category.GATEWAY_ERROR;
+				break;
+			case 5:
+				CATEGORIES[code] = Category.MALFORMED_REQUEST;
+				break;
+			default:
+				CATEGORIES[code] = Category.OTHER_ERROR;
+			}
+		}
+	}
+
+	private ResultCode() {
+	}
+
+	/**
+	 * Returns the category of the result code, {@link Category#UNKNOWN} if it is <code>null</code> or not a
+	 * result code.
+	 *
+	 * @param result
+	 * @return Category
+	 */
+	public static Category category(String result) {
+		if (null == result || result.isEmpty()) {
+			return Category.UNKNOWN;
+		}
+		int first = digit(result, 0);
+		if (first < 0) {
+			return Category.UNKNOWN;
+		}
+
+		if (result.length() >= 3) {
+			int second = digit(result, 1);
+			int third = digit(result, 2);
+			if (second >= 0 && third >= 0) {
+				return CATEGORIES[first * 100 + second * 10 + third];
+			}
+		}
+
+		//classify other results by their first digit
+		return CATEGORIES[first * 100];
+	}
+
+	private static int digit(String result, int index) {
+		char c = result.charAt(index);
+		return c >= '0' && c <= '9' ? c - '0' : -1;
+	}
+
+}
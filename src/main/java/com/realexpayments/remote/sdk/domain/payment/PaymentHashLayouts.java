@@ -0,0 +1,190 @@
+package com.realexpayments.remote.sdk.domain.payment;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.realexpayments.remote.sdk.domain.Amount;
+import com.realexpayments.remote.sdk.domain.Card;
+import com.realexpayments.remote.sdk.domain.Payer;
+import com.realexpayments.remote.sdk.domain.payment.PaymentRequest.PaymentType;
+import com.realexpayments.remote.sdk.utils.HashLayout;
+import com.realexpayments.remote.sdk.utils.HashLayout.Field;
+
+/**
+ * <p>
+ * Registry of the {@link HashLayout} for each {@link PaymentType}, listing the fields of the {@link PaymentRequest}
+ * which feed its hash. Payment types without a specific layout, and requests with an unknown type, use the
+ * {@link #DEFAULT_LAYOUT} of (TIMESTAMP.MERCHANT_ID.ORDER_ID.AMOUNT.CURRENCY.CARD_NUMBER).
+ * </p>
+ * <p>
+ * The layout for a payment type may be replaced using {@link #register(PaymentType, HashLayout)}, for example:
+ * </p>
+ * <code><pre>
+ * PaymentHashLayouts.register(PaymentType.OTB, new HashLayout&lt;PaymentRequest&gt;(TIMESTAMP, MERCHANT_ID, ORDER_ID, CARD_NUMBER));
+ * </pre></code>
+ */
+public final class PaymentHashLayouts {
+
+	/**
+	 * Timestamp field.
+	 */
+	public static final Field<PaymentRequest> TIMESTAMP = (engine, request) -> engine.append(request.getTimeStamp());
+
+	/**
+	 * Merchant ID field.
+	 */
+	public static final Field<PaymentRequest> MERCHANT_ID = (engine, request) -> engine.append(request.getMerchantId());
+
+	/**
+	 * Order ID field.
+	 */
+	public static final Field<PaymentRequest> ORDER_ID = (engine, request) -> engine.append(request.getOrderId());
+
+	/**
+	 * Amount field.
+	 */
+	public static final Field<PaymentRequest> AMOUNT = (engine, request) -> {
+		Amount amount = request.getAmount();
+		engine.append(null == amount ? null : amount.getAmount());
+	};
+
+	/**
+	 * Currency field.
+	 */
+	public static final Field<PaymentRequest> CURRENCY = (engine, request) -> {
+		Amount amount = request.getAmount();
+		engine.append(null == amount ? null : amount.getCurrency());
+	};
+
+	/**
+	 * Card number field.
+	 */
+	public static final Field<PaymentRequest> CARD_NUMBER = (engine, request) -> {
+		Card card = request.getCard();
+		engine.append(null == card ? null : card.getNumber());
+	};
+
+	/**
+	 * Card holder name field.
+	 */
+	public static final Field<PaymentRequest> CARD_HOLDER_NAME = (engine, request) -> {
+		Card card = request.getCard();
+		engine.append(null == card ? null : card.getCardHolderName());
+	};
+
+	/**
+	 * Card expiry date field.
+	 */
+	public static final Field<PaymentRequest> CARD_EXPIRY_DATE = (engine, request) -> {
+		Card card = request.getCard();
+		engine.append(null == card ? null : card.getExpiryDate());
+	};
+
+	/**
+	 * Card payer reference field.
+	 */
+	public static final Field<PaymentRequest> CARD_PAYER_REF = (engine, request) -> {
+		Card card = request.getCard();
+		engine.append(null == card ? null : card.getPayerReference());
+	};
+
+	/**
+	 * Card reference field.
+	 */
+	public static final Field<PaymentRequest> CARD_REF = (engine, request) -> {
+		Card card = request.getCard();
+		engine.append(null == card ? null : card.getReference());
+	};
+
+	/**
+	 * Mobile payment token field.
+	 */
+	public static final Field<PaymentRequest> TOKEN = (engine, request) -> engine.append(request.getToken());
+
+	/**
+	 * Payer reference field.
+	 */
+	public static final Field<PaymentRequest> PAYER_REF = (engine, request) -> engine.append(request.getPayerRef());
+
+	/**
+	 * New or edited payer's reference field. A payer without a reference is hashed as "null", as it always 
+	 * has been, so that existing hashes are unchanged.
+	 */
+	public static final Field<PaymentRequest> PAYER_NEW_REF = (engine, request) -> {
+		Payer payer = request.getPayer();
+		engine.append(null == payer ? null : String.valueOf(payer.getRef()));
+	};
+
+	/**
+	 * The layout used for payment types without a specific layout, and for unknown types.
+	 */
+	public static final HashLayout<PaymentRequest> DEFAULT_LAYOUT = new HashLayout<PaymentRequest>(TIMESTAMP, MERCHANT_ID,
+			ORDER_ID, AMOUNT, CURRENCY, CARD_NUMBER);
+
+	/**
+	 * The layout for each payment type. Replaced when a layout is registered.
+	 */
+	private static volatile Map<PaymentType, HashLayout<PaymentRequest>> layouts;
+
+	static {
+		Map<PaymentType, HashLayout<PaymentRequest>> defaultLayouts = new EnumMap<PaymentType, HashLayout<PaymentRequest>>(
+				PaymentType.class);
+		for (PaymentType type : PaymentType.values()) {
+			defaultLayouts.put(type, DEFAULT_LAYOUT);
+		}
+
+		HashLayout<PaymentRequest> payerRefLayout = new HashLayout<PaymentRequest>(TIMESTAMP, MERCHANT_ID, ORDER_ID, AMOUNT,
+				CURRENCY, PAYER_REF);
+		HashLayout<PaymentRequest> payerNewRefLayout = new HashLayout<PaymentRequest>(TIMESTAMP, MERCHANT_ID, ORDER_ID, AMOUNT,
+				CURRENCY, PAYER_NEW_REF);
+
+		defaultLayouts.put(PaymentType.AUTH_MOBILE, new HashLayout<PaymentRequest>(TIMESTAMP, MERCHANT_ID, ORDER_ID, AMOUNT,
+				CURRENCY, TOKEN));
+		defaultLayouts.put(PaymentType.OTB, new HashLayout<PaymentRequest>(TIMESTAMP, MERCHANT_ID, ORDER_ID, CARD_NUMBER));
+		defaultLayouts.put(PaymentType.RECEIPT_IN, payerRefLayout);
+		defaultLayouts.put(PaymentType.PAYMENT_OUT, payerRefLayout);
+		defaultLayouts.put(PaymentType.PAYER_NEW, payerNewRefLayout);
+		defaultLayouts.put(PaymentType.PAYER_EDIT, payerNewRefLayout);
+		defaultLayouts.put(PaymentType.CARD_NEW, new HashLayout<PaymentRequest>(TIMESTAMP, MERCHANT_ID, ORDER_ID, AMOUNT,
+				CURRENCY, CARD_PAYER_REF, CARD_HOLDER_NAME, CARD_NUMBER));
+		defaultLayouts.put(PaymentType.CARD_UPDATE, new HashLayout<PaymentRequest>(TIMESTAMP, MERCHANT_ID, CARD_PAYER_REF,
+				CARD_REF, CARD_EXPIRY_DATE, CARD_NUMBER));
+		defaultLayouts.put(PaymentType.CARD_CANCEL, new HashLayout<PaymentRequest>(TIMESTAMP, MERCHANT_ID, CARD_PAYER_REF,
+				CARD_REF));
+		defaultLayouts.put(PaymentType.RECEIPT_IN_OTB, new HashLayout<PaymentRequest>(TIMESTAMP, MERCHANT_ID, ORDER_ID,
+				PAYER_REF));
+		defaultLayouts.put(PaymentType.STORED_CARD_DCC_RATE, payerRefLayout);
+
+		layouts = defaultLayouts;
+	}
+
+	private PaymentHashLayouts() {
+	}
+
+	/**
+	 * Returns the hash layout for the payment type, or the {@link #DEFAULT_LAYOUT} if the type is <code>null</code>.
+	 *
+	 * @param type
+	 * @return HashLayout
+	 */
+	public static HashLayout<PaymentRequest> get(PaymentType type) {
+		return null == type ? DEFAULT_LAYOUT : layouts.get(type);
+	}
+
+	/**
+	 * Registers the hash layout for the payment type, replacing any existing layout.
+	 *
+	 * @param type
+	 * @param layout
+	 */
+	public static synchronized void register(PaymentType type, HashLayout<PaymentRequest> layout) {
+		if (null == type || null == layout) {
+			throw new IllegalArgumentException("Payment type and hash layout must not be null.");
+		}
+
+		Map<PaymentType, HashLayout<PaymentRequest>> newLayouts = new EnumMap<PaymentType, HashLayout<PaymentRequest>>(layouts);
+		newLayouts.put(type, layout);
+		layouts = newLayouts;
+	}
+
+}
@@ -2,16 +2,23 @@ package com.realexpayments.remote.sdk.domain.payment;
 
 import com.realexpayments.remote.sdk.domain.*;
 import com.realexpayments.remote.sdk.domain.payment.Address.AddressType;
+import com.realexpayments.remote.sdk.utils.GenerationContext;
 import com.realexpayments.remote.sdk.utils.GenerationUtils;
+import com.realexpayments.remote.sdk.utils.HashEngine;
+import com.realexpayments.remote.sdk.utils.HashLayout;
+import com.realexpayments.remote.sdk.utils.KeyedHasher;
 import com.realexpayments.remote.sdk.utils.XmlUtils;
 import com.realexpayments.remote.sdk.utils.XmlUtils.MessageType;
 
 import javax.xml.bind.annotation.*;
 import javax.xml.transform.Source;
 import javax.xml.transform.stream.StreamSource;
+import java.io.OutputStream;
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * <p>
@@ -532,6 +539,16 @@ public class PaymentRequest implements Request<PaymentRequest, PaymentResponse>
         STORED_CARD_DCC_RATE("realvault-dccrate"),
         MULTI_SETTLE("multisettle");
 
+        /**
+         * Map of payment type string values to payment types.
+         */
+        private static final Map<String, PaymentType> TYPES = new HashMap<String, PaymentType>();
+
+        static {
+            for (PaymentType paymentType : values()) {
+                TYPES.put(paymentType.getType(), paymentType);
+            }
+        }
 
 
         /**
@@ -556,6 +573,27 @@ public class PaymentRequest implements Request<PaymentRequest, PaymentResponse>
         public String getType() {
             return type;
         }
+
+        /**
+         * Returns the payment type with the given string value, or <code>null</code> if the value
+         * is not a known payment type.
+         *
+         * @param type
+         * @return PaymentType
+         */
+        public static PaymentType fromType(String type) {
+            return null == type ? null : TYPES.get(type);
+        }
+
+        /**
+         * Returns <code>true</code> if requests of this type have no financial side effect, so may safely be
+         * sent more than once: OTB (open to buy) checks and DCC rate lookups.
+         *
+         * @return boolean
+         */
+        public boolean isSideEffectFree() {
+            return this == OTB || this == DCC_RATE_LOOKUP || this == STORED_CARD_DCC_RATE;
+        }
     }
 
     /**
@@ -571,6 +609,12 @@ public class PaymentRequest implements Request<PaymentRequest, PaymentResponse>
     @XmlAttribute(name = "type")
     private String type;
 
+    /**
+     * The payment type resolved from {@link #type}, cached so the type string is only looked up once.
+     */
+    @XmlTransient
+    private PaymentType paymentType;
+
     /**
      * Represents Realex Payments assigned merchant id.
      */
@@ -794,6 +838,34 @@ public class PaymentRequest implements Request<PaymentRequest, PaymentResponse>
         this.type = type;
     }
 
+    /**
+     * Returns the {@link PaymentType} for the type of this request, or <code>null</code> if the type
+     * is not set or is not a known payment type.
+     *
+     * @return PaymentType
+     */
+    public PaymentType getPaymentType() {
+        PaymentType resolved = this.paymentType;
+        //the type string is compared by reference, so it is only looked up when changed
+        if (null == resolved || resolved.getType() != this.type) {
+            resolved = PaymentType.fromType(this.type);
+            if (null != resolved) {
+                this.type = resolved.getType();
+            }
+            this.paymentType = resolved;
+        }
+        return resolved;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSideEffectFree() {
+        PaymentType resolved = getPaymentType();
+        return null != resolved && resolved.isSideEffectFree();
+    }
+
     /**
      * Setter for merchant ID.
      *
@@ -1362,6 +1434,7 @@ public class PaymentRequest implements Request<PaymentRequest, PaymentResponse>
      */
     public PaymentRequest addType(PaymentType type) {
         this.type = type.getType();
+        this.paymentType = type;
         return this;
     }
 
@@ -1643,6 +1716,14 @@ public class PaymentRequest implements Request<PaymentRequest, PaymentResponse>
         return XmlUtils.toXml(this, MessageType.PAYMENT);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void toXml(OutputStream out) {
+        XmlUtils.toXml(this, MessageType.PAYMENT, out);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1667,15 +1748,7 @@ public class PaymentRequest implements Request<PaymentRequest, PaymentResponse>
     @Override
     public PaymentRequest generateDefaults(String secret) {
 
-        //generate timestamp if not set
-        if (null == this.timeStamp) {
-            this.timeStamp = GenerationUtils.generateTimestamp();
-        }
-
-        //generate order ID if not set
-        if (null == this.orderId) {
-            this.orderId = GenerationUtils.generateOrderId();
-        }
+        generateDefaultFields(null);
 
         //generate hash
         hash(secret);
@@ -1687,203 +1760,87 @@ public class PaymentRequest implements Request<PaymentRequest, PaymentResponse>
      * {@inheritDoc}
      */
     @Override
-    public PaymentResponse responseFromXml(Source xml) {
-        return new PaymentResponse().fromXml(xml);
-    }
+    public PaymentRequest generateDefaults(KeyedHasher hasher) {
 
-    /**
-     * Creates the security hash from a number of fields and the shared secret.
-     *
-     * @param secret
-     * @return PaymentRequest
-     */
-    public PaymentRequest hash(String secret) {
+        generateDefaultFields(null);
 
-        //check for any null values and set them to empty string for hashing
-        String timeStamp = null == this.timeStamp ? "" : this.timeStamp;
-        String merchantId = null == this.merchantId ? "" : this.merchantId;
-        String orderId = null == this.orderId ? "" : this.orderId;
-        String amount = "";
-        String currency = "";
-        String token = null == this.token ? "" : this.token;
-        String payerRef = null == this.payerRef ? "" : this.payerRef;
-        String payerNewRef = null == this.payer ? "" : this.payer.getRef();
-
-        if (null != this.amount) {
-            amount = null == this.amount.getAmount() ? "" : this.amount.getAmount().toString();
-            currency = null == this.amount.getCurrency() ? "" : this.amount.getCurrency().toString();
-        }
-
-        String cardNumber = "";
-
-        if (null != this.card) {
-            cardNumber = null == this.card.getNumber() ? "" : this.card.getNumber();
-        }
+        //generate hash
+        hash(hasher);
 
+        return this;
+    }
 
-        String cardHolderName = "";
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PaymentRequest generateDefaults(GenerationContext context) {
 
-        if (null != this.card) {
-            cardHolderName = null == this.card.getCardHolderName() ? "" : this.card.getCardHolderName();
-        }
+        generateDefaultFields(context);
 
-        String cardPayerRef = "";
+        //generate hash
+        hash(context.getHasher());
 
-        if (null != this.card) {
-            cardPayerRef = null == this.card.getPayerReference() ? "" : this.card.getPayerReference();
-        }
+        return this;
+    }
 
-        String cardRef = "";
+    /**
+     * Generates the timestamp and order ID if not set. They are generated by the context's timestamp source
+     * and order ID generator, or by {@link GenerationUtils} if the context is <code>null</code>.
+     *
+     * @param context
+     */
+    private void generateDefaultFields(GenerationContext context) {
 
-        if (null != this.card) {
-            cardRef = null == this.card.getReference() ? "" : this.card.getReference();
+        //generate timestamp if not set
+        if (null == this.timeStamp) {
+            this.timeStamp = null == context ? GenerationUtils.generateTimestamp() : context.currentTimestamp();
         }
 
-        String cardExpiryDate = "";
-
-        if (null != this.card) {
-            cardExpiryDate = null == this.card.getExpiryDate() ? "" : this.card.getExpiryDate();
+        //generate order ID if not set
+        if (null == this.orderId) {
+            this.orderId = null == context ? GenerationUtils.generateOrderId() : context.generateOrderId();
         }
+    }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PaymentResponse responseFromXml(Source xml) {
+        return new PaymentResponse().fromXml(xml);
+    }
 
-        //create String to hash
-        String toHash;
-        if (PaymentType.AUTH_MOBILE.getType().equals(this.type)) {
-            toHash = new StringBuilder().append(timeStamp)
-                    .append(".")
-                    .append(merchantId)
-                    .append(".")
-                    .append(orderId)
-                    .append(".")
-                    .append(amount)
-                    .append(".")
-                    .append(currency)
-                    .append(".")
-                    .append(token)
-                    .toString();
-
-        } else if (PaymentType.OTB.getType().equals(this.type)) {
-            toHash = new StringBuilder().append(timeStamp)
-                    .append(".")
-                    .append(merchantId)
-                    .append(".")
-                    .append(orderId)
-                    .append(".")
-                    .append(cardNumber)
-                    .toString();
-
-        } else if (PaymentType.RECEIPT_IN.getType().equals(this.type) ||
-                PaymentType.PAYMENT_OUT.getType().equals(this.type)) {
-            toHash = new StringBuilder().append(timeStamp)
-                    .append(".")
-                    .append(merchantId)
-                    .append(".")
-                    .append(orderId)
-                    .append(".")
-                    .append(amount)
-                    .append(".")
-                    .append(currency)
-                    .append(".")
-                    .append(payerRef)
-                    .toString();
-        } else if (PaymentType.PAYER_NEW.getType().equals(this.type) ||
-                PaymentType.PAYER_EDIT.getType().equals(this.type)) {
-            toHash = new StringBuilder().append(timeStamp)
-                    .append(".")
-                    .append(merchantId)
-                    .append(".")
-                    .append(orderId)
-                    .append(".")
-                    .append(amount)
-                    .append(".")
-                    .append(currency)
-                    .append(".")
-                    .append(payerNewRef)
-                    .toString();
-        } else if (PaymentType.CARD_NEW.getType().equals(this.type)) {
-
-            toHash = new StringBuilder().append(timeStamp)
-                    .append(".")
-                    .append(merchantId)
-                    .append(".")
-                    .append(orderId)
-                    .append(".")
-                    .append(amount)
-                    .append(".")
-                    .append(currency)
-                    .append(".")
-                    .append(cardPayerRef)
-                    .append(".")
-                    .append(cardHolderName)
-                    .append(".")
-                    .append(cardNumber)
-                    .toString();
-
-        } else if (PaymentType.CARD_UPDATE.getType().equals(this.type)) {
-            toHash = new StringBuilder().append(timeStamp)
-                    .append(".")
-                    .append(merchantId)
-                    .append(".")
-                    .append(cardPayerRef)
-                    .append(".")
-                    .append(cardRef)
-                    .append(".")
-                    .append(cardExpiryDate)
-                    .append(".")
-                    .append(cardNumber)
-                    .toString();
-
-        } else if (PaymentType.CARD_CANCEL.getType().equals(this.type)) {
-            toHash = new StringBuilder().append(timeStamp)
-                    .append(".")
-                    .append(merchantId)
-                    .append(".")
-                    .append(cardPayerRef)
-                    .append(".")
-                    .append(cardRef)
-                    .toString();
-
-        } else if (PaymentType.RECEIPT_IN_OTB.getType().equals(this.type)) {
-            toHash = new StringBuilder().append(timeStamp)
-                    .append(".")
-                    .append(merchantId)
-                    .append(".")
-                    .append(orderId)
-                    .append(".")
-                    .append(payerRef)
-                    .toString();
-
-        } else if (PaymentType.STORED_CARD_DCC_RATE.getType().equals(this.type)) {
-            toHash = new StringBuilder().append(timeStamp)
-                    .append(".")
-                    .append(merchantId)
-                    .append(".")
-                    .append(orderId)
-                    .append(".")
-                    .append(amount)
-                    .append(".")
-                    .append(currency)
-                    .append(".")
-                    .append(payerRef)
-                    .toString();
-
-        } else {
-            toHash = new StringBuilder().append(timeStamp)
-                    .append(".")
-                    .append(merchantId)
-                    .append(".")
-                    .append(orderId)
-                    .append(".")
-                    .append(amount)
-                    .append(".")
-                    .append(currency)
-                    .append(".")
-                    .append(cardNumber)
-                    .toString();
-        }
-
-        this.hash = GenerationUtils.generateHash(toHash, secret);
+    /**
+     * Creates the security hash from a number of fields and the shared secret.
+     *
+     * @param secret
+     * @return PaymentRequest
+     */
+    public PaymentRequest hash(String secret) {
+        this.hash = appendHashFields(HashEngine.start()).hash(secret);
+        return this;
+    }
 
+    /**
+     * Creates the security hash from a number of fields and the shared secret held by the {@link KeyedHasher}.
+     *
+     * @param hasher
+     * @return PaymentRequest
+     */
+    public PaymentRequest hash(KeyedHasher hasher) {
+        this.hash = appendHashFields(hasher.start()).hash(hasher);
         return this;
     }
+
+    /**
+     * Appends the fields to hash, which depend on the request type, to the {@link HashEngine}. The fields
+     * for each type are given by the {@link HashLayout} registered in {@link PaymentHashLayouts}.
+     *
+     * @param engine
+     * @return HashEngine
+     */
+    private HashEngine appendHashFields(HashEngine engine) {
+        return PaymentHashLayouts.get(getPaymentType()).appendTo(engine, this);
+    }
 }
@@ -2,7 +2,8 @@ package com.realexpayments.remote.sdk.domain.payment;
 
 import com.realexpayments.remote.sdk.domain.DccInfoResult;
 import com.realexpayments.remote.sdk.domain.Response;
-import com.realexpayments.remote.sdk.utils.GenerationUtils;
+import com.realexpayments.remote.sdk.utils.HashEngine;
+import com.realexpayments.remote.sdk.utils.KeyedHasher;
 import com.realexpayments.remote.sdk.utils.ResponseUtils;
 import com.realexpayments.remote.sdk.utils.XmlUtils;
 import com.realexpayments.remote.sdk.utils.XmlUtils.MessageType;
@@ -579,40 +580,47 @@ public class PaymentResponse implements Response<PaymentResponse> {
 	@Override
 	public boolean isHashValid(String secret) {
 
-		boolean hashValid = false;
-
-		//check for any null values and set them to empty string for hashing
-		String timeStamp = null == this.timeStamp ? "" : this.timeStamp;
-		String merchantId = null == this.merchantId ? "" : this.merchantId;
-		String orderId = null == this.orderId ? "" : this.orderId;
-		String result = null == this.result ? "" : this.result;
-		String message = null == this.message ? "" : this.message;
-		String paymentsReference = null == this.paymentsReference ? "" : this.paymentsReference;
-		String authCode = null == this.authCode ? "" : this.authCode;
-
-		//create String to hash
-		String toHash = new StringBuilder().append(timeStamp)
-				.append(".")
-				.append(merchantId)
-				.append(".")
-				.append(orderId)
-				.append(".")
-				.append(result)
-				.append(".")
-				.append(message)
-				.append(".")
-				.append(paymentsReference)
-				.append(".")
-				.append(authCode)
-				.toString();
+		//check if calculated hash matches returned value
+		return appendHashFields(HashEngine.start()).matches(secret, this.hash);
+	}
+
+	/**
+	 * 
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isHashValid(KeyedHasher hasher) {
 
 		//check if calculated hash matches returned value
-		String expectedHash = GenerationUtils.generateHash(toHash, secret);
-		if (expectedHash.equals(this.hash)) {
-			hashValid = true;
-		}
+		return appendHashFields(hasher.start()).matches(hasher, this.hash);
+	}
 
-		return hashValid;
+	/**
+	 * Generates the hash of the response with the hasher and sets it, as Realex does, so that the response 
+	 * passes {@link #isHashValid(KeyedHasher)}. Used to create synthetic responses, for example when warming up.
+	 * 
+	 * @param hasher
+	 * @return PaymentResponse
+	 */
+	public PaymentResponse hash(KeyedHasher hasher) {
+		this.hash = appendHashFields(hasher.start()).hash(hasher);
+		return this;
+	}
+
+	/**
+	 * Appends the fields to hash to the {@link HashEngine}, null values being hashed as empty strings.
+	 * 
+	 * @param engine
+	 * @return HashEngine
+	 */
+	private HashEngine appendHashFields(HashEngine engine) {
+		return engine.append(this.timeStamp)
+				.append(this.merchantId)
+				.append(this.orderId)
+				.append(this.result)
+				.append(this.message)
+				.append(this.paymentsReference)
+				.append(this.authCode);
 	}
 
 	/**
@@ -0,0 +1,120 @@
+package com.realexpayments.remote.sdk.domain.threeDSecure;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.realexpayments.remote.sdk.domain.Amount;
+import com.realexpayments.remote.sdk.domain.Card;
+import com.realexpayments.remote.sdk.domain.threeDSecure.ThreeDSecureRequest.ThreeDSecureType;
+import com.realexpayments.remote.sdk.utils.HashLayout;
+import com.realexpayments.remote.sdk.utils.HashLayout.Field;
+
+/**
+ * <p>
+ * Registry of the {@link HashLayout} for each {@link ThreeDSecureType}, listing the fields of the
+ * {@link ThreeDSecureRequest} which feed its hash. Types without a specific layout, and requests with an unknown
+ * type, use the {@link #DEFAULT_LAYOUT} of (TIMESTAMP.MERCHANT_ID.ORDER_ID.AMOUNT.CURRENCY.CARD_NUMBER).
+ * The layout for a type may be replaced using {@link #register(ThreeDSecureType, HashLayout)}.
+ * </p>
+ */
+public final class ThreeDSecureHashLayouts {
+
+	/**
+	 * Timestamp field.
+	 */
+	public static final Field<ThreeDSecureRequest> TIMESTAMP = (engine, request) -> engine.append(request.getTimeStamp());
+
+	/**
+	 * Merchant ID field.
+	 */
+	public static final Field<ThreeDSecureRequest> MERCHANT_ID = (engine, request) -> engine.append(request.getMerchantId());
+
+	/**
+	 * Order ID field.
+	 */
+	public static final Field<ThreeDSecureRequest> ORDER_ID = (engine, request) -> engine.append(request.getOrderId());
+
+	/**
+	 * Amount field.
+	 */
+	public static final Field<ThreeDSecureRequest> AMOUNT = (engine, request) -> {
+		Amount amount = request.getAmount();
+		engine.append(null == amount ? null : amount.getAmount());
+	};
+
+	/**
+	 * Currency field.
+	 */
+	public static final Field<ThreeDSecureRequest> CURRENCY = (engine, request) -> {
+		Amount amount = request.getAmount();
+		engine.append(null == amount ? null : amount.getCurrency());
+	};
+
+	/**
+	 * Card number field.
+	 */
+	public static final Field<ThreeDSecureRequest> CARD_NUMBER = (engine, request) -> {
+		Card card = request.getCard();
+		engine.append(null == card ? null : card.getNumber());
+	};
+
+	/**
+	 * Payer reference field.
+	 */
+	public static final Field<ThreeDSecureRequest> PAYER_REF = (engine, request) -> engine.append(request.getPayerRef());
+
+	/**
+	 * The layout used for types without a specific layout, and for unknown types.
+	 */
+	public static final HashLayout<ThreeDSecureRequest> DEFAULT_LAYOUT = new HashLayout<ThreeDSecureRequest>(TIMESTAMP,
+			MERCHANT_ID, ORDER_ID, AMOUNT, CURRENCY, CARD_NUMBER);
+
+	/**
+	 * The layout for each type. Replaced when a layout is registered.
+	 */
+	private static volatile Map<ThreeDSecureType, HashLayout<ThreeDSecureRequest>> layouts;
+
+	static {
+		Map<ThreeDSecureType, HashLayout<ThreeDSecureRequest>> defaultLayouts = new EnumMap<ThreeDSecureType, HashLayout<ThreeDSecureRequest>>(
+				ThreeDSecureType.class);
+		for (ThreeDSecureType type : ThreeDSecureType.values()) {
+			defaultLayouts.put(type, DEFAULT_LAYOUT);
+		}
+
+		defaultLayouts.put(ThreeDSecureType.VERIFY_STORED_CARD_ENROLLED, new HashLayout<ThreeDSecureRequest>(TIMESTAMP,
+				MERCHANT_ID, ORDER_ID, AMOUNT, CURRENCY, PAYER_REF));
+
+		layouts = defaultLayouts;
+	}
+
+	private ThreeDSecureHashLayouts() {
+	}
+
+	/**
+	 * Returns the hash layout for the type, or the {@link #DEFAULT_LAYOUT} if the type is <code>null</code>.
+	 *
+	 * @param type
+	 * @return HashLayout
+	 */
+	public static HashLayout<ThreeDSecureRequest> get(ThreeDSecureType type) {
+		return null == type ? DEFAULT_LAYOUT : layouts.get(type);
+	}
+
+	/**
+	 * Registers the hash layout for the type, replacing any existing layout.
+	 *
+	 * @param type
+	 * @param layout
+	 */
+	public static synchronized void register(ThreeDSecureType type, HashLayout<ThreeDSecureRequest> layout) {
+		if (null == type || null == layout) {
+			throw new IllegalArgumentException("ThreeDSecure type and hash layout must not be null.");
+		}
+
+		Map<ThreeDSecureType, HashLayout<ThreeDSecureRequest>> newLayouts = new EnumMap<ThreeDSecureType, HashLayout<ThreeDSecureRequest>>(
+				layouts);
+		newLayouts.put(type, layout);
+		layouts = newLayouts;
+	}
+
+}
@@ -6,16 +6,23 @@ import com.realexpayments.remote.sdk.domain.PaymentData;
 import com.realexpayments.remote.sdk.domain.Request;
 import com.realexpayments.remote.sdk.domain.payment.AutoSettle;
 import com.realexpayments.remote.sdk.domain.payment.Comment;
+import com.realexpayments.remote.sdk.utils.GenerationContext;
 import com.realexpayments.remote.sdk.utils.GenerationUtils;
+import com.realexpayments.remote.sdk.utils.HashEngine;
+import com.realexpayments.remote.sdk.utils.HashLayout;
+import com.realexpayments.remote.sdk.utils.KeyedHasher;
 import com.realexpayments.remote.sdk.utils.XmlUtils;
 import com.realexpayments.remote.sdk.utils.XmlUtils.MessageType;
 
 import javax.xml.bind.annotation.*;
 import javax.xml.transform.Source;
 import javax.xml.transform.stream.StreamSource;
+import java.io.OutputStream;
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * <p>
@@ -77,6 +84,17 @@ public class ThreeDSecureRequest implements Request<ThreeDSecureRequest, ThreeDS
         VERIFY_SIG("3ds-verifysig"),
         VERIFY_STORED_CARD_ENROLLED("realvault-3ds-verifyenrolled");
 
+        /**
+         * Map of ThreeDSecure type string values to ThreeDSecure types.
+         */
+        private static final Map<String, ThreeDSecureType> TYPES = new HashMap<String, ThreeDSecureType>();
+
+        static {
+            for (ThreeDSecureType threeDSecureType : values()) {
+                TYPES.put(threeDSecureType.getType(), threeDSecureType);
+            }
+        }
+
         /**
          * The ThreeDSecure type String value
          */
@@ -99,6 +117,27 @@ public class ThreeDSecureRequest implements Request<ThreeDSecureRequest, ThreeDS
         public String getType() {
             return type;
         }
+
+        /**
+         * Returns the ThreeDSecure type with the given string value, or <code>null</code> if the value
+         * is not a known ThreeDSecure type.
+         *
+         * @param type
+         * @return ThreeDSecureType
+         */
+        public static ThreeDSecureType fromType(String type) {
+            return null == type ? null : TYPES.get(type);
+        }
+
+        /**
+         * Returns <code>true</code> if requests of this type have no side effect, so may safely be sent more
+         * than once: verify enrolled requests.
+         *
+         * @return boolean
+         */
+        public boolean isSideEffectFree() {
+            return this == VERIFY_ENROLLED;
+        }
     }
 
     /**
@@ -114,6 +153,12 @@ public class ThreeDSecureRequest implements Request<ThreeDSecureRequest, ThreeDS
     @XmlAttribute(name = "type")
     private String type;
 
+    /**
+     * The ThreeDSecure type resolved from {@link #type}, cached so the type string is only looked up once.
+     */
+    @XmlTransient
+    private ThreeDSecureType threeDSecureType;
+
     /**
      * Represents Realex Payments assigned merchant id.
      */
@@ -231,6 +276,34 @@ public class ThreeDSecureRequest implements Request<ThreeDSecureRequest, ThreeDS
         this.type = type;
     }
 
+    /**
+     * Returns the {@link ThreeDSecureType} for the type of this request, or <code>null</code> if the type
+     * is not set or is not a known ThreeDSecure type.
+     *
+     * @return ThreeDSecureType
+     */
+    public ThreeDSecureType getThreeDSecureType() {
+        ThreeDSecureType resolved = this.threeDSecureType;
+        //the type string is compared by reference, so it is only looked up when changed
+        if (null == resolved || resolved.getType() != this.type) {
+            resolved = ThreeDSecureType.fromType(this.type);
+            if (null != resolved) {
+                this.type = resolved.getType();
+            }
+            this.threeDSecureType = resolved;
+        }
+        return resolved;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSideEffectFree() {
+        ThreeDSecureType resolved = getThreeDSecureType();
+        return null != resolved && resolved.isSideEffectFree();
+    }
+
     /**
      * Setter for merchant ID.
      *
@@ -540,6 +613,7 @@ public class ThreeDSecureRequest implements Request<ThreeDSecureRequest, ThreeDS
      */
     public ThreeDSecureRequest addType(ThreeDSecureType type) {
         this.type = type.getType();
+        this.threeDSecureType = type;
         return this;
     }
 
@@ -646,6 +720,14 @@ public class ThreeDSecureRequest implements Request<ThreeDSecureRequest, ThreeDS
         return XmlUtils.toXml(this, MessageType.THREE_D_SECURE);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void toXml(OutputStream out) {
+        XmlUtils.toXml(this, MessageType.THREE_D_SECURE, out);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -670,20 +752,59 @@ public class ThreeDSecureRequest implements Request<ThreeDSecureRequest, ThreeDS
     @Override
     public ThreeDSecureRequest generateDefaults(String secret) {
 
+        generateDefaultFields(null);
+
+        //generate hash
+        hash(secret);
+
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ThreeDSecureRequest generateDefaults(KeyedHasher hasher) {
+
+        generateDefaultFields(null);
+
+        //generate hash
+        hash(hasher);
+
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ThreeDSecureRequest generateDefaults(GenerationContext context) {
+
+        generateDefaultFields(context);
+
+        //generate hash
+        hash(context.getHasher());
+
+        return this;
+    }
+
+    /**
+     * Generates the timestamp and order ID if not set. They are generated by the context's timestamp source
+     * and order ID generator, or by {@link GenerationUtils} if the context is <code>null</code>.
+     *
+     * @param context
+     */
+    private void generateDefaultFields(GenerationContext context) {
+
         //generate timestamp if not set
         if (null == this.timeStamp) {
-            this.timeStamp = GenerationUtils.generateTimestamp();
+            this.timeStamp = null == context ? GenerationUtils.generateTimestamp() : context.currentTimestamp();
         }
 
         //generate order ID if not set
         if (null == this.orderId) {
-            this.orderId = GenerationUtils.generateOrderId();
+            this.orderId = null == context ? GenerationUtils.generateOrderId() : context.generateOrderId();
         }
-
-        //generate hash
-        hash(secret);
-
-        return this;
     }
 
     /**
@@ -701,57 +822,29 @@ public class ThreeDSecureRequest implements Request<ThreeDSecureRequest, ThreeDS
      * @return ThreeDSecureRequest
      */
     public ThreeDSecureRequest hash(String secret) {
+        this.hash = appendHashFields(HashEngine.start()).hash(secret);
+        return this;
+    }
 
-        //check for any null values and set them to empty string for hashing
-        String timeStamp = null == this.timeStamp ? "" : this.timeStamp;
-        String merchantId = null == this.merchantId ? "" : this.merchantId;
-        String orderId = null == this.orderId ? "" : this.orderId;
-        String payerRef = null == this.payerRef ? "" : this.payerRef;
-        String amount = "";
-        String currency = "";
-
-        if (null != this.amount) {
-            amount = null == this.amount.getAmount() ? "" : this.amount.getAmount().toString();
-            currency = null == this.amount.getCurrency() ? "" : this.amount.getCurrency().toString();
-        }
-
-        String cardNumber = "";
-
-        if (null != this.card) {
-            cardNumber = null == this.card.getNumber() ? "" : this.card.getNumber();
-        }
-
-        //create String to hash
-        String toHash;
-        if (ThreeDSecureType.VERIFY_STORED_CARD_ENROLLED.getType().equals(this.type)) {
-            toHash = new StringBuilder().append(timeStamp)
-                    .append(".")
-                    .append(merchantId)
-                    .append(".")
-                    .append(orderId)
-                    .append(".")
-                    .append(amount)
-                    .append(".")
-                    .append(currency)
-                    .append(".")
-                    .append(payerRef)
-                    .toString();
-        } else {
-            toHash = new StringBuilder().append(timeStamp)
-                    .append(".")
-                    .append(merchantId)
-                    .append(".")
-                    .append(orderId)
-                    .append(".")
-                    .append(amount)
-                    .append(".")
-                    .append(currency)
-                    .append(".")
-                    .append(cardNumber)
-                    .toString();
-        }
-        this.hash = GenerationUtils.generateHash(toHash, secret);
-
+    /**
+     * Creates the security hash from a number of fields and the shared secret held by the {@link KeyedHasher}.
+     *
+     * @param hasher
+     * @return ThreeDSecureRequest
+     */
+    public ThreeDSecureRequest hash(KeyedHasher hasher) {
+        this.hash = appendHashFields(hasher.start()).hash(hasher);
         return this;
     }
+
+    /**
+     * Appends the fields to hash, which depend on the request type, to the {@link HashEngine}. The fields
+     * for each type are given by the {@link HashLayout} registered in {@link ThreeDSecureHashLayouts}.
+     *
+     * @param engine
+     * @return HashEngine
+     */
+    private HashEngine appendHashFields(HashEngine engine) {
+        return ThreeDSecureHashLayouts.get(getThreeDSecureType()).appendTo(engine, this);
+    }
 }
@@ -0,0 +1,173 @@
+package com.realexpayments.remote.sdk.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.apache.http.client.HttpClient;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.nio.client.HttpAsyncClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * {@link Transport} sending requests with an Apache {@link HttpClient}, and asynchronous requests with an 
+ * Apache {@link HttpAsyncClient}, as {@link HttpUtils#sendMessage(org.apache.http.entity.ContentProducer, ResponseReader, HttpClient, HttpConfiguration)} 
+ * does. Request bodies are sent with a content length, or streamed to the connection with chunked transfer 
+ * encoding where {@link HttpConfiguration#isChunkedRequests()} is set.
+ * </p>
+ * <p>
+ * A transport created from a {@link HttpConfiguration} creates the default pooled clients described in 
+ * {@link HttpUtils#getDefaultClient(HttpConfiguration)} and {@link HttpUtils#getDefaultAsyncClient(HttpConfiguration)}, 
+ * the async client on first use, and closes them when closed. Clients supplied to a transport are not closed by it.
+ * </p>
+ */
+public class ApacheTransport implements Transport {
+
+	private final static Logger logger = LoggerFactory.getLogger(ApacheTransport.class);
+
+	private final Supplier<HttpClient> httpClientSupplier;
+
+	private final Supplier<HttpAsyncClient> httpAsyncClientSupplier;
+
+	/**
+	 * The clients created by this transport, closed when it is closed.
+	 */
+	private final HttpClient ownedHttpClient;
+
+	/**
+	 * The connection manager of the client created by this transport, used to open connections on warm up.
+	 */
+	private final HttpClientConnectionManager connectionManager;
+
+	private volatile HttpAsyncClient ownedHttpAsyncClient;
+
+	private boolean closed;
+
+	/**
+	 * Guards the creation and closing of the async client, without pinning virtual threads.
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * Creates a transport with default pooled clients configured from the {@link HttpConfiguration}.
+	 * 
+	 * @param httpConfiguration
+	 */
+	public ApacheTransport(final HttpConfiguration httpConfiguration) {
+		this.connectionManager = HttpUtils.getDefaultConnectionManager(httpConfiguration);
+		this.ownedHttpClient = HttpUtils.getDefaultClient(httpConfiguration, connectionManager);
+		this.httpClientSupplier = () -> ownedHttpClient;
+		this.httpAsyncClientSupplier = () -> getOwnedHttpAsyncClient(httpConfiguration);
+	}
+
+	/**
+	 * Creates a transport using the supplied clients. The async client must already be started, and may be 
+	 * <code>null</code> if the transport is only used synchronously.
+	 * 
+	 * @param httpClient
+	 * @param httpAsyncClient
+	 */
+	public ApacheTransport(final HttpClient httpClient, final HttpAsyncClient httpAsyncClient) {
+		this(() -> httpClient, () -> httpAsyncClient);
+	}
+
+	/**
+	 * Creates a transport using the clients returned by the suppliers at the time of each request, for 
+	 * example where the clients may be replaced.
+	 * 
+	 * @param httpClientSupplier
+	 * @param httpAsyncClientSupplier
+	 */
+	public ApacheTransport(Supplier<HttpClient> httpClientSupplier, Supplier<HttpAsyncClient> httpAsyncClientSupplier) {
+		this.httpClientSupplier = httpClientSupplier;
+		this.httpAsyncClientSupplier = httpAsyncClientSupplier;
+		this.ownedHttpClient = null;
+		this.connectionManager = null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> T send(HttpConfiguration httpConfiguration, RequestWriter requestWriter, ResponseReader<T> responseReader) {
+		return HttpUtils.sendMessage(requestWriter::writeTo, responseReader, httpClientSupplier.get(), httpConfiguration);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> CompletableFuture<T> sendAsync(HttpConfiguration httpConfiguration, RequestWriter requestWriter,
+			ResponseReader<T> responseReader) {
+		HttpAsyncClient httpAsyncClient = httpAsyncClientSupplier.get();
+		if (null == httpAsyncClient) {
+			throw new IllegalStateException("No HttpAsyncClient supplied for asynchronous requests.");
+		}
+		return HttpUtils.sendMessageAsync(requestWriter::writeTo, responseReader, httpAsyncClient, httpConfiguration);
+	}
+
+	/**
+	 * Opens pooled connections for the synchronous client created by this transport. Nothing is done for 
+	 * supplied clients, whose connection manager is not known to the transport.
+	 */
+	@Override
+	public void warmUp(HttpConfiguration httpConfiguration, int connections) {
+		if (null == connectionManager) {
+			logger.debug("Connections not opened on warm up for a supplied HttpClient.");
+			return;
+		}
+		HttpUtils.openConnections(connectionManager, httpConfiguration, connections);
+	}
+
+	/**
+	 * Returns the async client created by this transport, creating it on first use.
+	 * 
+	 * @param httpConfiguration
+	 * @return HttpAsyncClient
+	 */
+	private HttpAsyncClient getOwnedHttpAsyncClient(HttpConfiguration httpConfiguration) {
+		HttpAsyncClient client = ownedHttpAsyncClient;
+		if (null == client) {
+			lock.lock();
+			try {
+				client = ownedHttpAsyncClient;
+				if (null == client) {
+					if (closed) {
+						throw new IllegalStateException("Transport is closed.");
+					}
+					logger.debug("Creating default HttpAsyncClient.");
+					client = HttpUtils.getDefaultAsyncClient(httpConfiguration);
+					ownedHttpAsyncClient = client;
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+		return client;
+	}
+
+	/**
+	 * Closes the clients created by this transport.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (ownedHttpClient instanceof Closeable) {
+			((Closeable) ownedHttpClient).close();
+		}
+		lock.lock();
+		try {
+			closed = true;
+			if (ownedHttpAsyncClient instanceof Closeable) {
+				((Closeable) ownedHttpAsyncClient).close();
+			}
+			ownedHttpAsyncClient = null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+}
@@ -0,0 +1,148 @@
+package com.realexpayments.remote.sdk.http;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.realexpayments.remote.sdk.RealexTimeoutException;
+import com.realexpayments.remote.sdk.utils.ExecutorUtils;
+
+/**
+ * <p>
+ * The point in time by which a request to Realex must have completed, see 
+ * {@link com.realexpayments.remote.sdk.RealexClient#send(com.realexpayments.remote.sdk.domain.Request, Deadline)}. 
+ * The time remaining is passed down through each stage of sending the request, each stage waiting no longer 
+ * than the time which remains, and the request is aborted with a {@link RealexTimeoutException} once the 
+ * deadline has passed.
+ * </p>
+ * <code><pre>
+ * PaymentResponse response = client.send(request, Deadline.after(5, TimeUnit.SECONDS));
+ * </pre></code>
+ * <p>
+ * Deadlines are measured with {@link System#nanoTime()} so are unaffected by changes to the system clock.
+ * </p>
+ */
+public final class Deadline {
+
+	/**
+	 * The {@link System#nanoTime()} of the deadline.
+	 */
+	private final long nanoTime;
+
+	private Deadline(long nanoTime) {
+		this.nanoTime = nanoTime;
+	}
+
+	/**
+	 * Returns the deadline the given time from now.
+	 * 
+	 * @param duration
+	 * @param unit
+	 * @return Deadline
+	 */
+	public static Deadline after(long duration, TimeUnit unit) {
+		if (duration < 0) {
+			throw new IllegalArgumentException("Duration must not be negative.");
+		}
+		return new Deadline(System.nanoTime() + unit.toNanos(duration));
+	}
+
+	/**
+	 * Returns the deadline the given number of milli-seconds from now.
+	 * 
+	 * @param millis
+	 * @return Deadline
+	 */
+	public static Deadline afterMillis(long millis) {
+		return after(millis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Returns the earlier of this deadline and the other, which may be <code>null</code>.
+	 * 
+	 * @param other
+	 * @return Deadline
+	 */
+	public Deadline earliest(Deadline other) {
+		return null == other || nanoTime - other.nanoTime <= 0 ? this : other;
+	}
+
+	/**
+	 * Returns the time remaining in nano-seconds, zero or negative once the deadline has passed.
+	 * 
+	 * @return long
+	 */
+	public long remainingNanos() {
+		return nanoTime - System.nanoTime();
+	}
+
+	/**
+	 * Returns the time remaining in milli-seconds, rounded up so that it is only zero once the deadline 
+	 * has passed, and never negative.
+	 * 
+	 * @return long
+	 */
+	public long remainingMillis() {
+		long remaining = remainingNanos();
+		return remaining <= 0 ? 0 : (remaining + 999999) / 1000000;
+	}
+
+	/**
+	 * Returns <code>true</code> once the deadline has passed.
+	 * 
+	 * @return boolean
+	 */
+	public boolean isExpired() {
+		return remainingNanos() <= 0;
+	}
+
+	/**
+	 * Throws a {@link RealexTimeoutException} if the deadline has passed.
+	 * 
+	 * @param stage the stage of sending the request, for the exception message
+	 */
+	public void check(String stage) {
+		if (isExpired()) {
+			throw expired(stage, null);
+		}
+	}
+
+	/**
+	 * Returns the exception for the deadline passing during the stage of sending the request.
+	 * 
+	 * @param stage
+	 * @param cause the failure caused by the deadline passing, may be <code>null</code>
+	 * @return RealexTimeoutException
+	 */
+	public RealexTimeoutException expired(String stage, Throwable cause) {
+		return new RealexTimeoutException("Deadline exceeded " + stage + ".", cause);
+	}
+
+	/**
+	 * Returns the timeout, no longer than the time remaining, for a stage of sending the request. A timeout 
+	 * of zero or less means none, so the time remaining is returned.
+	 * 
+	 * @param timeoutMillis
+	 * @return int
+	 */
+	public int limit(int timeoutMillis) {
+		long remaining = Math.max(remainingMillis(), 1);
+		return (int) (timeoutMillis <= 0 ? Math.min(remaining, Integer.MAX_VALUE) : Math.min(remaining, timeoutMillis));
+	}
+
+	/**
+	 * Runs the action on the shared scheduler, see {@link ExecutorUtils#getScheduler()}, once the deadline has
+	 * passed, unless cancelled first. The action must be quick, for example aborting the request.
+	 * 
+	 * @param action
+	 * @return ScheduledFuture to cancel the action
+	 */
+	public ScheduledFuture<?> onExpiry(Runnable action) {
+		return ExecutorUtils.getScheduler().schedule(action, Math.max(remainingNanos(), 0), TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public String toString() {
+		return "Deadline in " + remainingMillis() + "ms";
+	}
+
+}
@@ -0,0 +1,228 @@
+package com.realexpayments.remote.sdk.http;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * The live health statistics of one {@link WeightedEndpoint}, kept by a {@link RoutingTransport} and used to
+ * route requests: exponentially weighted moving averages (EWMA) of the latency and error rate of requests,
+ * and whether the endpoint is currently ejected after consecutive failures. Statistics are updated without
+ * locking and may be read at any time for monitoring, see {@link RoutingTransport#getEndpointStats()}.
+ * </p>
+ * <p>
+ * An endpoint is ejected for {@link #EJECTION_MILLIS} after {@link #EJECTION_FAILURES} consecutive failures,
+ * the ejection doubling, up to {@link #MAX_EJECTION_MILLIS}, each time it fails again once the ejection
+ * has ended. A successful request ends the run of failures.
+ * </p>
+ */
+public final class EndpointStats {
+
+	/**
+	 * The weight given to each new latency or error sample in the moving averages.
+	 */
+	public static final double EWMA_ALPHA = 0.2;
+
+	/**
+	 * The number of consecutive failures after which an endpoint is ejected.
+	 */
+	public static final int EJECTION_FAILURES = 3;
+
+	/**
+	 * The time, in milli-seconds, for which an endpoint is first ejected.
+	 */
+	public static final long EJECTION_MILLIS = 1000;
+
+	/**
+	 * The maximum time, in milli-seconds, for which an endpoint is ejected.
+	 */
+	public static final long MAX_EJECTION_MILLIS = 30000;
+
+	/**
+	 * Multiplier of the error rate in the routing score, so that an endpoint failing half its requests
+	 * scores as if six times slower.
+	 */
+	private static final double ERROR_PENALTY = 10;
+
+	private final WeightedEndpoint endpoint;
+
+	/**
+	 * EWMA latency in nano-seconds, as double bits. NaN until the first request completes.
+	 */
+	private final AtomicLong latencyBits = new AtomicLong(Double.doubleToRawLongBits(Double.NaN));
+
+	/**
+	 * EWMA error rate between 0 and 1, as double bits.
+	 */
+	private final AtomicLong errorRateBits = new AtomicLong(Double.doubleToRawLongBits(0));
+
+	private final AtomicLong requestCount = new AtomicLong();
+
+	private final AtomicLong failureCount = new AtomicLong();
+
+	private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+	private final AtomicInteger ejections = new AtomicInteger();
+
+	/**
+	 * The {@link System#nanoTime()} until which the endpoint is ejected.
+	 */
+	private volatile long ejectedUntil;
+
+	/**
+	 * Whether the endpoint has ever been ejected, as {@link #ejectedUntil} is meaningless until it has.
+	 */
+	private volatile boolean everEjected;
+
+	EndpointStats(WeightedEndpoint endpoint) {
+		this.endpoint = endpoint;
+	}
+
+	/**
+	 * Returns the endpoint.
+	 *
+	 * @return WeightedEndpoint
+	 */
+	public WeightedEndpoint getEndpoint() {
+		return endpoint;
+	}
+
+	/**
+	 * Returns the moving average latency of requests to the endpoint in milli-seconds, or zero if no
+	 * request has completed.
+	 *
+	 * @return double
+	 */
+	public double getLatencyMillis() {
+		double latency = Double.longBitsToDouble(latencyBits.get());
+		return Double.isNaN(latency) ? 0 : latency / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	/**
+	 * Returns the moving average error rate of requests to the endpoint, between 0 and 1.
+	 *
+	 * @return double
+	 */
+	public double getErrorRate() {
+		return Double.longBitsToDouble(errorRateBits.get());
+	}
+
+	/**
+	 * Returns the number of requests sent to the endpoint.
+	 *
+	 * @return long
+	 */
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	/**
+	 * Returns the number of requests to the endpoint which failed.
+	 *
+	 * @return long
+	 */
+	public long getFailureCount() {
+		return failureCount.get();
+	}
+
+	/**
+	 * Returns the number of consecutive failed requests to the endpoint.
+	 *
+	 * @return int
+	 */
+	public int getConsecutiveFailures() {
+		return consecutiveFailures.get();
+	}
+
+	/**
+	 * Returns <code>true</code> unless the endpoint is currently ejected.
+	 *
+	 * @return boolean
+	 */
+	public boolean isAvailable() {
+		return isAvailable(System.nanoTime());
+	}
+
+	boolean isAvailable(long now) {
+		return !everEjected || now - ejectedUntil >= 0;
+	}
+
+	/**
+	 * Returns the time remaining of the ejection, negative or zero if the endpoint is available.
+	 *
+	 * @param now
+	 * @return long
+	 */
+	long ejectionRemaining(long now) {
+		return everEjected ? ejectedUntil - now : 0;
+	}
+
+	/**
+	 * Returns the routing score of the endpoint, lower being healthier: the latency, penalised by the
+	 * error rate, divided by the weight. Endpoints without a completed request score zero, so are tried.
+	 *
+	 * @return double
+	 */
+	double score() {
+		double latency = Double.longBitsToDouble(latencyBits.get());
+		if (Double.isNaN(latency)) {
+			return 0;
+		}
+		return latency * (1 + ERROR_PENALTY * getErrorRate()) / endpoint.getWeight();
+	}
+
+	/**
+	 * Records a successful request.
+	 *
+	 * @param elapsedNanos
+	 */
+	void recordSuccess(long elapsedNanos) {
+		requestCount.incrementAndGet();
+		updateEwma(latencyBits, elapsedNanos);
+		updateEwma(errorRateBits, 0);
+		consecutiveFailures.set(0);
+		ejections.set(0);
+	}
+
+	/**
+	 * Records a failed request, ejecting the endpoint after consecutive failures. The time taken to fail,
+	 * for example a timeout, counts towards the latency, unless quicker than the average latency, so that
+	 * quickly refused connections do not make the endpoint appear faster.
+	 *
+	 * @param elapsedNanos
+	 * @param now
+	 */
+	void recordFailure(long elapsedNanos, long now) {
+		requestCount.incrementAndGet();
+		failureCount.incrementAndGet();
+		double latency = Double.longBitsToDouble(latencyBits.get());
+		updateEwma(latencyBits, Double.isNaN(latency) ? elapsedNanos : Math.max(elapsedNanos, latency));
+		updateEwma(errorRateBits, 1);
+		if (consecutiveFailures.incrementAndGet() >= EJECTION_FAILURES && isAvailable(now)) {
+			int ejection = Math.min(ejections.getAndIncrement(), 5);
+			long millis = Math.min(EJECTION_MILLIS << ejection, MAX_EJECTION_MILLIS);
+			ejectedUntil = now + TimeUnit.MILLISECONDS.toNanos(millis);
+			everEjected = true;
+		}
+	}
+
+	private static void updateEwma(AtomicLong bits, double sample) {
+		for (;;) {
+			long current = bits.get();
+			double average = Double.longBitsToDouble(current);
+			double updated = Double.isNaN(average) ? sample : average + EWMA_ALPHA * (sample - average);
+			if (bits.compareAndSet(current, Double.doubleToRawLongBits(updated))) {
+				return;
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return endpoint.getEndpoint() + " [latency " + getLatencyMillis() + "ms, error rate " + getErrorRate()
+				+ ", requests " + getRequestCount() + ", failures " + getFailureCount()
+				+ (isAvailable() ? "" : ", ejected") + "]";
+	}
+
+}
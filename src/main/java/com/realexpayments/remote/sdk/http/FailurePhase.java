@@ -0,0 +1,82 @@
+package com.realexpayments.remote.sdk.http;
+
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+
+/**
+ * <p>
+ * The phase of sending a request to Realex in which communication failed, which decides whether the request
+ * may have reached Realex and so whether it may safely be sent again.
+ * </p>
+ */
+public enum FailurePhase {
+
+	/**
+	 * No pooled connection could be leased within the connection request timeout. Nothing was sent.
+	 */
+	LEASE,
+
+	/**
+	 * No connection could be established, see {@link HttpUtils#isConnectFailure(Throwable)}. Nothing was sent.
+	 */
+	CONNECT,
+
+	/**
+	 * The connection failed while the request was being written. Realex cannot have processed the incomplete
+	 * request.
+	 */
+	WRITE,
+
+	/**
+	 * The connection failed or timed out after the request was written, while waiting for or reading the
+	 * response. Realex may have processed the request. Transports which marshal the request before
+	 * connecting, such as the java.net.http transport and the Apache transport unless chunked requests are
+	 * configured, report all failures once connected in this phase.
+	 */
+	READ;
+
+	/**
+	 * Returns the phase in which communication failed, or <code>null</code> if the failure, or its causes,
+	 * is not a failure communicating with Realex.
+	 *
+	 * @param failure
+	 * @param requestWritten <code>true</code> if the request had been written in full when it failed
+	 * @return FailurePhase
+	 */
+	public static FailurePhase of(Throwable failure, boolean requestWritten) {
+
+		boolean communication = false;
+		for (Throwable cause = failure; null != cause; cause = cause.getCause()) {
+			if (cause instanceof ConnectionPoolTimeoutException || cause instanceof TimeoutException) {
+				return LEASE;
+			}
+			if (cause instanceof IOException) {
+				communication = true;
+			}
+			if (cause.getCause() == cause) {
+				break;
+			}
+		}
+
+		if (!communication) {
+			return null;
+		}
+		if (HttpUtils.isConnectFailure(failure)) {
+			return CONNECT;
+		}
+		return requestWritten ? READ : WRITE;
+	}
+
+	/**
+	 * Returns <code>true</code> if the request had not been processed by Realex when communication failed in
+	 * this phase, so may be sent again whatever its type.
+	 *
+	 * @return boolean
+	 */
+	public boolean isBeforeSend() {
+		return this != READ;
+	}
+
+}
@@ -1,5 +1,18 @@
 package com.realexpayments.remote.sdk.http;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.realexpayments.remote.sdk.domain.payment.PaymentRequest.PaymentType;
+import com.realexpayments.remote.sdk.domain.threeDSecure.ThreeDSecureRequest.ThreeDSecureType;
+import com.realexpayments.remote.sdk.resilience.CircuitBreakerPolicy;
+import com.realexpayments.remote.sdk.resilience.ConcurrencyLimitPolicy;
+import com.realexpayments.remote.sdk.resilience.RateLimitPolicy;
+import com.realexpayments.remote.sdk.resilience.RetryPolicy;
+
 /**
  * Object containing all configurable HTTP settings.
  */
@@ -15,15 +28,100 @@ public class HttpConfiguration {
 	 */
 	private static final int DEFAULT_TIMEOUT = 65000;
 
+	/**
+	 * The default maximum number of pooled connections per route.
+	 */
+	private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+
+	/**
+	 * The default maximum number of pooled connections in total.
+	 */
+	private static final int DEFAULT_MAX_CONNECTIONS_TOTAL = 20;
+
+	/**
+	 * The default time, in milliseconds, after which idle pooled connections are evicted.
+	 */
+	private static final long DEFAULT_CONNECTION_IDLE_TIMEOUT = 30000;
+
+	/**
+	 * The default period of inactivity, in milliseconds, after which a pooled connection is validated before reuse.
+	 */
+	private static final int DEFAULT_VALIDATE_AFTER_INACTIVITY = 2000;
+
+	/**
+	 * The default time to live, in milliseconds, of a pooled connection.
+	 */
+	private static final long DEFAULT_CONNECTION_TIME_TO_LIVE = 300000;
+
 	/** The URL of the Realex service. */
 	private String endpoint;
 
+	/** The weighted URLs of the Realex service requests are routed between, replacing the endpoint if not empty. */
+	private List<WeightedEndpoint> endpoints = Collections.emptyList();
+
 	/** The timeout, in milli-seconds, for sending a request to Realex. */
 	private int timeout;
 
+	/** The timeouts for requests without a profile for their type, if set in place of the timeout. */
+	private TimeoutProfile timeoutProfile;
+
+	/** The timeouts for each type of payment request. */
+	private Map<PaymentType, TimeoutProfile> paymentTimeoutProfiles = Collections.emptyMap();
+
+	/** The timeouts for each type of 3D Secure request. */
+	private Map<ThreeDSecureType, TimeoutProfile> threeDSecureTimeoutProfiles = Collections.emptyMap();
+
+	/** The deadline of the single request this configuration is a copy for, if any. */
+	private Deadline deadline;
+
 	/** Whether only HTTPS is allowed for the endpoint. */
 	private boolean onlyAllowHttps = true;
 
+	/** Whether connections to the endpoint are pooled and kept alive between requests. */
+	private boolean connectionPooling = true;
+
+	/** Whether request bodies are streamed with chunked transfer encoding rather than sent with a content length. */
+	private boolean chunkedRequests;
+
+	/** The maximum number of pooled connections per route. */
+	private int maxConnectionsPerRoute;
+
+	/** The maximum number of pooled connections in total. */
+	private int maxConnectionsTotal;
+
+	/** The time, in milli-seconds, after which idle pooled connections are evicted. */
+	private long connectionIdleTimeout;
+
+	/** The period of inactivity, in milli-seconds, after which a pooled connection is validated before reuse. */
+	private int validateAfterInactivity;
+
+	/** The time to live, in milli-seconds, of a pooled connection. A value of zero or less means no limit. */
+	private long connectionTimeToLive;
+
+	/** The settings of the circuit breaker around requests, or null for none. */
+	private CircuitBreakerPolicy circuitBreakerPolicy;
+
+	/** The maximum number of requests in progress at once per client. Zero means no limit. */
+	private int maxConcurrentRequests;
+
+	/** The maximum time, in milli-seconds, a request waits when the maximum number are in progress. */
+	private long maxConcurrentRequestsWait;
+
+	/** The settings of the adaptive limits on requests in progress per merchant account, or null for none. */
+	private ConcurrencyLimitPolicy concurrencyLimitPolicy;
+
+	/** The settings of the rate limits per merchant and type of request, or null for none. */
+	private RateLimitPolicy rateLimitPolicy;
+
+	/** The settings of the retries of requests which failed communicating with Realex, or null for none. */
+	private RetryPolicy retryPolicy;
+
+	/** The settings of the priority lanes requests are sent in, or null for none. */
+	private LanePolicy lanePolicy;
+
+	/** The lane of the single request this configuration is a copy for, if any. */
+	private Lane lane;
+
 	/* Constructors/Getters/Setters */
 
 	/**
@@ -34,6 +132,42 @@ public class HttpConfiguration {
 		// Set defaults
 		this.endpoint = DEFAULT_ENDPOINT;
 		this.timeout = DEFAULT_TIMEOUT;
+		this.maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+		this.maxConnectionsTotal = DEFAULT_MAX_CONNECTIONS_TOTAL;
+		this.connectionIdleTimeout = DEFAULT_CONNECTION_IDLE_TIMEOUT;
+		this.validateAfterInactivity = DEFAULT_VALIDATE_AFTER_INACTIVITY;
+		this.connectionTimeToLive = DEFAULT_CONNECTION_TIME_TO_LIVE;
+	}
+
+	/**
+	 * Create a copy of the HttpConfiguration object.
+	 * 
+	 * @param httpConfiguration the configuration to copy
+	 */
+	public HttpConfiguration(HttpConfiguration httpConfiguration) {
+		this.endpoint = httpConfiguration.endpoint;
+		this.endpoints = httpConfiguration.endpoints;
+		this.timeout = httpConfiguration.timeout;
+		this.timeoutProfile = httpConfiguration.timeoutProfile;
+		this.paymentTimeoutProfiles = httpConfiguration.paymentTimeoutProfiles;
+		this.threeDSecureTimeoutProfiles = httpConfiguration.threeDSecureTimeoutProfiles;
+		this.deadline = httpConfiguration.deadline;
+		this.onlyAllowHttps = httpConfiguration.onlyAllowHttps;
+		this.connectionPooling = httpConfiguration.connectionPooling;
+		this.chunkedRequests = httpConfiguration.chunkedRequests;
+		this.maxConnectionsPerRoute = httpConfiguration.maxConnectionsPerRoute;
+		this.maxConnectionsTotal = httpConfiguration.maxConnectionsTotal;
+		this.connectionIdleTimeout = httpConfiguration.connectionIdleTimeout;
+		this.validateAfterInactivity = httpConfiguration.validateAfterInactivity;
+		this.connectionTimeToLive = httpConfiguration.connectionTimeToLive;
+		this.circuitBreakerPolicy = httpConfiguration.circuitBreakerPolicy;
+		this.maxConcurrentRequests = httpConfiguration.maxConcurrentRequests;
+		this.maxConcurrentRequestsWait = httpConfiguration.maxConcurrentRequestsWait;
+		this.concurrencyLimitPolicy = httpConfiguration.concurrencyLimitPolicy;
+		this.rateLimitPolicy = httpConfiguration.rateLimitPolicy;
+		this.retryPolicy = httpConfiguration.retryPolicy;
+		this.lanePolicy = httpConfiguration.lanePolicy;
+		this.lane = httpConfiguration.lane;
 	}
 
 	/**
@@ -54,6 +188,53 @@ public class HttpConfiguration {
 		this.endpoint = endpoint;
 	}
 
+	/**
+	 * Get the weighted endpoints requests are routed between. An empty list, the default, means all 
+	 * requests are sent to the single endpoint.
+	 * 
+	 * @return the endpoints, which may not be modified
+	 */
+	public List<WeightedEndpoint> getEndpoints() {
+		return endpoints;
+	}
+
+	/**
+	 * Set the weighted endpoints requests are routed between, in place of the single endpoint. Requests are 
+	 * routed by the client according to the weight and the measured latency and error rate of each endpoint, 
+	 * failing over to another endpoint if an endpoint cannot be connected to. See {@link RoutingTransport}.
+	 * 
+	 * @param endpoints the endpoints to set
+	 */
+	public void setEndpoints(List<WeightedEndpoint> endpoints) {
+		this.endpoints = Collections.unmodifiableList(new ArrayList<WeightedEndpoint>(endpoints));
+	}
+
+	/**
+	 * Add a weighted endpoint requests are routed between, see {@link #setEndpoints(List)}.
+	 * 
+	 * @param endpoint the URL of the endpoint
+	 * @param weight the relative share of requests sent to the endpoint when all endpoints are equally healthy
+	 */
+	public void addEndpoint(String endpoint, int weight) {
+		List<WeightedEndpoint> newEndpoints = new ArrayList<WeightedEndpoint>(endpoints);
+		newEndpoints.add(new WeightedEndpoint(endpoint, weight));
+		this.endpoints = Collections.unmodifiableList(newEndpoints);
+	}
+
+	/**
+	 * Create a copy of this configuration for sending requests to the single endpoint given, with no 
+	 * weighted endpoints.
+	 * 
+	 * @param endpoint the endpoint of the copy
+	 * @return HttpConfiguration
+	 */
+	public HttpConfiguration withEndpoint(String endpoint) {
+		HttpConfiguration httpConfiguration = new HttpConfiguration(this);
+		httpConfiguration.endpoint = endpoint;
+		httpConfiguration.endpoints = Collections.emptyList();
+		return httpConfiguration;
+	}
+
 	/**
 	 * The timeout for a request to Realex.
 	 * 
@@ -72,6 +253,124 @@ public class HttpConfiguration {
 		this.timeout = timeout;
 	}
 
+	/**
+	 * Get the timeouts for requests without a profile for their type. Unless a profile has been set these 
+	 * are the timeout, see {@link #setTimeout(int)}, for connecting, leasing a pooled connection and waiting 
+	 * for the response, with no total timeout.
+	 * 
+	 * @return the timeoutProfile
+	 */
+	public TimeoutProfile getTimeoutProfile() {
+		TimeoutProfile profile = timeoutProfile;
+		return null == profile ? new TimeoutProfile(timeout) : profile;
+	}
+
+	/**
+	 * Set the timeouts for requests without a profile for their type, in place of the timeout. Setting 
+	 * <code>null</code> restores the use of the timeout.
+	 * 
+	 * @param timeoutProfile the timeoutProfile to set
+	 */
+	public void setTimeoutProfile(TimeoutProfile timeoutProfile) {
+		this.timeoutProfile = timeoutProfile;
+	}
+
+	/**
+	 * Get the timeouts for the type of payment request, or the default timeouts if none have been set for it.
+	 * 
+	 * @param paymentType
+	 * @return the timeouts
+	 */
+	public TimeoutProfile getTimeoutProfile(PaymentType paymentType) {
+		TimeoutProfile profile = paymentTimeoutProfiles.get(paymentType);
+		return null == profile ? getTimeoutProfile() : profile;
+	}
+
+	/**
+	 * Set the timeouts for the type of payment request. Setting <code>null</code> removes the profile, the 
+	 * default timeouts then being used.
+	 * 
+	 * @param paymentType
+	 * @param timeoutProfile
+	 */
+	public void setTimeoutProfile(PaymentType paymentType, TimeoutProfile timeoutProfile) {
+		Map<PaymentType, TimeoutProfile> profiles = new EnumMap<PaymentType, TimeoutProfile>(PaymentType.class);
+		profiles.putAll(paymentTimeoutProfiles);
+		if (null == timeoutProfile) {
+			profiles.remove(paymentType);
+		} else {
+			profiles.put(paymentType, timeoutProfile);
+		}
+		this.paymentTimeoutProfiles = Collections.unmodifiableMap(profiles);
+	}
+
+	/**
+	 * Get the timeouts for the type of 3D Secure request, or the default timeouts if none have been set for it.
+	 * 
+	 * @param threeDSecureType
+	 * @return the timeouts
+	 */
+	public TimeoutProfile getTimeoutProfile(ThreeDSecureType threeDSecureType) {
+		TimeoutProfile profile = threeDSecureTimeoutProfiles.get(threeDSecureType);
+		return null == profile ? getTimeoutProfile() : profile;
+	}
+
+	/**
+	 * Set the timeouts for the type of 3D Secure request. Setting <code>null</code> removes the profile, the 
+	 * default timeouts then being used.
+	 * 
+	 * @param threeDSecureType
+	 * @param timeoutProfile
+	 */
+	public void setTimeoutProfile(ThreeDSecureType threeDSecureType, TimeoutProfile timeoutProfile) {
+		Map<ThreeDSecureType, TimeoutProfile> profiles = new EnumMap<ThreeDSecureType, TimeoutProfile>(ThreeDSecureType.class);
+		profiles.putAll(threeDSecureTimeoutProfiles);
+		if (null == timeoutProfile) {
+			profiles.remove(threeDSecureType);
+		} else {
+			profiles.put(threeDSecureType, timeoutProfile);
+		}
+		this.threeDSecureTimeoutProfiles = Collections.unmodifiableMap(profiles);
+	}
+
+	/**
+	 * Check whether any timeout profile has been set, in which case the timeouts are set on each request 
+	 * rather than only on the default clients.
+	 * 
+	 * @return boolean
+	 */
+	public boolean hasTimeoutProfiles() {
+		return null != timeoutProfile || !paymentTimeoutProfiles.isEmpty() || !threeDSecureTimeoutProfiles.isEmpty();
+	}
+
+	/**
+	 * Get the deadline of the request this configuration is for, <code>null</code> unless this is a copy 
+	 * created by {@link #withTimeouts(TimeoutProfile, Deadline)}.
+	 * 
+	 * @return the deadline
+	 */
+	public Deadline getDeadline() {
+		return deadline;
+	}
+
+	/**
+	 * Create a copy of this configuration for sending a single request with the timeouts and deadline given. 
+	 * Where the timeout profile has a total timeout, the deadline is brought forward to the end of it.
+	 * 
+	 * @param requestTimeoutProfile the timeouts of the request
+	 * @param requestDeadline the deadline of the request, may be <code>null</code>
+	 * @return HttpConfiguration
+	 */
+	public HttpConfiguration withTimeouts(TimeoutProfile requestTimeoutProfile, Deadline requestDeadline) {
+		HttpConfiguration httpConfiguration = new HttpConfiguration(this);
+		httpConfiguration.timeoutProfile = requestTimeoutProfile;
+		if (requestTimeoutProfile.getTotalTimeout() > 0) {
+			requestDeadline = Deadline.afterMillis(requestTimeoutProfile.getTotalTimeout()).earliest(requestDeadline);
+		}
+		httpConfiguration.deadline = requestDeadline;
+		return httpConfiguration;
+	}
+
 	/**
 	 * Check is HTTPS the only allowed scheme (protocol) to the endpoint.
 	 * @return the onlyAllowHttps
@@ -89,4 +388,312 @@ public class HttpConfiguration {
 		this.onlyAllowHttps = onlyAllowHttps;
 	}
 
+	/**
+	 * Check whether connections to the endpoint are pooled and kept alive between requests.
+	 * 
+	 * @return the connectionPooling
+	 */
+	public boolean isConnectionPooling() {
+		return connectionPooling;
+	}
+
+	/**
+	 * Set whether (true) or not (false) connections to the endpoint are pooled and kept alive between 
+	 * requests. When false a new connection is opened, and closed, for every request.
+	 * 
+	 * @param connectionPooling the connectionPooling to set
+	 */
+	public void setConnectionPooling(boolean connectionPooling) {
+		this.connectionPooling = connectionPooling;
+	}
+
+	/**
+	 * Check whether request bodies are streamed to the connection with chunked transfer encoding.
+	 * 
+	 * @return the chunkedRequests
+	 */
+	public boolean isChunkedRequests() {
+		return chunkedRequests;
+	}
+
+	/**
+	 * Set whether (true) or not (false) request bodies are streamed to the connection with chunked transfer 
+	 * encoding as they are marshalled. By default the request is marshalled first and sent with a 
+	 * Content-Length header, as gateways behind a CGI interface may not accept chunked request bodies. 
+	 * Only synchronous requests sent with the Apache HttpClient are streamed.
+	 * 
+	 * @param chunkedRequests the chunkedRequests to set
+	 */
+	public void setChunkedRequests(boolean chunkedRequests) {
+		this.chunkedRequests = chunkedRequests;
+	}
+
+	/**
+	 * Get the maximum number of pooled connections per route.
+	 * 
+	 * @return the maxConnectionsPerRoute
+	 */
+	public int getMaxConnectionsPerRoute() {
+		return maxConnectionsPerRoute;
+	}
+
+	/**
+	 * Set the maximum number of pooled connections per route.
+	 * 
+	 * @param maxConnectionsPerRoute the maxConnectionsPerRoute to set
+	 */
+	public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+	}
+
+	/**
+	 * Get the maximum number of pooled connections in total.
+	 * 
+	 * @return the maxConnectionsTotal
+	 */
+	public int getMaxConnectionsTotal() {
+		return maxConnectionsTotal;
+	}
+
+	/**
+	 * Set the maximum number of pooled connections in total.
+	 * 
+	 * @param maxConnectionsTotal the maxConnectionsTotal to set
+	 */
+	public void setMaxConnectionsTotal(int maxConnectionsTotal) {
+		this.maxConnectionsTotal = maxConnectionsTotal;
+	}
+
+	/**
+	 * Get the time, in milli-seconds, after which idle pooled connections are evicted.
+	 * 
+	 * @return the connectionIdleTimeout
+	 */
+	public long getConnectionIdleTimeout() {
+		return connectionIdleTimeout;
+	}
+
+	/**
+	 * Set the time, in milli-seconds, after which idle pooled connections are evicted.
+	 * 
+	 * @param connectionIdleTimeout the connectionIdleTimeout to set
+	 */
+	public void setConnectionIdleTimeout(long connectionIdleTimeout) {
+		this.connectionIdleTimeout = connectionIdleTimeout;
+	}
+
+	/**
+	 * Get the period of inactivity, in milli-seconds, after which a pooled connection is validated before reuse.
+	 * 
+	 * @return the validateAfterInactivity
+	 */
+	public int getValidateAfterInactivity() {
+		return validateAfterInactivity;
+	}
+
+	/**
+	 * Set the period of inactivity, in milli-seconds, after which a pooled connection is validated before reuse.
+	 * 
+	 * @param validateAfterInactivity the validateAfterInactivity to set
+	 */
+	public void setValidateAfterInactivity(int validateAfterInactivity) {
+		this.validateAfterInactivity = validateAfterInactivity;
+	}
+
+	/**
+	 * Get the time to live, in milli-seconds, of a pooled connection.
+	 * 
+	 * @return the connectionTimeToLive
+	 */
+	public long getConnectionTimeToLive() {
+		return connectionTimeToLive;
+	}
+
+	/**
+	 * Set the time to live, in milli-seconds, of a pooled connection. A value of zero or less means 
+	 * connections are kept for as long as the server allows.
+	 * 
+	 * @param connectionTimeToLive the connectionTimeToLive to set
+	 */
+	public void setConnectionTimeToLive(long connectionTimeToLive) {
+		this.connectionTimeToLive = connectionTimeToLive;
+	}
+
+	/**
+	 * Get the settings of the circuit breaker around requests, <code>null</code> if there is none.
+	 * 
+	 * @return the circuitBreakerPolicy
+	 */
+	public CircuitBreakerPolicy getCircuitBreakerPolicy() {
+		return circuitBreakerPolicy;
+	}
+
+	/**
+	 * Set the settings of the circuit breaker around requests, so that requests are rejected straight away 
+	 * once too many recent requests have failed or been slow, see 
+	 * {@link com.realexpayments.remote.sdk.resilience.CircuitBreaker}. Each client keeps its own circuit 
+	 * breaker, restarted closed when a different policy is set. The default, <code>null</code>, means none.
+	 * 
+	 * @param circuitBreakerPolicy the circuitBreakerPolicy to set
+	 */
+	public void setCircuitBreakerPolicy(CircuitBreakerPolicy circuitBreakerPolicy) {
+		this.circuitBreakerPolicy = circuitBreakerPolicy;
+	}
+
+	/**
+	 * Get the maximum number of requests in progress at once per client. Zero means no limit.
+	 * 
+	 * @return the maxConcurrentRequests
+	 */
+	public int getMaxConcurrentRequests() {
+		return maxConcurrentRequests;
+	}
+
+	/**
+	 * Set the maximum number of requests in progress at once per client, so that a slow Realex cannot tie 
+	 * up more than this many threads, see {@link com.realexpayments.remote.sdk.resilience.Bulkhead}. Zero, 
+	 * the default, means no limit.
+	 * 
+	 * @param maxConcurrentRequests the maxConcurrentRequests to set
+	 */
+	public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+		if (maxConcurrentRequests < 0) {
+			throw new IllegalArgumentException("Maximum concurrent requests must not be negative.");
+		}
+		this.maxConcurrentRequests = maxConcurrentRequests;
+	}
+
+	/**
+	 * Get the maximum time, in milli-seconds, a request waits when the maximum number are in progress.
+	 * 
+	 * @return the maxConcurrentRequestsWait
+	 */
+	public long getMaxConcurrentRequestsWait() {
+		return maxConcurrentRequestsWait;
+	}
+
+	/**
+	 * Set the maximum time, in milli-seconds, a request waits when the maximum number are in progress, 
+	 * before it is rejected. The default is zero, rejecting such requests straight away. Asynchronous 
+	 * requests never wait.
+	 * 
+	 * @param maxConcurrentRequestsWait the maxConcurrentRequestsWait to set
+	 */
+	public void setMaxConcurrentRequestsWait(long maxConcurrentRequestsWait) {
+		if (maxConcurrentRequestsWait < 0) {
+			throw new IllegalArgumentException("Maximum wait must not be negative.");
+		}
+		this.maxConcurrentRequestsWait = maxConcurrentRequestsWait;
+	}
+
+	/**
+	 * Get the settings of the adaptive limits on requests in progress per merchant account, <code>null</code> 
+	 * if there are none.
+	 * 
+	 * @return the concurrencyLimitPolicy
+	 */
+	public ConcurrencyLimitPolicy getConcurrencyLimitPolicy() {
+		return concurrencyLimitPolicy;
+	}
+
+	/**
+	 * Set the settings of the adaptive limits on requests in progress per merchant account, so that the 
+	 * number of requests in progress follows the latency of Realex and the acquirer, see 
+	 * {@link com.realexpayments.remote.sdk.resilience.ConcurrencyLimiter}. Each client keeps a limiter per 
+	 * merchant ID and account, restarted at the initial limit when a different policy is set. The default, 
+	 * <code>null</code>, means none.
+	 * 
+	 * @param concurrencyLimitPolicy the concurrencyLimitPolicy to set
+	 */
+	public void setConcurrencyLimitPolicy(ConcurrencyLimitPolicy concurrencyLimitPolicy) {
+		this.concurrencyLimitPolicy = concurrencyLimitPolicy;
+	}
+
+	/**
+	 * Get the settings of the rate limits per merchant and type of request, <code>null</code> if there are 
+	 * none.
+	 * 
+	 * @return the rateLimitPolicy
+	 */
+	public RateLimitPolicy getRateLimitPolicy() {
+		return rateLimitPolicy;
+	}
+
+	/**
+	 * Set the settings of the rate limits per merchant and type of request, so that requests are kept within 
+	 * the rates agreed with Realex, see {@link com.realexpayments.remote.sdk.resilience.TokenBucket}. Each 
+	 * client keeps a token bucket per merchant ID and type of request, restarted full when a different rate 
+	 * limit is set. The default, <code>null</code>, means none.
+	 * 
+	 * @param rateLimitPolicy the rateLimitPolicy to set
+	 */
+	public void setRateLimitPolicy(RateLimitPolicy rateLimitPolicy) {
+		this.rateLimitPolicy = rateLimitPolicy;
+	}
+
+	/**
+	 * Get the settings of the retries of requests which failed communicating with Realex, <code>null</code> 
+	 * if requests are not retried.
+	 * 
+	 * @return the retryPolicy
+	 */
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	/**
+	 * Set the settings of the retries of requests which failed communicating with Realex, so that requests 
+	 * which cannot have reached Realex, or are safe to repeat, are sent again, see 
+	 * {@link com.realexpayments.remote.sdk.resilience.RequestRetrier}. Each client keeps its own retry budget, 
+	 * restarted when a different policy is set. The default, <code>null</code>, means requests are not retried.
+	 * 
+	 * @param retryPolicy the retryPolicy to set
+	 */
+	public void setRetryPolicy(RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+
+	/**
+	 * Get the settings of the priority lanes requests are sent in, <code>null</code> if there are none.
+	 * 
+	 * @return the lanePolicy
+	 */
+	public LanePolicy getLanePolicy() {
+		return lanePolicy;
+	}
+
+	/**
+	 * Set the settings of the priority lanes requests are sent in, so that interactive requests such as 
+	 * authorisations are not held up behind bulk requests such as settlements, see {@link PriorityTransport}. 
+	 * Each client keeps its own lanes, restarted when a different policy is set. The default, 
+	 * <code>null</code>, means requests are sent in the order they are made.
+	 * 
+	 * @param lanePolicy the lanePolicy to set
+	 */
+	public void setLanePolicy(LanePolicy lanePolicy) {
+		this.lanePolicy = lanePolicy;
+	}
+
+	/**
+	 * Get the lane of the request this configuration is for, <code>null</code> unless this is a copy 
+	 * created by {@link #withLane(Lane)}.
+	 * 
+	 * @return the lane
+	 */
+	public Lane getLane() {
+		return lane;
+	}
+
+	/**
+	 * Create a copy of this configuration for sending a single request in the lane given.
+	 * 
+	 * @param requestLane the lane of the request
+	 * @return HttpConfiguration
+	 */
+	public HttpConfiguration withLane(Lane requestLane) {
+		HttpConfiguration httpConfiguration = new HttpConfiguration(this);
+		httpConfiguration.lane = requestLane;
+		return httpConfiguration;
+	}
+
 }
@@ -1,27 +1,61 @@
 package com.realexpayments.remote.sdk.http;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import org.apache.http.ConnectionReuseStrategy;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentProducer;
 import org.apache.http.entity.ContentType;
+import org.apache.http.entity.EntityTemplate;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.NoConnectionReuseStrategy;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.BasicHttpClientConnectionManager;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.nio.client.HttpAsyncClient;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.realexpayments.remote.sdk.RealexException;
+import com.realexpayments.remote.sdk.RealexTimeoutException;
+import com.realexpayments.remote.sdk.utils.StripedPool;
 
 /**
  * HTTP Utils class for dealing with HTTP and actual message sending.
@@ -33,29 +67,274 @@ public class HttpUtils {
     private final static String HTTPS_PROTOCOL = "https";
     private final static String UTF_8 = "UTF-8";
 
+    /**
+     * The java.net.http transport, compiled for Java 11 and packaged as a multi-release class.
+     */
+    private final static String JAVA_NET_HTTP_TRANSPORT = "com.realexpayments.remote.sdk.http.JavaNetHttpTransport";
+
+    /**
+     * The connection timeout exception of the java.net.http client, which is not available on Java 8.
+     */
+    private final static String JAVA_NET_HTTP_CONNECT_TIMEOUT = "java.net.http.HttpConnectTimeoutException";
+
+    /**
+     * The largest request buffer, in bytes, returned to the pool for reuse.
+     */
+    private final static int MAX_POOLED_REQUEST_BUFFER = 64 * 1024;
+
     private final static Logger logger = LoggerFactory.getLogger(HttpUtils.class);
 
+    /**
+     * The buffers request bodies are marshalled into to be sent with a content length, reused between requests.
+     */
+    private final static StripedPool<RequestBuffer> REQUEST_BUFFERS = new StripedPool<RequestBuffer>(RequestBuffer::new);
+
     /**
      * Get a default HttpClient based on the HttpConfiguration object. If required the defaults can 
-     * be altered to meet the requirements of the SDK user. The default client does not use connection 
-     * pooling and does not reuse connections. Timeouts for connection and socket are taken from the 
-     * {@link HttpConfiguration} object.
+     * be altered to meet the requirements of the SDK user. Timeouts for connection, connection request 
+     * and socket are taken from the default {@link TimeoutProfile} of the {@link HttpConfiguration} object.
+     * <p>
+     * By default connections are pooled and kept alive between requests, with the pool limits, idle 
+     * eviction, validation and time to live taken from the {@link HttpConfiguration} object. If 
+     * connection pooling is disabled the client does not use connection pooling and does not reuse 
+     * connections, so every request opens (and closes) a new connection.
+     * </p>
      * 
      * @param httpConfiguration
      * @return CloseableHttpClient
      */
     public static CloseableHttpClient getDefaultClient(HttpConfiguration httpConfiguration) {
+        return getDefaultClient(httpConfiguration, getDefaultConnectionManager(httpConfiguration));
+    }
+
+    /**
+     * Get a default HttpClient based on the HttpConfiguration object, as for {@link #getDefaultClient(HttpConfiguration)}, 
+     * using the supplied connection manager, for example so that connections may be opened before the first 
+     * request with {@link #openConnections(HttpClientConnectionManager, HttpConfiguration, int)}. The connection 
+     * manager should be created with {@link #getDefaultConnectionManager(HttpConfiguration)} and is closed with 
+     * the client.
+     * 
+     * @param httpConfiguration
+     * @param connectionManager
+     * @return CloseableHttpClient
+     */
+    public static CloseableHttpClient getDefaultClient(HttpConfiguration httpConfiguration, HttpClientConnectionManager connectionManager) {
+
+        RequestConfig requestConfig = createRequestConfig(httpConfiguration.getTimeoutProfile(), null);
+
+        if (!httpConfiguration.isConnectionPooling()) {
+            ConnectionReuseStrategy connectionResuseStrategy = new NoConnectionReuseStrategy();
+
+            logger.debug("Creating HttpClient with simple no pooling/no connection reuse default settings.");
+            CloseableHttpClient httpClient = HttpClients.custom().setDefaultRequestConfig(requestConfig).setConnectionManager(connectionManager)
+                    .setConnectionReuseStrategy(connectionResuseStrategy).build();
+            return httpClient;
+        }
+
+        logger.debug("Creating HttpClient with pooled keep-alive connections (max per route {}, max total {}).",
+                httpConfiguration.getMaxConnectionsPerRoute(), httpConfiguration.getMaxConnectionsTotal());
+        HttpClientBuilder httpClientBuilder = HttpClients.custom().setDefaultRequestConfig(requestConfig)
+                .setConnectionManager(connectionManager).evictExpiredConnections();
+        if (httpConfiguration.getConnectionIdleTimeout() > 0) {
+            httpClientBuilder.evictIdleConnections(httpConfiguration.getConnectionIdleTimeout(), TimeUnit.MILLISECONDS);
+        }
+        return httpClientBuilder.build();
+    }
+
+    /**
+     * Get the default connection manager based on the HttpConfiguration object: a pooling connection manager 
+     * with the pool limits, validation and time to live taken from the {@link HttpConfiguration} object, or 
+     * a basic connection manager holding a single connection if connection pooling is disabled.
+     * 
+     * @param httpConfiguration
+     * @return HttpClientConnectionManager
+     */
+    public static HttpClientConnectionManager getDefaultConnectionManager(HttpConfiguration httpConfiguration) {
+
+        if (!httpConfiguration.isConnectionPooling()) {
+            return new BasicHttpClientConnectionManager();
+        }
 
-        RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(httpConfiguration.getTimeout())
-                .setSocketTimeout(httpConfiguration.getTimeout()).build();
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+                httpConfiguration.getConnectionTimeToLive(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(httpConfiguration.getMaxConnectionsTotal());
+        connectionManager.setDefaultMaxPerRoute(httpConfiguration.getMaxConnectionsPerRoute());
+        connectionManager.setValidateAfterInactivity(httpConfiguration.getValidateAfterInactivity());
+        return connectionManager;
+    }
+
+    /**
+     * Opens connections to the configured endpoint and returns them to the connection manager's pool, so 
+     * that the first requests do not wait for the connection to be established and the TLS handshake. 
+     * Connections already open in the pool count towards the number requested, and no more than the pool 
+     * limits from the {@link HttpConfiguration} are opened. Connections are only opened if connection pooling 
+     * is enabled. A failure to connect is logged, and the connections opened before it are kept. Opened 
+     * connections remain subject to the idle timeout.
+     * 
+     * @param connectionManager
+     * @param httpConfiguration
+     * @param connections
+     * @return the number of connections opened
+     */
+    public static int openConnections(HttpClientConnectionManager connectionManager, HttpConfiguration httpConfiguration,
+            int connections) {
+
+        if (connections < 0) {
+            throw new IllegalArgumentException("Connections must not be negative.");
+        }
+        if (!httpConfiguration.isConnectionPooling()) {
+            logger.debug("Connection pooling is disabled, no connections opened.");
+            return 0;
+        }
 
-        HttpClientConnectionManager connectionManager = new BasicHttpClientConnectionManager();
-        ConnectionReuseStrategy connectionResuseStrategy = new NoConnectionReuseStrategy();
+        URI uri = getEndpointUri(httpConfiguration);
+        String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+        boolean secure = HTTPS_PROTOCOL.equals(scheme);
+        int port = uri.getPort() > 0 ? uri.getPort() : secure ? 443 : 80;
+        HttpRoute route = new HttpRoute(new HttpHost(uri.getHost(), port, scheme), null, secure);
+
+        int limit = Math.min(connections,
+                Math.min(httpConfiguration.getMaxConnectionsPerRoute(), httpConfiguration.getMaxConnectionsTotal()));
+        TimeoutProfile timeoutProfile = httpConfiguration.getTimeoutProfile();
+
+        logger.debug("Opening {} connections to {}.", limit, route);
+        List<HttpClientConnection> leased = new ArrayList<HttpClientConnection>(limit);
+        HttpClientContext context = HttpClientContext.create();
+        int opened = 0;
+        try {
+            for (int i = 0; i < limit; i++) {
+                HttpClientConnection connection = connectionManager.requestConnection(route, null)
+                        .get(timeoutProfile.getConnectionRequestTimeout(), TimeUnit.MILLISECONDS);
+                leased.add(connection);
+                if (!connection.isOpen()) {
+                    connectionManager.connect(connection, route, timeoutProfile.getConnectTimeout(), context);
+                    connectionManager.routeComplete(connection, route, context);
+                    opened++;
+                }
+            }
+        } catch (IOException | ExecutionException ex) {
+            logger.warn("Exception opening connection to Realex.", ex);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } finally {
+            //return the connections to the pool, to be kept alive until idle
+            for (HttpClientConnection connection : leased) {
+                connectionManager.releaseConnection(connection, null, 0, TimeUnit.MILLISECONDS);
+            }
+        }
 
-        logger.debug("Creating HttpClient with simple no pooling/no connection reuse default settings.");
-        CloseableHttpClient httpClient = HttpClients.custom().setDefaultRequestConfig(requestConfig).setConnectionManager(connectionManager)
-                .setConnectionReuseStrategy(connectionResuseStrategy).build();
-        return httpClient;
+        logger.debug("Opened {} connections to {}.", opened, route);
+        return opened;
+    }
+
+    /**
+     * Returns <code>true</code> if the failure, or any of its causes, shows that a connection to the endpoint 
+     * could not be established: the host could not be resolved, the connection was refused or unreachable, 
+     * or the connection timed out. The request cannot have reached Realex, so may safely be sent elsewhere 
+     * or again.
+     * 
+     * @param failure
+     * @return boolean
+     */
+    public static boolean isConnectFailure(Throwable failure) {
+
+        for (Throwable cause = failure; null != cause; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof NoRouteToHostException
+                    || cause instanceof UnknownHostException || cause instanceof ConnectTimeoutException
+                    || JAVA_NET_HTTP_CONNECT_TIMEOUT.equals(cause.getClass().getName())) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get a default non-blocking HttpAsyncClient based on the HttpConfiguration object, used for sending 
+     * requests asynchronously. Timeouts for connection, connection request and socket are taken from the 
+     * default {@link TimeoutProfile} of the {@link HttpConfiguration} object, as are the pool limits when connection pooling is enabled. The 
+     * returned client has been started and should be closed when no longer required.
+     * 
+     * @param httpConfiguration
+     * @return CloseableHttpAsyncClient
+     */
+    public static CloseableHttpAsyncClient getDefaultAsyncClient(HttpConfiguration httpConfiguration) {
+
+        RequestConfig requestConfig = createRequestConfig(httpConfiguration.getTimeoutProfile(), null);
+
+        HttpAsyncClientBuilder httpAsyncClientBuilder = HttpAsyncClients.custom().setDefaultRequestConfig(requestConfig);
+        if (httpConfiguration.isConnectionPooling()) {
+            logger.debug("Creating HttpAsyncClient with pooled keep-alive connections (max per route {}, max total {}).",
+                    httpConfiguration.getMaxConnectionsPerRoute(), httpConfiguration.getMaxConnectionsTotal());
+            httpAsyncClientBuilder.setMaxConnPerRoute(httpConfiguration.getMaxConnectionsPerRoute())
+                    .setMaxConnTotal(httpConfiguration.getMaxConnectionsTotal());
+        } else {
+            logger.debug("Creating HttpAsyncClient with no connection reuse.");
+            httpAsyncClientBuilder.setConnectionReuseStrategy(NoConnectionReuseStrategy.INSTANCE);
+        }
+
+        CloseableHttpAsyncClient httpAsyncClient = httpAsyncClientBuilder.build();
+        httpAsyncClient.start();
+        return httpAsyncClient;
+    }
+
+    /**
+     * Get a {@link Transport} which sends requests with the java.net.http HttpClient over HTTP/1.1, configured 
+     * from the HttpConfiguration. The connection timeout, and the timeout for each request, are taken from the 
+     * {@link HttpConfiguration} object. The transport requires Java 11 or later; a {@link RealexException} 
+     * is thrown on earlier versions.
+     * 
+     * @param httpConfiguration
+     * @return Transport
+     */
+    public static Transport getJavaNetHttpTransport(HttpConfiguration httpConfiguration) {
+
+        logger.debug("Creating java.net.http transport.");
+        return createJavaNetHttpTransport("http1", httpConfiguration);
+    }
+
+    /**
+     * Get a {@link Transport} which sends requests with the java.net.http HttpClient over HTTP/2, configured 
+     * from the HttpConfiguration. Over HTTPS the protocol is negotiated with ALPN, falling back to HTTP/1.1 if 
+     * Realex does not support HTTP/2. Concurrent requests share multiplexed connections rather than each 
+     * holding its own, reducing the number of sockets and TLS handshakes at high concurrency. Timeouts are 
+     * taken from the {@link HttpConfiguration} object; the connection pool limits do not apply. The transport 
+     * requires Java 11 or later; a {@link RealexException} is thrown on earlier versions.
+     * 
+     * @param httpConfiguration
+     * @return Transport
+     */
+    public static Transport getHttp2Transport(HttpConfiguration httpConfiguration) {
+
+        logger.debug("Creating java.net.http HTTP/2 transport.");
+        return createJavaNetHttpTransport("http2", httpConfiguration);
+    }
+
+    /**
+     * Create the java.net.http transport with its static factory method. The transport class is compiled for 
+     * Java 11 so is loaded reflectively.
+     * 
+     * @param factoryMethod
+     * @param httpConfiguration
+     * @return Transport
+     */
+    private static Transport createJavaNetHttpTransport(String factoryMethod, HttpConfiguration httpConfiguration) {
+
+        try {
+            Class<?> transportClass = Class.forName(JAVA_NET_HTTP_TRANSPORT, true, HttpUtils.class.getClassLoader());
+            return (Transport) transportClass.getMethod(factoryMethod, HttpConfiguration.class).invoke(null, httpConfiguration);
+        } catch (ClassNotFoundException | LinkageError ex) {
+            throw new RealexException("The java.net.http transport requires Java 11 or later.", ex);
+        } catch (InvocationTargetException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new RealexException("Error creating java.net.http transport.", ex.getCause());
+        } catch (ReflectiveOperationException ex) {
+            throw new RealexException("Error creating java.net.http transport.", ex);
+        }
     }
 
     /**
@@ -72,22 +351,10 @@ public class HttpUtils {
      */
     public static String sendMessage(String xml, HttpClient httpClient, HttpConfiguration httpConfiguration) {
 
-        logger.debug("Setting endpoint of: " + httpConfiguration.getEndpoint());
-        HttpPost httpPost = new HttpPost(httpConfiguration.getEndpoint());
-        httpPost.addHeader(HttpHeaders.CONTENT_TYPE, ContentType.APPLICATION_XML.getMimeType());
+        HttpPost httpPost = createHttpPost(httpConfiguration);
+        ScheduledFuture<?> abortTimer = scheduleAbort(httpPost, httpConfiguration.getDeadline());
         HttpResponse response = null;
 
-        // Confirm protocol is HTTPS (ie. secure) if such is configured
-        if (httpConfiguration.isOnlyAllowHttps()) {
-            String scheme = httpPost.getURI().getScheme();
-            if (!scheme.equalsIgnoreCase(HTTPS_PROTOCOL)) {
-                logger.error("Protocol must be " + HTTPS_PROTOCOL);
-                throw new RealexException("Protocol must be " + HTTPS_PROTOCOL);
-            }
-        } else {
-            logger.warn("Allowed send message over HTTP. This should NEVER be allowed in a production environment.");
-        }
-
         try {
             logger.debug("Setting entity in POST message.");
             httpPost.setEntity(new StringEntity(xml, UTF_8));
@@ -95,21 +362,67 @@ public class HttpUtils {
             logger.debug("Executing HTTP Post message to: " + httpPost.getURI());
             response = httpClient.execute(httpPost);
 
-            logger.debug("Checking the HTTP response status code.");
-            int statusCode = (response.getStatusLine().getStatusCode());
-            if (statusCode != HttpStatus.SC_OK) {
-                throw new RealexException("Unexpected http status code [" + statusCode + "]");
+            return readResponse(response);
+        } catch (IOException ioe) {
+            // Also catches ClientProtocolException (from httpClient.execute()) and UnsupportedEncodingException (from response.getEntity()
+            throw communicationException(ioe, httpConfiguration.getDeadline());
+        } finally {
+            if (null != abortTimer) {
+                abortTimer.cancel(false);
+            }
+            // Test if response Closeable
+            if (response instanceof Closeable) {
+                try {
+                    ((Closeable) response).close();
+                } catch (IOException ioe) {
+                    // Ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Perform the actual send of the message, according to the HttpConfiguration, without holding the request 
+     * body or the response body as a string. The request body is written by the {@link ContentProducer} into a 
+     * pooled buffer and sent with a content length or, if {@link HttpConfiguration#isChunkedRequests()}, directly 
+     * to the connection with chunked transfer encoding. The response body is read by the {@link ResponseReader} 
+     * directly from the connection. The same checks are performed, and {@link RealexException}s thrown, as for 
+     * {@link #sendMessage(String, HttpClient, HttpConfiguration)}.
+     * 
+     * @param requestProducer
+     * @param responseReader
+     * @param httpClient
+     * @param httpConfiguration
+     * @return the result of the response reader
+     */
+    public static <T> T sendMessage(ContentProducer requestProducer, ResponseReader<T> responseReader, HttpClient httpClient,
+            HttpConfiguration httpConfiguration) {
+
+        HttpPost httpPost = createHttpPost(httpConfiguration);
+        ScheduledFuture<?> abortTimer = scheduleAbort(httpPost, httpConfiguration.getDeadline());
+        HttpResponse response = null;
+        RequestBuffer requestBuffer = null;
+
+        try {
+            if (httpConfiguration.isChunkedRequests()) {
+                logger.debug("Setting streaming entity in POST message.");
+                httpPost.setEntity(new EntityTemplate(requestProducer));
+            } else {
+                logger.debug("Setting entity in POST message.");
+                requestBuffer = REQUEST_BUFFERS.take();
+                httpPost.setEntity(requestBuffer.write(requestProducer));
             }
 
-            logger.debug("Converting HTTP entity (the xml response) back into a string.");
-            String xmlResponse = EntityUtils.toString(response.getEntity());
-            EntityUtils.consume(response.getEntity());
-            return xmlResponse;
+            logger.debug("Executing HTTP Post message to: " + httpPost.getURI());
+            response = httpClient.execute(httpPost);
+
+            return readResponse(response, responseReader);
         } catch (IOException ioe) {
-            // Also catches ClientProtocolException (from httpClient.execute()) and UnsupportedEncodingException (from response.getEntity()
-            logger.error("Exception communicating with Realex.", ioe.getMessage());
-            throw new RealexException("Exception communicating with Realex.", ioe);
+            throw communicationException(ioe, httpConfiguration.getDeadline());
         } finally {
+            if (null != abortTimer) {
+                abortTimer.cancel(false);
+            }
             // Test if response Closeable
             if (response instanceof Closeable) {
                 try {
@@ -118,6 +431,330 @@ public class HttpUtils {
                     // Ignore
                 }
             }
+            // the request has been sent, or has failed, so the buffer may be reused
+            if (null != requestBuffer) {
+                requestBuffer.release();
+            }
+        }
+    }
+
+    /**
+     * Perform the send of the message without blocking the calling thread, according to the HttpConfiguration. 
+     * The returned future completes with the xml response, or completes exceptionally with a 
+     * {@link RealexException} in the same circumstances in which {@link #sendMessage(String, HttpClient, HttpConfiguration)} 
+     * would throw one. Cancelling the returned future aborts the HTTP request.
+     * 
+     * @param xml
+     * @param httpAsyncClient
+     * @param httpConfiguration
+     * @return future of the xml response
+     */
+    public static CompletableFuture<String> sendMessageAsync(String xml, HttpAsyncClient httpAsyncClient, HttpConfiguration httpConfiguration) {
+
+        logger.debug("Setting entity in POST message.");
+        return executeAsync(() -> new StringEntity(xml, UTF_8), null, httpAsyncClient, httpConfiguration);
+    }
+
+    /**
+     * Perform the send of the message without blocking the calling thread, according to the HttpConfiguration, 
+     * reading the response body with the {@link ResponseReader} rather than converting it to a string. The 
+     * request body is written by the {@link ContentProducer} and sent with a content length, as the async 
+     * client would hold the body in full before sending it even if chunked requests were configured. The 
+     * returned future completes with the result of the response reader, or completes exceptionally with a 
+     * {@link RealexException} in the same circumstances in which {@link #sendMessage(String, HttpClient, HttpConfiguration)} 
+     * would throw one. Cancelling the returned future aborts the HTTP request.
+     * 
+     * @param requestProducer
+     * @param responseReader
+     * @param httpAsyncClient
+     * @param httpConfiguration
+     * @return future of the result of the response reader
+     */
+    public static <T> CompletableFuture<T> sendMessageAsync(ContentProducer requestProducer, ResponseReader<T> responseReader,
+            HttpAsyncClient httpAsyncClient, HttpConfiguration httpConfiguration) {
+
+        logger.debug("Setting entity in POST message.");
+        return executeAsync(() -> {
+            RequestBuffer requestBuffer = REQUEST_BUFFERS.take();
+            try {
+                // the body is copied, as it is written to the connection by another thread
+                requestBuffer.write(requestProducer);
+                return new ByteArrayEntity(requestBuffer.toByteArray());
+            } finally {
+                requestBuffer.release();
+            }
+        }, responseReader, httpAsyncClient, httpConfiguration);
+    }
+
+    /**
+     * Execute the POST message with the entity created by the supplier asynchronously, once the request has 
+     * been checked. The response is read with the {@link ResponseReader}, or converted into a string if no 
+     * reader is given.
+     * 
+     * @param entity
+     * @param responseReader
+     * @param httpAsyncClient
+     * @param httpConfiguration
+     * @return future of the response
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> CompletableFuture<T> executeAsync(Supplier<HttpEntity> entity, final ResponseReader<T> responseReader,
+            HttpAsyncClient httpAsyncClient, HttpConfiguration httpConfiguration) {
+
+        final CompletableFuture<T> result = new CompletableFuture<T>();
+        final Deadline deadline = httpConfiguration.getDeadline();
+
+        HttpPost httpPost;
+        try {
+            httpPost = createHttpPost(httpConfiguration);
+            httpPost.setEntity(entity.get());
+        } catch (RealexException ex) {
+            result.completeExceptionally(ex);
+            return result;
+        }
+
+        logger.debug("Executing asynchronous HTTP Post message to: " + httpPost.getURI());
+        final Future<HttpResponse> httpFuture = httpAsyncClient.execute(httpPost, new FutureCallback<HttpResponse>() {
+
+            @Override
+            public void completed(HttpResponse response) {
+                try {
+                    result.complete(null == responseReader ? (T) readResponse(response) : readResponse(response, responseReader));
+                } catch (RuntimeException ex) {
+                    result.completeExceptionally(ex);
+                } catch (IOException ioe) {
+                    result.completeExceptionally(communicationException(ioe, deadline));
+                }
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                result.completeExceptionally(communicationException(ex, deadline));
+            }
+
+            @Override
+            public void cancelled() {
+                result.completeExceptionally(new RealexException("Request to Realex was cancelled."));
+            }
+        });
+
+        // abort the HTTP request if the deadline passes
+        final ScheduledFuture<?> deadlineTimer = null == deadline ? null : deadline.onExpiry(() -> {
+            if (result.completeExceptionally(deadline.expired("waiting for the response from Realex", null))) {
+                httpFuture.cancel(true);
+            }
+        });
+
+        // abort the HTTP request if the caller cancels
+        result.whenComplete((xmlResponse, throwable) -> {
+            if (null != deadlineTimer) {
+                deadlineTimer.cancel(false);
+            }
+            if (result.isCancelled()) {
+                httpFuture.cancel(true);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Create the POST message for the configured endpoint. This will throw a {@link RealexException} if 
+     * HTTP is used when only HTTPS is allowed, or a {@link RealexTimeoutException} if the deadline has passed. 
+     * Where timeout profiles or a deadline are configured the timeouts are set on the request, replacing the 
+     * default request configuration of the client.
+     * 
+     * @param httpConfiguration
+     * @return HttpPost
+     */
+    private static HttpPost createHttpPost(HttpConfiguration httpConfiguration) {
+
+        Deadline deadline = httpConfiguration.getDeadline();
+        if (null != deadline) {
+            deadline.check("before sending the request to Realex");
+        }
+
+        HttpPost httpPost = new HttpPost(getEndpointUri(httpConfiguration));
+        httpPost.addHeader(HttpHeaders.CONTENT_TYPE, ContentType.APPLICATION_XML.getMimeType());
+        if (httpConfiguration.hasTimeoutProfiles() || null != deadline) {
+            httpPost.setConfig(createRequestConfig(httpConfiguration.getTimeoutProfile(), deadline));
+        }
+
+        return httpPost;
+    }
+
+    /**
+     * Create the request configuration for the timeouts, each limited to the time remaining before the 
+     * deadline, if any.
+     * 
+     * @param timeoutProfile
+     * @param deadline
+     * @return RequestConfig
+     */
+    private static RequestConfig createRequestConfig(TimeoutProfile timeoutProfile, Deadline deadline) {
+
+        if (null == deadline) {
+            return RequestConfig.custom().setConnectTimeout(timeoutProfile.getConnectTimeout())
+                    .setConnectionRequestTimeout(timeoutProfile.getConnectionRequestTimeout())
+                    .setSocketTimeout(timeoutProfile.getSocketTimeout()).build();
+        }
+        return RequestConfig.custom().setConnectTimeout(deadline.limit(timeoutProfile.getConnectTimeout()))
+                .setConnectionRequestTimeout(deadline.limit(timeoutProfile.getConnectionRequestTimeout()))
+                .setSocketTimeout(deadline.limit(timeoutProfile.getSocketTimeout())).build();
+    }
+
+    /**
+     * Schedule the POST message to be aborted when the deadline passes, as the socket timeout only limits 
+     * each wait for the response rather than the request as a whole.
+     * 
+     * @param httpPost
+     * @param deadline may be <code>null</code>
+     * @return the timer to cancel once the response has been read, or <code>null</code> if there is no deadline
+     */
+    private static ScheduledFuture<?> scheduleAbort(final HttpPost httpPost, Deadline deadline) {
+        return null == deadline ? null : deadline.onExpiry(httpPost::abort);
+    }
+
+    /**
+     * Log and create the exception for a failure communicating with Realex: a {@link RealexTimeoutException} 
+     * if the deadline has passed, the failure then being caused by it, otherwise a {@link RealexException}. 
+     * The expected expiry of a deadline is logged as a warning without the stack trace, other failures as 
+     * errors with their cause.
+     * 
+     * @param cause
+     * @param deadline may be <code>null</code>
+     * @return RealexException
+     */
+    static RealexException communicationException(Throwable cause, Deadline deadline) {
+        if (null != deadline && deadline.isExpired()) {
+            logger.warn("Deadline exceeded communicating with Realex: {}", cause.toString());
+            return deadline.expired("communicating with Realex", cause);
+        }
+        logger.error("Exception communicating with Realex.", cause);
+        return new RealexException("Exception communicating with Realex.", cause);
+    }
+
+    /**
+     * Get the URI of the configured endpoint. This will throw a {@link RealexException} if HTTP is used 
+     * when only HTTPS is allowed.
+     * 
+     * @param httpConfiguration
+     * @return URI
+     */
+    static URI getEndpointUri(HttpConfiguration httpConfiguration) {
+
+        logger.debug("Setting endpoint of: " + httpConfiguration.getEndpoint());
+        URI uri = URI.create(httpConfiguration.getEndpoint());
+
+        // Confirm protocol is HTTPS (ie. secure) if such is configured
+        if (httpConfiguration.isOnlyAllowHttps()) {
+            String scheme = uri.getScheme();
+            if (!HTTPS_PROTOCOL.equalsIgnoreCase(scheme)) {
+                logger.error("Protocol must be " + HTTPS_PROTOCOL);
+                throw new RealexException("Protocol must be " + HTTPS_PROTOCOL);
+            }
+        } else {
+            logger.warn("Allowed send message over HTTP. This should NEVER be allowed in a production environment.");
+        }
+
+        return uri;
+    }
+
+    /**
+     * Check the HTTP response status code. A {@link RealexException} is thrown if the response from Realex 
+     * is not success (ie. if it's not 200 status code).
+     * 
+     * @param statusCode
+     */
+    static void checkStatusCode(int statusCode) {
+
+        logger.debug("Checking the HTTP response status code.");
+        if (statusCode != HttpStatus.SC_OK) {
+            throw new RealexException("Unexpected http status code [" + statusCode + "]");
+        }
+    }
+
+    /**
+     * Check the HTTP response status code and convert the HTTP entity (the xml response) into a string. 
+     * A {@link RealexException} is thrown if the response from Realex is not success (ie. if it's not 
+     * 200 status code).
+     * 
+     * @param response
+     * @return the xml response
+     * @throws IOException
+     */
+    private static String readResponse(HttpResponse response) throws IOException {
+
+        checkStatusCode(response.getStatusLine().getStatusCode());
+
+        logger.debug("Converting HTTP entity (the xml response) back into a string.");
+        String xmlResponse = EntityUtils.toString(response.getEntity());
+        EntityUtils.consume(response.getEntity());
+        return xmlResponse;
+    }
+
+    /**
+     * Check the HTTP response status code and read the HTTP entity (the xml response) with the 
+     * {@link ResponseReader}. A {@link RealexException} is thrown if the response from Realex is not 
+     * success (ie. if it's not 200 status code).
+     * 
+     * @param response
+     * @param responseReader
+     * @return the result of the response reader
+     * @throws IOException
+     */
+    private static <T> T readResponse(HttpResponse response, ResponseReader<T> responseReader) throws IOException {
+
+        checkStatusCode(response.getStatusLine().getStatusCode());
+
+        logger.debug("Reading HTTP entity (the xml response) from the stream.");
+        HttpEntity entity = response.getEntity();
+        InputStream content = entity.getContent();
+        try {
+            T result = responseReader.read(content);
+            EntityUtils.consume(entity);
+            return result;
+        } finally {
+            content.close();
+        }
+    }
+
+    /**
+     * Buffer a request body is marshalled into, to be sent with a content length. Buffers grown beyond 
+     * {@link #MAX_POOLED_REQUEST_BUFFER} are discarded rather than returned to the pool.
+     */
+    private static final class RequestBuffer extends ByteArrayOutputStream {
+
+        RequestBuffer() {
+            super(4096);
+        }
+
+        /**
+         * Writes the request body into the buffer, returning an entity backed by the buffer, which must not be 
+         * released until the entity has been sent. A {@link RealexException} is thrown if the body cannot be 
+         * written.
+         * 
+         * @param requestProducer
+         * @return HttpEntity
+         */
+        HttpEntity write(ContentProducer requestProducer) {
+            reset();
+            try {
+                requestProducer.writeTo(this);
+            } catch (IOException ioe) {
+                throw new RealexException("Exception writing request to Realex.", ioe);
+            }
+            return new ByteArrayEntity(buf, 0, count);
+        }
+
+        /**
+         * Returns the buffer to the pool for reuse, unless it has grown too large to keep.
+         */
+        void release() {
+            reset();
+            if (buf.length <= MAX_POOLED_REQUEST_BUFFER) {
+                REQUEST_BUFFERS.release(this);
+            }
         }
     }
 }
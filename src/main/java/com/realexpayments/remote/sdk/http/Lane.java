@@ -0,0 +1,27 @@
+package com.realexpayments.remote.sdk.http;
+
+/**
+ * <p>
+ * The priority lanes of the {@link PriorityTransport}, from highest to lowest priority. Each lane has a
+ * reserved share of connections, and requests in a lane only take a shared connection while no request in a
+ * higher priority lane is waiting for one.
+ * </p>
+ */
+public enum Lane {
+
+	/**
+	 * Requests made while a customer waits, such as authorisations and 3D Secure enrolment checks.
+	 */
+	INTERACTIVE,
+
+	/**
+	 * Requests which are neither interactive nor bulk.
+	 */
+	STANDARD,
+
+	/**
+	 * Background work sent in volume, such as nightly settlements and card migrations.
+	 */
+	BULK;
+
+}
@@ -0,0 +1,199 @@
+package com.realexpayments.remote.sdk.http;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.realexpayments.remote.sdk.domain.Request;
+import com.realexpayments.remote.sdk.domain.payment.PaymentRequest;
+import com.realexpayments.remote.sdk.domain.payment.PaymentRequest.PaymentType;
+import com.realexpayments.remote.sdk.domain.threeDSecure.ThreeDSecureRequest;
+
+/**
+ * <p>
+ * Object containing the configurable settings of the {@link PriorityTransport}, set on the
+ * {@link HttpConfiguration}. Each request is sent in a {@link Lane}: the lane given with the request, see
+ * {@link com.realexpayments.remote.sdk.RealexClient#send(Request, Deadline, Lane)}, otherwise the lane set
+ * for its {@link PaymentType}, otherwise the default lane. 3D Secure requests are sent in the 3D Secure lane.
+ * </p>
+ * <p>
+ * By default authorisations, OTB and DCC rate lookups, and 3D Secure requests, are interactive; settlements,
+ * multi-settlements and new cards are bulk; and other requests are standard. Of the maximum connections, the
+ * interactive lane has a quarter reserved and the standard and bulk lanes a tenth each, the rest being shared
+ * by all lanes in order of priority.
+ * </p>
+ * <code><pre>
+ * LanePolicy policy = new LanePolicy();
+ * policy.setLane(PaymentType.RECEIPT_IN, Lane.BULK);
+ * policy.setReservedShare(Lane.INTERACTIVE, 0.5);
+ * httpConfiguration.setLanePolicy(policy);
+ * </pre></code>
+ */
+public class LanePolicy {
+
+	/** The lane of requests without a lane for their type. */
+	private Lane defaultLane = Lane.STANDARD;
+
+	/** The lane of 3D Secure requests. */
+	private Lane threeDSecureLane = Lane.INTERACTIVE;
+
+	/** The lanes of types of payment request. */
+	private final Map<PaymentType, Lane> paymentLanes = new EnumMap<PaymentType, Lane>(PaymentType.class);
+
+	/** The share of the maximum connections reserved for each lane. */
+	private final Map<Lane, Double> reservedShares = new EnumMap<Lane, Double>(Lane.class);
+
+	/** The maximum number of requests sent at once across all lanes. Zero means the connections of the pool. */
+	private int maxConnections;
+
+	/**
+	 * Create a LanePolicy with the default lanes and reserved shares.
+	 */
+	public LanePolicy() {
+		paymentLanes.put(PaymentType.AUTH, Lane.INTERACTIVE);
+		paymentLanes.put(PaymentType.AUTH_MOBILE, Lane.INTERACTIVE);
+		paymentLanes.put(PaymentType.OTB, Lane.INTERACTIVE);
+		paymentLanes.put(PaymentType.DCC_RATE_LOOKUP, Lane.INTERACTIVE);
+		paymentLanes.put(PaymentType.STORED_CARD_DCC_RATE, Lane.INTERACTIVE);
+		paymentLanes.put(PaymentType.SETTLE, Lane.BULK);
+		paymentLanes.put(PaymentType.MULTI_SETTLE, Lane.BULK);
+		paymentLanes.put(PaymentType.CARD_NEW, Lane.BULK);
+
+		reservedShares.put(Lane.INTERACTIVE, 0.25);
+		reservedShares.put(Lane.STANDARD, 0.1);
+		reservedShares.put(Lane.BULK, 0.1);
+	}
+
+	/**
+	 * Get the lane of requests without a lane for their type.
+	 *
+	 * @return the defaultLane
+	 */
+	public Lane getDefaultLane() {
+		return defaultLane;
+	}
+
+	/**
+	 * Set the lane of requests without a lane for their type. The default is {@link Lane#STANDARD}.
+	 *
+	 * @param defaultLane the defaultLane to set
+	 */
+	public void setDefaultLane(Lane defaultLane) {
+		if (null == defaultLane) {
+			throw new IllegalArgumentException("Default lane must not be null.");
+		}
+		this.defaultLane = defaultLane;
+	}
+
+	/**
+	 * Get the lane of 3D Secure requests.
+	 *
+	 * @return the threeDSecureLane
+	 */
+	public Lane getThreeDSecureLane() {
+		return threeDSecureLane;
+	}
+
+	/**
+	 * Set the lane of 3D Secure requests. The default is {@link Lane#INTERACTIVE}.
+	 *
+	 * @param threeDSecureLane the threeDSecureLane to set
+	 */
+	public void setThreeDSecureLane(Lane threeDSecureLane) {
+		if (null == threeDSecureLane) {
+			throw new IllegalArgumentException("3D Secure lane must not be null.");
+		}
+		this.threeDSecureLane = threeDSecureLane;
+	}
+
+	/**
+	 * Get the lane of the type of payment request, the default lane if none has been set for it.
+	 *
+	 * @param paymentType
+	 * @return Lane
+	 */
+	public Lane getLane(PaymentType paymentType) {
+		Lane lane = null == paymentType ? null : paymentLanes.get(paymentType);
+		return null == lane ? defaultLane : lane;
+	}
+
+	/**
+	 * Set the lane of a type of payment request. Setting <code>null</code> sends the type in the default lane.
+	 *
+	 * @param paymentType
+	 * @param lane
+	 */
+	public void setLane(PaymentType paymentType, Lane lane) {
+		if (null == lane) {
+			paymentLanes.remove(paymentType);
+		} else {
+			paymentLanes.put(paymentType, lane);
+		}
+	}
+
+	/**
+	 * Get the lane of the request, by its type.
+	 *
+	 * @param request
+	 * @return Lane
+	 */
+	public Lane getLane(Request<?, ?> request) {
+		if (request instanceof PaymentRequest) {
+			return getLane(((PaymentRequest) request).getPaymentType());
+		}
+		if (request instanceof ThreeDSecureRequest) {
+			return threeDSecureLane;
+		}
+		return defaultLane;
+	}
+
+	/**
+	 * Get the share of the maximum connections reserved for the lane.
+	 *
+	 * @param lane
+	 * @return the reservedShare
+	 */
+	public double getReservedShare(Lane lane) {
+		Double share = reservedShares.get(lane);
+		return null == share ? 0 : share;
+	}
+
+	/**
+	 * Set the share, between 0 and 1, of the maximum connections reserved for the lane. The shares of all lanes
+	 * must not add up to more than 1. The default is 0.25 for the interactive lane and 0.1 for the others.
+	 *
+	 * @param lane
+	 * @param reservedShare the reservedShare to set
+	 */
+	public void setReservedShare(Lane lane, double reservedShare) {
+		if (reservedShare < 0 || reservedShare > 1) {
+			throw new IllegalArgumentException("Reserved share must be between 0 and 1.");
+		}
+		reservedShares.put(lane, reservedShare);
+	}
+
+	/**
+	 * Get the maximum number of requests sent at once across all lanes, zero if it is the connections the
+	 * pool of the {@link HttpConfiguration} gives the endpoints.
+	 *
+	 * @return the maxConnections
+	 */
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	/**
+	 * Set the maximum number of requests sent at once across all lanes. The default, zero, means the
+	 * connections the pool of the {@link HttpConfiguration} gives the endpoints: the maximum connections per
+	 * route for each endpoint, up to the maximum connections in total. A higher maximum lets requests queue
+	 * for a pooled connection in the order they were sent, whatever their lane.
+	 *
+	 * @param maxConnections the maxConnections to set
+	 */
+	public void setMaxConnections(int maxConnections) {
+		if (maxConnections < 0) {
+			throw new IllegalArgumentException("Maximum connections must not be negative.");
+		}
+		this.maxConnections = maxConnections;
+	}
+
+}
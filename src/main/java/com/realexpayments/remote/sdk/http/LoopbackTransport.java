@@ -0,0 +1,111 @@
+package com.realexpayments.remote.sdk.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+
+import com.realexpayments.remote.sdk.RealexException;
+
+/**
+ * <p>
+ * In-memory {@link Transport} which passes each request body to a {@link Handler} in the calling thread and 
+ * returns the body it writes, without any network I/O. Intended for tests and benchmarks, for example to 
+ * measure the cost of the SDK itself:
+ * </p>
+ * <code><pre>
+ * client.setTransport(LoopbackTransport.fixedResponse(responseXml.getBytes(StandardCharsets.UTF_8)));
+ * </pre></code>
+ * <p>
+ * The endpoint is ignored, but the HTTPS policy of the {@link HttpConfiguration} is still checked. 
+ * Asynchronous requests complete before the future is returned.
+ * </p>
+ */
+public class LoopbackTransport implements Transport {
+
+	/**
+	 * Handles a request, in place of the Realex server.
+	 */
+	public interface Handler {
+
+		/**
+		 * Reads the request body and writes the response body.
+		 * 
+		 * @param request
+		 * @param response
+		 * @throws IOException
+		 */
+		void handle(InputStream request, OutputStream response) throws IOException;
+	}
+
+	private final Handler handler;
+
+	/**
+	 * Creates a transport passing requests to the handler.
+	 * 
+	 * @param handler
+	 */
+	public LoopbackTransport(Handler handler) {
+		this.handler = handler;
+	}
+
+	/**
+	 * Returns a transport which discards the request and responds with the given body.
+	 * 
+	 * @param response
+	 * @return LoopbackTransport
+	 */
+	public static LoopbackTransport fixedResponse(final byte[] response) {
+		final byte[] body = response.clone();
+		return new LoopbackTransport((request, out) -> out.write(body));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> T send(HttpConfiguration httpConfiguration, RequestWriter requestWriter, ResponseReader<T> responseReader) {
+		HttpUtils.getEndpointUri(httpConfiguration);
+		try {
+			ExposedByteArrayOutputStream request = new ExposedByteArrayOutputStream();
+			requestWriter.writeTo(request);
+
+			ExposedByteArrayOutputStream response = new ExposedByteArrayOutputStream();
+			handler.handle(request.toInputStream(), response);
+
+			try (InputStream content = response.toInputStream()) {
+				return responseReader.read(content);
+			}
+		} catch (IOException ioe) {
+			throw new RealexException("Exception communicating with Realex.", ioe);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> CompletableFuture<T> sendAsync(HttpConfiguration httpConfiguration, RequestWriter requestWriter,
+			ResponseReader<T> responseReader) {
+		CompletableFuture<T> result = new CompletableFuture<T>();
+		try {
+			result.complete(send(httpConfiguration, requestWriter, responseReader));
+		} catch (RuntimeException ex) {
+			result.completeExceptionally(ex);
+		}
+		return result;
+	}
+
+	/**
+	 * Byte array output stream which can be read without copying its buffer.
+	 */
+	private static class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+
+		InputStream toInputStream() {
+			return new ByteArrayInputStream(buf, 0, count);
+		}
+	}
+
+}
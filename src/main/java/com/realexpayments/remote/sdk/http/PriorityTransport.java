@@ -0,0 +1,471 @@
+package com.realexpayments.remote.sdk.http;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.realexpayments.remote.sdk.RealexException;
+
+/**
+ * <p>
+ * {@link Transport} dispatching requests to a delegate transport in priority {@link Lane}s, so that
+ * interactive requests such as authorisations are not held up behind bulk requests such as settlements.
+ * The lane of each request is that of its {@link HttpConfiguration}, see {@link HttpConfiguration#getLane()},
+ * otherwise the default lane of the {@link LanePolicy}.
+ * </p>
+ * <p>
+ * No more requests are sent at once than the maximum connections. Each lane has its reserved share of them,
+ * which it may always use; the rest are shared, and are given to waiting requests in order of priority, so
+ * a request only takes a shared connection while no request in a higher priority lane is waiting. Requests
+ * wait in a lock-free queue per lane up to the connection request timeout of the {@link TimeoutProfile},
+ * cut to the deadline where there is one, and are then failed with a {@link ConnectionPoolTimeoutException}
+ * cause, as nothing was sent. Synchronous requests wait on the calling thread and are sent on it;
+ * asynchronous requests are sent once a connection is free, without blocking the calling thread.
+ * </p>
+ * <p>
+ * Cancelling the future of an asynchronous request which is waiting removes it from its lane. The delegate
+ * transport is not closed by this transport.
+ * </p>
+ */
+public class PriorityTransport implements Transport {
+
+	private final static Logger logger = LoggerFactory.getLogger(PriorityTransport.class);
+
+	private static final Lane[] LANES = Lane.values();
+
+	private final Transport delegate;
+
+	private final LanePolicy policy;
+
+	private final int maxConnections;
+
+	/**
+	 * The connections reserved for each lane, indexed by lane ordinal.
+	 */
+	private final int[] reserved;
+
+	/**
+	 * The connections not reserved for any lane.
+	 */
+	private final int sharedConnections;
+
+	/**
+	 * The requests waiting in each lane, indexed by lane ordinal. Tickets no longer waiting are discarded when
+	 * they reach the head of the queue.
+	 */
+	private final ConcurrentLinkedQueue<Ticket>[] queues;
+
+	/**
+	 * The number of requests waiting in each lane.
+	 */
+	private final AtomicIntegerArray waiting;
+
+	/**
+	 * The number of requests sent and not yet completed in each lane. Only incremented when dispatching.
+	 */
+	private final AtomicIntegerArray inFlight;
+
+	/**
+	 * The number of calls to dispatch requests not yet handled, so that only one thread dispatches at once.
+	 */
+	private final AtomicInteger dispatches = new AtomicInteger();
+
+	/**
+	 * Creates a transport dispatching requests in the lanes of the policy to the delegate.
+	 *
+	 * @param delegate
+	 * @param policy
+	 * @param maxConnections the maximum number of requests sent at once across all lanes
+	 */
+	@SuppressWarnings("unchecked")
+	public PriorityTransport(Transport delegate, LanePolicy policy, int maxConnections) {
+		if (null == delegate || null == policy) {
+			throw new IllegalArgumentException("Delegate transport and lane policy must not be null.");
+		}
+		if (maxConnections <= 0) {
+			throw new IllegalArgumentException("Maximum connections must be positive.");
+		}
+		this.delegate = delegate;
+		this.policy = policy;
+		this.maxConnections = maxConnections;
+		this.reserved = new int[LANES.length];
+		this.queues = new ConcurrentLinkedQueue[LANES.length];
+		this.waiting = new AtomicIntegerArray(LANES.length);
+		this.inFlight = new AtomicIntegerArray(LANES.length);
+
+		int totalReserved = 0;
+		for (Lane lane : LANES) {
+			double share = policy.getReservedShare(lane);
+			reserved[lane.ordinal()] = share > 0 ? (int) Math.max(1, Math.round(share * maxConnections)) : 0;
+			totalReserved += reserved[lane.ordinal()];
+			queues[lane.ordinal()] = new ConcurrentLinkedQueue<Ticket>();
+		}
+		if (totalReserved > maxConnections) {
+			throw new IllegalArgumentException("Connections reserved for the lanes must not exceed the maximum connections.");
+		}
+		this.sharedConnections = maxConnections - totalReserved;
+	}
+
+	/**
+	 * Returns the policy the lanes were created for.
+	 *
+	 * @return LanePolicy
+	 */
+	public LanePolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Returns the maximum number of requests sent at once across all lanes.
+	 *
+	 * @return int
+	 */
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	/**
+	 * Returns the number of connections reserved for the lane.
+	 *
+	 * @param lane
+	 * @return int
+	 */
+	public int getReserved(Lane lane) {
+		return reserved[lane.ordinal()];
+	}
+
+	/**
+	 * Returns the number of requests waiting in the lane, for monitoring.
+	 *
+	 * @param lane
+	 * @return int
+	 */
+	public int getWaiting(Lane lane) {
+		return waiting.get(lane.ordinal());
+	}
+
+	/**
+	 * Returns the number of requests in the lane sent and not yet completed, for monitoring.
+	 *
+	 * @param lane
+	 * @return int
+	 */
+	public int getInFlight(Lane lane) {
+		return inFlight.get(lane.ordinal());
+	}
+
+	@Override
+	public <T> T send(HttpConfiguration httpConfiguration, RequestWriter requestWriter, ResponseReader<T> responseReader) {
+		int lane = laneOf(httpConfiguration);
+		SyncTicket ticket = new SyncTicket(lane, Thread.currentThread());
+		enqueue(ticket);
+		await(httpConfiguration, ticket);
+		try {
+			return delegate.send(httpConfiguration, requestWriter, responseReader);
+		} finally {
+			release(lane);
+		}
+	}
+
+	@Override
+	public <T> CompletableFuture<T> sendAsync(HttpConfiguration httpConfiguration, RequestWriter requestWriter,
+			ResponseReader<T> responseReader) {
+		final AsyncTicket<T> ticket = new AsyncTicket<T>(laneOf(httpConfiguration), httpConfiguration, requestWriter,
+				responseReader);
+		final Deadline waitDeadline = waitDeadline(httpConfiguration);
+		if (null != waitDeadline) {
+			ticket.expiry = waitDeadline.onExpiry(() -> {
+				if (cancel(ticket)) {
+					ticket.result.completeExceptionally(timedOut(httpConfiguration, ticket.lane));
+				}
+			});
+		}
+		ticket.result.whenComplete((response, throwable) -> {
+			if (!ticket.result.isCancelled()) {
+				return;
+			}
+			if (cancel(ticket)) {
+				ScheduledFuture<?> expiry = ticket.expiry;
+				if (null != expiry) {
+					expiry.cancel(false);
+				}
+			} else {
+				CompletableFuture<T> sent = ticket.sent;
+				if (null != sent) {
+					sent.cancel(true);
+				}
+			}
+		});
+		enqueue(ticket);
+		return ticket.result;
+	}
+
+	@Override
+	public void warmUp(HttpConfiguration httpConfiguration, int connections) {
+		delegate.warmUp(httpConfiguration, connections);
+	}
+
+	/**
+	 * Waits on the calling thread until the request is given a connection, up to the connection request
+	 * timeout or deadline.
+	 *
+	 * @param httpConfiguration
+	 * @param ticket
+	 */
+	private void await(HttpConfiguration httpConfiguration, SyncTicket ticket) {
+		Deadline waitDeadline = waitDeadline(httpConfiguration);
+		boolean interrupted = false;
+		try {
+			while (ticket.isWaiting()) {
+				long remaining = null == waitDeadline ? Long.MAX_VALUE : waitDeadline.remainingNanos();
+				if (remaining <= 0 || interrupted) {
+					if (!cancel(ticket)) {
+						//given a connection in the meantime
+						break;
+					}
+					if (interrupted) {
+						throw new RealexException("Interrupted waiting for a connection.", new InterruptedException());
+					}
+					throw timedOut(httpConfiguration, ticket.lane);
+				}
+				LockSupport.parkNanos(this, remaining);
+				interrupted = Thread.interrupted();
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Returns the time by which a request waiting for a connection fails, <code>null</code> if it waits
+	 * indefinitely.
+	 *
+	 * @param httpConfiguration
+	 * @return Deadline
+	 */
+	private static Deadline waitDeadline(HttpConfiguration httpConfiguration) {
+		int timeout = httpConfiguration.getTimeoutProfile().getConnectionRequestTimeout();
+		Deadline deadline = httpConfiguration.getDeadline();
+		if (null != deadline) {
+			return Deadline.afterMillis(deadline.limit(timeout));
+		}
+		return timeout > 0 ? Deadline.afterMillis(timeout) : null;
+	}
+
+	private static RealexException timedOut(HttpConfiguration httpConfiguration, int lane) {
+		String stage = "waiting for a connection in the " + LANES[lane] + " lane";
+		ConnectionPoolTimeoutException cause = new ConnectionPoolTimeoutException("Timeout " + stage);
+		Deadline deadline = httpConfiguration.getDeadline();
+		if (null != deadline && deadline.isExpired()) {
+			return deadline.expired(stage, cause);
+		}
+		logger.warn("Timed out {}.", stage);
+		return new RealexException("Timed out " + stage + ".", cause);
+	}
+
+	private int laneOf(HttpConfiguration httpConfiguration) {
+		Lane lane = httpConfiguration.getLane();
+		return (null == lane ? policy.getDefaultLane() : lane).ordinal();
+	}
+
+	private void enqueue(Ticket ticket) {
+		//counted as waiting first, so that lower lanes yield to it as soon as possible
+		waiting.incrementAndGet(ticket.lane);
+		queues[ticket.lane].offer(ticket);
+		dispatch();
+	}
+
+	/**
+	 * Stops the ticket waiting, unless it has already been given a connection.
+	 *
+	 * @param ticket
+	 * @return whether the ticket was waiting
+	 */
+	private boolean cancel(Ticket ticket) {
+		if (!ticket.state.compareAndSet(Ticket.WAITING, Ticket.CANCELLED)) {
+			return false;
+		}
+		waiting.decrementAndGet(ticket.lane);
+		queues[ticket.lane].remove(ticket);
+		//lower lanes may have been yielding to it
+		dispatch();
+		return true;
+	}
+
+	private void release(int lane) {
+		inFlight.decrementAndGet(lane);
+		dispatch();
+	}
+
+	/**
+	 * Gives free connections to the requests waiting, highest priority lane first. Only one thread
+	 * dispatches at once; a call while another thread is dispatching makes that thread dispatch again.
+	 */
+	private void dispatch() {
+		if (dispatches.getAndIncrement() != 0) {
+			return;
+		}
+		int missed = 1;
+		do {
+			for (int lane = 0; lane < LANES.length; lane++) {
+				ConcurrentLinkedQueue<Ticket> queue = queues[lane];
+				for (Ticket ticket; null != (ticket = queue.peek());) {
+					if (!ticket.isWaiting()) {
+						queue.poll();
+						continue;
+					}
+					if (!acquire(lane)) {
+						break;
+					}
+					queue.poll();
+					if (ticket.state.compareAndSet(Ticket.WAITING, Ticket.GRANTED)) {
+						waiting.decrementAndGet(lane);
+						ticket.granted();
+					} else {
+						inFlight.decrementAndGet(lane);
+					}
+				}
+			}
+			missed = dispatches.addAndGet(-missed);
+		} while (missed != 0);
+	}
+
+	/**
+	 * Takes a connection for a request in the lane if one is free to it: one of its reserved connections,
+	 * otherwise a shared connection while no request in a higher priority lane is waiting.
+	 *
+	 * @param lane
+	 * @return whether a connection was taken
+	 */
+	private boolean acquire(int lane) {
+		if (inFlight.get(lane) < reserved[lane]) {
+			inFlight.incrementAndGet(lane);
+			return true;
+		}
+		for (int higher = 0; higher < lane; higher++) {
+			if (waiting.get(higher) > 0) {
+				return false;
+			}
+		}
+		int shared = 0;
+		for (int other = 0; other < LANES.length; other++) {
+			shared += Math.max(0, inFlight.get(other) - reserved[other]);
+		}
+		if (shared >= sharedConnections) {
+			return false;
+		}
+		inFlight.incrementAndGet(lane);
+		return true;
+	}
+
+	/**
+	 * A request waiting for a connection in a lane.
+	 */
+	private abstract static class Ticket {
+
+		static final int WAITING = 0;
+
+		static final int GRANTED = 1;
+
+		static final int CANCELLED = 2;
+
+		final int lane;
+
+		final AtomicInteger state = new AtomicInteger(WAITING);
+
+		Ticket(int lane) {
+			this.lane = lane;
+		}
+
+		boolean isWaiting() {
+			return state.get() == WAITING;
+		}
+
+		/**
+		 * Called when dispatching, once the request has been given a connection. Must not block.
+		 */
+		abstract void granted();
+	}
+
+	/**
+	 * A synchronous request, whose thread is parked while it waits.
+	 */
+	private static final class SyncTicket extends Ticket {
+
+		private final Thread thread;
+
+		SyncTicket(int lane, Thread thread) {
+			super(lane);
+			this.thread = thread;
+		}
+
+		@Override
+		void granted() {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	/**
+	 * An asynchronous request, sent with the delegate once given a connection.
+	 */
+	private final class AsyncTicket<T> extends Ticket {
+
+		private final HttpConfiguration httpConfiguration;
+
+		private final RequestWriter requestWriter;
+
+		private final ResponseReader<T> responseReader;
+
+		private final CompletableFuture<T> result = new CompletableFuture<T>();
+
+		private volatile ScheduledFuture<?> expiry;
+
+		private volatile CompletableFuture<T> sent;
+
+		AsyncTicket(int lane, HttpConfiguration httpConfiguration, RequestWriter requestWriter, ResponseReader<T> responseReader) {
+			super(lane);
+			this.httpConfiguration = httpConfiguration;
+			this.requestWriter = requestWriter;
+			this.responseReader = responseReader;
+		}
+
+		@Override
+		void granted() {
+			ScheduledFuture<?> currentExpiry = expiry;
+			if (null != currentExpiry) {
+				currentExpiry.cancel(false);
+			}
+			CompletableFuture<T> attempt;
+			try {
+				attempt = delegate.sendAsync(httpConfiguration, requestWriter, responseReader);
+			} catch (RuntimeException ex) {
+				attempt = new CompletableFuture<T>();
+				attempt.completeExceptionally(ex);
+			}
+			sent = attempt;
+			attempt.whenComplete((response, throwable) -> {
+				release(lane);
+				if (null == throwable) {
+					result.complete(response);
+				} else {
+					result.completeExceptionally(throwable instanceof CompletionException && null != throwable.getCause()
+							? throwable.getCause() : throwable);
+				}
+			});
+			if (result.isCancelled()) {
+				attempt.cancel(true);
+			}
+		}
+	}
+
+}
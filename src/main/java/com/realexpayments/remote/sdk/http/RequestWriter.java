@@ -0,0 +1,22 @@
+package com.realexpayments.remote.sdk.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Interface to be implemented by classes which write the body of an HTTP request, used to marshal the 
+ * request directly to the connection rather than via an intermediate string.
+ */
+public interface RequestWriter {
+
+	/**
+	 * <p>
+	 * Writes the request body to the stream. The stream is flushed and closed by the caller.
+	 * </p>
+	 * 
+	 * @param out
+	 * @throws IOException
+	 */
+	void writeTo(OutputStream out) throws IOException;
+
+}
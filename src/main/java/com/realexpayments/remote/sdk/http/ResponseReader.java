@@ -0,0 +1,23 @@
+package com.realexpayments.remote.sdk.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Interface to be implemented by classes which read the body of a successful HTTP response, used to 
+ * unmarshal the response directly from the connection rather than via an intermediate string.
+ */
+public interface ResponseReader<T> {
+
+	/**
+	 * <p>
+	 * Reads the response body from the stream. The stream is consumed and closed by the caller.
+	 * </p>
+	 * 
+	 * @param content
+	 * @return T
+	 * @throws IOException
+	 */
+	T read(InputStream content) throws IOException;
+
+}
@@ -0,0 +1,344 @@
+package com.realexpayments.remote.sdk.http;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.realexpayments.remote.sdk.RealexException;
+import com.realexpayments.remote.sdk.RealexTimeoutException;
+
+/**
+ * <p>
+ * {@link Transport} routing each request between the weighted endpoints of the {@link HttpConfiguration},
+ * see {@link HttpConfiguration#setEndpoints(List)}, sending it with a delegate transport. Where no weighted
+ * endpoints are configured requests are passed straight to the delegate.
+ * </p>
+ * <p>
+ * The latency and error rate of each endpoint are tracked as moving averages in {@link EndpointStats}. Each
+ * request picks two of the available endpoints at random, in proportion to their weights, and is sent to
+ * the healthier of the two, the one with the lower latency, penalised by its error rate, per unit of weight.
+ * Endpoints which fail repeatedly, for example by timing out, are ejected for a period, so requests fail over
+ * to the remaining endpoints. If the connection to an endpoint cannot be established the request cannot have
+ * reached Realex, so it is sent to another endpoint straight away; other failures are not retried, as the
+ * request may have been processed. Routing takes no locks.
+ * </p>
+ * <p>
+ * Statistics are kept for as long as the list of endpoints is unchanged, and are available for monitoring
+ * from {@link #getEndpointStats()}. The delegate transport is not closed by this transport.
+ * </p>
+ */
+public class RoutingTransport implements Transport {
+
+	private final static Logger logger = LoggerFactory.getLogger(RoutingTransport.class);
+
+	private final Supplier<Transport> delegateSupplier;
+
+	/**
+	 * The statistics of the endpoints currently routed between, replaced when the endpoints change.
+	 */
+	private final AtomicReference<Router> router = new AtomicReference<Router>(
+			new Router(Collections.<WeightedEndpoint> emptyList(), new EndpointStats[0]));
+
+	/**
+	 * Creates a transport routing requests sent with the delegate.
+	 *
+	 * @param delegate
+	 */
+	public RoutingTransport(final Transport delegate) {
+		this(() -> delegate);
+	}
+
+	/**
+	 * Creates a transport routing requests sent with the transport returned by the supplier at the time
+	 * of each request, for example where the transport may be replaced.
+	 *
+	 * @param delegateSupplier
+	 */
+	public RoutingTransport(Supplier<Transport> delegateSupplier) {
+		this.delegateSupplier = delegateSupplier;
+	}
+
+	/**
+	 * Returns the statistics of the endpoints currently routed between, in the order configured. Empty
+	 * until a request has been sent with weighted endpoints configured.
+	 *
+	 * @return List
+	 */
+	public List<EndpointStats> getEndpointStats() {
+		return Collections.unmodifiableList(Arrays.asList(router.get().stats.clone()));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> T send(HttpConfiguration httpConfiguration, RequestWriter requestWriter, ResponseReader<T> responseReader) {
+
+		Transport delegate = delegateSupplier.get();
+		List<WeightedEndpoint> endpoints = httpConfiguration.getEndpoints();
+		if (endpoints.isEmpty()) {
+			return delegate.send(httpConfiguration, requestWriter, responseReader);
+		}
+
+		EndpointStats[] stats = getRouter(endpoints).stats;
+		boolean[] tried = null;
+		for (;;) {
+			int index = select(stats, tried);
+			EndpointStats endpoint = stats[index];
+			long start = System.nanoTime();
+			try {
+				T result = delegate.send(httpConfiguration.withEndpoint(endpoint.getEndpoint().getEndpoint()), requestWriter,
+						responseReader);
+				endpoint.recordSuccess(System.nanoTime() - start);
+				return result;
+			} catch (RealexException ex) {
+				long now = System.nanoTime();
+				endpoint.recordFailure(now - start, now);
+				tried = markTried(tried, stats.length, index);
+				if (!canFailOver(ex, tried)) {
+					throw ex;
+				}
+				logger.warn("Could not connect to {}, failing over.", endpoint.getEndpoint().getEndpoint());
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> CompletableFuture<T> sendAsync(HttpConfiguration httpConfiguration, RequestWriter requestWriter,
+			ResponseReader<T> responseReader) {
+
+		Transport delegate = delegateSupplier.get();
+		List<WeightedEndpoint> endpoints = httpConfiguration.getEndpoints();
+		if (endpoints.isEmpty()) {
+			return delegate.sendAsync(httpConfiguration, requestWriter, responseReader);
+		}
+
+		CompletableFuture<T> result = new CompletableFuture<T>();
+		sendAsync(delegate, getRouter(endpoints).stats, null, httpConfiguration, requestWriter, responseReader, result);
+		return result;
+	}
+
+	/**
+	 * Sends the request asynchronously to the endpoint selected from those not yet tried, failing over if
+	 * the connection cannot be established, and completing the result. Cancelling the result cancels the
+	 * attempt in progress.
+	 */
+	private <T> void sendAsync(final Transport delegate, final EndpointStats[] stats, final boolean[] tried,
+			final HttpConfiguration httpConfiguration, final RequestWriter requestWriter, final ResponseReader<T> responseReader,
+			final CompletableFuture<T> result) {
+
+		final int index = select(stats, tried);
+		final EndpointStats endpoint = stats[index];
+		final long start = System.nanoTime();
+
+		CompletableFuture<T> attempt;
+		try {
+			attempt = delegate.sendAsync(httpConfiguration.withEndpoint(endpoint.getEndpoint().getEndpoint()), requestWriter,
+					responseReader);
+		} catch (RuntimeException ex) {
+			attempt = new CompletableFuture<T>();
+			attempt.completeExceptionally(ex);
+		}
+
+		final CompletableFuture<T> current = attempt;
+		result.whenComplete((response, throwable) -> {
+			if (result.isCancelled()) {
+				current.cancel(true);
+			}
+		});
+
+		attempt.whenComplete((response, throwable) -> {
+			long now = System.nanoTime();
+			if (null == throwable) {
+				endpoint.recordSuccess(now - start);
+				result.complete(response);
+				return;
+			}
+
+			Throwable cause = throwable instanceof CompletionException && null != throwable.getCause() ? throwable.getCause()
+					: throwable;
+			if (!(cause instanceof RealexException)) {
+				result.completeExceptionally(cause);
+				return;
+			}
+
+			endpoint.recordFailure(now - start, now);
+			boolean[] nowTried = markTried(tried, stats.length, index);
+			if (result.isDone() || !canFailOver(cause, nowTried)) {
+				result.completeExceptionally(cause);
+				return;
+			}
+			logger.warn("Could not connect to {}, failing over.", endpoint.getEndpoint().getEndpoint());
+			sendAsync(delegate, stats, nowTried, httpConfiguration, requestWriter, responseReader, result);
+		});
+	}
+
+	/**
+	 * Opens connections to each of the weighted endpoints, or to the single endpoint if none are configured,
+	 * with the delegate.
+	 */
+	@Override
+	public void warmUp(HttpConfiguration httpConfiguration, int connections) {
+		Transport delegate = delegateSupplier.get();
+		List<WeightedEndpoint> endpoints = httpConfiguration.getEndpoints();
+		if (endpoints.isEmpty()) {
+			delegate.warmUp(httpConfiguration, connections);
+			return;
+		}
+		for (WeightedEndpoint endpoint : endpoints) {
+			delegate.warmUp(httpConfiguration.withEndpoint(endpoint.getEndpoint()), connections);
+		}
+	}
+
+	/**
+	 * Returns the router for the endpoints, replacing the current router if the endpoints have changed. The
+	 * statistics of endpoints which remain are kept.
+	 *
+	 * @param endpoints
+	 * @return Router
+	 */
+	private Router getRouter(List<WeightedEndpoint> endpoints) {
+		Router current = router.get();
+		while (current.endpoints != endpoints) {
+			Map<String, EndpointStats> existing = new HashMap<String, EndpointStats>();
+			for (EndpointStats stats : current.stats) {
+				existing.put(stats.getEndpoint().getEndpoint() + '|' + stats.getEndpoint().getWeight(), stats);
+			}
+
+			List<EndpointStats> stats = new ArrayList<EndpointStats>(endpoints.size());
+			for (WeightedEndpoint endpoint : endpoints) {
+				EndpointStats kept = existing.get(endpoint.getEndpoint() + '|' + endpoint.getWeight());
+				stats.add(null == kept ? new EndpointStats(endpoint) : kept);
+			}
+
+			Router updated = new Router(endpoints, stats.toArray(new EndpointStats[stats.size()]));
+			if (router.compareAndSet(current, updated)) {
+				logger.debug("Routing requests between {}.", endpoints);
+				return updated;
+			}
+			current = router.get();
+		}
+		return current;
+	}
+
+	/**
+	 * Selects the endpoint for a request from those not yet tried: the healthier of two available endpoints
+	 * picked at random in proportion to their weights. If no endpoint is available, the ejected endpoint
+	 * due back soonest is selected.
+	 *
+	 * @param stats
+	 * @param tried
+	 * @return the index of the endpoint
+	 */
+	static int select(EndpointStats[] stats, boolean[] tried) {
+		long now = System.nanoTime();
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+
+		long totalWeight = 0;
+		int eligible = 0;
+		for (int i = 0; i < stats.length; i++) {
+			if (isEligible(stats, tried, i, now)) {
+				totalWeight += stats[i].getEndpoint().getWeight();
+				eligible++;
+			}
+		}
+
+		if (eligible == 0) {
+			int soonest = -1;
+			for (int i = 0; i < stats.length; i++) {
+				if ((null == tried || !tried[i])
+						&& (soonest < 0 || stats[i].ejectionRemaining(now) < stats[soonest].ejectionRemaining(now))) {
+					soonest = i;
+				}
+			}
+			return soonest;
+		}
+
+		int first = pick(stats, tried, now, random.nextLong(totalWeight));
+		if (eligible == 1) {
+			return first;
+		}
+		int second = pick(stats, tried, now, random.nextLong(totalWeight - stats[first].getEndpoint().getWeight()), first);
+		return stats[second].score() < stats[first].score() ? second : first;
+	}
+
+	private static int pick(EndpointStats[] stats, boolean[] tried, long now, long target) {
+		return pick(stats, tried, now, target, -1);
+	}
+
+	/**
+	 * Returns the index of the eligible endpoint, other than the one excluded, at which the running total
+	 * of weights passes the target.
+	 */
+	private static int pick(EndpointStats[] stats, boolean[] tried, long now, long target, int excluded) {
+		int last = -1;
+		for (int i = 0; i < stats.length; i++) {
+			if (i == excluded || !isEligible(stats, tried, i, now)) {
+				continue;
+			}
+			target -= stats[i].getEndpoint().getWeight();
+			if (target < 0) {
+				return i;
+			}
+			last = i;
+		}
+		//only reached if an endpoint became ejected since the weights were totalled
+		return last < 0 ? (excluded < 0 ? 0 : excluded) : last;
+	}
+
+	private static boolean isEligible(EndpointStats[] stats, boolean[] tried, int index, long now) {
+		return (null == tried || !tried[index]) && stats[index].isAvailable(now);
+	}
+
+	private static boolean[] markTried(boolean[] tried, int length, int index) {
+		boolean[] marked = null == tried ? new boolean[length] : tried.clone();
+		marked[index] = true;
+		return marked;
+	}
+
+	/**
+	 * Returns <code>true</code> if the request failed without reaching Realex and there is an endpoint
+	 * not yet tried. A request whose deadline has passed is not sent again.
+	 */
+	private static boolean canFailOver(Throwable failure, boolean[] tried) {
+		if (failure instanceof RealexTimeoutException || !HttpUtils.isConnectFailure(failure)) {
+			return false;
+		}
+		for (boolean endpointTried : tried) {
+			if (!endpointTried) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The endpoints routed between and their statistics.
+	 */
+	private static final class Router {
+
+		private final List<WeightedEndpoint> endpoints;
+
+		private final EndpointStats[] stats;
+
+		Router(List<WeightedEndpoint> endpoints, EndpointStats[] stats) {
+			this.endpoints = endpoints;
+			this.stats = stats;
+		}
+	}
+
+}
@@ -0,0 +1,114 @@
+package com.realexpayments.remote.sdk.http;
+
+/**
+ * <p>
+ * The timeouts, in milli-seconds, for sending a request to Realex, which may be set for each type of request 
+ * in the {@link HttpConfiguration}, so that for example checkout authorisations fail quickly while settlements 
+ * are given longer:
+ * </p>
+ * <ul>
+ * <li>connect timeout - the time allowed to establish the connection, including the TLS handshake.</li>
+ * <li>connection request timeout - the time allowed to lease a connection from the pool when all pooled 
+ * connections are in use.</li>
+ * <li>socket timeout - the longest period of inactivity allowed while waiting for the response.</li>
+ * <li>total timeout - the time allowed for the whole request, after which it is aborted with a 
+ * {@link com.realexpayments.remote.sdk.RealexTimeoutException}. Zero means no limit beyond the other 
+ * timeouts.</li>
+ * </ul>
+ * <code><pre>
+ * httpConfiguration.setTimeoutProfile(PaymentType.AUTH, new TimeoutProfile(1000, 500, 4000, 5000));
+ * </pre></code>
+ */
+public final class TimeoutProfile {
+
+	/**
+	 * The time allowed to establish the connection.
+	 */
+	private final int connectTimeout;
+
+	/**
+	 * The time allowed to lease a pooled connection.
+	 */
+	private final int connectionRequestTimeout;
+
+	/**
+	 * The longest period of inactivity allowed while waiting for the response.
+	 */
+	private final int socketTimeout;
+
+	/**
+	 * The time allowed for the whole request, zero for no limit.
+	 */
+	private final int totalTimeout;
+
+	/**
+	 * Creates a profile using the same timeout to connect, lease a connection and wait for the response, 
+	 * with no total timeout, as {@link HttpConfiguration#setTimeout(int)} does.
+	 * 
+	 * @param timeout
+	 */
+	public TimeoutProfile(int timeout) {
+		this(timeout, timeout, timeout, 0);
+	}
+
+	/**
+	 * Creates a profile. Timeouts must not be negative.
+	 * 
+	 * @param connectTimeout
+	 * @param connectionRequestTimeout
+	 * @param socketTimeout
+	 * @param totalTimeout zero for no limit
+	 */
+	public TimeoutProfile(int connectTimeout, int connectionRequestTimeout, int socketTimeout, int totalTimeout) {
+		if (connectTimeout < 0 || connectionRequestTimeout < 0 || socketTimeout < 0 || totalTimeout < 0) {
+			throw new IllegalArgumentException("Timeouts must not be negative.");
+		}
+		this.connectTimeout = connectTimeout;
+		this.connectionRequestTimeout = connectionRequestTimeout;
+		this.socketTimeout = socketTimeout;
+		this.totalTimeout = totalTimeout;
+	}
+
+	/**
+	 * Returns the time, in milli-seconds, allowed to establish the connection.
+	 * 
+	 * @return int
+	 */
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	/**
+	 * Returns the time, in milli-seconds, allowed to lease a pooled connection.
+	 * 
+	 * @return int
+	 */
+	public int getConnectionRequestTimeout() {
+		return connectionRequestTimeout;
+	}
+
+	/**
+	 * Returns the longest period of inactivity, in milli-seconds, allowed while waiting for the response.
+	 * 
+	 * @return int
+	 */
+	public int getSocketTimeout() {
+		return socketTimeout;
+	}
+
+	/**
+	 * Returns the time, in milli-seconds, allowed for the whole request, zero for no limit.
+	 * 
+	 * @return int
+	 */
+	public int getTotalTimeout() {
+		return totalTimeout;
+	}
+
+	@Override
+	public String toString() {
+		return "connect " + connectTimeout + "ms, connection request " + connectionRequestTimeout + "ms, socket "
+				+ socketTimeout + "ms, total " + (totalTimeout > 0 ? totalTimeout + "ms" : "unlimited");
+	}
+
+}
@@ -0,0 +1,113 @@
+package com.realexpayments.remote.sdk.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>
+ * The wire layer used by {@link com.realexpayments.remote.sdk.RealexClient} to POST request XML to Realex and 
+ * read the response XML. Request bodies are written by a {@link RequestWriter} and response bodies read by a 
+ * {@link ResponseReader}, so implementations may stream both; the byte array methods are provided for 
+ * convenience. The SDK provides:
+ * </p>
+ * <ul>
+ * <li>{@link ApacheTransport} - Apache HttpClient/HttpAsyncClient with pooled keep-alive connections, as used 
+ * by default.</li>
+ * <li>The java.net.http transport, available on Java 11 and later, created by 
+ * {@link HttpUtils#getJavaNetHttpTransport(HttpConfiguration)}, or over HTTP/2 by 
+ * {@link HttpUtils#getHttp2Transport(HttpConfiguration)}.</li>
+ * <li>{@link LoopbackTransport} - an in-memory transport which passes requests to a handler, for tests and 
+ * benchmarks.</li>
+ * </ul>
+ * <p>
+ * The endpoint, timeouts and HTTPS policy are taken from the {@link HttpConfiguration} given with each request. 
+ * Implementations must be thread safe. Failures are reported as a {@link com.realexpayments.remote.sdk.RealexException}, 
+ * thrown by the synchronous methods or completing the future of the asynchronous methods, including when the 
+ * HTTP status code is not 200.
+ * </p>
+ */
+public interface Transport extends Closeable {
+
+	/**
+	 * Sends the request, blocking until the response has been read.
+	 * 
+	 * @param httpConfiguration
+	 * @param requestWriter
+	 * @param responseReader
+	 * @return the result of the response reader
+	 */
+	<T> T send(HttpConfiguration httpConfiguration, RequestWriter requestWriter, ResponseReader<T> responseReader);
+
+	/**
+	 * Sends the request without blocking the calling thread. Cancelling the returned future should abort the 
+	 * request where possible.
+	 * 
+	 * @param httpConfiguration
+	 * @param requestWriter
+	 * @param responseReader
+	 * @return future of the result of the response reader
+	 */
+	<T> CompletableFuture<T> sendAsync(HttpConfiguration httpConfiguration, RequestWriter requestWriter,
+			ResponseReader<T> responseReader);
+
+	/**
+	 * Sends the request body, blocking until the response body has been read.
+	 * 
+	 * @param httpConfiguration
+	 * @param request
+	 * @return the response body
+	 */
+	default byte[] send(HttpConfiguration httpConfiguration, byte[] request) {
+		return send(httpConfiguration, out -> out.write(request), Transport::readFully);
+	}
+
+	/**
+	 * Sends the request body without blocking the calling thread.
+	 * 
+	 * @param httpConfiguration
+	 * @param request
+	 * @return future of the response body
+	 */
+	default CompletableFuture<byte[]> sendAsync(HttpConfiguration httpConfiguration, byte[] request) {
+		return sendAsync(httpConfiguration, out -> out.write(request), Transport::readFully);
+	}
+
+	/**
+	 * Opens connections to the configured endpoint ahead of the first requests, where the transport pools 
+	 * connections, so that those requests do not wait for the connection to be established and the TLS 
+	 * handshake. Blocks until the connections are open or have failed; failures are not reported, the 
+	 * requests then opening connections as usual. The default does nothing.
+	 * 
+	 * @param httpConfiguration
+	 * @param connections
+	 */
+	default void warmUp(HttpConfiguration httpConfiguration, int connections) {
+	}
+
+	/**
+	 * Releases any connections or threads held by the transport. The default does nothing.
+	 */
+	@Override
+	default void close() throws IOException {
+	}
+
+	/**
+	 * Reads the stream fully.
+	 * 
+	 * @param content
+	 * @return byte[]
+	 * @throws IOException
+	 */
+	static byte[] readFully(InputStream content) throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		byte[] bytes = new byte[4096];
+		for (int read; (read = content.read(bytes)) != -1;) {
+			buffer.write(bytes, 0, read);
+		}
+		return buffer.toByteArray();
+	}
+
+}
@@ -0,0 +1,65 @@
+package com.realexpayments.remote.sdk.http;
+
+/**
+ * <p>
+ * A URL of the Realex service together with its weight, the relative share of requests routed to it when all 
+ * endpoints are equally healthy. See {@link HttpConfiguration#setEndpoints(java.util.List)}.
+ * </p>
+ * <code><pre>
+ * httpConfiguration.addEndpoint("https://api.realexpayments.com/epage-remote.cgi", 3);
+ * httpConfiguration.addEndpoint("https://api2.realexpayments.com/epage-remote.cgi", 1);
+ * </pre></code>
+ */
+public final class WeightedEndpoint {
+
+	/**
+	 * The URL of the endpoint.
+	 */
+	private final String endpoint;
+
+	/**
+	 * The weight of the endpoint.
+	 */
+	private final int weight;
+
+	/**
+	 * Creates a weighted endpoint. The weight must be positive.
+	 * 
+	 * @param endpoint
+	 * @param weight
+	 */
+	public WeightedEndpoint(String endpoint, int weight) {
+		if (null == endpoint) {
+			throw new IllegalArgumentException("Endpoint must not be null.");
+		}
+		if (weight <= 0) {
+			throw new IllegalArgumentException("Endpoint weight must be positive.");
+		}
+		this.endpoint = endpoint;
+		this.weight = weight;
+	}
+
+	/**
+	 * Returns the URL of the endpoint.
+	 * 
+	 * @return String
+	 */
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	/**
+	 * Returns the weight of the endpoint.
+	 * 
+	 * @return int
+	 */
+	public int getWeight() {
+		return weight;
+	}
+
+	@Override
+	public String toString() {
+		return endpoint + " (weight " + weight + ")";
+	}
+
+}
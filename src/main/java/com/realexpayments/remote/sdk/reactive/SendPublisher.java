@@ -0,0 +1,326 @@
+package com.realexpayments.remote.sdk.reactive;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.realexpayments.remote.sdk.RealexClient;
+import com.realexpayments.remote.sdk.SendResult;
+import com.realexpayments.remote.sdk.domain.Request;
+import com.realexpayments.remote.sdk.domain.Response;
+import com.realexpayments.remote.sdk.utils.ExecutorUtils;
+
+/**
+ * <p>
+ * Reactive Streams {@link Publisher} sending each request of a publisher of requests to Realex with
+ * {@link RealexClient#sendAsync(Request)}, and publishing a {@link SendResult} for each. Requests which fail
+ * are published as failed results, so the stream continues; only an error from the publisher of requests
+ * ends the stream with an error, once the requests already received have been sent.
+ * </p>
+ * <p>
+ * Requests are pulled from the publisher of requests on demand: no more than the maximum in flight are
+ * requested, sent or awaiting delivery at once, and no more than the subscriber has requested results for.
+ * A request is only sent once the client has capacity for it, see {@link RealexClient#hasCapacity(Request)},
+ * so that requests are not rejected by the client's own rate and concurrency limits. Results are published
+ * in the order the responses arrive, which may differ from the order of the requests.
+ * </p>
+ * <p>
+ * Each subscription subscribes to the publisher of requests afresh. Cancelling the subscription cancels the
+ * subscription to the requests; requests already sent are allowed to complete but their results are
+ * discarded.
+ * </p>
+ * <code><pre>
+ * Publisher&lt;SendResult&lt;PaymentRequest, PaymentResponse&gt;&gt; results = client.sendStream(receiptIns);
+ * </pre></code>
+ *
+ * @param <T> the request type
+ * @param <U> the response type
+ */
+public final class SendPublisher<T, U extends Response<U>> implements Publisher<SendResult<T, U>> {
+
+	private final static Logger logger = LoggerFactory.getLogger(SendPublisher.class);
+
+	/**
+	 * The delay, in milli-seconds, before checking again whether the client has capacity for a request when
+	 * none are in flight to signal it.
+	 */
+	private static final long CAPACITY_RECHECK_MILLIS = 10;
+
+	private final RealexClient client;
+
+	private final Publisher<? extends Request<T, U>> requests;
+
+	private final int maxInFlight;
+
+	/**
+	 * Creates a publisher sending the requests with the client.
+	 *
+	 * @param client
+	 * @param requests
+	 * @param maxInFlight the maximum number of requests requested, sent or awaiting delivery at once
+	 */
+	public SendPublisher(RealexClient client, Publisher<? extends Request<T, U>> requests, int maxInFlight) {
+		if (null == client) {
+			throw new IllegalArgumentException("Client must not be null.");
+		}
+		if (null == requests) {
+			throw new IllegalArgumentException("Requests must not be null.");
+		}
+		if (maxInFlight <= 0) {
+			throw new IllegalArgumentException("Maximum requests in flight must be positive.");
+		}
+		this.client = client;
+		this.requests = requests;
+		this.maxInFlight = maxInFlight;
+	}
+
+	/**
+	 * Returns the maximum number of requests requested, sent or awaiting delivery at once.
+	 *
+	 * @return int
+	 */
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void subscribe(Subscriber<? super SendResult<T, U>> subscriber) {
+		if (null == subscriber) {
+			throw new NullPointerException("Subscriber must not be null.");
+		}
+		SendSubscription subscription = new SendSubscription(subscriber);
+		subscriber.onSubscribe(subscription);
+		requests.subscribe(subscription);
+	}
+
+	/**
+	 * The subscription of one subscriber, subscribed in turn to the requests. Signals from either side are
+	 * queued and acted on by a single thread at a time in {@link #drain()}, so no locks are taken.
+	 */
+	private final class SendSubscription implements Subscription, Subscriber<Request<T, U>> {
+
+		private final Subscriber<? super SendResult<T, U>> downstream;
+
+		private volatile Subscription upstream;
+
+		/** Requests received and not yet sent. */
+		private final ConcurrentLinkedQueue<Request<T, U>> pending = new ConcurrentLinkedQueue<Request<T, U>>();
+
+		/** Results not yet published. */
+		private final ConcurrentLinkedQueue<SendResult<T, U>> completed = new ConcurrentLinkedQueue<SendResult<T, U>>();
+
+		private final AtomicInteger inFlight = new AtomicInteger();
+
+		/** The total number of results requested by the subscriber. */
+		private final AtomicLong requested = new AtomicLong();
+
+		/** The number of signals to be drained, the draining thread being the one which raised it from zero. */
+		private final AtomicInteger work = new AtomicInteger();
+
+		private final AtomicBoolean recheckScheduled = new AtomicBoolean();
+
+		private volatile boolean upstreamDone;
+
+		private volatile Throwable upstreamError;
+
+		private volatile IllegalArgumentException invalidRequest;
+
+		private volatile boolean cancelled;
+
+		/** The number of requests requested from the publisher of requests, only used while draining. */
+		private long pulled;
+
+		/** The number of results published, only used while draining. */
+		private long emitted;
+
+		SendSubscription(Subscriber<? super SendResult<T, U>> downstream) {
+			this.downstream = downstream;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				invalidRequest = new IllegalArgumentException("Number of results requested must be positive (rule 3.9).");
+			} else {
+				for (;;) {
+					long current = requested.get();
+					long updated = current + n < 0 ? Long.MAX_VALUE : current + n;
+					if (requested.compareAndSet(current, updated)) {
+						break;
+					}
+				}
+			}
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			Subscription subscription = upstream;
+			if (null != subscription) {
+				subscription.cancel();
+			}
+			drain();
+		}
+
+		@Override
+		public void onSubscribe(Subscription subscription) {
+			if (null != upstream) {
+				subscription.cancel();
+				return;
+			}
+			upstream = subscription;
+			if (cancelled) {
+				subscription.cancel();
+			}
+			drain();
+		}
+
+		@Override
+		public void onNext(Request<T, U> request) {
+			if (null == request) {
+				throw new NullPointerException("Request must not be null.");
+			}
+			pending.offer(request);
+			drain();
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			upstreamError = throwable;
+			upstreamDone = true;
+			drain();
+		}
+
+		@Override
+		public void onComplete() {
+			upstreamDone = true;
+			drain();
+		}
+
+		/**
+		 * Publishes the results requested, sends the requests the client has capacity for, pulls more
+		 * requests as demand and the maximum in flight allow, and completes once every request has been
+		 * sent and its result published.
+		 */
+		private void drain() {
+			if (work.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+			for (;;) {
+				if (cancelled) {
+					pending.clear();
+					completed.clear();
+					return;
+				}
+				IllegalArgumentException invalid = invalidRequest;
+				if (null != invalid) {
+					cancel();
+					downstream.onError(invalid);
+					return;
+				}
+
+				long demand = requested.get();
+				while (emitted != demand) {
+					SendResult<T, U> result = completed.poll();
+					if (null == result) {
+						break;
+					}
+					downstream.onNext(result);
+					emitted++;
+					if (cancelled) {
+						return;
+					}
+				}
+
+				sendPending();
+
+				if (upstreamDone && pending.isEmpty() && 0 == inFlight.get() && completed.isEmpty()) {
+					cancelled = true;
+					Throwable error = upstreamError;
+					if (null != error) {
+						downstream.onError(error);
+					} else {
+						downstream.onComplete();
+					}
+					return;
+				}
+
+				Subscription subscription = upstream;
+				if (null != subscription && !upstreamDone) {
+					long pull = Math.min(maxInFlight - (pulled - emitted), demand - pulled);
+					if (pull > 0) {
+						pulled += pull;
+						subscription.request(pull);
+					}
+				}
+
+				missed = work.addAndGet(-missed);
+				if (0 == missed) {
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Sends the pending requests in turn while the client has capacity for them. If it has none, the
+		 * completion of a request in flight drains again, or if none are in flight a check is scheduled.
+		 */
+		private void sendPending() {
+			for (;;) {
+				Request<T, U> request = pending.peek();
+				if (null == request) {
+					return;
+				}
+				if (!client.hasCapacity(request)) {
+					if (0 == inFlight.get()) {
+						scheduleRecheck();
+					}
+					return;
+				}
+				pending.poll();
+				inFlight.incrementAndGet();
+				send(request);
+			}
+		}
+
+		private void send(final Request<T, U> request) {
+			CompletableFuture<U> response;
+			try {
+				response = client.sendAsync(request);
+			} catch (RuntimeException ex) {
+				response = new CompletableFuture<U>();
+				response.completeExceptionally(ex);
+			}
+			response.whenComplete((result, failure) -> {
+				completed.offer(null == failure ? SendResult.success(request, result) : SendResult.failure(request, failure));
+				inFlight.decrementAndGet();
+				drain();
+			});
+		}
+
+		private void scheduleRecheck() {
+			if (recheckScheduled.compareAndSet(false, true)) {
+				logger.debug("No capacity to send request, checking again in {}ms.", CAPACITY_RECHECK_MILLIS);
+				ExecutorUtils.getScheduler().schedule(() -> {
+					recheckScheduled.set(false);
+					drain();
+				}, CAPACITY_RECHECK_MILLIS, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,148 @@
+package com.realexpayments.remote.sdk.resilience;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.realexpayments.remote.sdk.RealexException;
+import com.realexpayments.remote.sdk.RealexRejectedException;
+import com.realexpayments.remote.sdk.RealexTimeoutException;
+import com.realexpayments.remote.sdk.http.Deadline;
+
+/**
+ * <p>
+ * Limits the number of requests to Realex in progress at once, so that when Realex slows down no more than
+ * the limit of the application's threads are held waiting for responses. Requests beyond the limit wait
+ * up to the maximum wait for another to complete, and are then rejected with a
+ * {@link RealexRejectedException}; a request with a sooner deadline waits only until its deadline, and
+ * then fails with a {@link RealexTimeoutException}. Asynchronous requests do not wait, so are rejected straight away when
+ * the limit is reached.
+ * </p>
+ */
+public final class Bulkhead {
+
+	private final int maxConcurrentRequests;
+
+	private final long maxWait;
+
+	private final Semaphore permits;
+
+	/**
+	 * Creates a bulkhead.
+	 *
+	 * @param maxConcurrentRequests the maximum number of requests in progress at once
+	 * @param maxWait the maximum time, in milli-seconds, a request waits to be sent
+	 */
+	public Bulkhead(int maxConcurrentRequests, long maxWait) {
+		if (maxConcurrentRequests <= 0) {
+			throw new IllegalArgumentException("Maximum concurrent requests must be positive.");
+		}
+		if (maxWait < 0) {
+			throw new IllegalArgumentException("Maximum wait must not be negative.");
+		}
+		this.maxConcurrentRequests = maxConcurrentRequests;
+		this.maxWait = maxWait;
+		this.permits = new Semaphore(maxConcurrentRequests);
+	}
+
+	/**
+	 * Returns the maximum number of requests in progress at once.
+	 *
+	 * @return int
+	 */
+	public int getMaxConcurrentRequests() {
+		return maxConcurrentRequests;
+	}
+
+	/**
+	 * Returns the maximum time, in milli-seconds, a request waits to be sent.
+	 *
+	 * @return long
+	 */
+	public long getMaxWait() {
+		return maxWait;
+	}
+
+	/**
+	 * Returns the number of requests currently in progress.
+	 *
+	 * @return int
+	 */
+	public int getConcurrentRequests() {
+		return maxConcurrentRequests - permits.availablePermits();
+	}
+
+	/**
+	 * Sends the request with the supplier once fewer than the maximum requests are in progress, waiting
+	 * up to the maximum wait.
+	 *
+	 * @param request
+	 * @return the result of the request
+	 */
+	public <T> T call(Supplier<T> request) {
+		return call(request, null);
+	}
+
+	/**
+	 * Sends the request with the supplier once fewer than the maximum requests are in progress, waiting
+	 * up to the maximum wait or until the deadline, whichever is sooner. If the deadline passes first a
+	 * {@link RealexTimeoutException} is thrown.
+	 *
+	 * @param request
+	 * @param deadline the deadline of the request, may be <code>null</code>
+	 * @return the result of the request
+	 */
+	public <T> T call(Supplier<T> request, Deadline deadline) {
+		long waitNanos = TimeUnit.MILLISECONDS.toNanos(maxWait);
+		long remainingNanos = null == deadline ? Long.MAX_VALUE : deadline.remainingNanos();
+		boolean deadlineFirst = remainingNanos < waitNanos;
+		try {
+			if (!permits.tryAcquire(deadlineFirst ? Math.max(remainingNanos, 0) : waitNanos, TimeUnit.NANOSECONDS)) {
+				throw deadlineFirst ? deadline.expired("waiting to send the request to Realex", null) : rejected();
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new RealexException("Interrupted waiting to send request to Realex.", ie);
+		}
+		try {
+			return request.get();
+		} finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * Sends the request asynchronously with the supplier if fewer than the maximum requests are in progress.
+	 * The returned future fails with a {@link RealexRejectedException} if the request is rejected.
+	 *
+	 * @param request
+	 * @return future of the result of the request
+	 */
+	public <T> CompletableFuture<T> callAsync(Supplier<CompletableFuture<T>> request) {
+		CompletableFuture<T> result;
+		if (!permits.tryAcquire()) {
+			result = new CompletableFuture<T>();
+			result.completeExceptionally(rejected());
+			return result;
+		}
+		try {
+			result = request.get();
+		} catch (RuntimeException ex) {
+			permits.release();
+			throw ex;
+		}
+		result.whenComplete((response, throwable) -> permits.release());
+		return result;
+	}
+
+	private RealexRejectedException rejected() {
+		return new RealexRejectedException("Maximum of " + maxConcurrentRequests + " concurrent requests to Realex reached.");
+	}
+
+	@Override
+	public String toString() {
+		return "Bulkhead [" + getConcurrentRequests() + "/" + maxConcurrentRequests + "]";
+	}
+
+}
@@ -0,0 +1,386 @@
+package com.realexpayments.remote.sdk.resilience;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.realexpayments.remote.sdk.RealexCircuitOpenException;
+import com.realexpayments.remote.sdk.RealexException;
+import com.realexpayments.remote.sdk.RealexRejectedException;
+import com.realexpayments.remote.sdk.RealexServerException;
+
+/**
+ * <p>
+ * Circuit breaker protecting callers from a degraded Realex: once too many recent requests have failed or
+ * been slow, requests are rejected straight away with a {@link RealexCircuitOpenException} rather than each
+ * waiting for its timeout, as configured by the {@link CircuitBreakerPolicy}.
+ * </p>
+ * <ul>
+ * <li>{@link State#CLOSED} - requests are sent and their outcomes recorded in a sliding window.</li>
+ * <li>{@link State#OPEN} - requests are rejected until the open duration has passed.</li>
+ * <li>{@link State#HALF_OPEN} - a limited number of trial requests are sent, the rest rejected. The
+ * circuit breaker closes once all trials succeed, or opens again as soon as one fails or is slow.</li>
+ * </ul>
+ * <p>
+ * A request fails if it could not be sent or no response was received, or if Realex returned a gateway
+ * error (3xx); declines and rejected requests are not failures. Each state, with its window, is an immutable
+ * object replaced by compare and set, and outcomes are recorded with atomic updates, so no locks are taken.
+ * Outcomes of requests sent in an earlier state are ignored.
+ * </p>
+ */
+public final class CircuitBreaker {
+
+	private final static Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+	/**
+	 * The states of a circuit breaker.
+	 */
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final CircuitBreakerPolicy policy;
+
+	private final AtomicReference<Phase> phase;
+
+	/**
+	 * Creates a closed circuit breaker with the policy. The policy should not be changed once in use.
+	 *
+	 * @param policy
+	 */
+	public CircuitBreaker(CircuitBreakerPolicy policy) {
+		if (null == policy) {
+			throw new IllegalArgumentException("Circuit breaker policy must not be null.");
+		}
+		this.policy = policy;
+		this.phase = new AtomicReference<Phase>(new Closed(policy.getWindowSize()));
+	}
+
+	/**
+	 * Returns the policy.
+	 *
+	 * @return CircuitBreakerPolicy
+	 */
+	public CircuitBreakerPolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Returns the current state.
+	 *
+	 * @return State
+	 */
+	public State getState() {
+		return phase.get().state;
+	}
+
+	/**
+	 * Returns the percentage of the requests in the window which failed, or zero unless closed.
+	 *
+	 * @return double
+	 */
+	public double getFailureRate() {
+		Phase current = phase.get();
+		return current instanceof Closed ? ((Closed) current).rate(Closed.FAILURE_SHIFT) : 0;
+	}
+
+	/**
+	 * Returns the percentage of the requests in the window which were slow, or zero unless closed.
+	 *
+	 * @return double
+	 */
+	public double getSlowCallRate() {
+		Phase current = phase.get();
+		return current instanceof Closed ? ((Closed) current).rate(Closed.SLOW_SHIFT) : 0;
+	}
+
+	/**
+	 * Sends the request with the supplier if the circuit breaker allows, recording its outcome.
+	 *
+	 * @param request
+	 * @return the result of the request
+	 */
+	public <T> T call(Supplier<T> request) {
+		return call(request, failure -> false);
+	}
+
+	/**
+	 * Sends the request with the supplier if the circuit breaker allows, recording its outcome. Failures for
+	 * which <code>notSent</code> is <code>true</code>, raised before the request was sent to Realex, are ignored.
+	 *
+	 * @param request
+	 * @param notSent
+	 * @return the result of the request
+	 */
+	public <T> T call(Supplier<T> request, Predicate<Throwable> notSent) {
+		Phase permitted = acquirePermission();
+		long start = System.nanoTime();
+		try {
+			T result = request.get();
+			onComplete(permitted, System.nanoTime() - start, null, notSent);
+			return result;
+		} catch (RuntimeException ex) {
+			onComplete(permitted, System.nanoTime() - start, ex, notSent);
+			throw ex;
+		}
+	}
+
+	/**
+	 * Sends the request asynchronously with the supplier if the circuit breaker allows, recording its outcome
+	 * on completion. The returned future fails with a {@link RealexCircuitOpenException} if the request is
+	 * rejected.
+	 *
+	 * @param request
+	 * @return future of the result of the request
+	 */
+	public <T> CompletableFuture<T> callAsync(Supplier<CompletableFuture<T>> request) {
+		return callAsync(request, failure -> false);
+	}
+
+	/**
+	 * Sends the request asynchronously with the supplier, as for {@link #callAsync(Supplier)}. Failures for
+	 * which <code>notSent</code> is <code>true</code>, raised before the request was sent to Realex, are ignored.
+	 *
+	 * @param request
+	 * @param notSent
+	 * @return future of the result of the request
+	 */
+	public <T> CompletableFuture<T> callAsync(Supplier<CompletableFuture<T>> request, final Predicate<Throwable> notSent) {
+		final Phase permitted;
+		CompletableFuture<T> result;
+		try {
+			permitted = acquirePermission();
+		} catch (RealexCircuitOpenException ex) {
+			result = new CompletableFuture<T>();
+			result.completeExceptionally(ex);
+			return result;
+		}
+
+		final long start = System.nanoTime();
+		try {
+			result = request.get();
+		} catch (RuntimeException ex) {
+			onComplete(permitted, System.nanoTime() - start, ex, notSent);
+			throw ex;
+		}
+		result.whenComplete((response, throwable) -> onComplete(permitted, System.nanoTime() - start, throwable, notSent));
+		return result;
+	}
+
+	/**
+	 * Returns <code>true</code> if the failure counts against Realex: the request could not be sent or no
+	 * response was received, or Realex returned a gateway error (3xx). Server errors for malformed requests
+	 * (5xx) and rejected requests do not count, nor do errors the caller reports were raised before sending,
+	 * see {@link #call(Supplier, Predicate)}.
+	 *
+	 * @param failure
+	 * @return boolean
+	 */
+	public static boolean isFailure(Throwable failure) {
+		if (failure instanceof CompletionException && null != failure.getCause()) {
+			failure = failure.getCause();
+		}
+		if (failure instanceof RealexServerException) {
+			return ((RealexServerException) failure).getResultCategory().isTransientError();
+		}
+		return failure instanceof RealexException && !(failure instanceof RealexRejectedException);
+	}
+
+	/**
+	 * Returns the phase the request is permitted in, or throws a {@link RealexCircuitOpenException}.
+	 */
+	private Phase acquirePermission() {
+		for (;;) {
+			Phase current = phase.get();
+			if (current instanceof Closed) {
+				return current;
+			}
+			if (current instanceof HalfOpen) {
+				if (((HalfOpen) current).tryAcquire()) {
+					return current;
+				}
+				throw new RealexCircuitOpenException("Circuit breaker is half open, trial requests in progress.", 0);
+			}
+
+			long remaining = ((Open) current).openUntil - System.nanoTime();
+			if (remaining > 0) {
+				throw new RealexCircuitOpenException("Circuit breaker is open, request not sent.",
+						TimeUnit.NANOSECONDS.toMillis(remaining));
+			}
+			transition(current, new HalfOpen(policy.getHalfOpenCalls()));
+		}
+	}
+
+	/**
+	 * Records the outcome of a request permitted in the phase, if still current.
+	 */
+	private void onComplete(Phase permitted, long elapsedNanos, Throwable throwable, Predicate<Throwable> notSent) {
+		if (phase.get() != permitted) {
+			return;
+		}
+
+		boolean slow = elapsedNanos > TimeUnit.MILLISECONDS.toNanos(policy.getSlowCallDuration());
+		boolean failed = null != throwable && isFailure(throwable) && !notSent.test(throwable);
+		boolean ignored = null != throwable && !failed;
+
+		if (permitted instanceof HalfOpen) {
+			HalfOpen halfOpen = (HalfOpen) permitted;
+			if (ignored) {
+				halfOpen.permits.incrementAndGet();
+			} else if (failed || slow) {
+				transition(permitted, new Open(policy.getOpenDuration()));
+			} else if (halfOpen.successes.incrementAndGet() >= policy.getHalfOpenCalls()) {
+				transition(permitted, new Closed(policy.getWindowSize()));
+			}
+			return;
+		}
+
+		if (ignored) {
+			return;
+		}
+		long totals = ((Closed) permitted).record(failed, slow);
+		long calls = totals & Closed.FIELD_MASK;
+		if (calls >= Math.min(policy.getMinimumCalls(), policy.getWindowSize())) {
+			double failureRate = 100.0 * ((totals >>> Closed.FAILURE_SHIFT) & Closed.FIELD_MASK) / calls;
+			double slowCallRate = 100.0 * ((totals >>> Closed.SLOW_SHIFT) & Closed.FIELD_MASK) / calls;
+			if (failureRate >= policy.getFailureRateThreshold() || slowCallRate >= policy.getSlowCallRateThreshold()) {
+				logger.warn("Opening circuit breaker, failure rate {}%, slow call rate {}%.", failureRate, slowCallRate);
+				transition(permitted, new Open(policy.getOpenDuration()));
+			}
+		}
+	}
+
+	private void transition(Phase from, Phase to) {
+		if (!phase.compareAndSet(from, to)) {
+			return;
+		}
+		logger.info("Circuit breaker changed from {} to {}.", from.state, to.state);
+		CircuitBreakerListener listener = policy.getListener();
+		if (null != listener) {
+			try {
+				listener.onStateTransition(this, from.state, to.state);
+			} catch (RuntimeException ex) {
+				logger.error("Circuit breaker listener failed.", ex);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "CircuitBreaker [" + getState() + "]";
+	}
+
+	/**
+	 * A state of the circuit breaker, replaced as a whole on each transition.
+	 */
+	private abstract static class Phase {
+
+		final State state;
+
+		Phase(State state) {
+			this.state = state;
+		}
+	}
+
+	/**
+	 * Closed, with the outcomes of the most recent requests. Each slot of the window holds the outcome of
+	 * a request, and the totals of requests, failures and slow requests in the window are packed into a
+	 * single long, so that recording an outcome is one atomic exchange and one atomic add.
+	 */
+	private static final class Closed extends Phase {
+
+		static final int FAILURE_SHIFT = 21;
+
+		static final int SLOW_SHIFT = 42;
+
+		static final long FIELD_MASK = (1L << 21) - 1;
+
+		private static final int RECORDED = 1;
+
+		private static final int FAILED = 2;
+
+		private static final int SLOW = 4;
+
+		private final AtomicIntegerArray window;
+
+		private final AtomicLong cursor = new AtomicLong();
+
+		private final AtomicLong totals = new AtomicLong();
+
+		Closed(int windowSize) {
+			super(State.CLOSED);
+			this.window = new AtomicIntegerArray(windowSize);
+		}
+
+		/**
+		 * Records an outcome, replacing the oldest, and returns the new totals.
+		 */
+		long record(boolean failed, boolean slow) {
+			int outcome = RECORDED | (failed ? FAILED : 0) | (slow ? SLOW : 0);
+			int slot = (int) (cursor.getAndIncrement() % window.length());
+			int replaced = window.getAndSet(slot, outcome);
+			return totals.addAndGet(pack(outcome) - pack(replaced));
+		}
+
+		double rate(int shift) {
+			long current = totals.get();
+			long calls = current & FIELD_MASK;
+			return calls == 0 ? 0 : 100.0 * ((current >>> shift) & FIELD_MASK) / calls;
+		}
+
+		private static long pack(int outcome) {
+			return (outcome & RECORDED) | ((long) ((outcome & FAILED) >>> 1) << FAILURE_SHIFT)
+					| ((long) ((outcome & SLOW) >>> 2) << SLOW_SHIFT);
+		}
+	}
+
+	/**
+	 * Open until the given {@link System#nanoTime()}.
+	 */
+	private static final class Open extends Phase {
+
+		final long openUntil;
+
+		Open(long openDurationMillis) {
+			super(State.OPEN);
+			this.openUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(openDurationMillis);
+		}
+	}
+
+	/**
+	 * Half open, with the trial requests remaining and the trials which have succeeded.
+	 */
+	private static final class HalfOpen extends Phase {
+
+		final AtomicInteger permits;
+
+		final AtomicInteger successes = new AtomicInteger();
+
+		HalfOpen(int calls) {
+			super(State.HALF_OPEN);
+			this.permits = new AtomicInteger(calls);
+		}
+
+		boolean tryAcquire() {
+			for (;;) {
+				int available = permits.get();
+				if (available <= 0) {
+					return false;
+				}
+				if (permits.compareAndSet(available, available - 1)) {
+					return true;
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,20 @@
+package com.realexpayments.remote.sdk.resilience;
+
+/**
+ * Notified when a {@link CircuitBreaker} changes state, for example to log or alert when requests to 
+ * Realex start being rejected. Called on the thread of the request which caused the change, so must be quick 
+ * and should not throw.
+ */
+@FunctionalInterface
+public interface CircuitBreakerListener {
+
+	/**
+	 * Called after the circuit breaker changes state.
+	 * 
+	 * @param circuitBreaker
+	 * @param from the previous state
+	 * @param to the new state
+	 */
+	void onStateTransition(CircuitBreaker circuitBreaker, CircuitBreaker.State from, CircuitBreaker.State to);
+
+}
@@ -0,0 +1,249 @@
+package com.realexpayments.remote.sdk.resilience;
+
+/**
+ * <p>
+ * Object containing the configurable settings of a {@link CircuitBreaker}, set on the
+ * {@link com.realexpayments.remote.sdk.http.HttpConfiguration}. The outcomes of the most recent requests,
+ * up to the window size, are kept. Once at least the minimum number of requests have completed, the
+ * circuit breaker opens if the proportion of them which failed, or which took longer than the slow call
+ * duration, reaches its threshold.
+ * </p>
+ * <p>
+ * While open, requests are rejected without being sent. After the open duration a number of trial requests
+ * are let through; if all succeed quickly the circuit breaker closes, otherwise it opens again.
+ * </p>
+ * <code><pre>
+ * CircuitBreakerPolicy policy = new CircuitBreakerPolicy();
+ * policy.setFailureRateThreshold(50);
+ * policy.setListener((circuitBreaker, from, to) -&gt; log.warn("Realex circuit breaker {}", to));
+ * httpConfiguration.setCircuitBreakerPolicy(policy);
+ * </pre></code>
+ */
+public class CircuitBreakerPolicy {
+
+	/**
+	 * The default percentage of failed requests at which the circuit breaker opens.
+	 */
+	private static final double DEFAULT_FAILURE_RATE_THRESHOLD = 50;
+
+	/**
+	 * The default percentage of slow requests at which the circuit breaker opens.
+	 */
+	private static final double DEFAULT_SLOW_CALL_RATE_THRESHOLD = 80;
+
+	/**
+	 * The default duration, in milli-seconds, above which a request is slow.
+	 */
+	private static final long DEFAULT_SLOW_CALL_DURATION = 10000;
+
+	/**
+	 * The default number of recent requests whose outcomes are kept.
+	 */
+	private static final int DEFAULT_WINDOW_SIZE = 100;
+
+	/**
+	 * The default number of requests which must complete before the circuit breaker may open.
+	 */
+	private static final int DEFAULT_MINIMUM_CALLS = 20;
+
+	/**
+	 * The default time, in milli-seconds, for which the circuit breaker stays open.
+	 */
+	private static final long DEFAULT_OPEN_DURATION = 30000;
+
+	/**
+	 * The default number of trial requests let through once the open duration has passed.
+	 */
+	private static final int DEFAULT_HALF_OPEN_CALLS = 5;
+
+	/**
+	 * The largest window size supported.
+	 */
+	static final int MAX_WINDOW_SIZE = (1 << 20) - 1;
+
+	/** The percentage of failed requests at which the circuit breaker opens. */
+	private double failureRateThreshold = DEFAULT_FAILURE_RATE_THRESHOLD;
+
+	/** The percentage of slow requests at which the circuit breaker opens. */
+	private double slowCallRateThreshold = DEFAULT_SLOW_CALL_RATE_THRESHOLD;
+
+	/** The duration, in milli-seconds, above which a request is slow. */
+	private long slowCallDuration = DEFAULT_SLOW_CALL_DURATION;
+
+	/** The number of recent requests whose outcomes are kept. */
+	private int windowSize = DEFAULT_WINDOW_SIZE;
+
+	/** The number of requests which must complete before the circuit breaker may open. */
+	private int minimumCalls = DEFAULT_MINIMUM_CALLS;
+
+	/** The time, in milli-seconds, for which the circuit breaker stays open. */
+	private long openDuration = DEFAULT_OPEN_DURATION;
+
+	/** The number of trial requests let through once the open duration has passed. */
+	private int halfOpenCalls = DEFAULT_HALF_OPEN_CALLS;
+
+	/** Notified of state transitions, may be null. */
+	private CircuitBreakerListener listener;
+
+	/**
+	 * Get the percentage of failed requests at which the circuit breaker opens.
+	 *
+	 * @return the failureRateThreshold
+	 */
+	public double getFailureRateThreshold() {
+		return failureRateThreshold;
+	}
+
+	/**
+	 * Set the percentage of failed requests, between 0 and 100, at which the circuit breaker opens. The
+	 * default is 50.
+	 *
+	 * @param failureRateThreshold the failureRateThreshold to set
+	 */
+	public void setFailureRateThreshold(double failureRateThreshold) {
+		if (failureRateThreshold <= 0 || failureRateThreshold > 100) {
+			throw new IllegalArgumentException("Failure rate threshold must be above 0 and at most 100.");
+		}
+		this.failureRateThreshold = failureRateThreshold;
+	}
+
+	/**
+	 * Get the percentage of slow requests at which the circuit breaker opens.
+	 *
+	 * @return the slowCallRateThreshold
+	 */
+	public double getSlowCallRateThreshold() {
+		return slowCallRateThreshold;
+	}
+
+	/**
+	 * Set the percentage of slow requests, between 0 and 100, at which the circuit breaker opens. The
+	 * default is 80.
+	 *
+	 * @param slowCallRateThreshold the slowCallRateThreshold to set
+	 */
+	public void setSlowCallRateThreshold(double slowCallRateThreshold) {
+		if (slowCallRateThreshold <= 0 || slowCallRateThreshold > 100) {
+			throw new IllegalArgumentException("Slow call rate threshold must be above 0 and at most 100.");
+		}
+		this.slowCallRateThreshold = slowCallRateThreshold;
+	}
+
+	/**
+	 * Get the duration, in milli-seconds, above which a request is slow.
+	 *
+	 * @return the slowCallDuration
+	 */
+	public long getSlowCallDuration() {
+		return slowCallDuration;
+	}
+
+	/**
+	 * Set the duration, in milli-seconds, above which a request is slow.
+	 *
+	 * @param slowCallDuration the slowCallDuration to set
+	 */
+	public void setSlowCallDuration(long slowCallDuration) {
+		this.slowCallDuration = slowCallDuration;
+	}
+
+	/**
+	 * Get the number of recent requests whose outcomes are kept.
+	 *
+	 * @return the windowSize
+	 */
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	/**
+	 * Set the number of recent requests whose outcomes are kept.
+	 *
+	 * @param windowSize the windowSize to set
+	 */
+	public void setWindowSize(int windowSize) {
+		if (windowSize <= 0 || windowSize > MAX_WINDOW_SIZE) {
+			throw new IllegalArgumentException("Window size must be between 1 and " + MAX_WINDOW_SIZE + ".");
+		}
+		this.windowSize = windowSize;
+	}
+
+	/**
+	 * Get the number of requests which must complete before the circuit breaker may open.
+	 *
+	 * @return the minimumCalls
+	 */
+	public int getMinimumCalls() {
+		return minimumCalls;
+	}
+
+	/**
+	 * Set the number of requests which must complete before the circuit breaker may open. No more than
+	 * the window size are needed.
+	 *
+	 * @param minimumCalls the minimumCalls to set
+	 */
+	public void setMinimumCalls(int minimumCalls) {
+		this.minimumCalls = minimumCalls;
+	}
+
+	/**
+	 * Get the time, in milli-seconds, for which the circuit breaker stays open.
+	 *
+	 * @return the openDuration
+	 */
+	public long getOpenDuration() {
+		return openDuration;
+	}
+
+	/**
+	 * Set the time, in milli-seconds, for which the circuit breaker stays open before letting trial
+	 * requests through.
+	 *
+	 * @param openDuration the openDuration to set
+	 */
+	public void setOpenDuration(long openDuration) {
+		this.openDuration = openDuration;
+	}
+
+	/**
+	 * Get the number of trial requests let through once the open duration has passed.
+	 *
+	 * @return the halfOpenCalls
+	 */
+	public int getHalfOpenCalls() {
+		return halfOpenCalls;
+	}
+
+	/**
+	 * Set the number of trial requests let through once the open duration has passed, all of which must
+	 * succeed for the circuit breaker to close.
+	 *
+	 * @param halfOpenCalls the halfOpenCalls to set
+	 */
+	public void setHalfOpenCalls(int halfOpenCalls) {
+		if (halfOpenCalls <= 0) {
+			throw new IllegalArgumentException("Half open calls must be positive.");
+		}
+		this.halfOpenCalls = halfOpenCalls;
+	}
+
+	/**
+	 * Get the listener notified of state transitions.
+	 *
+	 * @return the listener
+	 */
+	public CircuitBreakerListener getListener() {
+		return listener;
+	}
+
+	/**
+	 * Set the listener notified of state transitions, or <code>null</code> for none.
+	 *
+	 * @param listener the listener to set
+	 */
+	public void setListener(CircuitBreakerListener listener) {
+		this.listener = listener;
+	}
+
+}
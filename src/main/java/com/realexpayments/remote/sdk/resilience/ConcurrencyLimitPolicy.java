@@ -0,0 +1,194 @@
+package com.realexpayments.remote.sdk.resilience;
+
+/**
+ * <p>
+ * Object containing the configurable settings of the {@link ConcurrencyLimiter}s which adapt the number of
+ * requests in progress for each merchant account, set on the
+ * {@link com.realexpayments.remote.sdk.http.HttpConfiguration}. Each limit starts at the initial limit and
+ * is kept between the minimum and maximum limits.
+ * </p>
+ * <p>
+ * The limit is raised by one while responses show no queueing, lowered by one as queueing builds up, and
+ * cut by the backoff ratio when a request fails or the gateway reports that it took at least the slow
+ * gateway time to process a request. Requests beyond the limit wait up to the maximum wait, and are then
+ * rejected.
+ * </p>
+ * <code><pre>
+ * ConcurrencyLimitPolicy policy = new ConcurrencyLimitPolicy();
+ * policy.setMaxLimit(100);
+ * policy.setMaxWait(500);
+ * httpConfiguration.setConcurrencyLimitPolicy(policy);
+ * </pre></code>
+ */
+public class ConcurrencyLimitPolicy {
+
+	/**
+	 * The default limit before any requests have completed.
+	 */
+	private static final int DEFAULT_INITIAL_LIMIT = 20;
+
+	/**
+	 * The default lowest limit.
+	 */
+	private static final int DEFAULT_MIN_LIMIT = 1;
+
+	/**
+	 * The default highest limit.
+	 */
+	private static final int DEFAULT_MAX_LIMIT = 200;
+
+	/**
+	 * The default ratio by which the limit is cut on a failed or slow request.
+	 */
+	private static final double DEFAULT_BACKOFF_RATIO = 0.9;
+
+	/**
+	 * The default gateway processing time, in milli-seconds, from which a request is slow.
+	 */
+	private static final long DEFAULT_SLOW_GATEWAY_TIME = 5000;
+
+	/** The limit before any requests have completed. */
+	private int initialLimit = DEFAULT_INITIAL_LIMIT;
+
+	/** The lowest limit. */
+	private int minLimit = DEFAULT_MIN_LIMIT;
+
+	/** The highest limit. */
+	private int maxLimit = DEFAULT_MAX_LIMIT;
+
+	/** The ratio by which the limit is cut on a failed or slow request. */
+	private double backoffRatio = DEFAULT_BACKOFF_RATIO;
+
+	/** The gateway processing time, in milli-seconds, from which a request is slow. */
+	private long slowGatewayTime = DEFAULT_SLOW_GATEWAY_TIME;
+
+	/** The maximum time, in milli-seconds, a request waits when the limit is reached. */
+	private long maxWait;
+
+	/**
+	 * Get the limit before any requests have completed.
+	 *
+	 * @return the initialLimit
+	 */
+	public int getInitialLimit() {
+		return initialLimit;
+	}
+
+	/**
+	 * Set the limit before any requests have completed. The default is 20.
+	 *
+	 * @param initialLimit the initialLimit to set
+	 */
+	public void setInitialLimit(int initialLimit) {
+		if (initialLimit <= 0) {
+			throw new IllegalArgumentException("Initial limit must be positive.");
+		}
+		this.initialLimit = initialLimit;
+	}
+
+	/**
+	 * Get the lowest limit.
+	 *
+	 * @return the minLimit
+	 */
+	public int getMinLimit() {
+		return minLimit;
+	}
+
+	/**
+	 * Set the lowest limit. The default is 1.
+	 *
+	 * @param minLimit the minLimit to set
+	 */
+	public void setMinLimit(int minLimit) {
+		if (minLimit <= 0) {
+			throw new IllegalArgumentException("Minimum limit must be positive.");
+		}
+		this.minLimit = minLimit;
+	}
+
+	/**
+	 * Get the highest limit.
+	 *
+	 * @return the maxLimit
+	 */
+	public int getMaxLimit() {
+		return maxLimit;
+	}
+
+	/**
+	 * Set the highest limit. The default is 200.
+	 *
+	 * @param maxLimit the maxLimit to set
+	 */
+	public void setMaxLimit(int maxLimit) {
+		if (maxLimit <= 0) {
+			throw new IllegalArgumentException("Maximum limit must be positive.");
+		}
+		this.maxLimit = maxLimit;
+	}
+
+	/**
+	 * Get the ratio by which the limit is cut on a failed or slow request.
+	 *
+	 * @return the backoffRatio
+	 */
+	public double getBackoffRatio() {
+		return backoffRatio;
+	}
+
+	/**
+	 * Set the ratio, above 0 and below 1, by which the limit is cut on a failed or slow request. The default
+	 * is 0.9.
+	 *
+	 * @param backoffRatio the backoffRatio to set
+	 */
+	public void setBackoffRatio(double backoffRatio) {
+		if (backoffRatio <= 0 || backoffRatio >= 1) {
+			throw new IllegalArgumentException("Backoff ratio must be above 0 and below 1.");
+		}
+		this.backoffRatio = backoffRatio;
+	}
+
+	/**
+	 * Get the gateway processing time, in milli-seconds, from which a request is slow.
+	 *
+	 * @return the slowGatewayTime
+	 */
+	public long getSlowGatewayTime() {
+		return slowGatewayTime;
+	}
+
+	/**
+	 * Set the gateway processing time, in milli-seconds, from which a request is slow, as reported by the
+	 * time taken in the response. Realex reports the time taken in whole seconds. The default is 5000.
+	 *
+	 * @param slowGatewayTime the slowGatewayTime to set
+	 */
+	public void setSlowGatewayTime(long slowGatewayTime) {
+		this.slowGatewayTime = slowGatewayTime;
+	}
+
+	/**
+	 * Get the maximum time, in milli-seconds, a request waits when the limit is reached.
+	 *
+	 * @return the maxWait
+	 */
+	public long getMaxWait() {
+		return maxWait;
+	}
+
+	/**
+	 * Set the maximum time, in milli-seconds, a request waits when the limit is reached, before it is
+	 * rejected. The default is zero, rejecting such requests straight away. Asynchronous requests never wait.
+	 *
+	 * @param maxWait the maxWait to set
+	 */
+	public void setMaxWait(long maxWait) {
+		if (maxWait < 0) {
+			throw new IllegalArgumentException("Maximum wait must not be negative.");
+		}
+		this.maxWait = maxWait;
+	}
+
+}
@@ -0,0 +1,377 @@
+package com.realexpayments.remote.sdk.resilience;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.realexpayments.remote.sdk.RealexException;
+import com.realexpayments.remote.sdk.RealexRejectedException;
+import com.realexpayments.remote.sdk.RealexTimeoutException;
+import com.realexpayments.remote.sdk.domain.Response;
+import com.realexpayments.remote.sdk.http.Deadline;
+
+/**
+ * <p>
+ * Adaptive limit on the requests in progress for one merchant account, tuned from the latency of the
+ * requests as configured by the {@link ConcurrencyLimitPolicy}. Requests beyond the limit wait up to the
+ * maximum wait for another to complete, and are then rejected with a {@link RealexRejectedException}; a
+ * request with a sooner deadline waits only until its deadline, and then fails with a
+ * {@link RealexTimeoutException}.
+ * Asynchronous requests do not wait, so are rejected straight away when the limit is reached.
+ * </p>
+ * <p>
+ * The limit is adjusted in the manner of TCP Vegas. The latency of each request, less the time the gateway
+ * reports it took to process the request, is the time spent queueing and on the network. The lowest such
+ * time seen, drifting slowly up to follow lasting changes, is the baseline; from the two the number of
+ * requests queueing is estimated as <code>limit * (1 - baseline / latency)</code>. The limit is raised by
+ * one while the estimate is small and the limit is in use, and lowered by one once the estimate is large.
+ * Failed requests, and requests the gateway took at least the slow gateway time to process because the
+ * acquirer has slowed down, cut the limit by the backoff ratio. As the gateway reports whole seconds, only
+ * requests it reports taking no time set the baseline.
+ * </p>
+ * <p>
+ * The limit and baseline are an immutable object replaced by compare and set, and the requests in progress
+ * are counted atomically, so no locks are taken except by requests waiting for the limit. Waiting requests
+ * wait on a {@link ReentrantLock} rather than a monitor, so that virtual threads are not pinned while waiting.
+ * </p>
+ */
+public final class ConcurrencyLimiter {
+
+	private final static Logger logger = LoggerFactory.getLogger(ConcurrencyLimiter.class);
+
+	/**
+	 * The proportion of the difference by which the baseline rises towards a higher latency.
+	 */
+	private static final double BASELINE_DRIFT = 1.0 / 256;
+
+	private final String name;
+
+	private final ConcurrencyLimitPolicy policy;
+
+	private final AtomicReference<Estimate> estimate;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final AtomicInteger waiting = new AtomicInteger();
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition released = lock.newCondition();
+
+	/**
+	 * Creates a limiter at the initial limit of the policy. The policy should not be changed once in use.
+	 *
+	 * @param name the merchant account limited, for logging
+	 * @param policy
+	 */
+	public ConcurrencyLimiter(String name, ConcurrencyLimitPolicy policy) {
+		if (null == policy) {
+			throw new IllegalArgumentException("Concurrency limit policy must not be null.");
+		}
+		if (policy.getMinLimit() > policy.getMaxLimit()) {
+			throw new IllegalArgumentException("Minimum limit must not be above maximum limit.");
+		}
+		this.name = name;
+		this.policy = policy;
+		this.estimate = new AtomicReference<Estimate>(new Estimate(clamp(policy.getInitialLimit()), Long.MAX_VALUE));
+	}
+
+	/**
+	 * Returns the merchant account limited.
+	 *
+	 * @return String
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the policy.
+	 *
+	 * @return ConcurrencyLimitPolicy
+	 */
+	public ConcurrencyLimitPolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Returns the current limit.
+	 *
+	 * @return int
+	 */
+	public int getLimit() {
+		return (int) estimate.get().limit;
+	}
+
+	/**
+	 * Returns the number of requests currently in progress.
+	 *
+	 * @return int
+	 */
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	/**
+	 * Returns the baseline latency in milli-seconds, or -1 if none has been measured.
+	 *
+	 * @return long
+	 */
+	public long getBaselineLatency() {
+		long baselineNanos = estimate.get().baselineNanos;
+		return baselineNanos == Long.MAX_VALUE ? -1 : TimeUnit.NANOSECONDS.toMillis(baselineNanos);
+	}
+
+	/**
+	 * Sends the request with the supplier once within the limit, waiting up to the maximum wait, and adjusts
+	 * the limit from its outcome.
+	 *
+	 * @param request
+	 * @return the response
+	 */
+	public <T extends Response<?>> T call(Supplier<T> request) {
+		return call(request, null);
+	}
+
+	/**
+	 * Sends the request with the supplier once within the limit, waiting up to the maximum wait or until the
+	 * deadline, whichever is sooner, and adjusts the limit from its outcome. If the deadline passes first a
+	 * {@link RealexTimeoutException} is thrown.
+	 *
+	 * @param request
+	 * @param deadline the deadline of the request, may be <code>null</code>
+	 * @return the response
+	 */
+	public <T extends Response<?>> T call(Supplier<T> request, Deadline deadline) {
+		acquire(deadline);
+		long start = System.nanoTime();
+		try {
+			T response = request.get();
+			onSuccess(System.nanoTime() - start, response);
+			return response;
+		} catch (RuntimeException ex) {
+			onFailure(ex);
+			throw ex;
+		} finally {
+			release();
+		}
+	}
+
+	/**
+	 * Sends the request asynchronously with the supplier if within the limit, adjusting the limit from its
+	 * outcome on completion. The returned future fails with a {@link RealexRejectedException} if the request
+	 * is rejected.
+	 *
+	 * @param request
+	 * @return future of the response
+	 */
+	public <T extends Response<?>> CompletableFuture<T> callAsync(Supplier<CompletableFuture<T>> request) {
+		CompletableFuture<T> result;
+		if (!tryAcquire()) {
+			result = new CompletableFuture<T>();
+			result.completeExceptionally(rejected());
+			return result;
+		}
+
+		final long start = System.nanoTime();
+		try {
+			result = request.get();
+		} catch (RuntimeException ex) {
+			onFailure(ex);
+			release();
+			throw ex;
+		}
+		result.whenComplete((response, throwable) -> {
+			if (null == throwable) {
+				onSuccess(System.nanoTime() - start, response);
+			} else {
+				onFailure(throwable);
+			}
+			release();
+		});
+		return result;
+	}
+
+	private boolean tryAcquire() {
+		for (;;) {
+			int current = inFlight.get();
+			if (current >= getLimit()) {
+				return false;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	private void acquire(Deadline deadline) {
+		if (tryAcquire()) {
+			return;
+		}
+		long waitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(policy.getMaxWait(), 0));
+		long remainingNanos = null == deadline ? Long.MAX_VALUE : deadline.remainingNanos();
+		boolean deadlineFirst = remainingNanos < waitNanos;
+		if (deadlineFirst) {
+			waitNanos = Math.max(remainingNanos, 0);
+		}
+		if (waitNanos <= 0) {
+			throw deadlineFirst ? deadline.expired("waiting to send the request to Realex", null) : rejected();
+		}
+
+		long waitUntil = System.nanoTime() + waitNanos;
+		waiting.incrementAndGet();
+		try {
+			lock.lockInterruptibly();
+			try {
+				while (!tryAcquire()) {
+					long remaining = waitUntil - System.nanoTime();
+					if (remaining <= 0) {
+						throw deadlineFirst ? deadline.expired("waiting to send the request to Realex", null) : rejected();
+					}
+					released.awaitNanos(remaining);
+				}
+			} finally {
+				lock.unlock();
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new RealexException("Interrupted waiting to send request to Realex.", ie);
+		} finally {
+			waiting.decrementAndGet();
+		}
+	}
+
+	private void release() {
+		inFlight.decrementAndGet();
+		signal();
+	}
+
+	private void signal() {
+		if (waiting.get() > 0) {
+			lock.lock();
+			try {
+				released.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Adjusts the limit from the latency of a request and the gateway processing time in its response.
+	 */
+	private void onSuccess(long elapsedNanos, Response<?> response) {
+		long gatewayNanos = gatewayNanos(response);
+		boolean slowGateway = gatewayNanos >= TimeUnit.MILLISECONDS.toNanos(policy.getSlowGatewayTime());
+		long queueingNanos = Math.max(elapsedNanos - Math.max(gatewayNanos, 0), 1);
+
+		for (;;) {
+			Estimate current = estimate.get();
+			double limit = current.limit;
+			long baselineNanos = current.baselineNanos;
+
+			if (gatewayNanos <= 0) {
+				baselineNanos = queueingNanos <= baselineNanos || baselineNanos == Long.MAX_VALUE ? queueingNanos
+						: baselineNanos + (long) ((queueingNanos - baselineNanos) * BASELINE_DRIFT);
+			}
+
+			if (slowGateway) {
+				limit = limit * policy.getBackoffRatio();
+			} else if (baselineNanos != Long.MAX_VALUE) {
+				//requests queueing, estimated from how far the latency is above the baseline
+				double queue = limit * (1 - (double) Math.min(baselineNanos, queueingNanos) / queueingNanos);
+				double threshold = Math.max(1, Math.log10(limit));
+				if (queue > 6 * threshold) {
+					limit = limit - 1;
+				} else if (queue < 3 * threshold && inFlight.get() * 2 >= (int) limit) {
+					limit = limit + 1;
+				}
+			}
+
+			if (update(current, new Estimate(clamp(limit), baselineNanos))) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Cuts the limit if the request failed because of Realex.
+	 */
+	private void onFailure(Throwable throwable) {
+		if (!CircuitBreaker.isFailure(throwable)) {
+			return;
+		}
+		for (;;) {
+			Estimate current = estimate.get();
+			if (update(current, new Estimate(clamp(current.limit * policy.getBackoffRatio()), current.baselineNanos))) {
+				return;
+			}
+		}
+	}
+
+	private boolean update(Estimate current, Estimate updated) {
+		if (!estimate.compareAndSet(current, updated)) {
+			return false;
+		}
+		int from = (int) current.limit;
+		int to = (int) updated.limit;
+		if (to != from) {
+			logger.debug("Concurrency limit for {} changed from {} to {}.", name, from, to);
+			if (to > from) {
+				signal();
+			}
+		}
+		return true;
+	}
+
+	private double clamp(double limit) {
+		return Math.min(Math.max(limit, policy.getMinLimit()), policy.getMaxLimit());
+	}
+
+	/**
+	 * Returns the time the gateway reports it took to process the request, in nano-seconds, or -1 if not
+	 * reported.
+	 */
+	private static long gatewayNanos(Response<?> response) {
+		if (null == response) {
+			return -1;
+		}
+		Long timeTaken = response.getTimeTaken();
+		if (null == timeTaken) {
+			timeTaken = response.getAuthTimeTaken();
+		}
+		return null == timeTaken ? -1 : TimeUnit.SECONDS.toNanos(timeTaken);
+	}
+
+	private RealexRejectedException rejected() {
+		return new RealexRejectedException("Concurrency limit of " + getLimit() + " requests reached for " + name + ".");
+	}
+
+	@Override
+	public String toString() {
+		return "ConcurrencyLimiter [" + name + " " + getInFlight() + "/" + getLimit() + "]";
+	}
+
+	/**
+	 * The limit, fractional so that it may be cut by a ratio, and the baseline latency, in nano-seconds.
+	 */
+	private static final class Estimate {
+
+		final double limit;
+
+		final long baselineNanos;
+
+		Estimate(double limit, long baselineNanos) {
+			this.limit = limit;
+			this.baselineNanos = baselineNanos;
+		}
+	}
+
+}
@@ -0,0 +1,179 @@
+package com.realexpayments.remote.sdk.resilience;
+
+/**
+ * <p>
+ * Object containing the configurable settings of request hedging, see {@link RequestHedger}. A second
+ * attempt of a side-effect-free request is sent if the first has not answered within the hedge delay:
+ * the given percentile of the latencies of recent attempts, kept within the minimum and maximum delay.
+ * Until enough latencies have been recorded the initial delay is used.
+ * </p>
+ * <p>
+ * The proportion of requests which may be hedged is limited by the hedge ratio, so that hedging cannot
+ * double the load on Realex when all responses are slow.
+ * </p>
+ */
+public class HedgingPolicy {
+
+	/**
+	 * The default percentile of latencies after which a request is hedged.
+	 */
+	private static final double DEFAULT_PERCENTILE = 95;
+
+	/**
+	 * The default minimum hedge delay in milli-seconds.
+	 */
+	private static final long DEFAULT_MIN_DELAY = 10;
+
+	/**
+	 * The default maximum hedge delay in milli-seconds.
+	 */
+	private static final long DEFAULT_MAX_DELAY = 10000;
+
+	/**
+	 * The default hedge delay in milli-seconds used until enough latencies have been recorded.
+	 */
+	private static final long DEFAULT_INITIAL_DELAY = 1000;
+
+	/**
+	 * The default number of latencies recorded before the percentile is used.
+	 */
+	private static final int DEFAULT_MIN_SAMPLES = 50;
+
+	/**
+	 * The default maximum proportion of requests hedged.
+	 */
+	private static final double DEFAULT_MAX_HEDGE_RATIO = 0.1;
+
+	/** The percentile of latencies after which a request is hedged. */
+	private double percentile = DEFAULT_PERCENTILE;
+
+	/** The minimum hedge delay, in milli-seconds. */
+	private long minDelay = DEFAULT_MIN_DELAY;
+
+	/** The maximum hedge delay, in milli-seconds. */
+	private long maxDelay = DEFAULT_MAX_DELAY;
+
+	/** The hedge delay, in milli-seconds, used until enough latencies have been recorded. */
+	private long initialDelay = DEFAULT_INITIAL_DELAY;
+
+	/** The number of latencies recorded before the percentile is used. */
+	private int minSamples = DEFAULT_MIN_SAMPLES;
+
+	/** The maximum proportion of requests hedged. */
+	private double maxHedgeRatio = DEFAULT_MAX_HEDGE_RATIO;
+
+	/**
+	 * Get the percentile of latencies after which a request is hedged.
+	 *
+	 * @return the percentile
+	 */
+	public double getPercentile() {
+		return percentile;
+	}
+
+	/**
+	 * Set the percentile of latencies, between 0 and 100, after which a request is hedged. The default is 95.
+	 *
+	 * @param percentile the percentile to set
+	 */
+	public void setPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+		}
+		this.percentile = percentile;
+	}
+
+	/**
+	 * Get the minimum hedge delay, in milli-seconds.
+	 *
+	 * @return the minDelay
+	 */
+	public long getMinDelay() {
+		return minDelay;
+	}
+
+	/**
+	 * Set the minimum hedge delay, in milli-seconds.
+	 *
+	 * @param minDelay the minDelay to set
+	 */
+	public void setMinDelay(long minDelay) {
+		this.minDelay = minDelay;
+	}
+
+	/**
+	 * Get the maximum hedge delay, in milli-seconds.
+	 *
+	 * @return the maxDelay
+	 */
+	public long getMaxDelay() {
+		return maxDelay;
+	}
+
+	/**
+	 * Set the maximum hedge delay, in milli-seconds.
+	 *
+	 * @param maxDelay the maxDelay to set
+	 */
+	public void setMaxDelay(long maxDelay) {
+		this.maxDelay = maxDelay;
+	}
+
+	/**
+	 * Get the hedge delay, in milli-seconds, used until enough latencies have been recorded.
+	 *
+	 * @return the initialDelay
+	 */
+	public long getInitialDelay() {
+		return initialDelay;
+	}
+
+	/**
+	 * Set the hedge delay, in milli-seconds, used until enough latencies have been recorded.
+	 *
+	 * @param initialDelay the initialDelay to set
+	 */
+	public void setInitialDelay(long initialDelay) {
+		this.initialDelay = initialDelay;
+	}
+
+	/**
+	 * Get the number of latencies recorded before the percentile is used.
+	 *
+	 * @return the minSamples
+	 */
+	public int getMinSamples() {
+		return minSamples;
+	}
+
+	/**
+	 * Set the number of latencies recorded before the percentile is used.
+	 *
+	 * @param minSamples the minSamples to set
+	 */
+	public void setMinSamples(int minSamples) {
+		this.minSamples = minSamples;
+	}
+
+	/**
+	 * Get the maximum proportion of requests hedged.
+	 *
+	 * @return the maxHedgeRatio
+	 */
+	public double getMaxHedgeRatio() {
+		return maxHedgeRatio;
+	}
+
+	/**
+	 * Set the maximum proportion of requests hedged, between 0 and 1. The default is 0.1, one in ten.
+	 *
+	 * @param maxHedgeRatio the maxHedgeRatio to set
+	 */
+	public void setMaxHedgeRatio(double maxHedgeRatio) {
+		if (maxHedgeRatio < 0 || maxHedgeRatio > 1) {
+			throw new IllegalArgumentException("Maximum hedge ratio must be between 0 and 1.");
+		}
+		this.maxHedgeRatio = maxHedgeRatio;
+	}
+
+}
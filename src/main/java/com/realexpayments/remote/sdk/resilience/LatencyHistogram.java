@@ -0,0 +1,154 @@
+package com.realexpayments.remote.sdk.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * Lock-free histogram of request latencies, from which percentiles are estimated. Latencies are counted in
+ * log-linear buckets of micro-seconds, eight buckets for each power of two, so an estimated percentile is
+ * at most 12.5% above the true value. Recording a latency is a single atomic increment.
+ * </p>
+ * <p>
+ * So that percentiles follow changes in latency, all counts are halved each time {@link #DECAY_THRESHOLD}
+ * latencies have been recorded, older latencies counting for less than recent ones. Concurrent recording
+ * and decay may make counts approximate, which is acceptable for estimating percentiles.
+ * </p>
+ */
+public final class LatencyHistogram {
+
+	/**
+	 * The number of latencies recorded after which all counts are halved.
+	 */
+	public static final int DECAY_THRESHOLD = 4096;
+
+	/**
+	 * Bits of the sub-bucket index within each power of two.
+	 */
+	private static final int SUB_BUCKET_BITS = 3;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * The largest latency counted in micro-seconds, about 12 days; larger latencies are counted as this.
+	 */
+	private static final long MAX_MICROS = (1L << 40) - 1;
+
+	private static final int BUCKETS = bucketIndex(MAX_MICROS) + 1;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	/**
+	 * Latencies recorded since the last decay.
+	 */
+	private final AtomicLong recorded = new AtomicLong();
+
+	private final AtomicBoolean decaying = new AtomicBoolean();
+
+	/**
+	 * Records a latency.
+	 *
+	 * @param nanos
+	 */
+	public void record(long nanos) {
+		long micros = Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 0), MAX_MICROS);
+		counts.incrementAndGet(bucketIndex(micros));
+		if (recorded.incrementAndGet() >= DECAY_THRESHOLD) {
+			decay();
+		}
+	}
+
+	/**
+	 * Returns the number of latencies currently counted, after decay.
+	 *
+	 * @return long
+	 */
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			count += counts.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the estimated latency, in nano-seconds, below which the given percentage of latencies fall,
+	 * or -1 if no latency has been recorded.
+	 *
+	 * @param percentile between 0 and 100
+	 * @return long
+	 */
+	public long getPercentileNanos(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+		}
+
+		long[] snapshot = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			count += snapshot[i];
+		}
+		if (count == 0) {
+			return -1;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return TimeUnit.MICROSECONDS.toNanos(bucketUpperBound(i));
+			}
+		}
+		return TimeUnit.MICROSECONDS.toNanos(MAX_MICROS);
+	}
+
+	/**
+	 * Halves all counts, unless another thread is already doing so.
+	 */
+	private void decay() {
+		if (!decaying.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			recorded.set(0);
+			for (int i = 0; i < BUCKETS; i++) {
+				long count = counts.get(i);
+				if (count > 0) {
+					counts.addAndGet(i, -(count >> 1));
+				}
+			}
+		} finally {
+			decaying.set(false);
+		}
+	}
+
+	/**
+	 * Returns the bucket for the latency: the latency itself below {@link #SUB_BUCKETS}, otherwise the
+	 * power of two and the next {@link #SUB_BUCKET_BITS} bits.
+	 */
+	private static int bucketIndex(long micros) {
+		if (micros < SUB_BUCKETS) {
+			return (int) micros;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * Returns the largest latency counted in the bucket.
+	 */
+	private static long bucketUpperBound(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+		return lower + (1L << shift) - 1;
+	}
+
+}
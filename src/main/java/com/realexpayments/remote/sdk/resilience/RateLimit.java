@@ -0,0 +1,65 @@
+package com.realexpayments.remote.sdk.resilience;
+
+/**
+ * <p>
+ * A rate limit for a {@link TokenBucket}: the permits issued per second on average, and the burst of
+ * permits which may be issued at once after a quiet period. Set on the {@link RateLimitPolicy} for all
+ * requests or for a type of payment request:
+ * </p>
+ * <code><pre>
+ * rateLimitPolicy.setRateLimit(PaymentType.RECEIPT_IN, new RateLimit(5, 10));
+ * </pre></code>
+ */
+public final class RateLimit {
+
+	/**
+	 * The permits issued per second.
+	 */
+	private final double permitsPerSecond;
+
+	/**
+	 * The most permits issued at once.
+	 */
+	private final int burst;
+
+	/**
+	 * Creates a rate limit.
+	 *
+	 * @param permitsPerSecond the permits issued per second, above zero
+	 * @param burst the most permits issued at once, at least one
+	 */
+	public RateLimit(double permitsPerSecond, int burst) {
+		if (!(permitsPerSecond > 0)) {
+			throw new IllegalArgumentException("Permits per second must be positive.");
+		}
+		if (burst <= 0) {
+			throw new IllegalArgumentException("Burst must be positive.");
+		}
+		this.permitsPerSecond = permitsPerSecond;
+		this.burst = burst;
+	}
+
+	/**
+	 * Returns the permits issued per second.
+	 *
+	 * @return double
+	 */
+	public double getPermitsPerSecond() {
+		return permitsPerSecond;
+	}
+
+	/**
+	 * Returns the most permits issued at once.
+	 *
+	 * @return int
+	 */
+	public int getBurst() {
+		return burst;
+	}
+
+	@Override
+	public String toString() {
+		return "RateLimit [permitsPerSecond=" + permitsPerSecond + ", burst=" + burst + "]";
+	}
+
+}
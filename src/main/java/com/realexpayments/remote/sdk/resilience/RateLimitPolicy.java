@@ -0,0 +1,106 @@
+package com.realexpayments.remote.sdk.resilience;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.realexpayments.remote.sdk.domain.payment.PaymentRequest.PaymentType;
+
+/**
+ * <p>
+ * Object containing the configurable settings of the client side rate limits, set on the
+ * {@link com.realexpayments.remote.sdk.http.HttpConfiguration}. Requests are limited by a {@link TokenBucket}
+ * for each merchant ID and type of request, with the {@link RateLimit} set for the {@link PaymentType}, or
+ * otherwise the default rate limit. Requests with neither are not limited.
+ * </p>
+ * <p>
+ * A request for which no permit is available waits up to the maximum wait for one, and is then rejected.
+ * Asynchronous requests do not wait, so are rejected straight away. For example, to keep bulk settlements
+ * from starving checkout authorisations under an overall cap:
+ * </p>
+ * <code><pre>
+ * RateLimitPolicy policy = new RateLimitPolicy();
+ * policy.setRateLimit(new RateLimit(50, 50));
+ * policy.setRateLimit(PaymentType.SETTLE, new RateLimit(5, 5));
+ * policy.setRateLimit(PaymentType.RECEIPT_IN, new RateLimit(5, 5));
+ * policy.setMaxWait(200);
+ * httpConfiguration.setRateLimitPolicy(policy);
+ * </pre></code>
+ */
+public class RateLimitPolicy {
+
+	/** The rate limit for types of request without their own, or null for none. */
+	private RateLimit rateLimit;
+
+	/** The rate limits of each type of payment request. */
+	private final Map<PaymentType, RateLimit> paymentRateLimits = new EnumMap<PaymentType, RateLimit>(PaymentType.class);
+
+	/** The maximum time, in milli-seconds, a request waits for a permit. */
+	private long maxWait;
+
+	/**
+	 * Get the rate limit for types of request without their own, <code>null</code> if they are not limited.
+	 *
+	 * @return the rateLimit
+	 */
+	public RateLimit getRateLimit() {
+		return rateLimit;
+	}
+
+	/**
+	 * Set the rate limit for types of request without their own. The default, <code>null</code>, means they
+	 * are not limited.
+	 *
+	 * @param rateLimit the rateLimit to set
+	 */
+	public void setRateLimit(RateLimit rateLimit) {
+		this.rateLimit = rateLimit;
+	}
+
+	/**
+	 * Get the rate limit of the type of payment request, or the default rate limit if it has none.
+	 *
+	 * @param paymentType
+	 * @return RateLimit
+	 */
+	public RateLimit getRateLimit(PaymentType paymentType) {
+		RateLimit paymentRateLimit = null == paymentType ? null : paymentRateLimits.get(paymentType);
+		return null == paymentRateLimit ? rateLimit : paymentRateLimit;
+	}
+
+	/**
+	 * Set the rate limit of the type of payment request, or <code>null</code> to use the default rate limit.
+	 *
+	 * @param paymentType
+	 * @param rateLimit
+	 */
+	public void setRateLimit(PaymentType paymentType, RateLimit rateLimit) {
+		if (null == rateLimit) {
+			paymentRateLimits.remove(paymentType);
+		} else {
+			paymentRateLimits.put(paymentType, rateLimit);
+		}
+	}
+
+	/**
+	 * Get the maximum time, in milli-seconds, a request waits for a permit.
+	 *
+	 * @return the maxWait
+	 */
+	public long getMaxWait() {
+		return maxWait;
+	}
+
+	/**
+	 * Set the maximum time, in milli-seconds, a request waits for a permit before it is rejected. The default
+	 * is zero, rejecting requests straight away when no permit is available. Asynchronous requests never wait.
+	 *
+	 * @param maxWait the maxWait to set
+	 */
+	public void setMaxWait(long maxWait) {
+		if (maxWait < 0) {
+			throw new IllegalArgumentException("Maximum wait must not be negative.");
+		}
+		this.maxWait = maxWait;
+	}
+
+}
@@ -0,0 +1,78 @@
+package com.realexpayments.remote.sdk.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Budget of the extra attempts, retries or hedges, which may be sent. Each request deposits a ratio of an
+ * attempt, up to a reserve of ten attempts, and each extra attempt withdraws a whole one, so the extra
+ * attempts are limited to the ratio of requests. Deposits and withdrawals take no locks.
+ * </p>
+ */
+class RequestBudget {
+
+	/**
+	 * Units of the budget per attempt, so that fractions of an attempt may be deposited.
+	 */
+	private static final long UNIT = 1000;
+
+	/**
+	 * The most attempts which may be saved up in the budget.
+	 */
+	private static final long MAX_BUDGET = 10 * UNIT;
+
+	/**
+	 * The attempts which may currently be sent, in {@link #UNIT}s.
+	 */
+	private final AtomicLong budget;
+
+	/**
+	 * Creates a budget, with the full reserve or empty.
+	 *
+	 * @param full
+	 */
+	RequestBudget(boolean full) {
+		budget = new AtomicLong(full ? MAX_BUDGET : 0);
+	}
+
+	/**
+	 * Deposits the ratio of an attempt, up to the reserve.
+	 *
+	 * @param ratio
+	 */
+	void deposit(double ratio) {
+		long deposit = (long) (ratio * UNIT);
+		for (;;) {
+			long current = budget.get();
+			long updated = Math.min(current + deposit, MAX_BUDGET);
+			if (updated == current || budget.compareAndSet(current, updated)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Withdraws an attempt, returning <code>false</code> if the budget does not hold a whole one.
+	 *
+	 * @return boolean
+	 */
+	boolean withdraw() {
+		for (;;) {
+			long current = budget.get();
+			if (current < UNIT) {
+				return false;
+			}
+			if (budget.compareAndSet(current, current - UNIT)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Returns an attempt withdrawn but not sent.
+	 */
+	void refund() {
+		budget.addAndGet(UNIT);
+	}
+
+}
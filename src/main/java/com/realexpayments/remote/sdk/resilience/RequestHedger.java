@@ -0,0 +1,203 @@
+package com.realexpayments.remote.sdk.resilience;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.realexpayments.remote.sdk.utils.ExecutorUtils;
+
+/**
+ * <p>
+ * Sends hedged requests: if the first attempt of a request has not answered within the hedge delay a second
+ * attempt is sent, and whichever answers first is used, the other being cancelled. Hedging cuts the tail
+ * latency caused by occasional slow responses, so must only be used for requests without side effects,
+ * see {@link com.realexpayments.remote.sdk.domain.Request#isSideEffectFree()}.
+ * </p>
+ * <p>
+ * The hedge delay is a percentile of the latencies of recent attempts, as configured by the
+ * {@link HedgingPolicy}, and the proportion of requests hedged is limited by its hedge ratio. If the first
+ * attempt fails before the second is sent the failure is returned; once both have been sent the request
+ * only fails if both do. The hedges are timed by the shared scheduler, see
+ * {@link ExecutorUtils#getScheduler()}. Instances are thread safe and
+ * hold no locks.
+ * </p>
+ */
+public class RequestHedger {
+
+	private final static Logger logger = LoggerFactory.getLogger(RequestHedger.class);
+
+	private final HedgingPolicy policy;
+
+	private final LatencyHistogram latencies = new LatencyHistogram();
+
+	/**
+	 * The hedges which may currently be sent, starting empty.
+	 */
+	private final RequestBudget budget = new RequestBudget(false);
+
+	private final AtomicLong hedgeCount = new AtomicLong();
+
+	/**
+	 * Creates a hedger with the policy.
+	 *
+	 * @param policy
+	 */
+	public RequestHedger(HedgingPolicy policy) {
+		if (null == policy) {
+			throw new IllegalArgumentException("Hedging policy must not be null.");
+		}
+		this.policy = policy;
+	}
+
+	/**
+	 * Returns the policy.
+	 *
+	 * @return HedgingPolicy
+	 */
+	public HedgingPolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Returns the histogram of the latencies of successful attempts.
+	 *
+	 * @return LatencyHistogram
+	 */
+	public LatencyHistogram getLatencies() {
+		return latencies;
+	}
+
+	/**
+	 * Returns the number of second attempts sent.
+	 *
+	 * @return long
+	 */
+	public long getHedgeCount() {
+		return hedgeCount.get();
+	}
+
+	/**
+	 * Returns the current hedge delay in milli-seconds.
+	 *
+	 * @return long
+	 */
+	public long getHedgeDelay() {
+		long delay = policy.getInitialDelay();
+		if (latencies.getCount() >= policy.getMinSamples()) {
+			long percentile = latencies.getPercentileNanos(policy.getPercentile());
+			if (percentile >= 0) {
+				delay = TimeUnit.NANOSECONDS.toMillis(percentile);
+			}
+		}
+		return Math.min(Math.max(delay, policy.getMinDelay()), policy.getMaxDelay());
+	}
+
+	/**
+	 * Sends the request, each attempt being started by the supplier, sending a second attempt if the first
+	 * has not answered within the hedge delay. Cancelling the returned future cancels the attempts.
+	 *
+	 * @param attempt
+	 * @return future of the first successful attempt
+	 */
+	public <T> CompletableFuture<T> hedge(Supplier<CompletableFuture<T>> attempt) {
+
+		budget.deposit(policy.getMaxHedgeRatio());
+
+		final Hedge<T> hedge = new Hedge<T>(attempt);
+		hedge.primary = hedge.start();
+
+		if (!hedge.result.isDone()) {
+			final ScheduledFuture<?> timer = ExecutorUtils.getScheduler().schedule(hedge::startSecondary, getHedgeDelay(), TimeUnit.MILLISECONDS);
+			hedge.result.whenComplete((response, throwable) -> timer.cancel(false));
+		}
+
+		//cancel the attempt which lost, or both if the caller cancels
+		hedge.result.whenComplete((response, throwable) -> hedge.cancelAttempts());
+		return hedge.result;
+	}
+
+	/**
+	 * The attempts of one hedged request.
+	 */
+	private final class Hedge<T> {
+
+		private final Supplier<CompletableFuture<T>> attempt;
+
+		private final CompletableFuture<T> result = new CompletableFuture<T>();
+
+		/**
+		 * The attempts which have not failed, the second only being sent while the first is outstanding.
+		 */
+		private final AtomicInteger outstanding = new AtomicInteger(1);
+
+		private volatile CompletableFuture<T> primary;
+
+		private volatile CompletableFuture<T> secondary;
+
+		Hedge(Supplier<CompletableFuture<T>> attempt) {
+			this.attempt = attempt;
+		}
+
+		CompletableFuture<T> start() {
+			final long start = System.nanoTime();
+			CompletableFuture<T> future;
+			try {
+				future = attempt.get();
+			} catch (RuntimeException ex) {
+				future = new CompletableFuture<T>();
+				future.completeExceptionally(ex);
+			}
+
+			future.whenComplete((response, throwable) -> {
+				if (null == throwable) {
+					latencies.record(System.nanoTime() - start);
+					result.complete(response);
+				} else if (outstanding.decrementAndGet() == 0) {
+					result.completeExceptionally(throwable instanceof CompletionException && null != throwable.getCause()
+							? throwable.getCause() : throwable);
+				}
+			});
+			return future;
+		}
+
+		void startSecondary() {
+			if (result.isDone()) {
+				return;
+			}
+			if (!budget.withdraw()) {
+				logger.debug("Hedge budget exhausted, request not hedged.");
+				return;
+			}
+			if (!outstanding.compareAndSet(1, 2)) {
+				//the first attempt failed meanwhile
+				budget.refund();
+				return;
+			}
+			logger.debug("No response within hedge delay, sending second attempt.");
+			hedgeCount.incrementAndGet();
+			secondary = start();
+			if (result.isDone()) {
+				cancelAttempts();
+			}
+		}
+
+		void cancelAttempts() {
+			cancel(primary);
+			cancel(secondary);
+		}
+
+		private void cancel(CompletableFuture<T> future) {
+			if (null != future && !future.isDone()) {
+				future.cancel(true);
+			}
+		}
+	}
+
+}
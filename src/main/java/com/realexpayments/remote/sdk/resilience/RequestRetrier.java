@@ -0,0 +1,251 @@
+package com.realexpayments.remote.sdk.resilience;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.realexpayments.remote.sdk.RealexException;
+import com.realexpayments.remote.sdk.RealexRejectedException;
+import com.realexpayments.remote.sdk.RealexServerException;
+import com.realexpayments.remote.sdk.RealexTimeoutException;
+import com.realexpayments.remote.sdk.domain.ResultCode;
+import com.realexpayments.remote.sdk.domain.ResultCode.Category;
+import com.realexpayments.remote.sdk.http.Deadline;
+import com.realexpayments.remote.sdk.http.FailurePhase;
+import com.realexpayments.remote.sdk.utils.ExecutorUtils;
+
+/**
+ * <p>
+ * Retries requests which failed communicating with Realex, as configured by the {@link RetryPolicy}. Whether
+ * a failure is retried depends on the {@link FailurePhase} in which it happened and whether the request is
+ * safe to repeat. The request is sent again as it is, with the same order ID, timestamp and hash. Transient
+ * errors returned by Realex, see {@link ResultCode.Category#isTransientError()}, are retried if the request
+ * is safe to repeat; other responses from Realex are never retried, nor are requests past their deadline or
+ * rejected by the client.
+ * </p>
+ * <p>
+ * Each request deposits the budget ratio of a retry into the retry budget, which starts with the full reserve
+ * of ten retries, and each retry withdraws a whole one, so no locks are taken. Asynchronous retries are timed
+ * by the shared scheduler, see {@link ExecutorUtils#getScheduler()}.
+ * </p>
+ */
+public class RequestRetrier {
+
+	private final static Logger logger = LoggerFactory.getLogger(RequestRetrier.class);
+
+	private final RetryPolicy policy;
+
+	/**
+	 * The retries which may currently be sent, starting with the full reserve.
+	 */
+	private final RequestBudget budget = new RequestBudget(true);
+
+	private final AtomicLong retryCount = new AtomicLong();
+
+	/**
+	 * Creates a retrier with the policy.
+	 *
+	 * @param policy
+	 */
+	public RequestRetrier(RetryPolicy policy) {
+		if (null == policy) {
+			throw new IllegalArgumentException("Retry policy must not be null.");
+		}
+		this.policy = policy;
+	}
+
+	/**
+	 * Returns the policy.
+	 *
+	 * @return RetryPolicy
+	 */
+	public RetryPolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Returns the number of retries sent.
+	 *
+	 * @return long
+	 */
+	public long getRetryCount() {
+		return retryCount.get();
+	}
+
+	/**
+	 * Sends the request, each attempt being made by the supplier, retrying failed attempts as the policy
+	 * allows.
+	 *
+	 * @param attempt
+	 * @param phases returns the phase in which an attempt failed, <code>null</code> if it was not a failure
+	 * communicating with Realex
+	 * @param repeatable <code>true</code> if the request is safe to repeat once it may have reached Realex
+	 * @param deadline the deadline of the request, may be <code>null</code>
+	 * @return the result of the successful attempt
+	 */
+	public <T> T call(Supplier<T> attempt, Function<Throwable, FailurePhase> phases, boolean repeatable, Deadline deadline) {
+		budget.deposit(policy.getBudgetRatio());
+		for (int attempts = 1;; attempts++) {
+			try {
+				return attempt.get();
+			} catch (RuntimeException ex) {
+				long delay = retryDelay(ex, phases, repeatable, deadline, attempts);
+				if (delay < 0) {
+					throw ex;
+				}
+				if (delay > 0) {
+					try {
+						Thread.sleep(delay);
+					} catch (InterruptedException ie) {
+						Thread.currentThread().interrupt();
+						throw ex;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sends the request asynchronously, each attempt being started by the supplier, retrying failed attempts
+	 * as the policy allows. Cancelling the returned future cancels the current attempt.
+	 *
+	 * @param attempt
+	 * @param phases returns the phase in which an attempt failed, <code>null</code> if it was not a failure
+	 * communicating with Realex
+	 * @param repeatable <code>true</code> if the request is safe to repeat once it may have reached Realex
+	 * @param deadline the deadline of the request, may be <code>null</code>
+	 * @return future of the result of the successful attempt
+	 */
+	public <T> CompletableFuture<T> callAsync(Supplier<CompletableFuture<T>> attempt, Function<Throwable, FailurePhase> phases,
+			boolean repeatable, Deadline deadline) {
+		budget.deposit(policy.getBudgetRatio());
+		Retry<T> retry = new Retry<T>(attempt, phases, repeatable, deadline);
+		retry.start(1);
+		retry.result.whenComplete((response, throwable) -> retry.cancelAttempt());
+		return retry.result;
+	}
+
+	/**
+	 * Returns the delay, in milli-seconds, before retrying the failed attempt, or -1 if it is not retried.
+	 */
+	private long retryDelay(Throwable failure, Function<Throwable, FailurePhase> phases, boolean repeatable, Deadline deadline,
+			int attempts) {
+		if (attempts >= policy.getMaxAttempts()) {
+			return -1;
+		}
+		if (failure instanceof CompletionException && null != failure.getCause()) {
+			failure = failure.getCause();
+		}
+		if (!(failure instanceof RealexException) || failure instanceof RealexTimeoutException
+				|| failure instanceof RealexRejectedException) {
+			return -1;
+		}
+
+		Object reason;
+		long delay;
+		if (failure instanceof RealexServerException) {
+			Category category = ((RealexServerException) failure).getResultCategory();
+			if (!repeatable || !category.isTransientError()) {
+				return -1;
+			}
+			reason = category;
+			delay = backoff(attempts);
+		} else {
+			FailurePhase phase = phases.apply(failure);
+			if (!policy.isRetryable(phase, repeatable)) {
+				return -1;
+			}
+			reason = phase;
+			//a connection which could not be established is retried at once on a fresh connection
+			delay = phase == FailurePhase.CONNECT && attempts == 1 ? 0 : backoff(attempts);
+		}
+		if (null != deadline && deadline.remainingMillis() <= delay) {
+			return -1;
+		}
+		if (!budget.withdraw()) {
+			logger.debug("Retry budget exhausted, request not retried.");
+			return -1;
+		}
+		retryCount.incrementAndGet();
+		logger.warn("Retrying request to Realex after {} failure, attempt {} of {}.", reason, attempts + 1, policy.getMaxAttempts());
+		return delay;
+	}
+
+	/**
+	 * Returns a random delay of up to the backoff for the retry, doubling with each retry.
+	 */
+	private long backoff(int attempts) {
+		long backoff = Math.min(policy.getInitialBackoff() << Math.min(attempts - 1, 30), policy.getMaxBackoff());
+		return backoff <= 0 ? 0 : ThreadLocalRandom.current().nextLong(backoff + 1);
+	}
+
+	/**
+	 * The attempts of one asynchronous request.
+	 */
+	private final class Retry<T> {
+
+		private final Supplier<CompletableFuture<T>> attempt;
+
+		private final Function<Throwable, FailurePhase> phases;
+
+		private final boolean repeatable;
+
+		private final Deadline deadline;
+
+		private final CompletableFuture<T> result = new CompletableFuture<T>();
+
+		private volatile CompletableFuture<T> current;
+
+		Retry(Supplier<CompletableFuture<T>> attempt, Function<Throwable, FailurePhase> phases, boolean repeatable, Deadline deadline) {
+			this.attempt = attempt;
+			this.phases = phases;
+			this.repeatable = repeatable;
+			this.deadline = deadline;
+		}
+
+		void start(final int attempts) {
+			if (result.isDone()) {
+				return;
+			}
+			CompletableFuture<T> future;
+			try {
+				future = attempt.get();
+			} catch (RuntimeException ex) {
+				future = new CompletableFuture<T>();
+				future.completeExceptionally(ex);
+			}
+			current = future;
+
+			future.whenComplete((response, throwable) -> {
+				if (null == throwable) {
+					result.complete(response);
+					return;
+				}
+				long delay = retryDelay(throwable, phases, repeatable, deadline, attempts);
+				if (delay < 0) {
+					result.completeExceptionally(throwable instanceof CompletionException && null != throwable.getCause()
+							? throwable.getCause() : throwable);
+				} else if (delay == 0) {
+					start(attempts + 1);
+				} else {
+					ExecutorUtils.getScheduler().schedule(() -> start(attempts + 1), delay, TimeUnit.MILLISECONDS);
+				}
+			});
+		}
+
+		void cancelAttempt() {
+			CompletableFuture<T> future = current;
+			if (null != future && !future.isDone()) {
+				future.cancel(true);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,204 @@
+package com.realexpayments.remote.sdk.resilience;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import com.realexpayments.remote.sdk.domain.Request;
+import com.realexpayments.remote.sdk.domain.payment.PaymentRequest;
+import com.realexpayments.remote.sdk.domain.payment.PaymentRequest.PaymentType;
+import com.realexpayments.remote.sdk.http.FailurePhase;
+
+/**
+ * <p>
+ * Object containing the configurable settings of the {@link RequestRetrier}, set on the
+ * {@link com.realexpayments.remote.sdk.http.HttpConfiguration}. A request which fails to reach Realex, because
+ * no connection could be leased or established or the connection failed while the request was written, is
+ * sent again whatever its type. A request which fails after it was written, so which Realex may have
+ * processed, is only sent again if it is repeatable: it has no side effects, or its {@link PaymentType} has
+ * been set as safe to repeat with the same order ID and timestamp.
+ * </p>
+ * <p>
+ * Connect failures are retried at once on a fresh connection. Other failures, and further connect failures,
+ * are retried after a random delay of up to the backoff, which doubles on each retry from the initial backoff
+ * up to the maximum backoff. Retries are limited to the budget ratio of requests, so that retries cannot
+ * multiply the load on Realex while it is failing.
+ * </p>
+ * <code><pre>
+ * RetryPolicy policy = new RetryPolicy();
+ * policy.setMaxAttempts(3);
+ * policy.addRepeatablePaymentType(PaymentType.SETTLE);
+ * httpConfiguration.setRetryPolicy(policy);
+ * </pre></code>
+ */
+public class RetryPolicy {
+
+	/**
+	 * The default number of attempts, including the first.
+	 */
+	private static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+	/**
+	 * The default backoff, in milli-seconds, before the first retry.
+	 */
+	private static final long DEFAULT_INITIAL_BACKOFF = 50;
+
+	/**
+	 * The default largest backoff, in milli-seconds.
+	 */
+	private static final long DEFAULT_MAX_BACKOFF = 1000;
+
+	/**
+	 * The default retries allowed per request sent.
+	 */
+	private static final double DEFAULT_BUDGET_RATIO = 0.1;
+
+	/** The number of attempts, including the first. */
+	private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+	/** The backoff, in milli-seconds, before the first retry. */
+	private long initialBackoff = DEFAULT_INITIAL_BACKOFF;
+
+	/** The largest backoff, in milli-seconds. */
+	private long maxBackoff = DEFAULT_MAX_BACKOFF;
+
+	/** The retries allowed per request sent. */
+	private double budgetRatio = DEFAULT_BUDGET_RATIO;
+
+	/** The types of payment request safe to repeat once they may have reached Realex. */
+	private final Set<PaymentType> repeatablePaymentTypes = EnumSet.noneOf(PaymentType.class);
+
+	/**
+	 * Get the number of attempts, including the first.
+	 *
+	 * @return the maxAttempts
+	 */
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 * Set the number of attempts, including the first. The default is 3.
+	 *
+	 * @param maxAttempts the maxAttempts to set
+	 */
+	public void setMaxAttempts(int maxAttempts) {
+		if (maxAttempts <= 0) {
+			throw new IllegalArgumentException("Maximum attempts must be positive.");
+		}
+		this.maxAttempts = maxAttempts;
+	}
+
+	/**
+	 * Get the backoff, in milli-seconds, before the first retry.
+	 *
+	 * @return the initialBackoff
+	 */
+	public long getInitialBackoff() {
+		return initialBackoff;
+	}
+
+	/**
+	 * Set the backoff, in milli-seconds, before the first retry. The default is 50.
+	 *
+	 * @param initialBackoff the initialBackoff to set
+	 */
+	public void setInitialBackoff(long initialBackoff) {
+		if (initialBackoff < 0) {
+			throw new IllegalArgumentException("Initial backoff must not be negative.");
+		}
+		this.initialBackoff = initialBackoff;
+	}
+
+	/**
+	 * Get the largest backoff, in milli-seconds.
+	 *
+	 * @return the maxBackoff
+	 */
+	public long getMaxBackoff() {
+		return maxBackoff;
+	}
+
+	/**
+	 * Set the largest backoff, in milli-seconds. The default is 1000.
+	 *
+	 * @param maxBackoff the maxBackoff to set
+	 */
+	public void setMaxBackoff(long maxBackoff) {
+		if (maxBackoff < 0) {
+			throw new IllegalArgumentException("Maximum backoff must not be negative.");
+		}
+		this.maxBackoff = maxBackoff;
+	}
+
+	/**
+	 * Get the retries allowed per request sent.
+	 *
+	 * @return the budgetRatio
+	 */
+	public double getBudgetRatio() {
+		return budgetRatio;
+	}
+
+	/**
+	 * Set the retries allowed per request sent, between 0 and 1. The default is 0.1, allowing one retry for
+	 * every ten requests, with a reserve of up to ten retries saved up while requests succeed.
+	 *
+	 * @param budgetRatio the budgetRatio to set
+	 */
+	public void setBudgetRatio(double budgetRatio) {
+		if (budgetRatio < 0 || budgetRatio > 1) {
+			throw new IllegalArgumentException("Budget ratio must be between 0 and 1.");
+		}
+		this.budgetRatio = budgetRatio;
+	}
+
+	/**
+	 * Get the types of payment request safe to repeat with the same order ID and timestamp once they may have
+	 * reached Realex.
+	 *
+	 * @return the repeatablePaymentTypes
+	 */
+	public Set<PaymentType> getRepeatablePaymentTypes() {
+		return repeatablePaymentTypes;
+	}
+
+	/**
+	 * Add a type of payment request safe to repeat with the same order ID and timestamp once it may have
+	 * reached Realex, for example because Realex rejects a repeated order ID. Requests without side effects
+	 * are always repeatable. By default no other types are.
+	 *
+	 * @param paymentType
+	 */
+	public void addRepeatablePaymentType(PaymentType paymentType) {
+		repeatablePaymentTypes.add(paymentType);
+	}
+
+	/**
+	 * Returns <code>true</code> if the request is safe to repeat once it may have reached Realex.
+	 *
+	 * @param request
+	 * @return boolean
+	 */
+	public boolean isRepeatable(Request<?, ?> request) {
+		if (request.isSideEffectFree()) {
+			return true;
+		}
+		if (request instanceof PaymentRequest) {
+			PaymentType paymentType = ((PaymentRequest) request).getPaymentType();
+			return null != paymentType && repeatablePaymentTypes.contains(paymentType);
+		}
+		return false;
+	}
+
+	/**
+	 * Returns <code>true</code> if a request which failed in the phase may be retried.
+	 *
+	 * @param phase
+	 * @param repeatable <code>true</code> if the request is safe to repeat once it may have reached Realex
+	 * @return boolean
+	 */
+	public boolean isRetryable(FailurePhase phase, boolean repeatable) {
+		return null != phase && (phase.isBeforeSend() || repeatable);
+	}
+
+}
@@ -0,0 +1,146 @@
+package com.realexpayments.remote.sdk.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.realexpayments.remote.sdk.RealexException;
+
+/**
+ * <p>
+ * Token bucket issuing permits at the rate of its {@link RateLimit}, holding up to the burst of permits.
+ * Permits are taken without waiting with {@link #tryAcquire()}, or waiting up to a timeout for one to be
+ * issued with {@link #tryAcquire(long, TimeUnit)}.
+ * </p>
+ * <p>
+ * The bucket is held as the single time at which it will next be full, in the manner of the generic cell
+ * rate algorithm, so a permit is taken with one compare and set and no locks are taken. A waiting request
+ * reserves its permit before waiting, so waiting requests are issued permits in turn.
+ * </p>
+ */
+public final class TokenBucket {
+
+	private final String name;
+
+	private final RateLimit rateLimit;
+
+	/**
+	 * The time between permits, in nano-seconds.
+	 */
+	private final long intervalNanos;
+
+	/**
+	 * How far, in nano-seconds, the bucket may be drawn ahead of the current time, the burst less one
+	 * permit.
+	 */
+	private final long toleranceNanos;
+
+	/**
+	 * The {@link System#nanoTime()} at which the bucket will be full, or any earlier time if it is full.
+	 */
+	private final AtomicLong fullAt;
+
+	/**
+	 * Creates a full token bucket.
+	 *
+	 * @param name the merchant ID and type of request limited, for messages
+	 * @param rateLimit
+	 */
+	public TokenBucket(String name, RateLimit rateLimit) {
+		if (null == rateLimit) {
+			throw new IllegalArgumentException("Rate limit must not be null.");
+		}
+		this.name = name;
+		this.rateLimit = rateLimit;
+		this.intervalNanos = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / rateLimit.getPermitsPerSecond()));
+		this.toleranceNanos = (rateLimit.getBurst() - 1) * intervalNanos;
+		this.fullAt = new AtomicLong(System.nanoTime());
+	}
+
+	/**
+	 * Returns the merchant ID and type of request limited.
+	 *
+	 * @return String
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the rate limit.
+	 *
+	 * @return RateLimit
+	 */
+	public RateLimit getRateLimit() {
+		return rateLimit;
+	}
+
+	/**
+	 * Returns the number of permits which may currently be taken without waiting.
+	 *
+	 * @return int
+	 */
+	public int getAvailablePermits() {
+		long drawn = Math.max(fullAt.get() - System.nanoTime(), 0);
+		return (int) Math.max((toleranceNanos + intervalNanos - drawn) / intervalNanos, 0);
+	}
+
+	/**
+	 * Takes a permit if one is available, without waiting.
+	 *
+	 * @return <code>true</code> if a permit was taken
+	 */
+	public boolean tryAcquire() {
+		for (;;) {
+			long now = System.nanoTime();
+			long current = fullAt.get();
+			long base = current - now > 0 ? current : now;
+			if (base - now > toleranceNanos) {
+				return false;
+			}
+			if (fullAt.compareAndSet(current, base + intervalNanos)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Takes a permit, waiting up to the timeout for one to be issued.
+	 *
+	 * @param timeout
+	 * @param unit
+	 * @return <code>true</code> if a permit was taken, <code>false</code> if none would be issued within the
+	 * timeout
+	 */
+	public boolean tryAcquire(long timeout, TimeUnit unit) {
+		long timeoutNanos = unit.toNanos(timeout);
+		long waitNanos;
+		for (;;) {
+			long now = System.nanoTime();
+			long current = fullAt.get();
+			long base = current - now > 0 ? current : now;
+			waitNanos = base - now - toleranceNanos;
+			if (waitNanos > timeoutNanos) {
+				return false;
+			}
+			if (fullAt.compareAndSet(current, base + intervalNanos)) {
+				break;
+			}
+		}
+
+		if (waitNanos > 0) {
+			try {
+				TimeUnit.NANOSECONDS.sleep(waitNanos);
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				throw new RealexException("Interrupted waiting to send request to Realex.", ie);
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "TokenBucket [" + name + " " + getAvailablePermits() + "/" + rateLimit.getBurst() + "]";
+	}
+
+}
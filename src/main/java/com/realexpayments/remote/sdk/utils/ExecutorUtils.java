@@ -0,0 +1,152 @@
+package com.realexpayments.remote.sdk.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Utils class providing the {@link java.util.concurrent.Executor} on which
+ * {@link com.realexpayments.remote.sdk.RealexClient#sendAsync(com.realexpayments.remote.sdk.domain.Request)}
+ * runs blocking sends once an executor has been set on the client.
+ * </p>
+ * <p>
+ * On Java 21 or later the default executor starts a virtual thread per task, so that thousands of requests
+ * may wait on Realex at once without holding a platform thread each. The SDK is compiled for Java 8, so the
+ * virtual thread executor is created reflectively; on earlier versions a cached pool of daemon platform
+ * threads is used instead.
+ * </p>
+ * <p>
+ * It also provides the single shared scheduler timing deadlines, retries, hedges and streamed sends.
+ * </p>
+ * <code><pre>
+ * client.setExecutor(ExecutorUtils.getDefaultExecutor());
+ * </pre></code>
+ */
+public class ExecutorUtils {
+
+	/**
+	 * Logger
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(ExecutorUtils.class);
+
+	/**
+	 * Name of the factory method of {@link Executors} creating a virtual thread per task executor, on Java 21
+	 * or later.
+	 */
+	private static final String VIRTUAL_THREAD_FACTORY_METHOD = "newVirtualThreadPerTaskExecutor";
+
+	/**
+	 * Returns the shared default executor, starting a virtual thread per task where the JVM supports virtual
+	 * threads and otherwise a cached pool of daemon threads. The executor is created on first use and is never
+	 * shut down.
+	 *
+	 * @return ExecutorService
+	 */
+	public static ExecutorService getDefaultExecutor() {
+		return DefaultExecutor.EXECUTOR;
+	}
+
+	/**
+	 * Returns the shared scheduler, a single daemon thread on which deadlines, retries, hedges and streamed
+	 * sends are timed. Scheduled tasks must be quick, starting asynchronous work rather than blocking. The
+	 * scheduler is created on first use, removes cancelled tasks at once and is never shut down.
+	 *
+	 * @return ScheduledExecutorService
+	 */
+	public static ScheduledExecutorService getScheduler() {
+		return Scheduler.EXECUTOR;
+	}
+
+	/**
+	 * Returns <code>true</code> if the default executor starts a virtual thread per task.
+	 *
+	 * @return boolean
+	 */
+	public static boolean isVirtualThreadExecutor() {
+		return null != DefaultExecutor.VIRTUAL;
+	}
+
+	/**
+	 * Returns a new virtual thread per task executor, or <code>null</code> if virtual threads are not
+	 * supported.
+	 *
+	 * @return ExecutorService
+	 */
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			Method factoryMethod = Executors.class.getMethod(VIRTUAL_THREAD_FACTORY_METHOD);
+			return (ExecutorService) factoryMethod.invoke(null);
+		} catch (NoSuchMethodException ex) {
+			return null;
+		} catch (ReflectiveOperationException | RuntimeException ex) {
+			LOGGER.warn("Virtual threads are not available, using platform threads.", ex);
+			return null;
+		}
+	}
+
+	/**
+	 * Returns a new cached pool of daemon platform threads.
+	 *
+	 * @return ExecutorService
+	 */
+	private static ExecutorService newPlatformThreadExecutor() {
+		final AtomicInteger threadCount = new AtomicInteger();
+		return Executors.newCachedThreadPool(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "realex-send-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Holder of the shared default executor, created on first use.
+	 */
+	private static final class DefaultExecutor {
+
+		private static final ExecutorService VIRTUAL = newVirtualThreadExecutor();
+
+		private static final ExecutorService EXECUTOR;
+
+		static {
+			if (null != VIRTUAL) {
+				LOGGER.debug("Sending requests on virtual threads.");
+				EXECUTOR = VIRTUAL;
+			} else {
+				LOGGER.debug("Sending requests on platform threads.");
+				EXECUTOR = newPlatformThreadExecutor();
+			}
+		}
+	}
+
+	/**
+	 * Holder of the shared scheduler, created on first use.
+	 */
+	private static final class Scheduler {
+
+		private static final ScheduledThreadPoolExecutor EXECUTOR;
+
+		static {
+			EXECUTOR = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "realex-scheduler");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			EXECUTOR.setRemoveOnCancelPolicy(true);
+		}
+	}
+
+}
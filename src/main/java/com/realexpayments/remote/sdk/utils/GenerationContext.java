@@ -0,0 +1,104 @@
+package com.realexpayments.remote.sdk.utils;
+
+/**
+ * <p>
+ * The strategies used to generate the default fields of a request: the {@link KeyedHasher} which signs the
+ * request, the {@link OrderIdGenerator} which generates the order ID if not set and the {@link TimestampSource}
+ * which generates the timestamp if not set. Instances are immutable and thread safe, and are intended to be
+ * created once and reused:
+ * </p>
+ * <code><pre>
+ * GenerationContext context = new GenerationContext(new KeyedHasher("shared secret"), new RandomOrderIdGenerator());
+ * request.generateDefaults(context);
+ * </pre></code>
+ */
+public final class GenerationContext {
+
+	/**
+	 * Hasher used to sign requests.
+	 */
+	private final KeyedHasher hasher;
+
+	/**
+	 * Generator for order IDs.
+	 */
+	private final OrderIdGenerator orderIdGenerator;
+
+	/**
+	 * Source of timestamps.
+	 */
+	private final TimestampSource timestampSource;
+
+	/**
+	 * Creates a context from the hasher and order ID generator, taking timestamps from
+	 * {@link TimestampSource#systemDefault()}.
+	 *
+	 * @param hasher
+	 * @param orderIdGenerator
+	 */
+	public GenerationContext(KeyedHasher hasher, OrderIdGenerator orderIdGenerator) {
+		this(hasher, orderIdGenerator, TimestampSource.systemDefault());
+	}
+
+	/**
+	 * Creates a context from the hasher, order ID generator and timestamp source.
+	 *
+	 * @param hasher
+	 * @param orderIdGenerator
+	 * @param timestampSource
+	 */
+	public GenerationContext(KeyedHasher hasher, OrderIdGenerator orderIdGenerator, TimestampSource timestampSource) {
+		if (null == hasher || null == orderIdGenerator || null == timestampSource) {
+			throw new IllegalArgumentException("Hasher, order ID generator and timestamp source must not be null.");
+		}
+		this.hasher = hasher;
+		this.orderIdGenerator = orderIdGenerator;
+		this.timestampSource = timestampSource;
+	}
+
+	/**
+	 * Getter for the hasher.
+	 *
+	 * @return KeyedHasher
+	 */
+	public KeyedHasher getHasher() {
+		return hasher;
+	}
+
+	/**
+	 * Getter for the order ID generator.
+	 *
+	 * @return OrderIdGenerator
+	 */
+	public OrderIdGenerator getOrderIdGenerator() {
+		return orderIdGenerator;
+	}
+
+	/**
+	 * Getter for the timestamp source.
+	 *
+	 * @return TimestampSource
+	 */
+	public TimestampSource getTimestampSource() {
+		return timestampSource;
+	}
+
+	/**
+	 * Returns a new order ID from the order ID generator.
+	 *
+	 * @return String
+	 */
+	public String generateOrderId() {
+		return orderIdGenerator.generateOrderId();
+	}
+
+	/**
+	 * Returns the current timestamp from the timestamp source.
+	 *
+	 * @return String
+	 */
+	public String currentTimestamp() {
+		return timestampSource.currentTimestamp();
+	}
+
+}
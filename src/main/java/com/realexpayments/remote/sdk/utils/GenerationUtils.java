@@ -1,13 +1,5 @@
 package com.realexpayments.remote.sdk.utils;
 
-import java.nio.ByteBuffer;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.UUID;
-
-import org.apache.commons.codec.binary.Base64;
-import org.apache.commons.codec.digest.DigestUtils;
-
 /**
  * Utils for the auto-generation of fields, for example the SHA1 hash.
  *
@@ -15,6 +7,11 @@ import org.apache.commons.codec.digest.DigestUtils;
  */
 public class GenerationUtils {
 
+	/**
+	 * The generator for {@link #generateOrderId()}.
+	 */
+	private static final OrderIdGenerator ORDER_ID_GENERATOR = new RandomOrderIdGenerator();
+
 	/**
 	 * Each message sent to Realex should have a hash, attached. For a message using the remote 
 	 * interface this is generated using the This is generated from the TIMESTAMP, MERCHANT_ID, 
@@ -56,50 +53,45 @@ public class GenerationUtils {
 	 * (3c3cac74f2b783598b99af6e43246529346d95d1)
 	 *
 	 * This method takes the pre-built string of concatenated fields and the secret and returns the 
-	 * SHA-1 hash to be placed in the request sent to Realex.
+	 * SHA-1 hash to be placed in the request sent to Realex. The hash is generated by the {@link HashEngine}, 
+	 * which may be used directly to avoid building the string of concatenated fields.
 	 * 
 	 * @param toHash
 	 * @param secret
 	 * @return the hash as a hex string
 	 */
 	static public String generateHash(String toHash, String secret) {
-		//first pass hashes the String of required fields
-		String toHashFirstPass = DigestUtils.sha1Hex(toHash);
-
-		//second pass takes the first hash, adds the secret and hashes again
-		String toHashSecondPass = new StringBuilder().append(toHashFirstPass).append(".").append(secret).toString();
-		return DigestUtils.sha1Hex(toHashSecondPass);
+		return HashEngine.start().append(toHash).hash(secret);
 	}
 
 	/**
 	 * Generate the current datetimestamp in the string formaat (YYYYMMDDHHSS) required in a  
 	 * request to Realex.
 	 * 
+	 * The timestamp is taken from {@link TimestampSource#systemDefault()}, which formats it at most once a second.
+	 * 
 	 * @return current timestamp in YYYYMMDDHHSS format
 	 */
 	static public String generateTimestamp() {
-		return new SimpleDateFormat("yyyyMMddHHmmss").format(new Date());
+		return TimestampSource.systemDefault().currentTimestamp();
 	}
 
 	/**
 	 * Order Id for a initial request should be unique per client ID. This method generates a unique 
-	 * order Id using the Java UUID class and then convert it to base64 to shorten the length to 22 
-	 * characters. Order Id for a subsequent request (void, rebate, settle ect.) should use the 
+	 * order Id from the random bits of a version 4 UUID and then convert it to base64 to shorten the 
+	 * length to 22 characters. Order Id for a subsequent request (void, rebate, settle ect.) should use the 
 	 * order Id of the initial request.
 	 * 
-	 * * the order ID uses the Java UUID (universally unique identifier) so in theory it may not 
+	 * * the order ID uses the bits of a UUID (universally unique identifier) so in theory it may not 
 	 * be unique but the odds of this are extremely remote (see 
 	 * <a href="http://en.wikipedia.org/wiki/Universally_unique_identifier#Random_UUID_probability_of_duplicates">http://en.wikipedia.org/wiki/Universally_unique_identifier#Random_UUID_probability_of_duplicates</a>)
 	 * 
+	 * The order ID is generated by a {@link RandomOrderIdGenerator}, which avoids contention between threads.
+	 * 
 	 * @return orderId as a String 
 	 */
 	static public String generateOrderId() {
-		UUID uuid = UUID.randomUUID();
-		ByteBuffer bb = ByteBuffer.wrap(new byte[16]);
-
-		bb.putLong(uuid.getMostSignificantBits());
-		bb.putLong(uuid.getLeastSignificantBits());
-		return Base64.encodeBase64URLSafeString(bb.array());
+		return ORDER_ID_GENERATOR.generateOrderId();
 	}
 
 }
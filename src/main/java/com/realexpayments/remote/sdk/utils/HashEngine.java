@@ -0,0 +1,355 @@
+package com.realexpayments.remote.sdk.utils;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.realexpayments.remote.sdk.RealexException;
+
+/**
+ * <p>
+ * Allocation free implementation of the Realex SHA-1 hash described in {@link GenerationUtils#generateHash(String, String)}.
+ * Engines are pooled, each holding a reusable {@link MessageDigest}, byte buffer and hex character array, so
+ * fields are encoded straight into the buffer rather than concatenated into intermediate strings. The pool is
+ * shared by all threads, see {@link StripedPool}, so a thread started per request reuses an engine rather than
+ * creating one.
+ * The hash produced is identical to that produced by {@link GenerationUtils#generateHash(String, String)}.
+ * </p>
+ * <p>
+ * Fields are appended in order, separated by a period ('.'), with <code>null</code> fields treated as empty strings:
+ * </p>
+ * <code><pre>
+ * String hash = HashEngine.start().append(timeStamp).append(merchantId).append(orderId).hash(secret);
+ * boolean valid = HashEngine.start().append(timeStamp).append(merchantId).append(orderId).matches(secret, expectedHash);
+ * </pre></code>
+ * <p>
+ * The engine returned by {@link #start()} is lent to the calling thread until the hash is computed with one
+ * of the hash or matches methods, so must not be shared or used afterwards; calling {@link #start()} again
+ * discards any fields already appended. Where the same secret is used
+ * repeatedly, a {@link KeyedHasher} avoids encoding the secret for every hash.
+ * </p>
+ */
+public final class HashEngine {
+
+	/**
+	 * The hash algorithm used by Realex.
+	 */
+	private static final String SHA_1 = "SHA-1";
+
+	/**
+	 * The length in bytes of a SHA-1 digest.
+	 */
+	private static final int DIGEST_LENGTH = 20;
+
+	/**
+	 * The length in characters of a hex encoded SHA-1 digest.
+	 */
+	private static final int HEX_LENGTH = DIGEST_LENGTH * 2;
+
+	/**
+	 * Field separator.
+	 */
+	private static final byte SEPARATOR = '.';
+
+	/**
+	 * Lower case hex digits, as produced by commons-codec.
+	 */
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	/**
+	 * Byte replacing characters which cannot be encoded (unpaired surrogates), as {@link String#getBytes(java.nio.charset.Charset)} does.
+	 */
+	private static final byte REPLACEMENT = '?';
+
+	/**
+	 * The idle engines.
+	 */
+	static final StripedPool<HashEngine> ENGINES = new StripedPool<HashEngine>(HashEngine::new);
+
+	private final MessageDigest messageDigest;
+
+	private final byte[] digest = new byte[DIGEST_LENGTH];
+
+	private final char[] hex = new char[HEX_LENGTH];
+
+	private byte[] buffer = new byte[256];
+
+	private int length;
+
+	private int fieldCount;
+
+	/**
+	 * Whether the engine has been taken from the pool and not yet returned.
+	 */
+	private boolean borrowed;
+
+	private HashEngine() {
+		try {
+			this.messageDigest = MessageDigest.getInstance(SHA_1);
+		} catch (NoSuchAlgorithmException ex) {
+			throw new RealexException("Error initialising hash engine", ex);
+		}
+	}
+
+	/**
+	 * Returns an engine for the calling thread, ready for the first field to be appended.
+	 *
+	 * @return HashEngine
+	 */
+	public static HashEngine start() {
+		HashEngine engine = ENGINES.take();
+		engine.borrowed = true;
+		engine.length = 0;
+		engine.fieldCount = 0;
+		return engine;
+	}
+
+	/**
+	 * Appends a field to the string to hash. A <code>null</code> field is treated as an empty string.
+	 *
+	 * @param field
+	 * @return HashEngine
+	 */
+	public HashEngine append(String field) {
+		appendSeparator();
+		if (null != field) {
+			appendUtf8(field);
+		}
+		return this;
+	}
+
+	/**
+	 * Appends a numeric field to the string to hash. A <code>null</code> field is treated as an empty string.
+	 *
+	 * @param field
+	 * @return HashEngine
+	 */
+	public HashEngine append(Long field) {
+		appendSeparator();
+		if (null != field) {
+			appendLong(field.longValue());
+		}
+		return this;
+	}
+
+	/**
+	 * Returns the hash of the appended fields and the secret, as a lower case hex string.
+	 *
+	 * @param secret
+	 * @return the hash as a hex string
+	 */
+	public String hash(String secret) {
+		try {
+			computeHash(secret, null);
+			return new String(hex);
+		} finally {
+			release();
+		}
+	}
+
+	/**
+	 * Returns the hash of the appended fields and the secret held by the {@link KeyedHasher}, as a lower case hex string.
+	 *
+	 * @param hasher
+	 * @return the hash as a hex string
+	 */
+	public String hash(KeyedHasher hasher) {
+		try {
+			computeHash(null, hasher.getSecretSuffix());
+			return new String(hex);
+		} finally {
+			release();
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if the hash of the appended fields and the secret is equal to the expected hash.
+	 * Unlike {@link #hash(String)} no string is created.
+	 *
+	 * @param secret
+	 * @param expectedHash
+	 * @return boolean
+	 */
+	public boolean matches(String secret, String expectedHash) {
+		try {
+			if (null == expectedHash || expectedHash.length() != HEX_LENGTH) {
+				return false;
+			}
+			computeHash(secret, null);
+			return hexEquals(expectedHash);
+		} finally {
+			release();
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if the hash of the appended fields and the secret held by the {@link KeyedHasher} 
+	 * is equal to the expected hash. Unlike {@link #hash(KeyedHasher)} no string is created.
+	 *
+	 * @param hasher
+	 * @param expectedHash
+	 * @return boolean
+	 */
+	public boolean matches(KeyedHasher hasher, String expectedHash) {
+		try {
+			if (null == expectedHash || expectedHash.length() != HEX_LENGTH) {
+				return false;
+			}
+			computeHash(null, hasher.getSecretSuffix());
+			return hexEquals(expectedHash);
+		} finally {
+			release();
+		}
+	}
+
+	/**
+	 * Returns the engine to the pool, once only for each time it was started.
+	 */
+	private void release() {
+		if (borrowed) {
+			borrowed = false;
+			ENGINES.release(this);
+		}
+	}
+
+	private boolean hexEquals(String expectedHash) {
+		for (int i = 0; i < HEX_LENGTH; i++) {
+			if (hex[i] != expectedHash.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Hashes the appended fields, then hashes the hex encoded result, a period and the secret, leaving
+	 * the hex encoded result in {@link #hex}. The secret is given either as a string, a <code>null</code> 
+	 * secret being treated as "null", or as the already encoded period and secret.
+	 *
+	 * @param secret
+	 * @param secretSuffix
+	 */
+	private void computeHash(String secret, byte[] secretSuffix) {
+		//first pass hashes the required fields
+		hexDigest(buffer, length);
+
+		//second pass takes the first hash, adds the secret and hashes again
+		length = 0;
+		ensureCapacity(HEX_LENGTH + 1);
+		for (int i = 0; i < HEX_LENGTH; i++) {
+			buffer[i] = (byte) hex[i];
+		}
+		if (null != secretSuffix) {
+			length = HEX_LENGTH;
+			ensureCapacity(secretSuffix.length);
+			System.arraycopy(secretSuffix, 0, buffer, length, secretSuffix.length);
+			length += secretSuffix.length;
+		} else {
+			buffer[HEX_LENGTH] = SEPARATOR;
+			length = HEX_LENGTH + 1;
+			appendUtf8(null == secret ? "null" : secret);
+		}
+		hexDigest(buffer, length);
+	}
+
+	/**
+	 * Digests the bytes, writing the lower case hex encoded digest to {@link #hex}.
+	 *
+	 * @param bytes
+	 * @param len
+	 */
+	private void hexDigest(byte[] bytes, int len) {
+		messageDigest.update(bytes, 0, len);
+		try {
+			messageDigest.digest(digest, 0, DIGEST_LENGTH);
+		} catch (DigestException ex) {
+			messageDigest.reset();
+			throw new RealexException("Error generating hash", ex);
+		}
+		for (int i = 0; i < DIGEST_LENGTH; i++) {
+			hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0xF];
+			hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0xF];
+		}
+	}
+
+	private void appendSeparator() {
+		if (fieldCount++ > 0) {
+			ensureCapacity(1);
+			buffer[length++] = SEPARATOR;
+		}
+	}
+
+	/**
+	 * Appends the UTF-8 encoding of the string to the buffer.
+	 *
+	 * @param value
+	 */
+	private void appendUtf8(String value) {
+		int valueLength = value.length();
+		ensureCapacity(valueLength * 3);
+		byte[] bytes = buffer;
+		int pos = length;
+		for (int i = 0; i < valueLength; i++) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				bytes[pos++] = (byte) c;
+			} else if (c < 0x800) {
+				bytes[pos++] = (byte) (0xC0 | (c >> 6));
+				bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+			} else if (Character.isSurrogate(c)) {
+				if (Character.isHighSurrogate(c) && i + 1 < valueLength && Character.isLowSurrogate(value.charAt(i + 1))) {
+					int codePoint = Character.toCodePoint(c, value.charAt(++i));
+					bytes[pos++] = (byte) (0xF0 | (codePoint >> 18));
+					bytes[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+					bytes[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+					bytes[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+				} else {
+					bytes[pos++] = REPLACEMENT;
+				}
+			} else {
+				bytes[pos++] = (byte) (0xE0 | (c >> 12));
+				bytes[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+		length = pos;
+	}
+
+	/**
+	 * Appends the decimal representation of the value to the buffer, as {@link Long#toString(long)} would.
+	 *
+	 * @param value
+	 */
+	private void appendLong(long value) {
+		if (value == Long.MIN_VALUE) {
+			appendUtf8("-9223372036854775808");
+			return;
+		}
+		ensureCapacity(20);
+		if (value < 0) {
+			buffer[length++] = '-';
+			value = -value;
+		}
+		int start = length;
+		do {
+			buffer[length++] = (byte) ('0' + (value % 10));
+			value /= 10;
+		} while (value > 0);
+		//digits were written least significant first
+		for (int i = start, j = length - 1; i < j; i++, j--) {
+			byte tmp = buffer[i];
+			buffer[i] = buffer[j];
+			buffer[j] = tmp;
+		}
+	}
+
+	private void ensureCapacity(int additional) {
+		int required = length + additional;
+		if (required > buffer.length) {
+			byte[] larger = new byte[Math.max(required, buffer.length * 2)];
+			System.arraycopy(buffer, 0, larger, 0, length);
+			buffer = larger;
+		}
+	}
+
+}
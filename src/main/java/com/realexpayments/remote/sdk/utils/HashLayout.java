@@ -0,0 +1,71 @@
+package com.realexpayments.remote.sdk.utils;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * The ordered list of fields of a request which feed its hash. Fields are appended to the {@link HashEngine}
+ * in order, each separated by a period ('.'), for example:
+ * </p>
+ * <code><pre>
+ * HashLayout&lt;PaymentRequest&gt; layout = new HashLayout&lt;PaymentRequest&gt;(TIMESTAMP, MERCHANT_ID, ORDER_ID, AMOUNT, CURRENCY, CARD_NUMBER);
+ * String hash = layout.appendTo(HashEngine.start(), request).hash(secret);
+ * </pre></code>
+ * <p>
+ * Layouts are immutable and thread safe.
+ * </p>
+ */
+public final class HashLayout<R> {
+
+	/**
+	 * A field of a request which feeds its hash.
+	 */
+	public interface Field<R> {
+
+		/**
+		 * Appends the field's value for the request to the engine. A missing value should be appended as
+		 * <code>null</code>, which is hashed as an empty string.
+		 *
+		 * @param engine
+		 * @param request
+		 */
+		void appendTo(HashEngine engine, R request);
+	}
+
+	private final Field<R>[] fields;
+
+	/**
+	 * Creates a layout of the fields, in hash order.
+	 *
+	 * @param fields
+	 */
+	@SafeVarargs
+	public HashLayout(Field<R>... fields) {
+		this.fields = fields.clone();
+	}
+
+	/**
+	 * Returns the fields, in hash order.
+	 *
+	 * @return List
+	 */
+	public List<Field<R>> getFields() {
+		return Arrays.asList(fields.clone());
+	}
+
+	/**
+	 * Appends the request's fields to the engine, in order.
+	 *
+	 * @param engine
+	 * @param request
+	 * @return HashEngine
+	 */
+	public HashEngine appendTo(HashEngine engine, R request) {
+		for (Field<R> field : fields) {
+			field.appendTo(engine, request);
+		}
+		return engine;
+	}
+
+}
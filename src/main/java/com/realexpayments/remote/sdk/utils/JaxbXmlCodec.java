@@ -0,0 +1,51 @@
+package com.realexpayments.remote.sdk.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+
+import javax.xml.transform.stream.StreamSource;
+
+import com.realexpayments.remote.sdk.domain.Request;
+import com.realexpayments.remote.sdk.domain.Response;
+
+/**
+ * The default {@link XmlCodec}, which marshals and unmarshals using JAXB via the request's own 
+ * {@link Request#toXml()} and {@link Request#responseFromXml(javax.xml.transform.Source)} methods.
+ */
+public class JaxbXmlCodec implements XmlCodec {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toXml(Request<?, ?> request) {
+		return request.toXml();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void toXml(Request<?, ?> request, OutputStream out) throws IOException {
+		request.toXml(out);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T, U extends Response<U>> U responseFromXml(Request<T, U> request, String xml) {
+		return request.responseFromXml(new StreamSource(new StringReader(xml)));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T, U extends Response<U>> U responseFromXml(Request<T, U> request, InputStream in) {
+		return request.responseFromXml(new StreamSource(in));
+	}
+
+}
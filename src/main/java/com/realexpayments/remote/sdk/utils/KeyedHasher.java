@@ -0,0 +1,98 @@
+package com.realexpayments.remote.sdk.utils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>
+ * Generates and verifies Realex hashes for a fixed shared secret. The secret is encoded once, when the hasher
+ * is created, rather than for every hash; hashing otherwise uses the calling thread's {@link HashEngine}, so
+ * signing and verifying only cost the hashing of the variable fields. Instances are immutable and thread safe,
+ * and are intended to be created once and reused, for example one per {@link com.realexpayments.remote.sdk.RealexClient}:
+ * </p>
+ * <code><pre>
+ * KeyedHasher hasher = new KeyedHasher("shared secret");
+ * 
+ * request.generateDefaults(hasher);
+ * boolean valid = response.isHashValid(hasher);
+ * 
+ * String hash = hasher.start().append(timeStamp).append(merchantId).append(orderId).hash(hasher);
+ * </pre></code>
+ * <p>
+ * The hashes produced are identical to those produced by {@link GenerationUtils#generateHash(String, String)}.
+ * </p>
+ */
+public final class KeyedHasher {
+
+	/**
+	 * The shared secret.
+	 */
+	private final String secret;
+
+	/**
+	 * The UTF-8 encoded period and secret appended to the first pass hash.
+	 */
+	private final byte[] secretSuffix;
+
+	/**
+	 * Creates a hasher for the shared secret. A <code>null</code> secret is treated as "null", as it is by
+	 * {@link GenerationUtils#generateHash(String, String)}.
+	 *
+	 * @param secret
+	 */
+	public KeyedHasher(String secret) {
+		this.secret = secret;
+		this.secretSuffix = ("." + secret).getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Getter for the shared secret.
+	 *
+	 * @return String
+	 */
+	public String getSecret() {
+		return secret;
+	}
+
+	/**
+	 * Returns the calling thread's {@link HashEngine}, ready for the first field to be appended. Complete the
+	 * hash with {@link HashEngine#hash(KeyedHasher)} or {@link HashEngine#matches(KeyedHasher, String)}.
+	 *
+	 * @return HashEngine
+	 */
+	public HashEngine start() {
+		return HashEngine.start();
+	}
+
+	/**
+	 * Returns the hash of the pre-built string of concatenated fields and the secret, as
+	 * {@link GenerationUtils#generateHash(String, String)} does.
+	 *
+	 * @param toHash
+	 * @return the hash as a hex string
+	 */
+	public String generateHash(String toHash) {
+		return HashEngine.start().append(toHash).hash(this);
+	}
+
+	/**
+	 * Returns <code>true</code> if the hash of the pre-built string of concatenated fields and the secret is
+	 * equal to the expected hash.
+	 *
+	 * @param toHash
+	 * @param expectedHash
+	 * @return boolean
+	 */
+	public boolean isHashValid(String toHash, String expectedHash) {
+		return HashEngine.start().append(toHash).matches(this, expectedHash);
+	}
+
+	/**
+	 * Returns the UTF-8 encoded period and secret. The array must not be modified.
+	 *
+	 * @return byte[]
+	 */
+	byte[] getSecretSuffix() {
+		return secretSuffix;
+	}
+
+}
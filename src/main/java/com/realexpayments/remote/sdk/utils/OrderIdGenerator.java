@@ -0,0 +1,32 @@
+package com.realexpayments.remote.sdk.utils;
+
+/**
+ * <p>
+ * Strategy for generating the order ID of an initial request, used when the request does not already have one.
+ * Order IDs must be unique per merchant, may only contain the characters [A-Za-z0-9-_] and may be at most
+ * 50 characters long. Implementations must be thread safe.
+ * </p>
+ * <p>
+ * The SDK provides:
+ * </p>
+ * <ul>
+ * <li>{@link RandomOrderIdGenerator} - 22 character random IDs, as generated by {@link GenerationUtils#generateOrderId()}.</li>
+ * <li>{@link SnowflakeOrderIdGenerator} - 11 character time ordered IDs, unique per node ID.</li>
+ * </ul>
+ * <p>
+ * A generator may be set on the {@link com.realexpayments.remote.sdk.RealexClient}:
+ * </p>
+ * <code><pre>
+ * client.setOrderIdGenerator(new SnowflakeOrderIdGenerator(nodeId));
+ * </pre></code>
+ */
+public interface OrderIdGenerator {
+
+	/**
+	 * Returns a new, unique order ID.
+	 *
+	 * @return String
+	 */
+	String generateOrderId();
+
+}
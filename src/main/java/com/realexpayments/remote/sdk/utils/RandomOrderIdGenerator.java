@@ -0,0 +1,128 @@
+package com.realexpayments.remote.sdk.utils;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * <p>
+ * Generates random order IDs in the same format, and with the same uniqueness, as order IDs based on
+ * {@link java.util.UUID#randomUUID()}: the 16 bytes of a version 4 UUID (122 random bits) encoded with the
+ * URL safe Base64 alphabet, without padding, as 22 characters.
+ * </p>
+ * <p>
+ * {@link java.util.UUID#randomUUID()} draws from a single shared {@link SecureRandom}, which contends badly
+ * when many threads generate IDs, and allocates a buffer and Base64 string per ID. Instead IDs are generated
+ * with pooled generator states, see {@link StripedPool}, each with its own {@link SecureRandom}, seeded once
+ * from the shared one, from which random bytes are drawn in batches, and IDs are encoded directly into a
+ * character array. Generating an ID takes no locks, and a thread started per request reuses a seeded state
+ * rather than seeding one.
+ * </p>
+ * <p>
+ * The pooled states are shared by all instances, so instances are stateless and thread safe.
+ * </p>
+ */
+public final class RandomOrderIdGenerator implements OrderIdGenerator {
+
+	/**
+	 * The length of a generated order ID.
+	 */
+	public static final int ORDER_ID_LENGTH = 22;
+
+	/**
+	 * The number of random bytes in an order ID.
+	 */
+	private static final int ORDER_ID_BYTES = 16;
+
+	/**
+	 * The number of order IDs worth of random bytes drawn at a time.
+	 */
+	private static final int BATCH_SIZE = 64;
+
+	/**
+	 * The pooled {@link SecureRandom} algorithm, which once seeded does not read from the operating system.
+	 */
+	private static final String PRNG_ALGORITHM = "SHA1PRNG";
+
+	/**
+	 * The URL safe Base64 alphabet (RFC 4648).
+	 */
+	private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+
+	/**
+	 * Source of the seeds for the pooled generators.
+	 */
+	private static final SecureRandom SEED_SOURCE = new SecureRandom();
+
+	/**
+	 * The idle generator states.
+	 */
+	static final StripedPool<GeneratorState> STATES = new StripedPool<GeneratorState>(GeneratorState::new);
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String generateOrderId() {
+		GeneratorState state = STATES.take();
+		String orderId = state.next();
+		STATES.release(state);
+		return orderId;
+	}
+
+	/**
+	 * A seeded generator, with its random bytes and character buffer, used by one thread at a time.
+	 */
+	private static final class GeneratorState {
+
+		private final SecureRandom random;
+
+		private final byte[] bytes = new byte[ORDER_ID_BYTES * BATCH_SIZE];
+
+		private final char[] chars = new char[ORDER_ID_LENGTH];
+
+		private int position = bytes.length;
+
+		GeneratorState() {
+			SecureRandom prng;
+			try {
+				prng = SecureRandom.getInstance(PRNG_ALGORITHM);
+				byte[] seed = new byte[32];
+				SEED_SOURCE.nextBytes(seed);
+				prng.setSeed(seed);
+			} catch (NoSuchAlgorithmException ex) {
+				prng = new SecureRandom();
+			}
+			this.random = prng;
+		}
+
+		String next() {
+			if (position == bytes.length) {
+				random.nextBytes(bytes);
+				position = 0;
+			}
+			int offset = position;
+			position += ORDER_ID_BYTES;
+
+			//set the version (4) and variant (IETF) bits, as UUID.randomUUID() does
+			bytes[offset + 6] = (byte) ((bytes[offset + 6] & 0x0f) | 0x40);
+			bytes[offset + 8] = (byte) ((bytes[offset + 8] & 0x3f) | 0x80);
+
+			//encode each group of 3 bytes as 4 characters, then the last byte as 2 characters
+			int c = 0;
+			int end = offset + ORDER_ID_BYTES - 1;
+			for (int i = offset; i < end; i += 3) {
+				int group = (bytes[i] & 0xff) << 16 | (bytes[i + 1] & 0xff) << 8 | (bytes[i + 2] & 0xff);
+				chars[c++] = ALPHABET[group >>> 18];
+				chars[c++] = ALPHABET[(group >>> 12) & 0x3f];
+				chars[c++] = ALPHABET[(group >>> 6) & 0x3f];
+				chars[c++] = ALPHABET[group & 0x3f];
+			}
+			int last = bytes[end] & 0xff;
+			chars[c++] = ALPHABET[last >>> 2];
+			chars[c] = ALPHABET[(last << 4) & 0x3f];
+
+			return new String(chars);
+		}
+	}
+
+}
@@ -6,6 +6,8 @@ import org.slf4j.LoggerFactory;
 import com.realexpayments.remote.sdk.RealexException;
 import com.realexpayments.remote.sdk.RealexServerException;
 import com.realexpayments.remote.sdk.domain.Response;
+import com.realexpayments.remote.sdk.domain.ResultCode;
+import com.realexpayments.remote.sdk.domain.ResultCode.Category;
 
 /**
  * Utils class offering methods which act on the Realex response. 
@@ -36,22 +38,33 @@ public class ResponseUtils {
 	 * checked for success. For example a full response with a result code of 101 will not throw an exception and will return 
 	 * a fully populated response object. 
 	 * </p>
+	 * 
+	 * <p>
+	 * The result is classified by {@link ResultCode}; results which do not start with a digit cannot be 
+	 * classified and a {@link RealexException} is thrown.
+	 * </p>
 	 *   
 	 * @param result
 	 * @return boolean
 	 */
 	public static boolean isBasicResponse(String result) {
-		boolean inErrorRange = false;
 
-		try {
-			int initialNumber = Integer.parseInt(result.substring(0, 1));
-			inErrorRange = initialNumber >= Response.RESULT_CODE_PREFIX_ERROR_RESPONSE_START;
-		} catch (Exception ex) {
-			LOGGER.error("Error parsing result {}", result, ex);
-			throw new RealexException("Error parsing result.", ex);
+		if (null == result || result.isEmpty() || result.charAt(0) < '0' || result.charAt(0) > '9') {
+			LOGGER.error("Error parsing result {}", result);
+			throw new RealexException("Error parsing result.");
 		}
 
-		return inErrorRange;
+		return ResultCode.category(result).isBasicResponse();
+	}
+
+	/**
+	 * Returns the {@link Category} of the result code in the response.
+	 * 
+	 * @param response
+	 * @return Category
+	 */
+	public static Category getResultCategory(Response<?> response) {
+		return ResultCode.category(response.getResult());
 	}
 
 	/**
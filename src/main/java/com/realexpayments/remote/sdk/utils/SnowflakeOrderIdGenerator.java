@@ -0,0 +1,124 @@
+package com.realexpayments.remote.sdk.utils;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Generates time ordered order IDs, in the style of Twitter's Snowflake. Each ID is a 63 bit number made up of:
+ * </p>
+ * <ul>
+ * <li>41 bits - milliseconds since {@link #EPOCH} (2015-01-01T00:00:00Z), sufficient until 2084.</li>
+ * <li>10 bits - the node ID, from 0 to {@link #MAX_NODE_ID}.</li>
+ * <li>12 bits - a sequence number, allowing 4096 IDs per millisecond.</li>
+ * </ul>
+ * <p>
+ * The number is encoded as 11 characters from the alphabet [-0-9A-Z_a-z], in ASCII order, so that sorting
+ * order IDs as strings sorts them by generation time. IDs are unique provided each process generating IDs
+ * for a merchant at the same time uses a different node ID.
+ * </p>
+ * <p>
+ * IDs are generated without locks by a compare and set of the last timestamp and sequence number. IDs from one
+ * generator always increase: if more than 4096 IDs are generated within a millisecond, or the clock moves
+ * backwards, the generator continues from its last timestamp rather than waiting for the clock.
+ * </p>
+ */
+public final class SnowflakeOrderIdGenerator implements OrderIdGenerator {
+
+	/**
+	 * The epoch from which timestamps are measured, 2015-01-01T00:00:00Z, in milliseconds.
+	 */
+	public static final long EPOCH = 1420070400000L;
+
+	/**
+	 * The maximum node ID.
+	 */
+	public static final int MAX_NODE_ID = 1023;
+
+	/**
+	 * The length of a generated order ID.
+	 */
+	public static final int ORDER_ID_LENGTH = 11;
+
+	private static final int NODE_ID_BITS = 10;
+
+	private static final int SEQUENCE_BITS = 12;
+
+	private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+	/**
+	 * The order ID alphabet, in ASCII order.
+	 */
+	private static final char[] ALPHABET = "-0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz".toCharArray();
+
+	/**
+	 * The node ID, shifted into position.
+	 */
+	private final long node;
+
+	private final Clock clock;
+
+	/**
+	 * The timestamp and sequence number of the last ID generated, as (timestamp << SEQUENCE_BITS | sequence).
+	 */
+	private final AtomicLong lastState = new AtomicLong();
+
+	/**
+	 * Creates a generator for the node ID, using the system clock.
+	 *
+	 * @param nodeId
+	 */
+	public SnowflakeOrderIdGenerator(int nodeId) {
+		this(nodeId, Clock.systemUTC());
+	}
+
+	/**
+	 * Creates a generator for the node ID, using the clock.
+	 *
+	 * @param nodeId
+	 * @param clock
+	 */
+	public SnowflakeOrderIdGenerator(int nodeId, Clock clock) {
+		if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+			throw new IllegalArgumentException("Node ID must be between 0 and " + MAX_NODE_ID + ".");
+		}
+		if (null == clock) {
+			throw new IllegalArgumentException("Clock must not be null.");
+		}
+		this.node = (long) nodeId << SEQUENCE_BITS;
+		this.clock = clock;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String generateOrderId() {
+		long id = nextId();
+		char[] chars = new char[ORDER_ID_LENGTH];
+		for (int i = ORDER_ID_LENGTH - 1; i >= 0; i--) {
+			chars[i] = ALPHABET[(int) (id & 0x3f)];
+			id >>>= 6;
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Returns the next ID as a number.
+	 *
+	 * @return long
+	 */
+	public long nextId() {
+		long now = clock.millis() - EPOCH;
+		while (true) {
+			long last = lastState.get();
+			//in the same millisecond, or if the clock has gone back, take the next sequence number, 
+			//which on overflow moves on to the next millisecond
+			long next = now > (last >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : last + 1;
+			if (lastState.compareAndSet(last, next)) {
+				return (next >>> SEQUENCE_BITS) << (NODE_ID_BITS + SEQUENCE_BITS) | node | (next & SEQUENCE_MASK);
+			}
+		}
+	}
+
+}
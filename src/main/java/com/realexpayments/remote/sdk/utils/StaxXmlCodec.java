@@ -0,0 +1,755 @@
+package com.realexpayments.remote.sdk.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.realexpayments.remote.sdk.RealexException;
+import com.realexpayments.remote.sdk.domain.Amount;
+import com.realexpayments.remote.sdk.domain.Card;
+import com.realexpayments.remote.sdk.domain.Country;
+import com.realexpayments.remote.sdk.domain.Cvn;
+import com.realexpayments.remote.sdk.domain.DccInfo;
+import com.realexpayments.remote.sdk.domain.DccInfoResult;
+import com.realexpayments.remote.sdk.domain.Payer;
+import com.realexpayments.remote.sdk.domain.PayerAddress;
+import com.realexpayments.remote.sdk.domain.PaymentData;
+import com.realexpayments.remote.sdk.domain.PhoneNumbers;
+import com.realexpayments.remote.sdk.domain.Request;
+import com.realexpayments.remote.sdk.domain.Response;
+import com.realexpayments.remote.sdk.domain.payment.Address;
+import com.realexpayments.remote.sdk.domain.payment.CardIssuer;
+import com.realexpayments.remote.sdk.domain.payment.Comment;
+import com.realexpayments.remote.sdk.domain.payment.FraudFilter;
+import com.realexpayments.remote.sdk.domain.payment.FraudFilterRule;
+import com.realexpayments.remote.sdk.domain.payment.Mpi;
+import com.realexpayments.remote.sdk.domain.payment.PaymentRequest;
+import com.realexpayments.remote.sdk.domain.payment.PaymentResponse;
+import com.realexpayments.remote.sdk.domain.payment.Recurring;
+import com.realexpayments.remote.sdk.domain.payment.TssInfo;
+import com.realexpayments.remote.sdk.domain.payment.TssResult;
+import com.realexpayments.remote.sdk.domain.payment.TssResultCheck;
+
+/**
+ * <p>
+ * {@link XmlCodec} which writes {@link PaymentRequest}s and reads {@link PaymentResponse}s with hand-written
+ * StAX code, avoiding JAXB reflection on the payment hot path and the JAXB context initialisation in
+ * {@link XmlUtils}. The XML written is identical to that produced by the JAXB marshaller: elements in field
+ * declaration order, attributes in reverse declaration order, absent values omitted and elements without
+ * content written as empty elements.
+ * </p>
+ * <p>
+ * Responses are read leniently in the same way as JAXB: unknown elements are skipped and numeric values
+ * which cannot be parsed are left unset. All other request types are delegated to JAXB.
+ * </p>
+ */
+public class StaxXmlCodec implements XmlCodec {
+
+	/**
+	 * Logger
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(StaxXmlCodec.class);
+
+	/**
+	 * XML declaration, as written by the JAXB marshaller.
+	 */
+	private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>";
+
+	private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+	private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+
+	static {
+		INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+	}
+
+	/**
+	 * The JAXB codec used for all requests other than {@link PaymentRequest}s.
+	 */
+	private final XmlCodec delegate = new JaxbXmlCodec();
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toXml(Request<?, ?> request) {
+		if (!(request instanceof PaymentRequest)) {
+			return delegate.toXml(request);
+		}
+
+		LOGGER.debug("Writing payment request to XML.");
+
+		StringWriter result = new StringWriter();
+		try {
+			writePaymentRequest((PaymentRequest) request, result);
+		} catch (XMLStreamException ex) {
+			LOGGER.error("Error marshalling to XML", ex);
+			throw new RealexException("Error marshalling to XML", ex);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void toXml(Request<?, ?> request, OutputStream out) throws IOException {
+		if (!(request instanceof PaymentRequest)) {
+			delegate.toXml(request, out);
+			return;
+		}
+
+		LOGGER.debug("Writing payment request to XML stream.");
+
+		Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+		try {
+			writePaymentRequest((PaymentRequest) request, writer);
+		} catch (XMLStreamException ex) {
+			LOGGER.error("Error marshalling to XML", ex);
+			throw new RealexException("Error marshalling to XML", ex);
+		}
+		writer.flush();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T, U extends Response<U>> U responseFromXml(Request<T, U> request, String xml) {
+		if (!(request instanceof PaymentRequest)) {
+			return delegate.responseFromXml(request, xml);
+		}
+
+		LOGGER.debug("Reading payment response from XML.");
+
+		try {
+			return readPaymentResponse(request, INPUT_FACTORY.createXMLStreamReader(new StringReader(xml)));
+		} catch (XMLStreamException ex) {
+			LOGGER.error("Error unmarshalling from XML", ex);
+			throw new RealexException("Error unmarshalling from XML", ex);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T, U extends Response<U>> U responseFromXml(Request<T, U> request, InputStream in) {
+		if (!(request instanceof PaymentRequest)) {
+			return delegate.responseFromXml(request, in);
+		}
+
+		LOGGER.debug("Reading payment response from XML stream.");
+
+		try {
+			return readPaymentResponse(request, INPUT_FACTORY.createXMLStreamReader(in));
+		} catch (XMLStreamException ex) {
+			LOGGER.error("Error unmarshalling from XML", ex);
+			throw new RealexException("Error unmarshalling from XML", ex);
+		}
+	}
+
+	/**
+	 * Reads the payment response to the payment request, closing the reader.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T, U extends Response<U>> U readPaymentResponse(Request<T, U> request, XMLStreamReader reader)
+			throws XMLStreamException {
+		try {
+			return (U) readPaymentResponse(reader);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Writes the payment request, including the XML declaration, to the writer.
+	 *
+	 * @param request
+	 * @param out
+	 * @throws XMLStreamException
+	 */
+	static void writePaymentRequest(PaymentRequest request, Writer out) throws XMLStreamException {
+		XMLStreamWriter xmlStreamWriter = OUTPUT_FACTORY.createXMLStreamWriter(out);
+		try {
+			out.write(XML_DECLARATION);
+		} catch (java.io.IOException ex) {
+			throw new XMLStreamException(ex);
+		}
+
+		ElementWriter writer = new ElementWriter(xmlStreamWriter);
+		writer.start("request");
+		writer.attribute("timestamp", request.getTimeStamp());
+		writer.attribute("type", request.getType());
+		writer.element("merchantid", request.getMerchantId());
+		writer.element("account", request.getAccount());
+		writer.element("channel", request.getChannel());
+		writer.element("orderid", request.getOrderId());
+		writeAmount(writer, "amount", request.getAmount());
+		writeCard(writer, request.getCard());
+		if (null != request.getAutoSettle()) {
+			writer.start("autosettle");
+			writer.attribute("flag", request.getAutoSettle().getFlag());
+			writer.end();
+		}
+		writer.element("sha1hash", request.getHash());
+		writeComments(writer, request.getComments());
+		writer.element("pasref", request.getPaymentsReference());
+		writer.element("authcode", request.getAuthCode());
+		writer.element("refundhash", request.getRefundHash());
+		writeFraudFilter(writer, request.getFraudFilter());
+		writeRecurring(writer, request.getRecurring());
+		writeTssInfo(writer, request.getTssInfo());
+		writeMpi(writer, request.getMpi());
+		writer.element("mobile", request.getMobile());
+		writer.element("token", request.getToken());
+		writer.element("payerref", request.getPayerRef());
+		writer.element("paymentmethod", request.getPaymentMethod());
+		writer.element("reasoncode", request.getReasonCode());
+		writePaymentData(writer, request.getPaymentData());
+		writePayer(writer, request.getPayer());
+		writeDccInfo(writer, request.getDccInfo());
+		if (null != request.getTransactionSequence()) {
+			writer.start("txnseq");
+			if (null != request.getTransactionSequence().getFinalTransactionIndicator()) {
+				writer.start("final");
+				writer.attribute("flag", request.getTransactionSequence().getFinalTransactionIndicator().getIsFinalTransaction());
+				writer.end();
+			}
+			writer.end();
+		}
+		writer.element("estnumtxn", request.getEstimatedTransactionNumber());
+		writer.end();
+
+		xmlStreamWriter.flush();
+	}
+
+	private static void writeAmount(ElementWriter writer, String name, Amount amount) throws XMLStreamException {
+		if (null == amount) {
+			return;
+		}
+		writer.start(name);
+		writer.attribute("currency", amount.getCurrency());
+		writer.text(amount.getAmount());
+		writer.end();
+	}
+
+	private static void writeCard(ElementWriter writer, Card card) throws XMLStreamException {
+		if (null == card) {
+			return;
+		}
+		writer.start("card");
+		writer.element("ref", card.getReference());
+		writer.element("payerref", card.getPayerReference());
+		writer.element("number", card.getNumber());
+		writer.element("expdate", card.getExpiryDate());
+		writer.element("chname", card.getCardHolderName());
+		writer.element("type", card.getType());
+		writer.element("issueno", card.getIssueNumber());
+		Cvn cvn = card.getCvn();
+		if (null != cvn) {
+			writer.start("cvn");
+			writer.element("number", cvn.getNumber());
+			writer.element("presind", cvn.getPresenceIndicator());
+			writer.end();
+		}
+		writer.end();
+	}
+
+	private static void writeComments(ElementWriter writer, List<Comment> comments) throws XMLStreamException {
+		if (null == comments) {
+			return;
+		}
+		writer.start("comments");
+		for (Comment comment : comments) {
+			if (null != comment) {
+				writer.start("comment");
+				writer.attribute("id", comment.getId());
+				writer.text(comment.getComment());
+				writer.end();
+			}
+		}
+		writer.end();
+	}
+
+	private static void writeFraudFilter(ElementWriter writer, FraudFilter fraudFilter) throws XMLStreamException {
+		if (null == fraudFilter) {
+			return;
+		}
+		writer.start("fraudfilter");
+		writer.attribute("mode", fraudFilter.getMode());
+		writer.element("result", fraudFilter.getResult());
+		if (null != fraudFilter.getRules()) {
+			writer.start("rules");
+			for (FraudFilterRule rule : fraudFilter.getRules()) {
+				if (null != rule) {
+					writer.start("rule");
+					writer.attribute("id", rule.getId());
+					writer.attribute("name", rule.getName());
+					writer.element("action", rule.getAction());
+					writer.end();
+				}
+			}
+			writer.end();
+		}
+		writer.end();
+	}
+
+	private static void writeRecurring(ElementWriter writer, Recurring recurring) throws XMLStreamException {
+		if (null == recurring) {
+			return;
+		}
+		writer.start("recurring");
+		writer.attribute("type", recurring.getType());
+		writer.attribute("sequence", recurring.getSequence());
+		writer.attribute("flag", recurring.getFlag());
+		writer.end();
+	}
+
+	private static void writeTssInfo(ElementWriter writer, TssInfo tssInfo) throws XMLStreamException {
+		if (null == tssInfo) {
+			return;
+		}
+		writer.start("tssinfo");
+		writer.element("custnum", tssInfo.getCustomerNumber());
+		writer.element("prodid", tssInfo.getProductId());
+		writer.element("varref", tssInfo.getVariableReference());
+		writer.element("custipaddress", tssInfo.getCustomerIpAddress());
+		if (null != tssInfo.getAddresses()) {
+			for (Address address : tssInfo.getAddresses()) {
+				if (null != address) {
+					writer.start("address");
+					writer.attribute("type", address.getType());
+					writer.element("code", address.getCode());
+					writer.element("country", address.getCountry());
+					writer.end();
+				}
+			}
+		}
+		writer.end();
+	}
+
+	private static void writeMpi(ElementWriter writer, Mpi mpi) throws XMLStreamException {
+		if (null == mpi) {
+			return;
+		}
+		writer.start("mpi");
+		writer.element("cavv", mpi.getCavv());
+		writer.element("xid", mpi.getXid());
+		writer.element("eci", mpi.getEci());
+		writer.end();
+	}
+
+	private static void writePaymentData(ElementWriter writer, PaymentData paymentData) throws XMLStreamException {
+		if (null == paymentData) {
+			return;
+		}
+		writer.start("paymentdata");
+		if (null != paymentData.getCvnNumber()) {
+			writer.start("cvn");
+			writer.element("number", paymentData.getCvnNumber().getNumber());
+			writer.end();
+		}
+		writer.end();
+	}
+
+	private static void writePayer(ElementWriter writer, Payer payer) throws XMLStreamException {
+		if (null == payer) {
+			return;
+		}
+		writer.start("payer");
+		writer.attribute("type", payer.getType());
+		writer.attribute("ref", payer.getRef());
+		writer.element("title", payer.getTitle());
+		writer.element("firstname", payer.getFirstName());
+		writer.element("surname", payer.getSurname());
+		writer.element("company", payer.getCompany());
+		PayerAddress address = payer.getAddress();
+		if (null != address) {
+			writer.start("address");
+			writer.element("line1", address.getLine1());
+			writer.element("line2", address.getLine2());
+			writer.element("line3", address.getLine3());
+			writer.element("city", address.getCity());
+			writer.element("county", address.getCounty());
+			writer.element("postcode", address.getPostcode());
+			Country country = address.getCountry();
+			if (null != country) {
+				writer.start("country");
+				writer.attribute("code", country.getCode());
+				writer.text(country.getName());
+				writer.end();
+			}
+			writer.end();
+		}
+		PhoneNumbers phoneNumbers = payer.getPhoneNumbers();
+		if (null != phoneNumbers) {
+			writer.start("phonenumbers");
+			writer.element("home", phoneNumbers.getHomePhoneNumber());
+			writer.element("work", phoneNumbers.getWorkPhoneNumber());
+			writer.element("fax", phoneNumbers.getFaxPhoneNumber());
+			writer.element("mobile", phoneNumbers.getMobilePhoneNumber());
+			writer.end();
+		}
+		writer.element("email", payer.getEmail());
+		writeComments(writer, payer.getComments());
+		writer.end();
+	}
+
+	private static void writeDccInfo(ElementWriter writer, DccInfo dccInfo) throws XMLStreamException {
+		if (null == dccInfo) {
+			return;
+		}
+		writer.start("dccinfo");
+		writer.element("ccp", dccInfo.getDccProcessor());
+		writer.element("type", dccInfo.getType());
+		writer.element("rate", printDouble(dccInfo.getRate()));
+		writer.element("ratetype", dccInfo.getRateType());
+		writeAmount(writer, "amount", dccInfo.getAmount());
+		writer.end();
+	}
+
+	/**
+	 * Reads a payment response from the reader.
+	 *
+	 * @param reader
+	 * @return PaymentResponse
+	 * @throws XMLStreamException
+	 */
+	static PaymentResponse readPaymentResponse(XMLStreamReader reader) throws XMLStreamException {
+		reader.nextTag();
+		if (!"response".equals(reader.getLocalName())) {
+			throw new XMLStreamException("Unexpected element " + reader.getLocalName(), reader.getLocation());
+		}
+
+		PaymentResponse response = new PaymentResponse();
+		response.setTimeStamp(reader.getAttributeValue(null, "timestamp"));
+
+		while (nextChild(reader)) {
+			String name = reader.getLocalName();
+			if ("merchantid".equals(name)) {
+				response.setMerchantId(reader.getElementText());
+			} else if ("account".equals(name)) {
+				response.setAccount(reader.getElementText());
+			} else if ("orderid".equals(name)) {
+				response.setOrderId(reader.getElementText());
+			} else if ("result".equals(name)) {
+				response.setResult(reader.getElementText());
+			} else if ("authcode".equals(name)) {
+				response.setAuthCode(reader.getElementText());
+			} else if ("message".equals(name)) {
+				response.setMessage(reader.getElementText());
+			} else if ("pasref".equals(name)) {
+				response.setPaymentsReference(reader.getElementText());
+			} else if ("cvnresult".equals(name)) {
+				response.setCvnResult(reader.getElementText());
+			} else if ("timetaken".equals(name)) {
+				response.setTimeTaken(parseLong(reader.getElementText()));
+			} else if ("authtimetaken".equals(name)) {
+				response.setAuthTimeTaken(parseLong(reader.getElementText()));
+			} else if ("acquirerresponse".equals(name)) {
+				response.setAcquirerResponse(reader.getElementText());
+			} else if ("batchid".equals(name)) {
+				response.setBatchId(parseLong(reader.getElementText()));
+			} else if ("cardissuer".equals(name)) {
+				response.setCardIssuer(readCardIssuer(reader));
+			} else if ("sha1hash".equals(name)) {
+				response.setHash(reader.getElementText());
+			} else if ("tss".equals(name)) {
+				response.setTssResult(readTssResult(reader));
+			} else if ("avspostcoderesponse".equals(name)) {
+				response.setAvsPostcodeResponse(reader.getElementText());
+			} else if ("avsaddressresponse".equals(name)) {
+				response.setAvsAddressResponse(reader.getElementText());
+			} else if ("dccinfo".equals(name)) {
+				response.setDccInfoResult(readDccInfoResult(reader));
+			} else if ("fraudresponse".equals(name)) {
+				response.setFraudFilter(readFraudFilter(reader));
+			} else {
+				skipElement(reader);
+			}
+		}
+
+		return response;
+	}
+
+	private static CardIssuer readCardIssuer(XMLStreamReader reader) throws XMLStreamException {
+		CardIssuer cardIssuer = new CardIssuer();
+		while (nextChild(reader)) {
+			String name = reader.getLocalName();
+			if ("bank".equals(name)) {
+				cardIssuer.setBank(reader.getElementText());
+			} else if ("country".equals(name)) {
+				cardIssuer.setCountry(reader.getElementText());
+			} else if ("countrycode".equals(name)) {
+				cardIssuer.setCountryCode(reader.getElementText());
+			} else if ("region".equals(name)) {
+				cardIssuer.setRegion(reader.getElementText());
+			} else {
+				skipElement(reader);
+			}
+		}
+		return cardIssuer;
+	}
+
+	private static TssResult readTssResult(XMLStreamReader reader) throws XMLStreamException {
+		TssResult tssResult = new TssResult();
+		while (nextChild(reader)) {
+			String name = reader.getLocalName();
+			if ("result".equals(name)) {
+				tssResult.setResult(reader.getElementText());
+			} else if ("check".equals(name)) {
+				TssResultCheck check = new TssResultCheck();
+				check.setId(reader.getAttributeValue(null, "id"));
+				check.setValue(reader.getElementText());
+				if (null == tssResult.getChecks()) {
+					tssResult.setChecks(new ArrayList<TssResultCheck>());
+				}
+				tssResult.getChecks().add(check);
+			} else {
+				skipElement(reader);
+			}
+		}
+		return tssResult;
+	}
+
+	private static DccInfoResult readDccInfoResult(XMLStreamReader reader) throws XMLStreamException {
+		DccInfoResult dccInfoResult = new DccInfoResult();
+		while (nextChild(reader)) {
+			String name = reader.getLocalName();
+			if ("cardholdercurrency".equals(name)) {
+				dccInfoResult.setCardHolderCurrency(reader.getElementText());
+			} else if ("cardholderamount".equals(name)) {
+				dccInfoResult.setCardHolderAmount(parseLong(reader.getElementText()));
+			} else if ("cardholderrate".equals(name)) {
+				dccInfoResult.setCardHolderRate(parseDouble(reader.getElementText()));
+			} else if ("merchantcurrency".equals(name)) {
+				dccInfoResult.setMerchantCurrency(reader.getElementText());
+			} else if ("merchantamount".equals(name)) {
+				dccInfoResult.setMerchantAmount(parseLong(reader.getElementText()));
+			} else if ("marginratepercentage".equals(name)) {
+				dccInfoResult.setMarginRatePercentage(reader.getElementText());
+			} else if ("exchangeratesourcename".equals(name)) {
+				dccInfoResult.setExchangeRateSourceName(reader.getElementText());
+			} else if ("commissionpercentage".equals(name)) {
+				dccInfoResult.setCommissionPercentage(reader.getElementText());
+			} else if ("exchangeratesourcetimestamp".equals(name)) {
+				dccInfoResult.setExchangeRateSourceTimestamp(reader.getElementText());
+			} else {
+				skipElement(reader);
+			}
+		}
+		return dccInfoResult;
+	}
+
+	private static FraudFilter readFraudFilter(XMLStreamReader reader) throws XMLStreamException {
+		FraudFilter fraudFilter = new FraudFilter();
+		fraudFilter.setMode(reader.getAttributeValue(null, "mode"));
+		while (nextChild(reader)) {
+			String name = reader.getLocalName();
+			if ("result".equals(name)) {
+				fraudFilter.setResult(reader.getElementText());
+			} else if ("rules".equals(name)) {
+				List<FraudFilterRule> rules = new ArrayList<FraudFilterRule>();
+				while (nextChild(reader)) {
+					if ("rule".equals(reader.getLocalName())) {
+						rules.add(readFraudFilterRule(reader));
+					} else {
+						skipElement(reader);
+					}
+				}
+				fraudFilter.setRules(rules);
+			} else {
+				skipElement(reader);
+			}
+		}
+		return fraudFilter;
+	}
+
+	private static FraudFilterRule readFraudFilterRule(XMLStreamReader reader) throws XMLStreamException {
+		FraudFilterRule rule = new FraudFilterRule();
+		rule.setId(reader.getAttributeValue(null, "id"));
+		rule.setName(reader.getAttributeValue(null, "name"));
+		while (nextChild(reader)) {
+			if ("action".equals(reader.getLocalName())) {
+				rule.setAction(reader.getElementText());
+			} else {
+				skipElement(reader);
+			}
+		}
+		return rule;
+	}
+
+	/**
+	 * Advances to the next child element of the current element. Returns <code>false</code> once the
+	 * end of the current element is reached.
+	 */
+	private static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				return true;
+			}
+			if (event == XMLStreamConstants.END_ELEMENT) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Skips the current element, including any content.
+	 */
+	private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	/**
+	 * Parses a long in the same way as JAXB, returning null if the value is not a valid long.
+	 */
+	private static Long parseLong(String value) {
+		try {
+			String trimmed = value.trim();
+			return Long.valueOf(trimmed.startsWith("+") ? trimmed.substring(1) : trimmed);
+		} catch (NumberFormatException ex) {
+			LOGGER.debug("Ignoring invalid long value {}.", value);
+			return null;
+		}
+	}
+
+	/**
+	 * Parses a double in the same way as JAXB, returning null if the value is not a valid double.
+	 */
+	private static Double parseDouble(String value) {
+		String trimmed = value.trim();
+		if ("NaN".equals(trimmed)) {
+			return Double.NaN;
+		}
+		if ("INF".equals(trimmed)) {
+			return Double.POSITIVE_INFINITY;
+		}
+		if ("-INF".equals(trimmed)) {
+			return Double.NEGATIVE_INFINITY;
+		}
+		try {
+			return Double.valueOf(trimmed);
+		} catch (NumberFormatException ex) {
+			LOGGER.debug("Ignoring invalid double value {}.", value);
+			return null;
+		}
+	}
+
+	/**
+	 * Prints a double in the same way as JAXB.
+	 */
+	private static String printDouble(double value) {
+		if (Double.isNaN(value)) {
+			return "NaN";
+		}
+		if (value == Double.POSITIVE_INFINITY) {
+			return "INF";
+		}
+		if (value == Double.NEGATIVE_INFINITY) {
+			return "-INF";
+		}
+		return String.valueOf(value);
+	}
+
+	/**
+	 * Thin wrapper around an {@link XMLStreamWriter} which defers writing each start tag until its content
+	 * is known, so that elements without content are written as empty elements (<code>&lt;x/&gt;</code>)
+	 * as JAXB does, while elements with empty text are written as <code>&lt;x&gt;&lt;/x&gt;</code>.
+	 */
+	private static class ElementWriter {
+
+		private final XMLStreamWriter writer;
+
+		private final List<String> attributes = new ArrayList<String>();
+
+		private String pendingElement;
+
+		ElementWriter(XMLStreamWriter writer) {
+			this.writer = writer;
+		}
+
+		void start(String name) throws XMLStreamException {
+			flush(false);
+			pendingElement = name;
+		}
+
+		void attribute(String name, Object value) {
+			if (null != value) {
+				attributes.add(name);
+				attributes.add(value.toString());
+			}
+		}
+
+		void text(Object value) throws XMLStreamException {
+			if (null != value) {
+				flush(false);
+				writer.writeCharacters(value.toString());
+			}
+		}
+
+		void element(String name, Object value) throws XMLStreamException {
+			if (null != value) {
+				start(name);
+				text(value);
+				end();
+			}
+		}
+
+		void end() throws XMLStreamException {
+			if (null != pendingElement) {
+				flush(true);
+			} else {
+				writer.writeEndElement();
+			}
+		}
+
+		private void flush(boolean empty) throws XMLStreamException {
+			if (null == pendingElement) {
+				return;
+			}
+			if (empty) {
+				writer.writeEmptyElement(pendingElement);
+			} else {
+				writer.writeStartElement(pendingElement);
+			}
+			// the JAXB marshaller writes attributes in the reverse of their declaration order
+			for (int i = attributes.size() - 2; i >= 0; i -= 2) {
+				writer.writeAttribute(attributes.get(i), attributes.get(i + 1));
+			}
+			attributes.clear();
+			pendingElement = null;
+		}
+	}
+
+}
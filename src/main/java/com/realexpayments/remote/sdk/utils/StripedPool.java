@@ -0,0 +1,90 @@
+package com.realexpayments.remote.sdk.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * <p>
+ * Lock-free pool of reusable instances which are costly to create, such as digests, seeded random number
+ * generators and request buffers, used in place of a {@link ThreadLocal} so that instances outlive the
+ * threads using them. A {@link ThreadLocal} suits long-lived pooled threads, but where each request runs on
+ * a new thread, as on a virtual thread per task executor, it creates a new instance for every request.
+ * </p>
+ * <p>
+ * The pool holds at most one idle instance per stripe, the stripe being chosen by the thread's ID. A thread
+ * takes the idle instance of its stripe, or creates one if there is none, and returns it once finished with,
+ * being discarded if the stripe is already occupied. The number of stripes is a power of two of at least four
+ * per processor, so threads running at once rarely share a stripe.
+ * </p>
+ */
+public final class StripedPool<T> {
+
+	private final Supplier<T> factory;
+
+	private final AtomicReferenceArray<T> stripes;
+
+	private final int mask;
+
+	private final AtomicLong created = new AtomicLong();
+
+	/**
+	 * Creates an empty pool, the instances being created by the factory.
+	 *
+	 * @param factory
+	 */
+	public StripedPool(Supplier<T> factory) {
+		int size = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4 - 1)) << 1;
+		this.factory = factory;
+		this.stripes = new AtomicReferenceArray<T>(size);
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Takes the idle instance of the calling thread's stripe, or creates one if there is none.
+	 *
+	 * @return T
+	 */
+	public T take() {
+		T instance = stripes.getAndSet(stripe(), null);
+		if (null == instance) {
+			created.incrementAndGet();
+			instance = factory.get();
+		}
+		return instance;
+	}
+
+	/**
+	 * Returns the instance, which must no longer be used by the caller, to the calling thread's stripe unless
+	 * it is occupied.
+	 *
+	 * @param instance
+	 */
+	public void release(T instance) {
+		stripes.compareAndSet(stripe(), null, instance);
+	}
+
+	/**
+	 * Returns the number of stripes.
+	 *
+	 * @return int
+	 */
+	int getStripes() {
+		return stripes.length();
+	}
+
+	/**
+	 * Returns the number of instances created.
+	 *
+	 * @return long
+	 */
+	long getCreated() {
+		return created.get();
+	}
+
+	private int stripe() {
+		long id = Thread.currentThread().getId();
+		return (int) (id ^ (id >>> 32)) & mask;
+	}
+
+}
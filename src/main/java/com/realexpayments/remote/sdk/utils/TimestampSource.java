@@ -0,0 +1,136 @@
+package com.realexpayments.remote.sdk.utils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * <p>
+ * Source of the current time in the format (yyyyMMddHHmmss) required in a request to Realex, for example
+ * 20120926112654. The time is read from a {@link Clock}, which may be replaced in tests, and in the clock's
+ * time zone.
+ * </p>
+ * <p>
+ * The timestamp only changes once a second, so the last timestamp is cached, in a single volatile field shared
+ * by all threads, along with the second it represents. Within that second the cached string is returned without
+ * formatting or allocation; the first caller in a new second formats the timestamp into a character array and
+ * publishes it. Instances are thread safe.
+ * </p>
+ */
+public final class TimestampSource {
+
+	/**
+	 * The length of a timestamp.
+	 */
+	private static final int TIMESTAMP_LENGTH = 14;
+
+	/**
+	 * Source using the system clock and the default time zone at the time it was created.
+	 */
+	private static final TimestampSource SYSTEM_DEFAULT = new TimestampSource(Clock.systemDefaultZone());
+
+	private final Clock clock;
+
+	/**
+	 * The last timestamp formatted.
+	 */
+	private volatile CachedTimestamp cached = new CachedTimestamp(Long.MIN_VALUE, null);
+
+	/**
+	 * Creates a source reading the time from the clock.
+	 *
+	 * @param clock
+	 */
+	public TimestampSource(Clock clock) {
+		if (null == clock) {
+			throw new IllegalArgumentException("Clock must not be null.");
+		}
+		this.clock = clock;
+	}
+
+	/**
+	 * Returns the source using the system clock and the default time zone, as used by
+	 * {@link GenerationUtils#generateTimestamp()}.
+	 *
+	 * @return TimestampSource
+	 */
+	public static TimestampSource systemDefault() {
+		return SYSTEM_DEFAULT;
+	}
+
+	/**
+	 * Getter for the clock.
+	 *
+	 * @return Clock
+	 */
+	public Clock getClock() {
+		return clock;
+	}
+
+	/**
+	 * Returns the current timestamp in yyyyMMddHHmmss format.
+	 *
+	 * @return String
+	 */
+	public String currentTimestamp() {
+		long epochSecond = Math.floorDiv(clock.millis(), 1000L);
+		CachedTimestamp current = cached;
+		if (current.epochSecond != epochSecond) {
+			current = new CachedTimestamp(epochSecond, format(epochSecond));
+			cached = current;
+		}
+		return current.timestamp;
+	}
+
+	/**
+	 * Formats the second in the clock's time zone.
+	 *
+	 * @param epochSecond
+	 * @return String
+	 */
+	private String format(long epochSecond) {
+		ZoneOffset offset = clock.getZone().getRules().getOffset(Instant.ofEpochSecond(epochSecond));
+		LocalDateTime dateTime = LocalDateTime.ofEpochSecond(epochSecond, 0, offset);
+
+		char[] chars = new char[TIMESTAMP_LENGTH];
+		writeDigits(chars, 0, dateTime.getYear(), 4);
+		writeDigits(chars, 4, dateTime.getMonthValue(), 2);
+		writeDigits(chars, 6, dateTime.getDayOfMonth(), 2);
+		writeDigits(chars, 8, dateTime.getHour(), 2);
+		writeDigits(chars, 10, dateTime.getMinute(), 2);
+		writeDigits(chars, 12, dateTime.getSecond(), 2);
+		return new String(chars);
+	}
+
+	/**
+	 * Writes the value as a zero padded decimal of the given width.
+	 *
+	 * @param chars
+	 * @param offset
+	 * @param value
+	 * @param width
+	 */
+	private static void writeDigits(char[] chars, int offset, int value, int width) {
+		for (int i = offset + width - 1; i >= offset; i--) {
+			chars[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+	}
+
+	/**
+	 * A formatted timestamp and the second it represents.
+	 */
+	private static final class CachedTimestamp {
+
+		private final long epochSecond;
+
+		private final String timestamp;
+
+		CachedTimestamp(long epochSecond, String timestamp) {
+			this.epochSecond = epochSecond;
+			this.timestamp = timestamp;
+		}
+	}
+
+}
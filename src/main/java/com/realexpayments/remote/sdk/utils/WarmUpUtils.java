@@ -0,0 +1,159 @@
+package com.realexpayments.remote.sdk.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.realexpayments.remote.sdk.RealexException;
+import com.realexpayments.remote.sdk.domain.Card;
+import com.realexpayments.remote.sdk.domain.Card.CardType;
+import com.realexpayments.remote.sdk.domain.Cvn.PresenceIndicator;
+import com.realexpayments.remote.sdk.domain.Request;
+import com.realexpayments.remote.sdk.domain.Response;
+import com.realexpayments.remote.sdk.domain.payment.PaymentRequest;
+import com.realexpayments.remote.sdk.domain.payment.PaymentRequest.PaymentType;
+import com.realexpayments.remote.sdk.domain.payment.PaymentResponse;
+import com.realexpayments.remote.sdk.domain.threeDSecure.ThreeDSecureRequest;
+import com.realexpayments.remote.sdk.domain.threeDSecure.ThreeDSecureRequest.ThreeDSecureType;
+import com.realexpayments.remote.sdk.domain.threeDSecure.ThreeDSecureResponse;
+
+/**
+ * <p>
+ * Utils class for warming up the request processing paths before the first real request, so that the JAXB
+ * contexts are built, the marshaller pools are populated and the hashing and marshalling code is compiled
+ * by the JIT. No requests are sent.
+ * </p>
+ * <p>
+ * Each cycle processes synthetic messages of the same shape as real ones, an auth payment and a 3D Secure
+ * verify enrolled request: generating the request defaults (order ID, timestamp and hash), marshalling the
+ * request with the {@link XmlCodec}, unmarshalling a response from XML with the codec and validating the
+ * response hash.
+ * </p>
+ */
+public class WarmUpUtils {
+
+	/**
+	 * Logger
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(WarmUpUtils.class);
+
+	/**
+	 * Merchant ID used in the synthetic messages.
+	 */
+	private static final String MERCHANT_ID = "warmup";
+
+	/**
+	 * Runs the warm up cycles with the codec and generation context.
+	 *
+	 * @param codec
+	 * @param context
+	 * @param cycles
+	 */
+	public static void warmUpCodec(XmlCodec codec, GenerationContext context, int cycles) {
+
+		if (cycles < 0) {
+			throw new IllegalArgumentException("Warm up cycles must not be negative.");
+		}
+
+		LOGGER.debug("Running {} warm up cycles.", cycles);
+
+		//responses are marshalled once, only being unmarshalled in each cycle
+		byte[] paymentResponseXml = createPaymentResponse(context).toXml().getBytes(StandardCharsets.UTF_8);
+		byte[] threeDSecureResponseXml = createThreeDSecureResponse(context).toXml().getBytes(StandardCharsets.UTF_8);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream(2048);
+		for (int i = 0; i < cycles; i++) {
+			runCycle(codec, context, createPaymentRequest(), paymentResponseXml, out);
+			runCycle(codec, context, createThreeDSecureRequest(), threeDSecureResponseXml, out);
+		}
+	}
+
+	/**
+	 * Processes the request and response as {@link com.realexpayments.remote.sdk.RealexClient} would.
+	 *
+	 * @param codec
+	 * @param context
+	 * @param request
+	 * @param responseXml
+	 * @param out
+	 */
+	private static <T, U extends Response<U>> void runCycle(XmlCodec codec, GenerationContext context, Request<T, U> request,
+			byte[] responseXml, ByteArrayOutputStream out) {
+
+		request.generateDefaults(context);
+
+		out.reset();
+		try {
+			codec.toXml(request, out);
+		} catch (IOException ioe) {
+			throw new RealexException("Error marshalling warm up request.", ioe);
+		}
+
+		U response = codec.responseFromXml(request, new ByteArrayInputStream(responseXml));
+		if (!response.isHashValid(context.getHasher())) {
+			throw new RealexException("Warm up response hash is invalid.");
+		}
+	}
+
+	private static PaymentRequest createPaymentRequest() {
+		Card card = new Card()
+				.addNumber("4263970000005262")
+				.addExpiryDate("1230")
+				.addCardHolderName("Warm Up")
+				.addType(CardType.VISA)
+				.addCvn("123")
+				.addCvnPresenceIndicator(PresenceIndicator.CVN_PRESENT);
+
+		return new PaymentRequest()
+				.addType(PaymentType.AUTH)
+				.addMerchantId(MERCHANT_ID)
+				.addAmount(100)
+				.addCurrency("EUR")
+				.addCard(card);
+	}
+
+	private static ThreeDSecureRequest createThreeDSecureRequest() {
+		Card card = new Card()
+				.addNumber("4263970000005262")
+				.addExpiryDate("1230")
+				.addCardHolderName("Warm Up")
+				.addType(CardType.VISA);
+
+		return new ThreeDSecureRequest()
+				.addType(ThreeDSecureType.VERIFY_ENROLLED)
+				.addMerchantId(MERCHANT_ID)
+				.addAmount(100)
+				.addCurrency("EUR")
+				.addCard(card);
+	}
+
+	private static PaymentResponse createPaymentResponse(GenerationContext context) {
+		PaymentResponse response = new PaymentResponse();
+		response.setTimeStamp(context.currentTimestamp());
+		response.setMerchantId(MERCHANT_ID);
+		response.setOrderId(context.generateOrderId());
+		response.setResult(Response.RESULT_CODE_SUCCESS);
+		response.setMessage("[ test system ] Authorised");
+		response.setPaymentsReference("14610544313177922");
+		response.setAuthCode("12345");
+		response.hash(context.getHasher());
+		return response;
+	}
+
+	private static ThreeDSecureResponse createThreeDSecureResponse(GenerationContext context) {
+		ThreeDSecureResponse response = new ThreeDSecureResponse();
+		response.setTimeStamp(context.currentTimestamp());
+		response.setMerchantId(MERCHANT_ID);
+		response.setOrderId(context.generateOrderId());
+		response.setResult(Response.RESULT_CODE_SUCCESS);
+		response.setMessage("Enrolled");
+		response.setEnrolled("Y");
+		response.hash(context.getHasher());
+		return response;
+	}
+
+}
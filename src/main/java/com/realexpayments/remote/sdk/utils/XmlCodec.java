@@ -0,0 +1,61 @@
+package com.realexpayments.remote.sdk.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.realexpayments.remote.sdk.domain.Request;
+import com.realexpayments.remote.sdk.domain.Response;
+
+/**
+ * Interface to be implemented by classes which convert Realex requests to XML and XML to Realex 
+ * responses. The codec used by the {@link com.realexpayments.remote.sdk.RealexClient} can be chosen 
+ * per client.
+ */
+public interface XmlCodec {
+
+	/**
+	 * <p>
+	 * Method returns an XML representation of the request.
+	 * </p>
+	 * 
+	 * @param request
+	 * @return String
+	 */
+	String toXml(Request<?, ?> request);
+
+	/**
+	 * <p>
+	 * Method writes a UTF-8 encoded XML representation of the request directly to the stream.
+	 * </p>
+	 * 
+	 * @param request
+	 * @param out
+	 * @throws IOException
+	 */
+	void toXml(Request<?, ?> request, OutputStream out) throws IOException;
+
+	/**
+	 * <p>
+	 * Method returns the response to the request from its XML representation.
+	 * </p>
+	 * 
+	 * @param request
+	 * @param xml
+	 * @return U
+	 */
+	<T, U extends Response<U>> U responseFromXml(Request<T, U> request, String xml);
+
+	/**
+	 * <p>
+	 * Method returns the response to the request, reading its XML representation directly from the stream. 
+	 * The encoding is taken from the XML declaration.
+	 * </p>
+	 * 
+	 * @param request
+	 * @param in
+	 * @return U
+	 */
+	<T, U extends Response<U>> U responseFromXml(Request<T, U> request, InputStream in);
+
+}
@@ -1,8 +1,12 @@
 package com.realexpayments.remote.sdk.utils;
 
+import java.io.OutputStream;
 import java.io.StringWriter;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -21,6 +25,12 @@ import com.realexpayments.remote.sdk.domain.threeDSecure.ThreeDSecureResponse;
 
 /**
  * XML helper class. Marshals/unmarshals XML.
+ * <p>
+ * {@link Marshaller} and {@link Unmarshaller} instances are not thread safe and are comparatively expensive 
+ * to create, so idle instances are kept in a bounded pool per {@link MessageType} and reused. Each instance 
+ * is only ever used by one thread at a time. The pool size may be tuned with {@link #setPoolSize(int)}; 
+ * a pool size of zero disables pooling, creating a new instance for every call.
+ * </p>
  * 
  * @author markstanford
  *
@@ -32,6 +42,22 @@ public class XmlUtils {
 	 */
 	private static final Map<MessageType, JAXBContext> JAXB_CONTEXT_MAP = new HashMap<MessageType, JAXBContext>();
 
+	/**
+	 * The default maximum number of idle marshallers (and unmarshallers) pooled per message type.
+	 */
+	public static final int DEFAULT_POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+
+	/**
+	 * {@link JaxbPool} map holding the idle marshallers/unmarshallers for each message type. Replaced 
+	 * when the pool size changes.
+	 */
+	private static volatile Map<MessageType, JaxbPool> jaxbPoolMap;
+
+	/**
+	 * The maximum number of idle marshallers (and unmarshallers) pooled per message type.
+	 */
+	private static volatile int poolSize;
+
 	/**
 	 * Enumeration for the message type.
 	 */
@@ -53,6 +79,8 @@ public class XmlUtils {
 			JAXB_CONTEXT_MAP.put(MessageType.PAYMENT, paymentJaxbContext);
 			JAXB_CONTEXT_MAP.put(MessageType.THREE_D_SECURE, threeDSecureJaxbContext);
 
+			setPoolSize(DEFAULT_POOL_SIZE);
+
 		} catch (Exception ex) {
 			LOGGER.error("Error initialising JAXBContext", ex);
 			throw new RealexException("Error initialising JAXBContext", ex);
@@ -73,8 +101,10 @@ public class XmlUtils {
 		StringWriter result = new StringWriter();
 
 		try {
-			Marshaller jaxbMarshaller = JAXB_CONTEXT_MAP.get(messageType).createMarshaller();
+			JaxbPool jaxbPool = jaxbPoolMap.get(messageType);
+			Marshaller jaxbMarshaller = jaxbPool.borrowMarshaller();
 			jaxbMarshaller.marshal(object, result);
+			jaxbPool.returnMarshaller(jaxbMarshaller);
 		} catch (Exception ex) {
 			LOGGER.error("Error marshalling to XML", ex);
 			throw new RealexException("Error marshalling to XML", ex);
@@ -83,6 +113,28 @@ public class XmlUtils {
 		return result.toString();
 	}
 
+	/**
+	 * Marshals object to XML, writing the UTF-8 encoded XML directly to the output stream.
+	 * 
+	 * @param object
+	 * @param messageType
+	 * @param out
+	 */
+	public static void toXml(Object object, MessageType messageType, OutputStream out) {
+
+		LOGGER.debug("Marshalling domain object to XML stream.");
+
+		try {
+			JaxbPool jaxbPool = jaxbPoolMap.get(messageType);
+			Marshaller jaxbMarshaller = jaxbPool.borrowMarshaller();
+			jaxbMarshaller.marshal(object, out);
+			jaxbPool.returnMarshaller(jaxbMarshaller);
+		} catch (Exception ex) {
+			LOGGER.error("Error marshalling to XML", ex);
+			throw new RealexException("Error marshalling to XML", ex);
+		}
+	}
+
 	/**
 	 * Unmarshals XML to request object. 
 	 * 
@@ -96,8 +148,10 @@ public class XmlUtils {
 		Object response = null;
 
 		try {
-			Unmarshaller jaxbUnmarshaller = JAXB_CONTEXT_MAP.get(messageType).createUnmarshaller();
+			JaxbPool jaxbPool = jaxbPoolMap.get(messageType);
+			Unmarshaller jaxbUnmarshaller = jaxbPool.borrowUnmarshaller();
 			response = jaxbUnmarshaller.unmarshal(xml);
+			jaxbPool.returnUnmarshaller(jaxbUnmarshaller);
 		} catch (JAXBException ex) {
 			LOGGER.error("Error unmarshalling from XML", ex);
 			throw new RealexException("Error unmarshalling from XML", ex);
@@ -106,4 +160,87 @@ public class XmlUtils {
 		return response;
 	}
 
+	/**
+	 * Returns the {@link JAXBContext} used for the message type.
+	 * 
+	 * @param messageType
+	 * @return JAXBContext
+	 */
+	public static JAXBContext getJaxbContext(MessageType messageType) {
+		return JAXB_CONTEXT_MAP.get(messageType);
+	}
+
+	/**
+	 * Returns the maximum number of idle marshallers (and unmarshallers) pooled per message type.
+	 * 
+	 * @return int
+	 */
+	public static int getPoolSize() {
+		return poolSize;
+	}
+
+	/**
+	 * Sets the maximum number of idle marshallers (and unmarshallers) pooled per message type. Typically 
+	 * this should be at least the number of threads sending requests concurrently. A pool size of zero 
+	 * disables pooling. Any currently pooled instances are discarded.
+	 * 
+	 * @param poolSize
+	 */
+	public static synchronized void setPoolSize(int poolSize) {
+		if (poolSize < 0) {
+			throw new IllegalArgumentException("Pool size must not be negative.");
+		}
+
+		Map<MessageType, JaxbPool> pools = new EnumMap<MessageType, JaxbPool>(MessageType.class);
+		for (Map.Entry<MessageType, JAXBContext> entry : JAXB_CONTEXT_MAP.entrySet()) {
+			pools.put(entry.getKey(), new JaxbPool(entry.getValue(), poolSize));
+		}
+
+		LOGGER.debug("Setting marshaller pool size to {}.", poolSize);
+		XmlUtils.poolSize = poolSize;
+		XmlUtils.jaxbPoolMap = pools;
+	}
+
+	/**
+	 * Bounded pool of idle {@link Marshaller} and {@link Unmarshaller} instances for one {@link JAXBContext}. 
+	 * Instances are created on demand when the pool is empty, and discarded when returned to a full pool. 
+	 * Instances which fail during use are not returned.
+	 */
+	private static class JaxbPool {
+
+		private final JAXBContext jaxbContext;
+
+		private final BlockingQueue<Marshaller> marshallers;
+
+		private final BlockingQueue<Unmarshaller> unmarshallers;
+
+		JaxbPool(JAXBContext jaxbContext, int poolSize) {
+			this.jaxbContext = jaxbContext;
+			this.marshallers = poolSize > 0 ? new ArrayBlockingQueue<Marshaller>(poolSize) : null;
+			this.unmarshallers = poolSize > 0 ? new ArrayBlockingQueue<Unmarshaller>(poolSize) : null;
+		}
+
+		Marshaller borrowMarshaller() throws JAXBException {
+			Marshaller marshaller = null == marshallers ? null : marshallers.poll();
+			return null == marshaller ? jaxbContext.createMarshaller() : marshaller;
+		}
+
+		void returnMarshaller(Marshaller marshaller) {
+			if (null != marshallers) {
+				marshallers.offer(marshaller);
+			}
+		}
+
+		Unmarshaller borrowUnmarshaller() throws JAXBException {
+			Unmarshaller unmarshaller = null == unmarshallers ? null : unmarshallers.poll();
+			return null == unmarshaller ? jaxbContext.createUnmarshaller() : unmarshaller;
+		}
+
+		void returnUnmarshaller(Unmarshaller unmarshaller) {
+			if (null != unmarshallers) {
+				unmarshallers.offer(unmarshaller);
+			}
+		}
+	}
+
 }
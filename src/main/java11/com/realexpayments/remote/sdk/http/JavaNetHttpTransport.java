@@ -0,0 +1,333 @@
+package com.realexpayments.remote.sdk.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.realexpayments.remote.sdk.RealexException;
+
+/**
+ * <p>
+ * {@link Transport} sending requests with the java.net.http {@link HttpClient}, available on Java 11 and later. 
+ * This class is compiled for Java 11 and packaged as a multi-release class, so should be created with 
+ * {@link HttpUtils#getJavaNetHttpTransport(HttpConfiguration)} or {@link HttpUtils#getHttp2Transport(HttpConfiguration)} 
+ * rather than referenced directly by code which must also run on Java 8.
+ * </p>
+ * <p>
+ * The client keeps connections alive between requests. By default requests are sent over HTTP/1.1, one request 
+ * per connection at a time; a transport created with {@link #http2(HttpConfiguration)} multiplexes concurrent 
+ * requests over HTTP/2 connections where the server supports it. The connection timeout is taken from the 
+ * {@link HttpConfiguration} the transport is created with, and the timeout for each request from the 
+ * {@link HttpConfiguration} it is sent with. Asynchronous requests do not block any thread while waiting 
+ * for the response.
+ * </p>
+ */
+public class JavaNetHttpTransport implements Transport {
+
+	private final static Logger logger = LoggerFactory.getLogger(JavaNetHttpTransport.class);
+
+	private final static String CONTENT_TYPE = "Content-Type";
+
+	private final static String APPLICATION_XML = "application/xml";
+
+	private final static String HTTP = "http";
+
+	private final HttpClient httpClient;
+
+	/**
+	 * The cleartext HTTP/2 upgrade, set by the first request which needs it, see
+	 * {@link #upgradeCleartext(URI, HttpConfiguration)}. Completes normally whether or not the upgrade succeeds.
+	 */
+	private final AtomicReference<CompletableFuture<Void>> cleartextUpgrade = new AtomicReference<CompletableFuture<Void>>();
+
+	/**
+	 * Creates a transport with an HTTP/1.1 client configured from the {@link HttpConfiguration}.
+	 * 
+	 * @param httpConfiguration
+	 */
+	public JavaNetHttpTransport(HttpConfiguration httpConfiguration) {
+		this(createHttpClient(httpConfiguration, HttpClient.Version.HTTP_1_1));
+	}
+
+	/**
+	 * Returns a transport with an HTTP/1.1 client configured from the {@link HttpConfiguration}.
+	 * 
+	 * @param httpConfiguration
+	 * @return JavaNetHttpTransport
+	 */
+	public static JavaNetHttpTransport http1(HttpConfiguration httpConfiguration) {
+		return new JavaNetHttpTransport(httpConfiguration);
+	}
+
+	/**
+	 * Returns a transport with an HTTP/2 client configured from the {@link HttpConfiguration}. Over HTTPS 
+	 * the protocol is negotiated with ALPN, falling back to HTTP/1.1 if the server does not support HTTP/2. 
+	 * Over plain HTTP an upgrade to cleartext HTTP/2 (h2c) is attempted before the first request.
+	 * <p>
+	 * Concurrent requests to the endpoint are multiplexed over a single connection, as HTTP/2 streams, rather 
+	 * than each holding its own connection, so many concurrent requests share one TLS handshake and socket.
+	 * </p>
+	 * 
+	 * @param httpConfiguration
+	 * @return JavaNetHttpTransport
+	 */
+	public static JavaNetHttpTransport http2(HttpConfiguration httpConfiguration) {
+		return new JavaNetHttpTransport(createHttpClient(httpConfiguration, HttpClient.Version.HTTP_2));
+	}
+
+	/**
+	 * Creates a transport using the supplied client.
+	 * 
+	 * @param httpClient
+	 */
+	public JavaNetHttpTransport(HttpClient httpClient) {
+		this.httpClient = httpClient;
+	}
+
+	/**
+	 * Creates a client for the HTTP version, with the connection timeout from the default {@link TimeoutProfile} 
+	 * of the {@link HttpConfiguration}. The java.net.http client only supports a connection timeout for the 
+	 * client as a whole, so the connection timeouts of other profiles do not apply.
+	 * 
+	 * @param httpConfiguration
+	 * @param version
+	 * @return HttpClient
+	 */
+	private static HttpClient createHttpClient(HttpConfiguration httpConfiguration, HttpClient.Version version) {
+		logger.debug("Creating java.net.http client for {}.", version);
+		HttpClient.Builder builder = HttpClient.newBuilder().version(version);
+		int connectTimeout = httpConfiguration.getTimeoutProfile().getConnectTimeout();
+		if (connectTimeout > 0) {
+			builder.connectTimeout(Duration.ofMillis(connectTimeout));
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Getter for the client.
+	 * 
+	 * @return HttpClient
+	 */
+	public HttpClient getHttpClient() {
+		return httpClient;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> T send(HttpConfiguration httpConfiguration, RequestWriter requestWriter, ResponseReader<T> responseReader) {
+
+		HttpRequest httpRequest = createHttpRequest(httpConfiguration, requestWriter);
+		upgradeCleartext(httpRequest.uri(), httpConfiguration).join();
+
+		try {
+			logger.debug("Executing HTTP Post message to: " + httpRequest.uri());
+			HttpResponse<InputStream> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofInputStream());
+
+			try (InputStream content = response.body()) {
+				HttpUtils.checkStatusCode(response.statusCode());
+				logger.debug("Reading HTTP response body (the xml response) from the stream.");
+				return responseReader.read(content);
+			}
+		} catch (IOException ioe) {
+			throw HttpUtils.communicationException(ioe, httpConfiguration.getDeadline());
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new RealexException("Interrupted communicating with Realex.", ie);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> CompletableFuture<T> sendAsync(HttpConfiguration httpConfiguration, RequestWriter requestWriter,
+			final ResponseReader<T> responseReader) {
+
+		final HttpRequest httpRequest;
+		try {
+			httpRequest = createHttpRequest(httpConfiguration, requestWriter);
+		} catch (RealexException ex) {
+			return CompletableFuture.failedFuture(ex);
+		}
+
+		logger.debug("Executing asynchronous HTTP Post message to: " + httpRequest.uri());
+		CompletableFuture<Void> upgrade = upgradeCleartext(httpRequest.uri(), httpConfiguration);
+		final CompletableFuture<HttpResponse<byte[]>> httpFuture = upgrade.isDone()
+				? httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofByteArray())
+				: upgrade.thenCompose(upgraded -> httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofByteArray()));
+
+		final Deadline deadline = httpConfiguration.getDeadline();
+		final CompletableFuture<T> result = new CompletableFuture<T>();
+		httpFuture.whenComplete((response, throwable) -> {
+			if (null != throwable) {
+				Throwable cause = throwable instanceof CompletionException && null != throwable.getCause() ? throwable.getCause()
+						: throwable;
+				result.completeExceptionally(HttpUtils.communicationException(cause, deadline));
+				return;
+			}
+			try {
+				HttpUtils.checkStatusCode(response.statusCode());
+				result.complete(responseReader.read(new ByteArrayInputStream(response.body())));
+			} catch (RuntimeException ex) {
+				result.completeExceptionally(ex);
+			} catch (IOException ioe) {
+				result.completeExceptionally(HttpUtils.communicationException(ioe, deadline));
+			}
+		});
+
+		// abort the HTTP request if the caller cancels
+		result.whenComplete((response, throwable) -> {
+			if (result.isCancelled()) {
+				httpFuture.cancel(true);
+			}
+		});
+
+		return result;
+	}
+
+	/**
+	 * Opens connections by sending HEAD requests to the endpoint concurrently, waiting for the responses. An 
+	 * HTTP/2 client sends a single request, as concurrent requests share the connection negotiated.
+	 */
+	@Override
+	public void warmUp(HttpConfiguration httpConfiguration, int connections) {
+
+		if (connections < 0) {
+			throw new IllegalArgumentException("Connections must not be negative.");
+		}
+
+		URI uri = HttpUtils.getEndpointUri(httpConfiguration);
+		if (httpClient.version() == HttpClient.Version.HTTP_2) {
+			if (HTTP.equalsIgnoreCase(uri.getScheme())) {
+				upgradeCleartext(uri, httpConfiguration).join();
+				return;
+			}
+			connections = Math.min(connections, 1);
+		}
+
+		logger.debug("Opening {} connections to {}.", connections, uri);
+		HttpRequest.Builder headRequest = HttpRequest.newBuilder(uri).method("HEAD", HttpRequest.BodyPublishers.noBody());
+		int timeout = httpConfiguration.getTimeoutProfile().getSocketTimeout();
+		if (timeout > 0) {
+			headRequest.timeout(Duration.ofMillis(timeout));
+		}
+		CompletableFuture<?>[] responses = new CompletableFuture<?>[connections];
+		for (int i = 0; i < connections; i++) {
+			responses[i] = httpClient.sendAsync(headRequest.build(), HttpResponse.BodyHandlers.discarding());
+		}
+		try {
+			CompletableFuture.allOf(responses).join();
+		} catch (CompletionException ex) {
+			logger.warn("Exception opening connection to Realex.", ex.getCause());
+		}
+	}
+
+	/**
+	 * The java.net.http client only upgrades a plain HTTP connection to HTTP/2 on a request without a body, 
+	 * so every POST would otherwise be sent over HTTP/1.1. When the client prefers HTTP/2, a HEAD request 
+	 * is sent to a plain HTTP endpoint once, before the first POST, so that an upgraded connection is pooled 
+	 * and shared by the requests which follow. The HEAD request is sent asynchronously, with the request 
+	 * timeout of the {@link HttpConfiguration}, and requests which arrive meanwhile wait for it without 
+	 * holding a lock. Any failure is ignored, the requests then being sent over HTTP/1.1. HTTPS endpoints 
+	 * negotiate the protocol with ALPN during the TLS handshake instead.
+	 * 
+	 * @param uri
+	 * @param httpConfiguration
+	 * @return CompletableFuture completing once the upgrade has been attempted
+	 */
+	private CompletableFuture<Void> upgradeCleartext(URI uri, HttpConfiguration httpConfiguration) {
+
+		if (httpClient.version() != HttpClient.Version.HTTP_2 || !HTTP.equalsIgnoreCase(uri.getScheme())) {
+			return CompletableFuture.completedFuture(null);
+		}
+		CompletableFuture<Void> upgrade = cleartextUpgrade.get();
+		if (null != upgrade) {
+			return upgrade;
+		}
+		CompletableFuture<Void> created = new CompletableFuture<Void>();
+		if (!cleartextUpgrade.compareAndSet(null, created)) {
+			return cleartextUpgrade.get();
+		}
+
+		logger.debug("Upgrading connection to {} to HTTP/2.", uri);
+		HttpRequest.Builder headRequest = HttpRequest.newBuilder(uri).method("HEAD", HttpRequest.BodyPublishers.noBody());
+		int timeout = requestTimeout(httpConfiguration);
+		if (timeout > 0) {
+			headRequest.timeout(Duration.ofMillis(timeout));
+		}
+		httpClient.sendAsync(headRequest.build(), HttpResponse.BodyHandlers.discarding()).whenComplete((response, throwable) -> {
+			if (null == throwable) {
+				logger.debug("Connection to {} using {}.", uri, response.version());
+			} else {
+				logger.debug("Upgrade to HTTP/2 failed, using HTTP/1.1.", throwable);
+			}
+			created.complete(null);
+		});
+		return created;
+	}
+
+	/**
+	 * Returns the request timeout, which limits the wait for the response: the total timeout of the 
+	 * {@link TimeoutProfile}, or the socket timeout if there is none, limited to the time remaining before 
+	 * the deadline.
+	 * 
+	 * @param httpConfiguration
+	 * @return int
+	 */
+	private static int requestTimeout(HttpConfiguration httpConfiguration) {
+		TimeoutProfile timeoutProfile = httpConfiguration.getTimeoutProfile();
+		Deadline deadline = httpConfiguration.getDeadline();
+		int timeout = timeoutProfile.getTotalTimeout() > 0 ? timeoutProfile.getTotalTimeout() : timeoutProfile.getSocketTimeout();
+		return null == deadline ? timeout : deadline.limit(timeout);
+	}
+
+	/**
+	 * Creates the POST request for the configured endpoint, writing the request body. This will throw a 
+	 * {@link RealexException} if HTTP is used when only HTTPS is allowed, or a 
+	 * {@link com.realexpayments.remote.sdk.RealexTimeoutException} if the deadline has passed. The request 
+	 * has the request timeout, see {@link #requestTimeout(HttpConfiguration)}.
+	 * 
+	 * @param httpConfiguration
+	 * @param requestWriter
+	 * @return HttpRequest
+	 */
+	private static HttpRequest createHttpRequest(HttpConfiguration httpConfiguration, RequestWriter requestWriter) {
+
+		Deadline deadline = httpConfiguration.getDeadline();
+		if (null != deadline) {
+			deadline.check("before sending the request to Realex");
+		}
+		int timeout = requestTimeout(httpConfiguration);
+		URI endpoint = HttpUtils.getEndpointUri(httpConfiguration);
+
+		ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+		try {
+			requestWriter.writeTo(body);
+		} catch (IOException ioe) {
+			throw new RealexException("Exception writing request to Realex.", ioe);
+		}
+
+		HttpRequest.Builder httpRequest = HttpRequest.newBuilder(endpoint)
+				.header(CONTENT_TYPE, APPLICATION_XML)
+				.POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()));
+		if (timeout > 0) {
+			httpRequest.timeout(Duration.ofMillis(timeout));
+		}
+		return httpRequest.build();
+	}
+
+}
@@ -1,5 +1,6 @@
 package com.realexpayments.remote.sdk;
 
+import static com.realexpayments.remote.sdk.utils.SampleXmlValidationUtils.PAYMENT_REQUEST_XML_PATH;
 import static com.realexpayments.remote.sdk.utils.SampleXmlValidationUtils.PAYMENT_RESPONSE_BASIC_ERROR_XML_PATH;
 import static com.realexpayments.remote.sdk.utils.SampleXmlValidationUtils.PAYMENT_RESPONSE_FULL_ERROR_XML_PATH;
 import static com.realexpayments.remote.sdk.utils.SampleXmlValidationUtils.PAYMENT_RESPONSE_XML_PATH;
@@ -13,6 +14,19 @@ import static org.mockito.Mockito.when;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.xml.transform.stream.StreamSource;
 
@@ -29,11 +43,33 @@ import org.junit.Test;
 import org.mockito.Matchers;
 
 import com.realexpayments.remote.sdk.domain.payment.PaymentRequest;
+import com.realexpayments.remote.sdk.domain.payment.PaymentRequest.PaymentType;
 import com.realexpayments.remote.sdk.domain.payment.PaymentResponse;
 import com.realexpayments.remote.sdk.domain.threeDSecure.ThreeDSecureRequest;
 import com.realexpayments.remote.sdk.domain.threeDSecure.ThreeDSecureResponse;
+import com.realexpayments.remote.sdk.http.Deadline;
+import com.realexpayments.remote.sdk.http.FailurePhase;
 import com.realexpayments.remote.sdk.http.HttpConfiguration;
+import com.realexpayments.remote.sdk.http.Lane;
+import com.realexpayments.remote.sdk.http.LanePolicy;
+import com.realexpayments.remote.sdk.http.LoopbackTransport;
+import com.realexpayments.remote.sdk.http.RequestWriter;
+import com.realexpayments.remote.sdk.http.ResponseReader;
+import com.realexpayments.remote.sdk.http.StubServer;
+import com.realexpayments.remote.sdk.http.TimeoutProfile;
+import com.realexpayments.remote.sdk.http.Transport;
+import com.realexpayments.remote.sdk.resilience.CircuitBreaker;
+import com.realexpayments.remote.sdk.resilience.CircuitBreakerPolicy;
+import com.realexpayments.remote.sdk.resilience.ConcurrencyLimitPolicy;
+import com.realexpayments.remote.sdk.resilience.ConcurrencyLimiter;
+import com.realexpayments.remote.sdk.resilience.HedgingPolicy;
+import com.realexpayments.remote.sdk.resilience.RateLimit;
+import com.realexpayments.remote.sdk.resilience.RateLimitPolicy;
+import com.realexpayments.remote.sdk.resilience.RetryPolicy;
+import com.realexpayments.remote.sdk.utils.ExecutorUtils;
 import com.realexpayments.remote.sdk.utils.SampleXmlValidationUtils;
+import com.realexpayments.remote.sdk.utils.StaxXmlCodec;
+import com.realexpayments.remote.sdk.utils.TimestampSource;
 
 /**
  * Unit test class for {@link RealexClient}.
@@ -303,4 +339,641 @@ public class RealexClientTest {
 		//shouldn't get this far
 		Assert.fail("RealexException should have been thrown before this point.");
 	}
+
+	/**
+	 * Test sending a payment request asynchronously and receiving a payment response. 
+	 */
+	@Test
+	public void sendAsyncTest() throws IOException {
+
+		//get sample response XML
+		File file = new File(this.getClass().getResource(PAYMENT_RESPONSE_XML_PATH).getPath());
+		PaymentResponse fromXmlResponse = new PaymentResponse().fromXml(new StreamSource(file));
+
+		try (StubServer server = new StubServer(fromXmlResponse.toXml());
+				RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET, server.createHttpConfiguration())) {
+
+			PaymentResponse response = realexClient.sendAsync(new PaymentRequest()).join();
+
+			//validate response
+			checkUnmarshalledPaymentResponse(response);
+		}
+	}
+
+	/**
+	 * Test the request XML streamed to Realex is the same as the marshalled request. 
+	 */
+	@Test
+	public void sendStreamsRequestXmlTest() throws IOException {
+
+		//get sample request and response XML
+		File requestFile = new File(this.getClass().getResource(PAYMENT_REQUEST_XML_PATH).getPath());
+		PaymentRequest request = new PaymentRequest().fromXml(new StreamSource(requestFile));
+		File responseFile = new File(this.getClass().getResource(PAYMENT_RESPONSE_XML_PATH).getPath());
+		final String responseXml = new PaymentResponse().fromXml(new StreamSource(responseFile)).toXml();
+
+		final List<String> requestXmls = new CopyOnWriteArrayList<String>();
+		try (StubServer server = new StubServer(requestXml -> {
+			requestXmls.add(requestXml);
+			return responseXml;
+		}); RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET, server.createHttpConfiguration())) {
+
+			PaymentResponse response = realexClient.send(request);
+
+			//validate request and response
+			Assert.assertEquals(1, requestXmls.size());
+			Assert.assertEquals(request.toXml(), requestXmls.get(0));
+			checkUnmarshalledPaymentResponse(response);
+		}
+	}
+
+	/**
+	 * Test sending a payment request using the StAX codec and receiving a payment response. 
+	 */
+	@Test
+	public void sendWithStaxXmlCodecTest() throws IOException {
+
+		//get sample response XML
+		File file = new File(this.getClass().getResource(PAYMENT_RESPONSE_XML_PATH).getPath());
+		PaymentResponse fromXmlResponse = new PaymentResponse().fromXml(new StreamSource(file));
+
+		try (StubServer server = new StubServer(fromXmlResponse.toXml());
+				RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET, server.createHttpConfiguration())) {
+
+			realexClient.setXmlCodec(new StaxXmlCodec());
+			PaymentResponse response = realexClient.send(new PaymentRequest());
+
+			//validate response
+			checkUnmarshalledPaymentResponse(response);
+		}
+	}
+
+	/**
+	 * Test the order ID generator and timestamp source are used for a request without an order ID or timestamp. 
+	 */
+	@Test
+	public void sendWithGeneratedDefaultsTest() throws IOException {
+
+		//get sample response XML
+		File file = new File(this.getClass().getResource(PAYMENT_RESPONSE_XML_PATH).getPath());
+		PaymentResponse fromXmlResponse = new PaymentResponse().fromXml(new StreamSource(file));
+
+		try (StubServer server = new StubServer(fromXmlResponse.toXml());
+				RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET, server.createHttpConfiguration())) {
+
+			realexClient.setOrderIdGenerator(() -> "generated-order-id");
+			realexClient.setTimestampSource(new TimestampSource(Clock.fixed(Instant.parse("2015-01-31T09:45:59Z"), ZoneOffset.UTC)));
+			PaymentRequest request = new PaymentRequest();
+			realexClient.send(request);
+			Assert.assertEquals("generated-order-id", request.getOrderId());
+			Assert.assertEquals("20150131094559", request.getTimeStamp());
+
+			//an existing order ID is kept
+			request = new PaymentRequest().addOrderId("ORD453-11");
+			realexClient.send(request);
+			Assert.assertEquals("ORD453-11", request.getOrderId());
+		}
+	}
+
+	/**
+	 * Test sending requests with a supplied transport. 
+	 */
+	@Test
+	public void sendWithTransportTest() throws IOException {
+
+		//get sample response XML
+		File file = new File(this.getClass().getResource(PAYMENT_RESPONSE_XML_PATH).getPath());
+		PaymentResponse fromXmlResponse = new PaymentResponse().fromXml(new StreamSource(file));
+
+		final List<String> requests = new CopyOnWriteArrayList<String>();
+		Transport transport = new LoopbackTransport((request, response) -> {
+			requests.add(new String(Transport.readFully(request), StandardCharsets.UTF_8));
+			response.write(fromXmlResponse.toXml().getBytes(StandardCharsets.UTF_8));
+		});
+
+		try (RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET)) {
+			realexClient.setTransport(transport);
+			Assert.assertSame(transport, realexClient.getTransport());
+
+			PaymentRequest request = new PaymentRequest();
+			checkUnmarshalledPaymentResponse(realexClient.send(request));
+			checkUnmarshalledPaymentResponse(realexClient.sendAsync(request).join());
+
+			Assert.assertEquals(2, requests.size());
+			Assert.assertEquals(request.toXml(), requests.get(0));
+		}
+	}
+
+	/**
+	 * Test requests are sent in the lane of their type, or the lane given, where a lane policy is set.
+	 */
+	@Test
+	public void sendWithLanesTest() throws IOException {
+
+		//get sample response XML
+		File file = new File(this.getClass().getResource(PAYMENT_RESPONSE_XML_PATH).getPath());
+		PaymentResponse fromXmlResponse = new PaymentResponse().fromXml(new StreamSource(file));
+
+		final Transport loopback = new LoopbackTransport((request, response) -> {
+			response.write(fromXmlResponse.toXml().getBytes(StandardCharsets.UTF_8));
+		});
+		final List<Lane> lanes = new CopyOnWriteArrayList<Lane>();
+		Transport transport = new Transport() {
+			@Override
+			public <T> T send(HttpConfiguration httpConfiguration, RequestWriter requestWriter, ResponseReader<T> responseReader) {
+				lanes.add(httpConfiguration.getLane());
+				return loopback.send(httpConfiguration, requestWriter, responseReader);
+			}
+
+			@Override
+			public <T> CompletableFuture<T> sendAsync(HttpConfiguration httpConfiguration, RequestWriter requestWriter,
+					ResponseReader<T> responseReader) {
+				lanes.add(httpConfiguration.getLane());
+				return loopback.sendAsync(httpConfiguration, requestWriter, responseReader);
+			}
+		};
+
+		HttpConfiguration httpConfiguration = new HttpConfiguration();
+		httpConfiguration.setLanePolicy(new LanePolicy());
+		httpConfiguration.setMaxConnectionsPerRoute(5);
+		httpConfiguration.setMaxConnectionsTotal(50);
+		try (RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET, httpConfiguration)) {
+			realexClient.setTransport(transport);
+
+			//the lanes send no more requests at once than the pool gives the single endpoint
+			Assert.assertEquals(5, realexClient.getPriorityTransport().getMaxConnections());
+
+			checkUnmarshalledPaymentResponse(realexClient.send(new PaymentRequest().addType(PaymentType.AUTH)));
+			checkUnmarshalledPaymentResponse(realexClient.sendAsync(new PaymentRequest().addType(PaymentType.SETTLE)).join());
+			checkUnmarshalledPaymentResponse(realexClient.send(new PaymentRequest().addType(PaymentType.AUTH), null, Lane.BULK));
+
+			Assert.assertEquals(Lane.INTERACTIVE, lanes.get(0));
+			Assert.assertEquals(Lane.BULK, lanes.get(1));
+			Assert.assertEquals(Lane.BULK, lanes.get(2));
+			Assert.assertEquals(0, realexClient.getPriorityTransport().getInFlight(Lane.BULK));
+		}
+	}
+
+	/**
+	 * Test requests are routed between weighted endpoints, with statistics kept for each.
+	 */
+	@Test
+	public void sendWithEndpointsTest() throws IOException {
+		try (StubServer server1 = new StubServer(fromXmlPaymentResponse().toXml());
+				StubServer server2 = new StubServer(fromXmlPaymentResponse().toXml())) {
+			HttpConfiguration httpConfiguration = server1.createHttpConfiguration();
+			httpConfiguration.addEndpoint(server1.getEndpoint(), 1);
+			httpConfiguration.addEndpoint(server2.getEndpoint(), 1);
+
+			try (RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET, httpConfiguration)) {
+				Assert.assertTrue(realexClient.getEndpointStats().isEmpty());
+				for (int i = 0; i < 10; i++) {
+					checkUnmarshalledPaymentResponse(realexClient.send(new PaymentRequest()));
+				}
+
+				Assert.assertEquals(10, server1.getRequestCount() + server2.getRequestCount());
+				Assert.assertEquals(2, realexClient.getEndpointStats().size());
+				Assert.assertEquals(server1.getRequestCount(), realexClient.getEndpointStats().get(0).getRequestCount());
+				Assert.assertEquals(server2.getRequestCount(), realexClient.getEndpointStats().get(1).getRequestCount());
+			}
+		}
+	}
+
+	/**
+	 * Test a slow side-effect-free request is hedged, while an authorisation is never sent twice.
+	 */
+	@Test
+	public void sendHedgedTest() throws IOException {
+		final String responseXml = fromXmlPaymentResponse().toXml();
+		final AtomicBoolean slow = new AtomicBoolean(true);
+		try (StubServer server = new StubServer(requestXml -> {
+			if (slow.getAndSet(false)) {
+				Thread.sleep(1000);
+			}
+			return responseXml;
+		}); RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET, server.createHttpConfiguration())) {
+			HedgingPolicy policy = new HedgingPolicy();
+			policy.setInitialDelay(50);
+			policy.setMaxHedgeRatio(1);
+			realexClient.setHedgingPolicy(policy);
+			Assert.assertSame(policy, realexClient.getHedgingPolicy());
+
+			//the first attempt is slow so the second attempt answers first
+			long start = System.nanoTime();
+			checkUnmarshalledPaymentResponse(realexClient.send(new PaymentRequest().addType(PaymentType.OTB)));
+			Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(900));
+			Assert.assertEquals(2, server.getRequestCount());
+			Assert.assertEquals(1, realexClient.getRequestHedger().getHedgeCount());
+
+			//authorisations are not hedged however slow
+			slow.set(true);
+			checkUnmarshalledPaymentResponse(realexClient.sendAsync(new PaymentRequest().addType(PaymentType.AUTH)).join());
+			Assert.assertEquals(3, server.getRequestCount());
+			Assert.assertEquals(1, realexClient.getRequestHedger().getHedgeCount());
+
+			realexClient.setHedgingPolicy(null);
+			Assert.assertNull(realexClient.getHedgingPolicy());
+		}
+	}
+
+	/**
+	 * Test a hedged request which fails once written is reported to the retry policy as failing while reading
+	 * the response.
+	 */
+	@Test
+	public void sendHedgedFailurePhaseTest() throws IOException {
+		final List<FailurePhase> phases = new CopyOnWriteArrayList<FailurePhase>();
+		RetryPolicy retryPolicy = new RetryPolicy() {
+			@Override
+			public boolean isRetryable(FailurePhase phase, boolean repeatable) {
+				phases.add(phase);
+				return false;
+			}
+		};
+		HedgingPolicy hedgingPolicy = new HedgingPolicy();
+		hedgingPolicy.setInitialDelay(50);
+		hedgingPolicy.setMaxHedgeRatio(1);
+
+		try (StubServer server = new StubServer(fromXmlPaymentResponse().toXml())) {
+			server.setDelayMillis(3000);
+			HttpConfiguration httpConfiguration = server.createHttpConfiguration();
+			httpConfiguration.setTimeout(200);
+			httpConfiguration.setRetryPolicy(retryPolicy);
+
+			try (RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET, httpConfiguration)) {
+				realexClient.setHedgingPolicy(hedgingPolicy);
+				try {
+					realexClient.send(new PaymentRequest().addType(PaymentType.OTB));
+					Assert.fail("RealexException should have been thrown before this point.");
+				} catch (RealexException ex) {
+					Assert.assertEquals(Collections.singletonList(FailurePhase.READ), phases);
+				}
+
+				phases.clear();
+				try {
+					realexClient.sendAsync(new PaymentRequest().addType(PaymentType.OTB)).join();
+					Assert.fail("CompletionException should have been thrown before this point.");
+				} catch (CompletionException ex) {
+					Assert.assertEquals(Collections.singletonList(FailurePhase.READ), phases);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test the timeout profile of the type of request is used, so an authorisation fails quickly while a 
+	 * settlement is allowed to wait for the response.
+	 */
+	@Test
+	public void sendWithTimeoutProfileTest() throws IOException {
+		try (StubServer server = new StubServer(fromXmlPaymentResponse().toXml())) {
+			server.setDelayMillis(600);
+			HttpConfiguration httpConfiguration = server.createHttpConfiguration();
+			httpConfiguration.setTimeoutProfile(PaymentType.AUTH, new TimeoutProfile(1000, 1000, 5000, 200));
+			httpConfiguration.setTimeoutProfile(PaymentType.SETTLE, new TimeoutProfile(1000, 1000, 5000, 5000));
+			Assert.assertEquals(200, httpConfiguration.getTimeoutProfile(PaymentType.AUTH).getTotalTimeout());
+			Assert.assertEquals(65000, httpConfiguration.getTimeoutProfile(PaymentType.OTB).getSocketTimeout());
+			Assert.assertEquals(200, new HttpConfiguration(httpConfiguration).getTimeoutProfile(PaymentType.AUTH).getTotalTimeout());
+
+			try (RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET, httpConfiguration)) {
+				try {
+					realexClient.send(new PaymentRequest().addType(PaymentType.AUTH));
+					Assert.fail("RealexTimeoutException should have been thrown before this point.");
+				} catch (RealexTimeoutException ex) {
+					Assert.assertTrue(ex.getMessage().startsWith("Deadline exceeded"));
+				}
+
+				checkUnmarshalledPaymentResponse(realexClient.send(new PaymentRequest().addType(PaymentType.SETTLE)));
+			}
+		}
+	}
+
+	/**
+	 * Test a request fails with a timeout once its deadline has passed, and is not sent if already past it.
+	 */
+	@Test
+	public void sendWithDeadlineTest() throws IOException {
+		try (StubServer server = new StubServer(fromXmlPaymentResponse().toXml());
+				RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET, server.createHttpConfiguration())) {
+			checkUnmarshalledPaymentResponse(realexClient.send(new PaymentRequest(), Deadline.after(5, TimeUnit.SECONDS)));
+
+			server.setDelayMillis(600);
+			try {
+				realexClient.send(new PaymentRequest(), Deadline.afterMillis(200));
+				Assert.fail("RealexTimeoutException should have been thrown before this point.");
+			} catch (RealexTimeoutException ex) {
+				Assert.assertEquals(2, server.getRequestCount());
+			}
+			try {
+				realexClient.sendAsync(new PaymentRequest(), Deadline.afterMillis(200)).join();
+				Assert.fail("RealexTimeoutException should have been thrown before this point.");
+			} catch (CompletionException ex) {
+				Assert.assertTrue(ex.getCause() instanceof RealexTimeoutException);
+			}
+
+			try {
+				realexClient.send(new PaymentRequest(), Deadline.afterMillis(0));
+				Assert.fail("RealexTimeoutException should have been thrown before this point.");
+			} catch (RealexTimeoutException ex) {
+				Assert.assertEquals(3, server.getRequestCount());
+			}
+		}
+	}
+
+	/**
+	 * Test the circuit breaker opens once requests fail, after which requests are rejected without being sent.
+	 */
+	@Test
+	public void sendWithCircuitBreakerTest() throws IOException {
+		try (StubServer server = new StubServer(fromXmlPaymentResponse().toXml())) {
+			CircuitBreakerPolicy policy = new CircuitBreakerPolicy();
+			policy.setWindowSize(4);
+			HttpConfiguration httpConfiguration = server.createHttpConfiguration();
+			httpConfiguration.setCircuitBreakerPolicy(policy);
+
+			try (RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET, httpConfiguration)) {
+				server.setStatusCode(500);
+				for (int i = 0; i < 4; i++) {
+					try {
+						realexClient.send(new PaymentRequest());
+						Assert.fail("RealexException should have been thrown before this point.");
+					} catch (RealexException ex) {
+						Assert.assertFalse(ex instanceof RealexRejectedException);
+					}
+				}
+				Assert.assertEquals(CircuitBreaker.State.OPEN, realexClient.getCircuitBreaker().getState());
+
+				server.setStatusCode(200);
+				try {
+					realexClient.send(new PaymentRequest());
+					Assert.fail("RealexCircuitOpenException should have been thrown before this point.");
+				} catch (RealexCircuitOpenException ex) {
+					Assert.assertEquals(4, server.getRequestCount());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test requests failing before they are sent, whose deadline passes waiting in the bulkhead or which may 
+	 * only be sent over HTTPS, do not count against Realex in the circuit breaker.
+	 */
+	@Test
+	public void sendWithCircuitBreakerNotSentTest() throws IOException {
+		try (StubServer server = new StubServer(fromXmlPaymentResponse().toXml())) {
+			CircuitBreakerPolicy policy = new CircuitBreakerPolicy();
+			policy.setWindowSize(1);
+			HttpConfiguration httpConfiguration = server.createHttpConfiguration();
+			httpConfiguration.setCircuitBreakerPolicy(policy);
+			httpConfiguration.setMaxConcurrentRequests(1);
+			httpConfiguration.setMaxConcurrentRequestsWait(5000);
+
+			try (RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET, httpConfiguration)) {
+				CompletableFuture<PaymentResponse> inProgress = new CompletableFuture<PaymentResponse>();
+				realexClient.getBulkhead().callAsync(() -> inProgress);
+				try {
+					realexClient.send(new PaymentRequest(), Deadline.afterMillis(50));
+					Assert.fail("RealexTimeoutException should have been thrown before this point.");
+				} catch (RealexTimeoutException ex) {
+					Assert.assertEquals("Deadline exceeded waiting to send the request to Realex.", ex.getMessage());
+				}
+				Assert.assertEquals(CircuitBreaker.State.CLOSED, realexClient.getCircuitBreaker().getState());
+				inProgress.complete(null);
+
+				httpConfiguration.setOnlyAllowHttps(true);
+				try {
+					realexClient.send(new PaymentRequest());
+					Assert.fail("RealexException should have been thrown before this point.");
+				} catch (RealexException ex) {
+					Assert.assertEquals(CircuitBreaker.State.CLOSED, realexClient.getCircuitBreaker().getState());
+				}
+				Assert.assertTrue(realexClient.sendAsync(new PaymentRequest()).isCompletedExceptionally());
+				Assert.assertEquals(CircuitBreaker.State.CLOSED, realexClient.getCircuitBreaker().getState());
+				Assert.assertEquals(0, server.getRequestCount());
+
+				//a request failing once sent still counts
+				httpConfiguration.setOnlyAllowHttps(false);
+				server.setStatusCode(500);
+				try {
+					realexClient.send(new PaymentRequest());
+					Assert.fail("RealexException should have been thrown before this point.");
+				} catch (RealexException ex) {
+					Assert.assertEquals(CircuitBreaker.State.OPEN, realexClient.getCircuitBreaker().getState());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test requests are limited by the adaptive concurrency limiter for their merchant account.
+	 */
+	@Test
+	public void sendWithConcurrencyLimitTest() throws IOException {
+		try (StubServer server = new StubServer(fromXmlPaymentResponse().toXml())) {
+			HttpConfiguration httpConfiguration = server.createHttpConfiguration();
+			try (RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET, httpConfiguration)) {
+				Assert.assertNull(realexClient.getConcurrencyLimiter("thestore", "internet"));
+
+				ConcurrencyLimitPolicy policy = new ConcurrencyLimitPolicy();
+				policy.setInitialLimit(2);
+				httpConfiguration.setConcurrencyLimitPolicy(policy);
+				checkUnmarshalledPaymentResponse(realexClient.send(new PaymentRequest().addMerchantId("thestore").addAccount("internet")));
+
+				//the sample response reports the gateway as slow, so the limit is cut
+				ConcurrencyLimiter limiter = realexClient.getConcurrencyLimiter("thestore", "internet");
+				Assert.assertEquals(1, limiter.getLimit());
+				Assert.assertEquals(0, limiter.getInFlight());
+				Assert.assertEquals(1, realexClient.getConcurrencyLimiters().size());
+
+				//the limit applies to each account separately
+				limiter.callAsync(() -> new CompletableFuture<PaymentResponse>());
+				try {
+					realexClient.send(new PaymentRequest().addMerchantId("thestore").addAccount("internet"));
+					Assert.fail("RealexRejectedException should have been thrown before this point.");
+				} catch (RealexRejectedException ex) {
+					Assert.assertEquals(1, server.getRequestCount());
+				}
+				checkUnmarshalledPaymentResponse(realexClient.sendAsync(new PaymentRequest().addMerchantId("thestore").addAccount("moto")).join());
+			}
+		}
+	}
+
+	/**
+	 * Test requests over the rate limit for the merchant and payment type are rejected before their defaults 
+	 * are generated.
+	 */
+	@Test
+	public void sendWithRateLimitTest() throws IOException {
+		try (StubServer server = new StubServer(fromXmlPaymentResponse().toXml())) {
+			RateLimitPolicy policy = new RateLimitPolicy();
+			policy.setRateLimit(PaymentType.SETTLE, new RateLimit(0.1, 1));
+			HttpConfiguration httpConfiguration = server.createHttpConfiguration();
+			httpConfiguration.setRateLimitPolicy(policy);
+
+			try (RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET, httpConfiguration)) {
+				checkUnmarshalledPaymentResponse(realexClient.send(new PaymentRequest().addMerchantId("thestore").addType(PaymentType.SETTLE)));
+
+				PaymentRequest request = new PaymentRequest().addMerchantId("thestore").addType(PaymentType.SETTLE);
+				try {
+					realexClient.send(request);
+					Assert.fail("RealexRejectedException should have been thrown before this point.");
+				} catch (RealexRejectedException ex) {
+					Assert.assertNull(request.getHash());
+					Assert.assertNull(request.getTimeStamp());
+				}
+				Assert.assertTrue(realexClient.sendAsync(new PaymentRequest().addMerchantId("thestore").addType(PaymentType.SETTLE))
+						.isCompletedExceptionally());
+				Assert.assertEquals(0, realexClient.getTokenBucket("thestore", PaymentType.SETTLE).getAvailablePermits());
+
+				//other merchants and payment types are not limited
+				checkUnmarshalledPaymentResponse(realexClient.send(new PaymentRequest().addMerchantId("other").addType(PaymentType.SETTLE)));
+				checkUnmarshalledPaymentResponse(realexClient.send(new PaymentRequest().addMerchantId("thestore").addType(PaymentType.AUTH)));
+				Assert.assertNull(realexClient.getTokenBucket("thestore", PaymentType.AUTH));
+				Assert.assertEquals(3, server.getRequestCount());
+			}
+		}
+	}
+
+	/**
+	 * Test requests which time out once sent are only retried if their payment type is repeatable.
+	 */
+	@Test
+	public void sendWithRetryTest() throws IOException {
+		try (StubServer server = new StubServer(fromXmlPaymentResponse().toXml())) {
+			RetryPolicy policy = new RetryPolicy();
+			policy.setMaxAttempts(2);
+			HttpConfiguration httpConfiguration = server.createHttpConfiguration();
+			httpConfiguration.setTimeout(200);
+			httpConfiguration.setRetryPolicy(policy);
+
+			try (RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET, httpConfiguration)) {
+				server.setDelayMillis(400);
+				try {
+					realexClient.send(new PaymentRequest().addType(PaymentType.AUTH));
+					Assert.fail("RealexException should have been thrown before this point.");
+				} catch (RealexException ex) {
+					Assert.assertEquals(1, server.getRequestCount());
+				}
+
+				policy.addRepeatablePaymentType(PaymentType.AUTH);
+				try {
+					realexClient.send(new PaymentRequest().addType(PaymentType.AUTH));
+					Assert.fail("RealexException should have been thrown before this point.");
+				} catch (RealexException ex) {
+					Assert.assertEquals(3, server.getRequestCount());
+					Assert.assertEquals(1, realexClient.getRequestRetrier().getRetryCount());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test requests sent asynchronously on an executor, cancelled before they start, or rejected by the 
+	 * executor.
+	 */
+	@Test
+	public void sendAsyncWithExecutorTest() throws IOException {
+		try (StubServer server = new StubServer(fromXmlPaymentResponse().toXml());
+				RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET, server.createHttpConfiguration())) {
+			realexClient.setExecutor(ExecutorUtils.getDefaultExecutor());
+			List<CompletableFuture<PaymentResponse>> responses = new ArrayList<CompletableFuture<PaymentResponse>>();
+			for (int i = 0; i < 20; i++) {
+				responses.add(realexClient.sendAsync(new PaymentRequest().addMerchantId("thestore")));
+			}
+			for (CompletableFuture<PaymentResponse> response : responses) {
+				checkUnmarshalledPaymentResponse(response.join());
+			}
+			Assert.assertEquals(20, server.getRequestCount());
+
+			//requests cancelled before their task starts are not sent
+			List<Runnable> tasks = new ArrayList<Runnable>();
+			realexClient.setExecutor(tasks::add);
+			CompletableFuture<PaymentResponse> cancelled = realexClient.sendAsync(new PaymentRequest().addMerchantId("thestore"));
+			CompletableFuture<PaymentResponse> queued = realexClient.sendAsync(new PaymentRequest().addMerchantId("thestore"));
+			Assert.assertFalse(queued.isDone());
+			cancelled.cancel(false);
+			for (Runnable task : tasks) {
+				task.run();
+			}
+			checkUnmarshalledPaymentResponse(queued.getNow(null));
+			Assert.assertEquals(21, server.getRequestCount());
+
+			realexClient.setExecutor(task -> {
+				throw new RejectedExecutionException();
+			});
+			try {
+				realexClient.sendAsync(new PaymentRequest().addMerchantId("thestore")).join();
+				Assert.fail("RealexRejectedException should have been thrown before this point.");
+			} catch (CompletionException ex) {
+				Assert.assertTrue(ex.getCause() instanceof RealexRejectedException);
+			}
+			Assert.assertEquals(21, server.getRequestCount());
+		}
+	}
+
+	/**
+	 * Test warming up the client exercises the codec and opens connections without sending requests.
+	 */
+	@Test
+	public void warmUpTest() throws IOException {
+		try (StubServer server = new StubServer(requestXml -> requestXml);
+				RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET, server.createHttpConfiguration())) {
+			Assert.assertFalse(realexClient.isWarmedUp());
+
+			realexClient.warmUp(2, 20);
+			Assert.assertTrue(realexClient.isWarmedUp());
+
+			realexClient.setXmlCodec(new StaxXmlCodec());
+			realexClient.warmUp(2, 20);
+
+			Assert.assertEquals(0, server.getRequestCount());
+		}
+	}
+
+	/**
+	 * Test sending a payment request asynchronously and receiving a payment response error. 
+	 */
+	@Test
+	public void sendAsyncWithShortErrorResponseTest() throws IOException {
+
+		//get sample response XML
+		File file = new File(this.getClass().getResource(PAYMENT_RESPONSE_BASIC_ERROR_XML_PATH).getPath());
+		PaymentResponse fromXmlResponse = new PaymentResponse().fromXml(new StreamSource(file));
+
+		try (StubServer server = new StubServer(fromXmlResponse.toXml());
+				RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET, server.createHttpConfiguration())) {
+
+			realexClient.sendAsync(new PaymentRequest()).join();
+			Assert.fail("RealexServerException should have been thrown before this point.");
+		} catch (CompletionException ex) {
+			//validate error
+			Assert.assertTrue("Incorrect exception thrown.", ex.getCause() instanceof RealexServerException);
+			checkBasicResponseError((RealexServerException) ex.getCause());
+		}
+	}
+
+	/**
+	 * Test sending a request asynchronously over HTTP when only HTTPS is allowed. 
+	 */
+	@Test
+	public void sendAsyncHttpNotAllowedTest() throws IOException {
+
+		try (StubServer server = new StubServer("");
+				RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET, server.createHttpConfiguration())) {
+
+			realexClient.getHttpConfiguration().setOnlyAllowHttps(true);
+			realexClient.sendAsync(new PaymentRequest()).join();
+			Assert.fail("RealexException should have been thrown before this point.");
+		} catch (CompletionException ex) {
+			Assert.assertTrue("Incorrect exception thrown.", ex.getCause() instanceof RealexException);
+			Assert.assertEquals("Protocol must be https", ex.getCause().getMessage());
+		}
+	}
+	/**
+	 * Returns the sample payment response.
+	 */
+	private static PaymentResponse fromXmlPaymentResponse() {
+		return new PaymentResponse().fromXml(new StreamSource(RealexClientTest.class.getResourceAsStream(PAYMENT_RESPONSE_XML_PATH)));
+	}
+
 }
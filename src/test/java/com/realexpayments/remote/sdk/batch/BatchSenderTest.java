@@ -0,0 +1,172 @@
+package com.realexpayments.remote.sdk.batch;
+
+import static com.realexpayments.remote.sdk.utils.SampleLoopbackUtils.LOOPBACK;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.realexpayments.remote.sdk.RealexClient;
+import com.realexpayments.remote.sdk.RealexServerException;
+import com.realexpayments.remote.sdk.SendResult;
+import com.realexpayments.remote.sdk.domain.payment.PaymentRequest;
+import com.realexpayments.remote.sdk.domain.payment.PaymentResponse;
+import com.realexpayments.remote.sdk.http.HttpConfiguration;
+import com.realexpayments.remote.sdk.http.RequestWriter;
+import com.realexpayments.remote.sdk.http.ResponseReader;
+import com.realexpayments.remote.sdk.http.Transport;
+import com.realexpayments.remote.sdk.utils.SampleXmlValidationUtils;
+
+/**
+ * Tests for {@link BatchSender}.
+ */
+public class BatchSenderTest {
+
+	private static final Pattern ACCOUNT = Pattern.compile("<account>(\\d+)</account>");
+
+	/**
+	 * Test the results of a batch are returned in the order of the requests, failures included.
+	 */
+	@Test
+	public void sendAllTest() throws IOException {
+		try (RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET)) {
+			realexClient.setTransport(LOOPBACK);
+
+			List<PaymentRequest> requests = new ArrayList<PaymentRequest>();
+			for (int i = 0; i < 10; i++) {
+				requests.add(new PaymentRequest().addMerchantId(i % 4 == 0 ? "fail" : "thestore").addAccount(String.valueOf(i)));
+			}
+			List<SendResult<PaymentRequest, PaymentResponse>> results = realexClient.sendAll(requests, 4);
+
+			Assert.assertEquals(10, results.size());
+			for (int i = 0; i < 10; i++) {
+				SendResult<PaymentRequest, PaymentResponse> result = results.get(i);
+				Assert.assertSame(requests.get(i), result.getRequest());
+				Assert.assertEquals(i % 4 != 0, result.isSuccess());
+				if (!result.isSuccess()) {
+					Assert.assertTrue(result.getException() instanceof RealexServerException);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test responses arriving out of order are delivered in the order of the requests, with no more requests in
+	 * flight than the parallelism, requests taken only as they are sent, and progress reported for each.
+	 */
+	@Test
+	public void sendAllInOrderTest() throws IOException {
+		try (RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET)) {
+			ReorderingTransport transport = new ReorderingTransport();
+			realexClient.setTransport(transport);
+
+			final int count = 30;
+			final AtomicInteger taken = new AtomicInteger();
+			Iterable<PaymentRequest> requests = () -> new Iterator<PaymentRequest>() {
+				@Override
+				public boolean hasNext() {
+					return taken.get() < count;
+				}
+
+				@Override
+				public PaymentRequest next() {
+					return new PaymentRequest().addMerchantId("thestore").addAccount(String.valueOf(taken.getAndIncrement()));
+				}
+			};
+
+			final List<String> accounts = new ArrayList<String>();
+			final List<BatchProgress> progress = new ArrayList<BatchProgress>();
+			BatchProgress summary = realexClient.sendAll(requests, 3, result -> {
+				Assert.assertTrue(result.isSuccess());
+				accounts.add(result.getRequest().getAccount());
+				Assert.assertTrue(taken.get() - accounts.size() < 6);
+			}, progress::add);
+
+			for (int i = 0; i < count; i++) {
+				Assert.assertEquals(String.valueOf(i), accounts.get(i));
+				Assert.assertEquals(i + 1, progress.get(i).getCompleted());
+				Assert.assertEquals(-1, progress.get(i).getTotal());
+			}
+			Assert.assertEquals(count, summary.getCompleted());
+			Assert.assertEquals(0, summary.getFailed());
+			Assert.assertTrue(transport.maxInFlight.get() <= 3);
+		}
+	}
+
+	/**
+	 * Test requests are held back while the client has no capacity for them, rather than being rejected.
+	 */
+	@Test
+	public void sendAllCapacityTest() throws IOException {
+		HttpConfiguration httpConfiguration = new HttpConfiguration();
+		httpConfiguration.setMaxConcurrentRequests(2);
+		try (RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET, httpConfiguration)) {
+			ReorderingTransport transport = new ReorderingTransport();
+			realexClient.setTransport(transport);
+
+			List<PaymentRequest> requests = new ArrayList<PaymentRequest>();
+			for (int i = 0; i < 12; i++) {
+				requests.add(new PaymentRequest().addMerchantId("thestore").addAccount(String.valueOf(i)));
+			}
+			BatchProgress summary = realexClient.sendAll(requests, 5, result -> Assert.assertTrue(result.isSuccess()), null);
+
+			Assert.assertEquals(12, summary.getTotal());
+			Assert.assertEquals(12, summary.getSucceeded());
+			Assert.assertTrue(transport.maxInFlight.get() <= 2);
+		}
+	}
+
+	/**
+	 * Transport responding to asynchronous requests on another thread after a delay which falls with the
+	 * account number of the request, so that responses arrive out of order.
+	 */
+	private static class ReorderingTransport implements Transport {
+
+		private final AtomicInteger inFlight = new AtomicInteger();
+
+		private final AtomicInteger maxInFlight = new AtomicInteger();
+
+		@Override
+		public <T> T send(HttpConfiguration httpConfiguration, RequestWriter requestWriter, ResponseReader<T> responseReader) {
+			return LOOPBACK.send(httpConfiguration, requestWriter, responseReader);
+		}
+
+		@Override
+		public <T> CompletableFuture<T> sendAsync(final HttpConfiguration httpConfiguration, RequestWriter requestWriter,
+				final ResponseReader<T> responseReader) {
+			final byte[] request;
+			try {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				requestWriter.writeTo(out);
+				request = out.toByteArray();
+			} catch (IOException ioe) {
+				throw new IllegalStateException(ioe);
+			}
+			Matcher account = ACCOUNT.matcher(new String(request, StandardCharsets.UTF_8));
+			final long delay = account.find() ? 3 - Integer.parseInt(account.group(1)) % 3 : 0;
+
+			maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			return CompletableFuture.supplyAsync(() -> {
+				try {
+					TimeUnit.MILLISECONDS.sleep(delay * 5);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+				}
+				inFlight.decrementAndGet();
+				return LOOPBACK.send(httpConfiguration, out -> out.write(request), responseReader);
+			});
+		}
+	}
+
+}
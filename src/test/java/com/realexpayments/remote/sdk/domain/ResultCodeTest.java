@@ -0,0 +1,75 @@
+package com.realexpayments.remote.sdk.domain;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.realexpayments.remote.sdk.domain.ResultCode.Category;
+
+/**
+ * Tests for {@link ResultCode}.
+ */
+public class ResultCodeTest {
+
+	/**
+	 * Test result codes are classified by their range.
+	 */
+	@Test
+	public void categoryTest() {
+		Assert.assertEquals(Category.SUCCESS, ResultCode.category("00"));
+		Assert.assertEquals(Category.SUCCESS, ResultCode.category("000"));
+		Assert.assertEquals(Category.DECLINE, ResultCode.category("101"));
+		Assert.assertEquals(Category.BANK_ERROR, ResultCode.category("205"));
+		Assert.assertEquals(Category.GATEWAY_ERROR, ResultCode.category("302"));
+		Assert.assertEquals(Category.MALFORMED_REQUEST, ResultCode.category("508"));
+		Assert.assertEquals(Category.OTHER_ERROR, ResultCode.category("403"));
+		Assert.assertEquals(Category.OTHER_ERROR, ResultCode.category("666"));
+
+		//results shorter than three digits are classified by their first digit
+		Assert.assertEquals(Category.SUCCESS, ResultCode.category("0"));
+		Assert.assertEquals(Category.GATEWAY_ERROR, ResultCode.category("3"));
+		Assert.assertEquals(Category.MALFORMED_REQUEST, ResultCode.category("5x"));
+	}
+
+	/**
+	 * Test every result whose first digit is 0 is a success, however long and whether or not the following
+	 * characters are digits.
+	 */
+	@Test
+	public void categoryFirstDigitZeroTest() {
+		Assert.assertEquals(Category.SUCCESS, ResultCode.category("0"));
+		Assert.assertEquals(Category.SUCCESS, ResultCode.category("01"));
+		Assert.assertEquals(Category.SUCCESS, ResultCode.category("012"));
+		Assert.assertEquals(Category.SUCCESS, ResultCode.category("099"));
+		Assert.assertEquals(Category.SUCCESS, ResultCode.category("0a1"));
+	}
+
+	/**
+	 * Test results which are not result codes are unknown.
+	 */
+	@Test
+	public void categoryUnknownTest() {
+		Assert.assertEquals(Category.UNKNOWN, ResultCode.category(null));
+		Assert.assertEquals(Category.UNKNOWN, ResultCode.category(""));
+		Assert.assertEquals(Category.UNKNOWN, ResultCode.category("abc"));
+		Assert.assertEquals(Category.UNKNOWN, ResultCode.category("a01"));
+	}
+
+	/**
+	 * Test which categories are basic responses and transient errors.
+	 */
+	@Test
+	public void categoryPropertiesTest() {
+		Assert.assertFalse(Category.SUCCESS.isBasicResponse());
+		Assert.assertFalse(Category.DECLINE.isBasicResponse());
+		Assert.assertFalse(Category.BANK_ERROR.isBasicResponse());
+		Assert.assertTrue(Category.GATEWAY_ERROR.isBasicResponse());
+		Assert.assertTrue(Category.MALFORMED_REQUEST.isBasicResponse());
+		Assert.assertTrue(Category.OTHER_ERROR.isBasicResponse());
+
+		Assert.assertTrue(Category.BANK_ERROR.isTransientError());
+		Assert.assertTrue(Category.GATEWAY_ERROR.isTransientError());
+		Assert.assertFalse(Category.MALFORMED_REQUEST.isTransientError());
+		Assert.assertFalse(Category.DECLINE.isTransientError());
+	}
+
+}
@@ -8,6 +8,8 @@ import org.junit.Test;
 import com.realexpayments.remote.sdk.domain.Card;
 import com.realexpayments.remote.sdk.domain.payment.Address.AddressType;
 import com.realexpayments.remote.sdk.domain.payment.PaymentRequest.PaymentType;
+import com.realexpayments.remote.sdk.utils.GenerationUtils;
+import com.realexpayments.remote.sdk.utils.HashLayout;
 
 import static com.realexpayments.remote.sdk.utils.SampleXmlValidationUtils.*;
 
@@ -249,6 +251,25 @@ public class PaymentRequestTest {
         Assert.assertEquals(PAYER_NEW_REQUEST_HASH, request.getHash());
     }
 
+    /**
+     * Tests the hash calculation for a payer-new transaction whose payer has no reference, which is hashed 
+     * as "null", and without a payer, which is hashed as empty.
+     */
+    @Test
+    public void payerNewNullRefHashGenerationTest() {
+
+        PaymentRequest request = new PaymentRequest().addType(PaymentType.PAYER_NEW).addTimeStamp(PAYER_NEW_TIMESTAMP).addMerchantId(PAYER_NEW_MERCHANT_ID)
+                .addOrderId(PAYER_NEW_ORDER_ID).addPayer(new Payer());
+
+        request.hash(SECRET);
+        Assert.assertEquals(GenerationUtils.generateHash(PAYER_NEW_TIMESTAMP + "." + PAYER_NEW_MERCHANT_ID + "." + PAYER_NEW_ORDER_ID
+                + "...null", SECRET), request.getHash());
+
+        request.addPayer(null).hash(SECRET);
+        Assert.assertEquals(GenerationUtils.generateHash(PAYER_NEW_TIMESTAMP + "." + PAYER_NEW_MERCHANT_ID + "." + PAYER_NEW_ORDER_ID
+                + "...", SECRET), request.getHash());
+    }
+
     /**
      * Tests the hash calculation for a payer-edit transaction.
      */
@@ -442,5 +463,75 @@ public class PaymentRequestTest {
 
         Assert.assertEquals(STORED_CARD_DCC_RATE_REQUEST_HASH, request.getHash());
     }
+
+    /**
+     * Tests resolving the payment type from the request type string.
+     */
+    @Test
+    public void paymentTypeFromTypeTest() {
+        Assert.assertEquals(PaymentType.CARD_UPDATE, PaymentType.fromType("card-update-card"));
+        Assert.assertNull(PaymentType.fromType("unknown"));
+        Assert.assertNull(PaymentType.fromType(null));
+
+        PaymentRequest request = new PaymentRequest().addType(new String("otb"));
+        Assert.assertEquals(PaymentType.OTB, request.getPaymentType());
+        Assert.assertSame(PaymentType.OTB.getType(), request.getType());
+
+        request.setType("settle");
+        Assert.assertEquals(PaymentType.SETTLE, request.getPaymentType());
+
+        request.setType("unknown");
+        Assert.assertNull(request.getPaymentType());
+        Assert.assertEquals("unknown", request.getType());
+    }
+
+    /**
+     * Tests the hash calculation for a request whose type is set as a string, and for an unknown type.
+     */
+    @Test
+    public void typeStringHashGenerationTest() {
+        PaymentRequest request = new PaymentRequest()
+                .addType(new String(PaymentType.RECEIPT_IN_OTB.getType()))
+                .addTimeStamp(RECEIPT_IN_OTB_TIMESTAMP)
+                .addMerchantId(RECEIPT_IN_OTB_MERCHANT_ID)
+                .addOrderId(RECEIPT_IN_OTB_ORDER_ID)
+                .addAmount(Long.parseLong(RECEIPT_IN_OTB_AMOUNT))
+                .addCurrency(RECEIPT_IN_OTB_CURRENCY)
+                .addPayerReference(RECEIPT_IN_OTB_PAYER);
+
+        request.hash(SECRET);
+        Assert.assertEquals(RECEIPT_IN_OTB_REQUEST_HASH, request.getHash());
+
+        //unknown types use the default layout
+        request.addType("unknown").hash(SECRET);
+        String expectedHash = GenerationUtils.generateHash(RECEIPT_IN_OTB_TIMESTAMP + "." + RECEIPT_IN_OTB_MERCHANT_ID
+                + "." + RECEIPT_IN_OTB_ORDER_ID + "." + RECEIPT_IN_OTB_AMOUNT + "." + RECEIPT_IN_OTB_CURRENCY + ".", SECRET);
+        Assert.assertEquals(expectedHash, request.getHash());
+    }
+
+    /**
+     * Tests registering a hash layout for a payment type.
+     */
+    @Test
+    public void registerHashLayoutTest() {
+        PaymentRequest request = new PaymentRequest()
+                .addType(PaymentType.MULTI_SETTLE)
+                .addTimeStamp("20150101101010")
+                .addMerchantId("thestore")
+                .addOrderId("ORD453-11")
+                .addPayerReference("bloggsy");
+
+        try {
+            PaymentHashLayouts.register(PaymentType.MULTI_SETTLE, new HashLayout<PaymentRequest>(
+                    PaymentHashLayouts.TIMESTAMP, PaymentHashLayouts.MERCHANT_ID, PaymentHashLayouts.PAYER_REF));
+            request.hash(SECRET);
+            Assert.assertEquals(GenerationUtils.generateHash("20150101101010.thestore.bloggsy", SECRET), request.getHash());
+        } finally {
+            PaymentHashLayouts.register(PaymentType.MULTI_SETTLE, PaymentHashLayouts.DEFAULT_LAYOUT);
+        }
+
+        request.hash(SECRET);
+        Assert.assertEquals(GenerationUtils.generateHash("20150101101010.thestore.ORD453-11...", SECRET), request.getHash());
+    }
 }
 
@@ -4,12 +4,18 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.http.HttpResponse;
 import org.apache.http.ProtocolVersion;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicHttpResponse;
 import org.apache.http.message.BasicStatusLine;
 import org.junit.Assert;
@@ -19,6 +25,9 @@ import org.junit.rules.ExpectedException;
 import org.mockito.Matchers;
 
 import com.realexpayments.remote.sdk.RealexException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
 
 /**
  * HTTP Utils such as getting a default http client and sending a message.
@@ -142,4 +151,98 @@ public class HttpUtilsTest {
 		}
 	}
 
+	/**
+	 * Test the default client reuses a pooled connection for consecutive requests.
+	 */
+	@Test
+	public void defaultClientPooledConnectionReuseTest() throws IOException {
+		List<Integer> remotePorts = sendTwoMessages(true);
+		Assert.assertEquals("Pooled connection should be reused.", remotePorts.get(0), remotePorts.get(1));
+	}
+
+	/**
+	 * Test the default client opens a new connection per request when pooling is disabled.
+	 */
+	@Test
+	public void defaultClientNoConnectionReuseTest() throws IOException {
+		List<Integer> remotePorts = sendTwoMessages(false);
+		Assert.assertNotEquals("Connection should not be reused.", remotePorts.get(0), remotePorts.get(1));
+	}
+
+	/**
+	 * Test connections opened ahead of the first request are pooled and used by requests.
+	 */
+	@Test
+	public void openConnectionsTest() throws IOException {
+		try (StubServer server = new StubServer(requestXml -> requestXml)) {
+			HttpConfiguration httpConfiguration = server.createHttpConfiguration();
+			httpConfiguration.setMaxConnectionsPerRoute(4);
+
+			PoolingHttpClientConnectionManager connectionManager = (PoolingHttpClientConnectionManager) HttpUtils
+					.getDefaultConnectionManager(httpConfiguration);
+			try (CloseableHttpClient httpClient = HttpUtils.getDefaultClient(httpConfiguration, connectionManager)) {
+				Assert.assertEquals(3, HttpUtils.openConnections(connectionManager, httpConfiguration, 3));
+				Assert.assertEquals(3, connectionManager.getTotalStats().getAvailable());
+
+				//already open connections are not opened again, and the pool limit applies
+				Assert.assertEquals(1, HttpUtils.openConnections(connectionManager, httpConfiguration, 10));
+				Assert.assertEquals(4, connectionManager.getTotalStats().getAvailable());
+
+				Assert.assertEquals("<element/>", HttpUtils.sendMessage("<element/>", httpClient, httpConfiguration));
+				Assert.assertEquals(4, connectionManager.getTotalStats().getAvailable());
+				Assert.assertEquals(1, server.getRequestCount());
+			}
+		}
+	}
+
+	/**
+	 * Test no connections are opened ahead of the first request when pooling is disabled.
+	 */
+	@Test
+	public void openConnectionsNoPoolingTest() {
+		HttpConfiguration httpConfiguration = new HttpConfiguration();
+		httpConfiguration.setConnectionPooling(false);
+
+		Assert.assertEquals(0, HttpUtils.openConnections(HttpUtils.getDefaultConnectionManager(httpConfiguration), httpConfiguration, 3));
+	}
+
+	/**
+	 * Sends two messages to a local HTTP server using the default client, returning the client port 
+	 * seen by the server for each.
+	 */
+	private List<Integer> sendTwoMessages(boolean connectionPooling) throws IOException {
+		final String xml = "<element>test response xml</element>";
+		final List<Integer> remotePorts = new ArrayList<Integer>();
+
+		HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				remotePorts.add(exchange.getRemoteAddress().getPort());
+				byte[] body = xml.getBytes("UTF-8");
+				exchange.sendResponseHeaders(200, body.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(body);
+				out.close();
+			}
+		});
+		server.start();
+
+		HttpConfiguration httpConfiguration = new HttpConfiguration();
+		httpConfiguration.setEndpoint("http://localhost:" + server.getAddress().getPort() + "/");
+		httpConfiguration.setOnlyAllowHttps(false);
+		httpConfiguration.setConnectionPooling(connectionPooling);
+
+		CloseableHttpClient httpClient = HttpUtils.getDefaultClient(httpConfiguration);
+		try {
+			Assert.assertEquals(xml, HttpUtils.sendMessage(xml, httpClient, httpConfiguration));
+			Assert.assertEquals(xml, HttpUtils.sendMessage(xml, httpClient, httpConfiguration));
+		} finally {
+			httpClient.close();
+			server.stop(0);
+		}
+
+		return remotePorts;
+	}
+
 }
@@ -0,0 +1,271 @@
+package com.realexpayments.remote.sdk.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.realexpayments.remote.sdk.RealexException;
+import com.realexpayments.remote.sdk.domain.payment.PaymentRequest;
+import com.realexpayments.remote.sdk.domain.payment.PaymentRequest.PaymentType;
+import com.realexpayments.remote.sdk.domain.threeDSecure.ThreeDSecureRequest;
+
+/**
+ * Tests for {@link PriorityTransport} and {@link LanePolicy}.
+ */
+public class PriorityTransportTest {
+
+	/**
+	 * Test the lanes of requests by type, and the connections reserved for each lane.
+	 */
+	@Test
+	public void lanePolicyTest() {
+		LanePolicy policy = new LanePolicy();
+		Assert.assertEquals(Lane.INTERACTIVE, policy.getLane(new PaymentRequest().addType(PaymentType.AUTH)));
+		Assert.assertEquals(Lane.BULK, policy.getLane(new PaymentRequest().addType(PaymentType.SETTLE)));
+		Assert.assertEquals(Lane.STANDARD, policy.getLane(new PaymentRequest().addType(PaymentType.REBATE)));
+		Assert.assertEquals(Lane.STANDARD, policy.getLane(new PaymentRequest()));
+		Assert.assertEquals(Lane.INTERACTIVE, policy.getLane(new ThreeDSecureRequest()));
+
+		policy.setLane(PaymentType.REBATE, Lane.BULK);
+		Assert.assertEquals(Lane.BULK, policy.getLane(new PaymentRequest().addType(PaymentType.REBATE)));
+
+		PriorityTransport transport = new PriorityTransport(new GatedTransport(), policy, 10);
+		Assert.assertEquals(3, transport.getReserved(Lane.INTERACTIVE));
+		Assert.assertEquals(1, transport.getReserved(Lane.STANDARD));
+		Assert.assertEquals(1, transport.getReserved(Lane.BULK));
+
+		policy.setReservedShare(Lane.BULK, 0.7);
+		try {
+			new PriorityTransport(new GatedTransport(), policy, 10);
+			Assert.fail("IllegalArgumentException should have been thrown before this point.");
+		} catch (IllegalArgumentException ex) {
+			//expected
+		}
+	}
+
+	/**
+	 * Test bulk requests are held back while interactive requests wait for the shared connections, and that
+	 * each lane may use its reserved connections.
+	 */
+	@Test
+	public void bulkYieldsToInteractiveTest() {
+		LanePolicy policy = new LanePolicy();
+		policy.setReservedShare(Lane.STANDARD, 0);
+		GatedTransport delegate = new GatedTransport();
+		PriorityTransport transport = new PriorityTransport(delegate, policy, 4);
+
+		//one reserved and two shared connections taken by bulk requests
+		for (int i = 0; i < 5; i++) {
+			transport.sendAsync(lane(Lane.BULK), "bulk".getBytes(StandardCharsets.UTF_8));
+		}
+		Assert.assertEquals(3, transport.getInFlight(Lane.BULK));
+		Assert.assertEquals(2, transport.getWaiting(Lane.BULK));
+
+		//the interactive reserved connection is still free
+		CompletableFuture<byte[]> first = transport.sendAsync(lane(Lane.INTERACTIVE), "interactive".getBytes(StandardCharsets.UTF_8));
+		CompletableFuture<byte[]> second = transport.sendAsync(lane(Lane.INTERACTIVE), "interactive".getBytes(StandardCharsets.UTF_8));
+		Assert.assertEquals(1, transport.getInFlight(Lane.INTERACTIVE));
+		Assert.assertEquals(1, transport.getWaiting(Lane.INTERACTIVE));
+
+		//a shared connection freed by a bulk request goes to the waiting interactive request
+		delegate.complete(0);
+		Assert.assertEquals(2, transport.getInFlight(Lane.INTERACTIVE));
+		Assert.assertEquals(2, transport.getInFlight(Lane.BULK));
+		Assert.assertEquals(2, transport.getWaiting(Lane.BULK));
+		Assert.assertEquals("interactive", delegate.body(3));
+		Assert.assertEquals("interactive", delegate.body(4));
+
+		//once no interactive request is waiting, bulk requests take the freed shared connection, but not the
+		//connection reserved for the interactive lane
+		delegate.complete(3);
+		delegate.complete(4);
+		Assert.assertEquals("interactive", new String(first.join(), StandardCharsets.UTF_8));
+		Assert.assertEquals("interactive", new String(second.join(), StandardCharsets.UTF_8));
+		Assert.assertEquals(0, transport.getInFlight(Lane.INTERACTIVE));
+		Assert.assertEquals(3, transport.getInFlight(Lane.BULK));
+		Assert.assertEquals(1, transport.getWaiting(Lane.BULK));
+	}
+
+	/**
+	 * Test a request waiting beyond the connection request timeout fails as a lease timeout, and that
+	 * cancelling a waiting request removes it from its lane.
+	 */
+	@Test
+	public void waitTimeoutTest() {
+		GatedTransport delegate = new GatedTransport();
+		PriorityTransport transport = new PriorityTransport(delegate, unreserved(), 1);
+
+		HttpConfiguration httpConfiguration = lane(Lane.BULK);
+		httpConfiguration.setTimeout(50);
+		transport.sendAsync(httpConfiguration, "first".getBytes(StandardCharsets.UTF_8));
+
+		try {
+			transport.send(httpConfiguration, "second".getBytes(StandardCharsets.UTF_8));
+			Assert.fail("RealexException should have been thrown before this point.");
+		} catch (RealexException ex) {
+			Assert.assertTrue(ex.getCause() instanceof ConnectionPoolTimeoutException);
+			Assert.assertEquals(FailurePhase.LEASE, FailurePhase.of(ex, false));
+		}
+		Assert.assertEquals(0, transport.getWaiting(Lane.BULK));
+
+		CompletableFuture<byte[]> cancelled = transport.sendAsync(httpConfiguration, "third".getBytes(StandardCharsets.UTF_8));
+		Assert.assertEquals(1, transport.getWaiting(Lane.BULK));
+		cancelled.cancel(false);
+		Assert.assertEquals(0, transport.getWaiting(Lane.BULK));
+
+		delegate.complete(0);
+		Assert.assertEquals(0, transport.getInFlight(Lane.BULK));
+		Assert.assertEquals(1, delegate.sent.size());
+	}
+
+	/**
+	 * Test a synchronous request waiting for a connection is sent on its own thread once another request
+	 * releases one.
+	 */
+	@Test
+	public void syncSendGrantedTest() throws InterruptedException {
+		GatedTransport delegate = new GatedTransport();
+		PriorityTransport transport = new PriorityTransport(delegate, unreserved(), 1);
+		transport.sendAsync(lane(Lane.BULK), "first".getBytes(StandardCharsets.UTF_8));
+
+		final AtomicReference<String> response = new AtomicReference<String>();
+		Thread sender = new Thread(() -> response.set(new String(
+				transport.send(lane(Lane.INTERACTIVE), "second".getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8)));
+		sender.start();
+		awaitTrue(() -> transport.getWaiting(Lane.INTERACTIVE) == 1);
+		Assert.assertEquals(1, delegate.sent.size());
+
+		//the connection released by the first request is given to the waiting thread, which sends on it
+		delegate.complete(0);
+		awaitTrue(() -> delegate.sent.size() == 2);
+		Assert.assertEquals(0, transport.getWaiting(Lane.INTERACTIVE));
+		Assert.assertEquals(1, transport.getInFlight(Lane.INTERACTIVE));
+		Assert.assertEquals(0, transport.getInFlight(Lane.BULK));
+
+		delegate.complete(1);
+		sender.join(5000);
+		Assert.assertFalse(sender.isAlive());
+		Assert.assertEquals("second", response.get());
+		Assert.assertEquals(0, transport.getInFlight(Lane.INTERACTIVE));
+	}
+
+	/**
+	 * Test interrupting a synchronous request waiting for a connection abandons it without taking one, and
+	 * keeps the thread's interrupt status.
+	 */
+	@Test
+	public void syncSendInterruptedTest() throws InterruptedException {
+		GatedTransport delegate = new GatedTransport();
+		PriorityTransport transport = new PriorityTransport(delegate, unreserved(), 1);
+		transport.sendAsync(lane(Lane.BULK), "first".getBytes(StandardCharsets.UTF_8));
+
+		final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+		final AtomicReference<Boolean> interrupted = new AtomicReference<Boolean>();
+		Thread sender = new Thread(() -> {
+			try {
+				transport.send(lane(Lane.INTERACTIVE), "second".getBytes(StandardCharsets.UTF_8));
+			} catch (RuntimeException ex) {
+				failure.set(ex);
+			}
+			interrupted.set(Thread.currentThread().isInterrupted());
+		});
+		sender.start();
+		awaitTrue(() -> transport.getWaiting(Lane.INTERACTIVE) == 1);
+
+		sender.interrupt();
+		sender.join(5000);
+		Assert.assertFalse(sender.isAlive());
+		Assert.assertTrue(failure.get() instanceof RealexException);
+		Assert.assertTrue(failure.get().getCause() instanceof InterruptedException);
+		Assert.assertTrue(interrupted.get());
+		Assert.assertEquals(0, transport.getWaiting(Lane.INTERACTIVE));
+		Assert.assertEquals(0, transport.getInFlight(Lane.INTERACTIVE));
+
+		//the abandoned request holds no connection, so the next request is sent once the first completes
+		delegate.complete(0);
+		Assert.assertEquals(0, transport.getInFlight(Lane.BULK));
+		CompletableFuture<byte[]> third = transport.sendAsync(lane(Lane.BULK), "third".getBytes(StandardCharsets.UTF_8));
+		Assert.assertEquals(2, delegate.sent.size());
+		Assert.assertEquals("third", delegate.body(1));
+		delegate.complete(1);
+		Assert.assertEquals("third", new String(third.join(), StandardCharsets.UTF_8));
+		Assert.assertEquals(0, transport.getInFlight(Lane.BULK));
+	}
+
+	private static LanePolicy unreserved() {
+		LanePolicy policy = new LanePolicy();
+		policy.setReservedShare(Lane.INTERACTIVE, 0);
+		policy.setReservedShare(Lane.STANDARD, 0);
+		policy.setReservedShare(Lane.BULK, 0);
+		return policy;
+	}
+
+	private static HttpConfiguration lane(Lane lane) {
+		return new HttpConfiguration().withLane(lane);
+	}
+
+	private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+		long waitUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			Assert.assertTrue(System.nanoTime() < waitUntil);
+			Thread.sleep(5);
+		}
+	}
+
+	/**
+	 * Transport holding requests until completed by the test, each echoing its request body. Synchronous
+	 * requests block the calling thread until completed.
+	 */
+	private static class GatedTransport implements Transport {
+
+		private final List<byte[]> bodies = new CopyOnWriteArrayList<byte[]>();
+
+		private final List<CompletableFuture<byte[]>> sent = new CopyOnWriteArrayList<CompletableFuture<byte[]>>();
+
+		@Override
+		public <T> T send(HttpConfiguration httpConfiguration, RequestWriter requestWriter, ResponseReader<T> responseReader) {
+			return sendAsync(httpConfiguration, requestWriter, responseReader).join();
+		}
+
+		@Override
+		public <T> CompletableFuture<T> sendAsync(HttpConfiguration httpConfiguration, RequestWriter requestWriter,
+				final ResponseReader<T> responseReader) {
+			try {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				requestWriter.writeTo(out);
+				bodies.add(out.toByteArray());
+			} catch (IOException ioe) {
+				throw new IllegalStateException(ioe);
+			}
+			CompletableFuture<byte[]> gate = new CompletableFuture<byte[]>();
+			sent.add(gate);
+			return gate.thenApply(body -> {
+				try {
+					return responseReader.read(new ByteArrayInputStream(body));
+				} catch (IOException ioe) {
+					throw new IllegalStateException(ioe);
+				}
+			});
+		}
+
+		String body(int index) {
+			return new String(bodies.get(index), StandardCharsets.UTF_8);
+		}
+
+		void complete(int index) {
+			sent.get(index).complete(bodies.get(index));
+		}
+	}
+
+}
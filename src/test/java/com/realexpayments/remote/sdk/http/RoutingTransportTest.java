@@ -0,0 +1,119 @@
+package com.realexpayments.remote.sdk.http;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.realexpayments.remote.sdk.RealexException;
+
+/**
+ * Tests for {@link RoutingTransport}, routing between local stub servers.
+ */
+public class RoutingTransportTest {
+
+	private static final byte[] REQUEST = "<request/>".getBytes(StandardCharsets.UTF_8);
+
+	/**
+	 * Test requests are passed straight to the delegate when no weighted endpoints are configured.
+	 */
+	@Test
+	public void singleEndpointTest() throws IOException {
+		try (StubServer server = new StubServer("<response/>"); Transport delegate = new ApacheTransport(server.createHttpConfiguration())) {
+			RoutingTransport transport = new RoutingTransport(delegate);
+
+			Assert.assertEquals("<response/>", new String(transport.send(server.createHttpConfiguration(), REQUEST), StandardCharsets.UTF_8));
+			Assert.assertEquals(1, server.getRequestCount());
+			Assert.assertTrue(transport.getEndpointStats().isEmpty());
+		}
+	}
+
+	/**
+	 * Test most requests are routed to the faster of two equally weighted endpoints.
+	 */
+	@Test
+	public void latencyAwareRoutingTest() throws IOException {
+		try (StubServer slow = new StubServer("<slow/>"); StubServer fast = new StubServer("<fast/>");
+				Transport delegate = new ApacheTransport(fast.createHttpConfiguration())) {
+			slow.setDelayMillis(50);
+
+			HttpConfiguration httpConfiguration = fast.createHttpConfiguration();
+			httpConfiguration.addEndpoint(slow.getEndpoint(), 1);
+			httpConfiguration.addEndpoint(fast.getEndpoint(), 1);
+
+			RoutingTransport transport = new RoutingTransport(delegate);
+			for (int i = 0; i < 40; i++) {
+				transport.send(httpConfiguration, REQUEST);
+			}
+
+			Assert.assertTrue("Most requests should be sent to the faster endpoint.", fast.getRequestCount() > 30);
+
+			List<EndpointStats> stats = transport.getEndpointStats();
+			Assert.assertEquals(2, stats.size());
+			Assert.assertEquals(slow.getEndpoint(), stats.get(0).getEndpoint().getEndpoint());
+			Assert.assertEquals(slow.getRequestCount(), stats.get(0).getRequestCount());
+			Assert.assertEquals(fast.getRequestCount(), stats.get(1).getRequestCount());
+			Assert.assertTrue(stats.get(0).getLatencyMillis() > stats.get(1).getLatencyMillis());
+			Assert.assertEquals(0, stats.get(1).getErrorRate(), 0);
+		}
+	}
+
+	/**
+	 * Test requests fail over from an endpoint which cannot be connected to, which is then ejected.
+	 */
+	@Test
+	public void failoverTest() throws IOException {
+		StubServer down = new StubServer("<down/>");
+		down.close();
+
+		try (StubServer up = new StubServer("<up/>"); Transport delegate = new ApacheTransport(up.createHttpConfiguration())) {
+			HttpConfiguration httpConfiguration = up.createHttpConfiguration();
+			httpConfiguration.addEndpoint(down.getEndpoint(), 100);
+			httpConfiguration.addEndpoint(up.getEndpoint(), 1);
+
+			RoutingTransport transport = new RoutingTransport(delegate);
+			for (int i = 0; i < 10; i++) {
+				Assert.assertEquals("<up/>", new String(transport.send(httpConfiguration, REQUEST), StandardCharsets.UTF_8));
+				Assert.assertEquals("<up/>", new String(transport.sendAsync(httpConfiguration, REQUEST).join(), StandardCharsets.UTF_8));
+			}
+			Assert.assertEquals(20, up.getRequestCount());
+
+			EndpointStats downStats = transport.getEndpointStats().get(0);
+			Assert.assertFalse(downStats.isAvailable());
+			Assert.assertEquals(EndpointStats.EJECTION_FAILURES, downStats.getFailureCount());
+			Assert.assertEquals(downStats.getRequestCount(), downStats.getFailureCount());
+			Assert.assertTrue(transport.getEndpointStats().get(1).isAvailable());
+		}
+	}
+
+	/**
+	 * Test the failure is thrown when no endpoint can be connected to.
+	 */
+	@Test
+	public void allEndpointsDownTest() throws IOException {
+		StubServer down1 = new StubServer("<down/>");
+		down1.close();
+		StubServer down2 = new StubServer("<down/>");
+		down2.close();
+
+		HttpConfiguration httpConfiguration = down1.createHttpConfiguration();
+		httpConfiguration.addEndpoint(down1.getEndpoint(), 1);
+		httpConfiguration.addEndpoint(down2.getEndpoint(), 1);
+
+		try (Transport delegate = new ApacheTransport(httpConfiguration)) {
+			RoutingTransport transport = new RoutingTransport(delegate);
+			try {
+				transport.send(httpConfiguration, REQUEST);
+				Assert.fail("RealexException should have been thrown before this point.");
+			} catch (RealexException ex) {
+				Assert.assertTrue(HttpUtils.isConnectFailure(ex));
+			}
+			for (EndpointStats stats : transport.getEndpointStats()) {
+				Assert.assertEquals(1, stats.getFailureCount());
+			}
+		}
+	}
+
+}
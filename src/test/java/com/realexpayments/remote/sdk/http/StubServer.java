@@ -0,0 +1,157 @@
+package com.realexpayments.remote.sdk.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local HTTP server standing in for the Realex endpoint in tests. Every POST is answered with the 
+ * XML produced by the configured {@link Responder}.
+ */
+public class StubServer implements AutoCloseable {
+
+	/**
+	 * Produces the response XML for a request XML.
+	 */
+	public interface Responder {
+		String respond(String requestXml) throws Exception;
+	}
+
+	private final HttpServer server;
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	private final AtomicInteger requestCount = new AtomicInteger();
+
+	private volatile Responder responder;
+
+	private volatile int statusCode = 200;
+
+	private volatile long delayMillis;
+
+	private volatile Headers lastRequestHeaders;
+
+	/**
+	 * Starts a stub server on an ephemeral local port, always answering with the given XML.
+	 * 
+	 * @param responseXml
+	 */
+	public StubServer(final String responseXml) throws IOException {
+		this(new Responder() {
+			@Override
+			public String respond(String requestXml) {
+				return responseXml;
+			}
+		});
+	}
+
+	/**
+	 * Starts a stub server on an ephemeral local port.
+	 * 
+	 * @param responder
+	 */
+	public StubServer(Responder responder) throws IOException {
+		this.responder = responder;
+		this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		this.server.setExecutor(executor);
+		this.server.createContext("/", this::handle);
+		this.server.start();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		if (!"POST".equals(exchange.getRequestMethod())) {
+			exchange.sendResponseHeaders(405, -1);
+			exchange.close();
+			return;
+		}
+		requestCount.incrementAndGet();
+		lastRequestHeaders = exchange.getRequestHeaders();
+		try {
+			String requestXml = new String(readAll(exchange.getRequestBody()), StandardCharsets.UTF_8);
+			if (delayMillis > 0) {
+				Thread.sleep(delayMillis);
+			}
+			byte[] body = responder.respond(requestXml).getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(statusCode, body.length);
+			OutputStream out = exchange.getResponseBody();
+			out.write(body);
+			out.close();
+		} catch (Exception ex) {
+			exchange.sendResponseHeaders(500, -1);
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Returns a plain HTTP endpoint for this server.
+	 * 
+	 * @return String
+	 */
+	public String getEndpoint() {
+		return "http://localhost:" + server.getAddress().getPort() + "/epage-remote.cgi";
+	}
+
+	/**
+	 * Returns a HttpConfiguration pointing at this server, with plain HTTP allowed.
+	 * 
+	 * @return HttpConfiguration
+	 */
+	public HttpConfiguration createHttpConfiguration() {
+		HttpConfiguration httpConfiguration = new HttpConfiguration();
+		httpConfiguration.setEndpoint(getEndpoint());
+		httpConfiguration.setOnlyAllowHttps(false);
+		return httpConfiguration;
+	}
+
+	public int getRequestCount() {
+		return requestCount.get();
+	}
+
+	/**
+	 * Returns the headers of the last POST received, or <code>null</code> if none has been.
+	 * 
+	 * @return Headers
+	 */
+	public Headers getLastRequestHeaders() {
+		return lastRequestHeaders;
+	}
+
+	public void setResponder(Responder responder) {
+		this.responder = responder;
+	}
+
+	public void setStatusCode(int statusCode) {
+		this.statusCode = statusCode;
+	}
+
+	public void setDelayMillis(long delayMillis) {
+		this.delayMillis = delayMillis;
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,312 @@
+package com.realexpayments.remote.sdk.http;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.realexpayments.remote.sdk.RealexException;
+import com.realexpayments.remote.sdk.RealexTimeoutException;
+
+/**
+ * Transport implementation tests, sending requests to a local stub server.
+ */
+public class TransportTest {
+
+	private static final String REQUEST_XML = "<request>test request xml</request>";
+
+	/**
+	 * Test sending requests with the Apache transport.
+	 */
+	@Test
+	public void apacheTransportTest() throws IOException {
+		try (StubServer server = new StubServer(requestXml -> "<response>" + requestXml + "</response>")) {
+			HttpConfiguration httpConfiguration = server.createHttpConfiguration();
+			try (Transport transport = new ApacheTransport(httpConfiguration)) {
+				checkTransport(server, transport, httpConfiguration);
+			}
+		}
+	}
+
+	/**
+	 * Test sending requests with the java.net.http transport, on Java 11 or later.
+	 */
+	@Test
+	public void javaNetHttpTransportTest() throws IOException {
+		Assume.assumeTrue("java.net.http requires Java 11", isJavaNetHttpAvailable());
+
+		try (StubServer server = new StubServer(requestXml -> "<response>" + requestXml + "</response>")) {
+			HttpConfiguration httpConfiguration = server.createHttpConfiguration();
+			try (Transport transport = HttpUtils.getJavaNetHttpTransport(httpConfiguration)) {
+				checkTransport(server, transport, httpConfiguration);
+			}
+		}
+	}
+
+	/**
+	 * Test sending requests with the HTTP/2 java.net.http transport, on Java 11 or later, falling back to 
+	 * HTTP/1.1 as the stub server does not support HTTP/2.
+	 */
+	@Test
+	public void http2TransportTest() throws IOException {
+		Assume.assumeTrue("java.net.http requires Java 11", isJavaNetHttpAvailable());
+
+		try (StubServer server = new StubServer(requestXml -> "<response>" + requestXml + "</response>")) {
+			HttpConfiguration httpConfiguration = server.createHttpConfiguration();
+			try (Transport transport = HttpUtils.getHttp2Transport(httpConfiguration)) {
+				checkTransport(server, transport, httpConfiguration);
+			}
+		}
+	}
+
+	/**
+	 * Test the cleartext HTTP/2 upgrade of the HTTP/2 java.net.http transport is bounded by the request 
+	 * timeout and does not block an asynchronous send, on Java 11 or later.
+	 */
+	@Test
+	public void http2UpgradeTimeoutTest() throws IOException {
+		Assume.assumeTrue("java.net.http requires Java 11", isJavaNetHttpAvailable());
+
+		//a server which accepts connections but never answers
+		try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+			HttpConfiguration httpConfiguration = new HttpConfiguration();
+			httpConfiguration.setEndpoint("http://localhost:" + server.getLocalPort() + "/epage-remote.cgi");
+			httpConfiguration.setOnlyAllowHttps(false);
+			httpConfiguration.setTimeout(200);
+			try (Transport transport = HttpUtils.getHttp2Transport(httpConfiguration)) {
+				long start = System.nanoTime();
+				CompletableFuture<byte[]> response = transport.sendAsync(httpConfiguration, REQUEST_XML.getBytes(StandardCharsets.UTF_8));
+				Assert.assertFalse(response.isDone());
+				try {
+					response.join();
+					Assert.fail("RealexException should have been thrown before this point.");
+				} catch (CompletionException ex) {
+					Assert.assertTrue(ex.getCause() instanceof RealexException);
+				}
+				Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+
+				try {
+					transport.send(httpConfiguration, REQUEST_XML.getBytes(StandardCharsets.UTF_8));
+					Assert.fail("RealexException should have been thrown before this point.");
+				} catch (RealexException ex) {
+					Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test the java.net.http transport is unavailable before Java 11.
+	 */
+	@Test(expected = RealexException.class)
+	public void javaNetHttpTransportUnavailableTest() {
+		Assume.assumeFalse(isJavaNetHttpAvailable());
+
+		HttpUtils.getJavaNetHttpTransport(new HttpConfiguration());
+	}
+
+	/**
+	 * Test the HTTP/2 java.net.http transport is unavailable before Java 11.
+	 */
+	@Test(expected = RealexException.class)
+	public void http2TransportUnavailableTest() {
+		Assume.assumeFalse(isJavaNetHttpAvailable());
+
+		HttpUtils.getHttp2Transport(new HttpConfiguration());
+	}
+
+	/**
+	 * Test the Apache transport sends request bodies with a content length, unless chunked requests are 
+	 * configured for synchronous requests.
+	 */
+	@Test
+	public void apacheTransportRequestFramingTest() throws IOException {
+		try (StubServer server = new StubServer(requestXml -> "<response>" + requestXml + "</response>")) {
+			HttpConfiguration httpConfiguration = server.createHttpConfiguration();
+			String length = String.valueOf(REQUEST_XML.getBytes(StandardCharsets.UTF_8).length);
+			try (Transport transport = new ApacheTransport(httpConfiguration)) {
+				transport.send(httpConfiguration, REQUEST_XML.getBytes(StandardCharsets.UTF_8));
+				Assert.assertEquals(length, server.getLastRequestHeaders().getFirst("Content-Length"));
+				Assert.assertNull(server.getLastRequestHeaders().getFirst("Transfer-Encoding"));
+
+				transport.sendAsync(httpConfiguration, REQUEST_XML.getBytes(StandardCharsets.UTF_8)).join();
+				Assert.assertEquals(length, server.getLastRequestHeaders().getFirst("Content-Length"));
+				Assert.assertNull(server.getLastRequestHeaders().getFirst("Transfer-Encoding"));
+
+				httpConfiguration.setChunkedRequests(true);
+				byte[] response = transport.send(httpConfiguration, REQUEST_XML.getBytes(StandardCharsets.UTF_8));
+				Assert.assertEquals("<response>" + REQUEST_XML + "</response>", new String(response, StandardCharsets.UTF_8));
+				Assert.assertEquals("chunked", server.getLastRequestHeaders().getFirst("Transfer-Encoding"));
+			}
+		}
+	}
+
+	/**
+	 * Test the Apache transport aborts requests once their deadline has passed.
+	 */
+	@Test
+	public void apacheTransportDeadlineTest() throws IOException {
+		try (StubServer server = new StubServer(requestXml -> requestXml)) {
+			HttpConfiguration httpConfiguration = server.createHttpConfiguration();
+			try (Transport transport = new ApacheTransport(httpConfiguration)) {
+				checkDeadline(server, transport, httpConfiguration);
+			}
+		}
+	}
+
+	/**
+	 * Test the java.net.http transport aborts requests once their deadline has passed, on Java 11 or later.
+	 */
+	@Test
+	public void javaNetHttpTransportDeadlineTest() throws IOException {
+		Assume.assumeTrue("java.net.http requires Java 11", isJavaNetHttpAvailable());
+
+		try (StubServer server = new StubServer(requestXml -> requestXml)) {
+			HttpConfiguration httpConfiguration = server.createHttpConfiguration();
+			try (Transport transport = HttpUtils.getJavaNetHttpTransport(httpConfiguration)) {
+				checkDeadline(server, transport, httpConfiguration);
+			}
+		}
+	}
+
+	/**
+	 * Test sending requests with the loopback transport.
+	 */
+	@Test
+	public void loopbackTransportTest() {
+		Transport transport = new LoopbackTransport((request, response) -> {
+			response.write("<response>".getBytes(StandardCharsets.UTF_8));
+			response.write(Transport.readFully(request));
+			response.write("</response>".getBytes(StandardCharsets.UTF_8));
+		});
+		HttpConfiguration httpConfiguration = new HttpConfiguration();
+
+		Assert.assertEquals("<response>" + REQUEST_XML + "</response>",
+				new String(transport.send(httpConfiguration, REQUEST_XML.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8));
+		Assert.assertEquals("<response>" + REQUEST_XML + "</response>", new String(
+				transport.sendAsync(httpConfiguration, REQUEST_XML.getBytes(StandardCharsets.UTF_8)).join(), StandardCharsets.UTF_8));
+
+		//HTTPS policy is still checked
+		httpConfiguration.setEndpoint("http://localhost/epage-remote.cgi");
+		try {
+			transport.send(httpConfiguration, REQUEST_XML.getBytes(StandardCharsets.UTF_8));
+			Assert.fail("RealexException should have been thrown before this point.");
+		} catch (RealexException ex) {
+			Assert.assertEquals("Protocol must be https", ex.getMessage());
+		}
+	}
+
+	/**
+	 * Sends requests synchronously and asynchronously, checking the responses, error status codes and the 
+	 * HTTPS policy.
+	 */
+	private void checkTransport(StubServer server, Transport transport, HttpConfiguration httpConfiguration) {
+		String expectedResponse = "<response>" + REQUEST_XML + "</response>";
+
+		//warm up opens connections without sending requests
+		transport.warmUp(httpConfiguration, 2);
+		Assert.assertEquals(0, server.getRequestCount());
+
+		//bytes
+		Assert.assertEquals(expectedResponse,
+				new String(transport.send(httpConfiguration, REQUEST_XML.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8));
+		Assert.assertEquals(expectedResponse, new String(
+				transport.sendAsync(httpConfiguration, REQUEST_XML.getBytes(StandardCharsets.UTF_8)).join(), StandardCharsets.UTF_8));
+
+		//streams
+		String response = transport.send(httpConfiguration, out -> out.write(REQUEST_XML.getBytes(StandardCharsets.UTF_8)),
+				content -> new String(Transport.readFully(content), StandardCharsets.UTF_8));
+		Assert.assertEquals(expectedResponse, response);
+		Assert.assertEquals(3, server.getRequestCount());
+
+		//error status code
+		server.setStatusCode(500);
+		try {
+			transport.send(httpConfiguration, REQUEST_XML.getBytes(StandardCharsets.UTF_8));
+			Assert.fail("RealexException should have been thrown before this point.");
+		} catch (RealexException ex) {
+			Assert.assertEquals("Unexpected http status code [500]", ex.getMessage());
+		}
+		try {
+			transport.sendAsync(httpConfiguration, REQUEST_XML.getBytes(StandardCharsets.UTF_8)).join();
+			Assert.fail("RealexException should have been thrown before this point.");
+		} catch (CompletionException ex) {
+			Assert.assertTrue(ex.getCause() instanceof RealexException);
+			Assert.assertEquals("Unexpected http status code [500]", ex.getCause().getMessage());
+		}
+
+		//HTTPS only
+		httpConfiguration.setOnlyAllowHttps(true);
+		try {
+			transport.send(httpConfiguration, REQUEST_XML.getBytes(StandardCharsets.UTF_8));
+			Assert.fail("RealexException should have been thrown before this point.");
+		} catch (RealexException ex) {
+			Assert.assertEquals("Protocol must be https", ex.getMessage());
+		}
+	}
+
+	/**
+	 * Sends requests synchronously and asynchronously to a slow server with a short deadline, checking they 
+	 * fail with a timeout long before the response, and that a request past its deadline is not sent.
+	 */
+	private void checkDeadline(StubServer server, Transport transport, HttpConfiguration httpConfiguration) {
+		//a first request without delay, so that opening the connection does not count against the deadlines
+		transport.send(httpConfiguration, REQUEST_XML.getBytes(StandardCharsets.UTF_8));
+		server.setDelayMillis(3000);
+		TimeoutProfile timeoutProfile = new TimeoutProfile(1000, 1000, 10000, 0);
+
+		long start = System.nanoTime();
+		try {
+			transport.send(httpConfiguration.withTimeouts(timeoutProfile, Deadline.afterMillis(200)),
+					REQUEST_XML.getBytes(StandardCharsets.UTF_8));
+			Assert.fail("RealexTimeoutException should have been thrown before this point.");
+		} catch (RealexTimeoutException ex) {
+			Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(2000));
+		}
+
+		start = System.nanoTime();
+		try {
+			transport.sendAsync(httpConfiguration.withTimeouts(timeoutProfile, Deadline.afterMillis(200)),
+					REQUEST_XML.getBytes(StandardCharsets.UTF_8)).join();
+			Assert.fail("RealexTimeoutException should have been thrown before this point.");
+		} catch (CompletionException ex) {
+			Assert.assertTrue(ex.getCause() instanceof RealexTimeoutException);
+			Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(2000));
+		}
+
+		//the total timeout of the profile brings the deadline forward
+		try {
+			transport.send(httpConfiguration.withTimeouts(new TimeoutProfile(1000, 1000, 10000, 200), null),
+					REQUEST_XML.getBytes(StandardCharsets.UTF_8));
+			Assert.fail("RealexTimeoutException should have been thrown before this point.");
+		} catch (RealexTimeoutException ex) {
+			//expected
+		}
+
+		//a request past its deadline is not sent
+		int requestCount = server.getRequestCount();
+		try {
+			transport.send(httpConfiguration.withTimeouts(timeoutProfile, Deadline.afterMillis(0)),
+					REQUEST_XML.getBytes(StandardCharsets.UTF_8));
+			Assert.fail("RealexTimeoutException should have been thrown before this point.");
+		} catch (RealexTimeoutException ex) {
+			Assert.assertEquals(requestCount, server.getRequestCount());
+		}
+	}
+
+	private static boolean isJavaNetHttpAvailable() {
+		try {
+			Class.forName("java.net.http.HttpClient");
+			return true;
+		} catch (ClassNotFoundException ex) {
+			return false;
+		}
+	}
+}
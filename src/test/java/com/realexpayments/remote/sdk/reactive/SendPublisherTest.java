@@ -0,0 +1,262 @@
+package com.realexpayments.remote.sdk.reactive;
+
+import static com.realexpayments.remote.sdk.utils.SampleLoopbackUtils.LOOPBACK;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import com.realexpayments.remote.sdk.RealexClient;
+import com.realexpayments.remote.sdk.RealexServerException;
+import com.realexpayments.remote.sdk.SendResult;
+import com.realexpayments.remote.sdk.domain.payment.PaymentRequest;
+import com.realexpayments.remote.sdk.domain.payment.PaymentResponse;
+import com.realexpayments.remote.sdk.http.HttpConfiguration;
+import com.realexpayments.remote.sdk.http.RequestWriter;
+import com.realexpayments.remote.sdk.http.ResponseReader;
+import com.realexpayments.remote.sdk.http.Transport;
+import com.realexpayments.remote.sdk.utils.SampleXmlValidationUtils;
+
+/**
+ * Tests for {@link SendPublisher}.
+ */
+public class SendPublisherTest {
+
+	/**
+	 * Test every request is sent and its result published, failures included, before the stream completes.
+	 */
+	@Test
+	public void sendStreamTest() throws IOException {
+		try (RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET)) {
+			realexClient.setTransport(LOOPBACK);
+
+			List<PaymentRequest> requests = new ArrayList<PaymentRequest>();
+			for (int i = 0; i < 10; i++) {
+				requests.add(new PaymentRequest().addMerchantId(i % 3 == 0 ? "fail" : "thestore"));
+			}
+			ResultSubscriber subscriber = new ResultSubscriber();
+			realexClient.sendStream(new ListPublisher(requests)).subscribe(subscriber);
+			subscriber.subscription.request(Long.MAX_VALUE);
+
+			Assert.assertEquals(10, subscriber.results.size());
+			int failures = 0;
+			for (SendResult<PaymentRequest, PaymentResponse> result : subscriber.results) {
+				if (result.isSuccess()) {
+					SampleXmlValidationUtils.checkUnmarshalledPaymentResponse(result.getResponse());
+				} else {
+					Assert.assertEquals("fail", result.getRequest().getMerchantId());
+					Assert.assertTrue(result.getException() instanceof RealexServerException);
+					failures++;
+				}
+			}
+			Assert.assertEquals(4, failures);
+			Assert.assertTrue(subscriber.complete);
+			Assert.assertNull(subscriber.error);
+		}
+	}
+
+	/**
+	 * Test requests are only pulled as results are requested, and no more are in flight than the maximum.
+	 */
+	@Test
+	public void backpressureTest() throws IOException {
+		try (RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET)) {
+			DeferredTransport transport = new DeferredTransport();
+			realexClient.setTransport(transport);
+
+			ListPublisher requests = new ListPublisher(newRequests(10));
+			ResultSubscriber subscriber = new ResultSubscriber();
+			realexClient.sendStream(requests, 3).subscribe(subscriber);
+			Assert.assertEquals(0, requests.requested);
+
+			subscriber.subscription.request(2);
+			Assert.assertEquals(2, requests.requested);
+			Assert.assertEquals(2, transport.responses.size());
+
+			subscriber.subscription.request(100);
+			Assert.assertEquals(3, requests.requested);
+			Assert.assertEquals(3, transport.responses.size());
+
+			//each response frees a place for another request
+			transport.respond();
+			Assert.assertEquals(1, subscriber.results.size());
+			Assert.assertEquals(4, requests.requested);
+			Assert.assertEquals(3, transport.responses.size());
+
+			while (!transport.responses.isEmpty()) {
+				transport.respond();
+			}
+			Assert.assertEquals(10, subscriber.results.size());
+			Assert.assertTrue(subscriber.complete);
+		}
+	}
+
+	/**
+	 * Test requests are held back while the client has no capacity for them, rather than being rejected.
+	 */
+	@Test
+	public void capacityTest() throws IOException {
+		HttpConfiguration httpConfiguration = new HttpConfiguration();
+		httpConfiguration.setMaxConcurrentRequests(2);
+		try (RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET, httpConfiguration)) {
+			DeferredTransport transport = new DeferredTransport();
+			realexClient.setTransport(transport);
+
+			ResultSubscriber subscriber = new ResultSubscriber();
+			realexClient.sendStream(new ListPublisher(newRequests(6)), 5).subscribe(subscriber);
+			subscriber.subscription.request(Long.MAX_VALUE);
+			Assert.assertEquals(2, transport.responses.size());
+
+			while (!transport.responses.isEmpty()) {
+				Assert.assertTrue(transport.responses.size() <= 2);
+				transport.respond();
+			}
+			Assert.assertEquals(6, subscriber.results.size());
+			for (SendResult<PaymentRequest, PaymentResponse> result : subscriber.results) {
+				Assert.assertTrue(result.isSuccess());
+			}
+			Assert.assertTrue(subscriber.complete);
+		}
+	}
+
+	/**
+	 * Test an error from the publisher of requests ends the stream once the requests received are sent.
+	 */
+	@Test
+	public void requestsErrorTest() throws IOException {
+		try (RealexClient realexClient = new RealexClient(SampleXmlValidationUtils.SECRET)) {
+			realexClient.setTransport(LOOPBACK);
+
+			final IllegalStateException failure = new IllegalStateException("no more requests");
+			Publisher<PaymentRequest> requests = subscriber -> subscriber.onSubscribe(new Subscription() {
+				@Override
+				public void request(long n) {
+					subscriber.onNext(new PaymentRequest().addMerchantId("thestore"));
+					subscriber.onError(failure);
+				}
+
+				@Override
+				public void cancel() {
+				}
+			});
+			ResultSubscriber subscriber = new ResultSubscriber();
+			realexClient.sendStream(requests).subscribe(subscriber);
+			subscriber.subscription.request(10);
+
+			Assert.assertEquals(1, subscriber.results.size());
+			Assert.assertSame(failure, subscriber.error);
+			Assert.assertFalse(subscriber.complete);
+		}
+	}
+
+	private static List<PaymentRequest> newRequests(int count) {
+		List<PaymentRequest> requests = new ArrayList<PaymentRequest>();
+		for (int i = 0; i < count; i++) {
+			requests.add(new PaymentRequest().addMerchantId("thestore"));
+		}
+		return requests;
+	}
+
+	/**
+	 * Publishes the requests of a list on demand, counting the requests requested.
+	 */
+	private static class ListPublisher implements Publisher<PaymentRequest> {
+
+		private final List<PaymentRequest> requests;
+
+		private long requested;
+
+		private int next;
+
+		ListPublisher(List<PaymentRequest> requests) {
+			this.requests = requests;
+		}
+
+		@Override
+		public void subscribe(final Subscriber<? super PaymentRequest> subscriber) {
+			subscriber.onSubscribe(new Subscription() {
+				@Override
+				public void request(long n) {
+					requested += n;
+					while (n-- > 0 && next < requests.size()) {
+						subscriber.onNext(requests.get(next++));
+					}
+					if (next == requests.size()) {
+						subscriber.onComplete();
+					}
+				}
+
+				@Override
+				public void cancel() {
+				}
+			});
+		}
+	}
+
+	/**
+	 * Collects the results published.
+	 */
+	private static class ResultSubscriber implements Subscriber<SendResult<PaymentRequest, PaymentResponse>> {
+
+		private final List<SendResult<PaymentRequest, PaymentResponse>> results = new ArrayList<SendResult<PaymentRequest, PaymentResponse>>();
+
+		private Subscription subscription;
+
+		private boolean complete;
+
+		private Throwable error;
+
+		@Override
+		public void onSubscribe(Subscription subscription) {
+			this.subscription = subscription;
+		}
+
+		@Override
+		public void onNext(SendResult<PaymentRequest, PaymentResponse> result) {
+			results.add(result);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			error = throwable;
+		}
+
+		@Override
+		public void onComplete() {
+			complete = true;
+		}
+	}
+
+	/**
+	 * Transport holding asynchronous requests until told to respond, in the order they were sent.
+	 */
+	private static class DeferredTransport implements Transport {
+
+		private final List<Runnable> responses = new ArrayList<Runnable>();
+
+		@Override
+		public <T> T send(HttpConfiguration httpConfiguration, RequestWriter requestWriter, ResponseReader<T> responseReader) {
+			return LOOPBACK.send(httpConfiguration, requestWriter, responseReader);
+		}
+
+		@Override
+		public <T> CompletableFuture<T> sendAsync(HttpConfiguration httpConfiguration, RequestWriter requestWriter,
+				ResponseReader<T> responseReader) {
+			CompletableFuture<T> response = new CompletableFuture<T>();
+			responses.add(() -> response.complete(LOOPBACK.send(httpConfiguration, requestWriter, responseReader)));
+			return response;
+		}
+
+		void respond() {
+			responses.remove(0).run();
+		}
+	}
+
+}
@@ -0,0 +1,198 @@
+package com.realexpayments.remote.sdk.resilience;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.realexpayments.remote.sdk.RealexCircuitOpenException;
+import com.realexpayments.remote.sdk.RealexException;
+import com.realexpayments.remote.sdk.RealexRejectedException;
+import com.realexpayments.remote.sdk.RealexServerException;
+import com.realexpayments.remote.sdk.RealexTimeoutException;
+import com.realexpayments.remote.sdk.http.Deadline;
+import com.realexpayments.remote.sdk.resilience.CircuitBreaker.State;
+
+/**
+ * Tests for {@link CircuitBreaker} and {@link Bulkhead}.
+ */
+public class CircuitBreakerTest {
+
+	private final List<String> transitions = new CopyOnWriteArrayList<String>();
+
+	private CircuitBreaker circuitBreaker(long openDuration) {
+		CircuitBreakerPolicy policy = new CircuitBreakerPolicy();
+		policy.setWindowSize(10);
+		policy.setMinimumCalls(4);
+		policy.setOpenDuration(openDuration);
+		policy.setHalfOpenCalls(2);
+		policy.setListener((circuitBreaker, from, to) -> transitions.add(from + "->" + to));
+		return new CircuitBreaker(policy);
+	}
+
+	private static String fail() {
+		throw new RealexException("Exception communicating with Realex.");
+	}
+
+	/**
+	 * Test the circuit breaker opens once the failure rate reaches the threshold, then rejects requests.
+	 */
+	@Test
+	public void opensOnFailuresTest() {
+		CircuitBreaker circuitBreaker = circuitBreaker(60000);
+
+		Assert.assertEquals("ok", circuitBreaker.call(() -> "ok"));
+		Assert.assertEquals("ok", circuitBreaker.call(() -> "ok"));
+		for (int i = 0; i < 2; i++) {
+			try {
+				circuitBreaker.call(CircuitBreakerTest::fail);
+				Assert.fail("RealexException should have been thrown before this point.");
+			} catch (RealexException ex) {
+				Assert.assertFalse(ex instanceof RealexRejectedException);
+			}
+		}
+		Assert.assertEquals(State.OPEN, circuitBreaker.getState());
+		Assert.assertEquals("[CLOSED->OPEN]", transitions.toString());
+
+		try {
+			circuitBreaker.call(() -> "not sent");
+			Assert.fail("RealexCircuitOpenException should have been thrown before this point.");
+		} catch (RealexCircuitOpenException ex) {
+			Assert.assertTrue(ex.getRetryAfter() > 0);
+		}
+		Assert.assertTrue(circuitBreaker.callAsync(() -> CompletableFuture.completedFuture("not sent")).isCompletedExceptionally());
+	}
+
+	/**
+	 * Test declines and malformed requests do not count as failures, while gateway errors do.
+	 */
+	@Test
+	public void failureClassificationTest() {
+		Assert.assertTrue(CircuitBreaker.isFailure(new RealexException("Exception communicating with Realex.")));
+		Assert.assertTrue(CircuitBreaker.isFailure(new RealexServerException("", "", "302", "gateway error")));
+		Assert.assertFalse(CircuitBreaker.isFailure(new RealexServerException("", "", "508", "malformed request")));
+		Assert.assertFalse(CircuitBreaker.isFailure(new RealexRejectedException("rejected")));
+		Assert.assertFalse(CircuitBreaker.isFailure(new IllegalArgumentException()));
+	}
+
+	/**
+	 * Test the circuit breaker lets trial requests through once the open duration has passed, closing once 
+	 * they succeed, or opening again if one fails.
+	 */
+	@Test
+	public void halfOpenTest() throws InterruptedException {
+		CircuitBreaker circuitBreaker = circuitBreaker(50);
+		for (int i = 0; i < 4; i++) {
+			try {
+				circuitBreaker.call(CircuitBreakerTest::fail);
+			} catch (RealexException ex) {
+				//expected
+			}
+		}
+		Assert.assertEquals(State.OPEN, circuitBreaker.getState());
+
+		//a failed trial opens the circuit breaker again
+		Thread.sleep(80);
+		try {
+			circuitBreaker.call(CircuitBreakerTest::fail);
+		} catch (RealexException ex) {
+			Assert.assertFalse(ex instanceof RealexCircuitOpenException);
+		}
+		Assert.assertEquals(State.OPEN, circuitBreaker.getState());
+
+		//only the trial requests are let through while half open
+		Thread.sleep(80);
+		CompletableFuture<String> first = new CompletableFuture<String>();
+		CompletableFuture<String> second = new CompletableFuture<String>();
+		Assert.assertSame(first, circuitBreaker.callAsync(() -> first));
+		Assert.assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+		Assert.assertSame(second, circuitBreaker.callAsync(() -> second));
+		Assert.assertTrue(circuitBreaker.callAsync(() -> CompletableFuture.completedFuture("not sent")).isCompletedExceptionally());
+
+		first.complete("ok");
+		second.complete("ok");
+		Assert.assertEquals(State.CLOSED, circuitBreaker.getState());
+		Assert.assertEquals("[CLOSED->OPEN, OPEN->HALF_OPEN, HALF_OPEN->OPEN, OPEN->HALF_OPEN, HALF_OPEN->CLOSED]",
+				transitions.toString());
+		Assert.assertEquals(0, circuitBreaker.getFailureRate(), 0);
+	}
+
+	/**
+	 * Test the circuit breaker opens once the slow call rate reaches the threshold.
+	 */
+	@Test
+	public void opensOnSlowCallsTest() {
+		CircuitBreakerPolicy policy = new CircuitBreakerPolicy();
+		policy.setWindowSize(4);
+		policy.setSlowCallDuration(0);
+		policy.setSlowCallRateThreshold(100);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(policy);
+
+		for (int i = 0; i < 4; i++) {
+			circuitBreaker.call(() -> {
+				sleep(1);
+				return "slow";
+			});
+		}
+		Assert.assertEquals(State.OPEN, circuitBreaker.getState());
+	}
+
+	/**
+	 * Test the bulkhead rejects requests beyond the maximum in progress.
+	 */
+	@Test
+	public void bulkheadTest() {
+		Bulkhead bulkhead = new Bulkhead(1, 10);
+
+		CompletableFuture<String> inProgress = new CompletableFuture<String>();
+		Assert.assertSame(inProgress, bulkhead.callAsync(() -> inProgress));
+		Assert.assertEquals(1, bulkhead.getConcurrentRequests());
+
+		Assert.assertTrue(bulkhead.callAsync(() -> CompletableFuture.completedFuture("not sent")).isCompletedExceptionally());
+		try {
+			bulkhead.call(() -> "not sent");
+			Assert.fail("RealexRejectedException should have been thrown before this point.");
+		} catch (RealexRejectedException ex) {
+			Assert.assertEquals("Maximum of 1 concurrent requests to Realex reached.", ex.getMessage());
+		}
+
+		inProgress.complete("ok");
+		Assert.assertEquals(0, bulkhead.getConcurrentRequests());
+		Assert.assertEquals("sent", bulkhead.call(() -> "sent"));
+	}
+
+	/**
+	 * Test a request waits in the bulkhead no longer than its deadline, failing with a timeout rather than
+	 * being rejected when the deadline is sooner than the maximum wait.
+	 */
+	@Test
+	public void bulkheadDeadlineTest() {
+		Bulkhead bulkhead = new Bulkhead(1, 5000);
+		CompletableFuture<String> inProgress = new CompletableFuture<String>();
+		bulkhead.callAsync(() -> inProgress);
+
+		long start = System.nanoTime();
+		try {
+			bulkhead.call(() -> "not sent", Deadline.afterMillis(50));
+			Assert.fail("RealexTimeoutException should have been thrown before this point.");
+		} catch (RealexTimeoutException ex) {
+			Assert.assertEquals("Deadline exceeded waiting to send the request to Realex.", ex.getMessage());
+		}
+		Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+
+		inProgress.complete("ok");
+		Assert.assertEquals("sent", bulkhead.call(() -> "sent", Deadline.afterMillis(50)));
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -0,0 +1,156 @@
+package com.realexpayments.remote.sdk.resilience;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.realexpayments.remote.sdk.RealexException;
+import com.realexpayments.remote.sdk.RealexRejectedException;
+import com.realexpayments.remote.sdk.RealexTimeoutException;
+import com.realexpayments.remote.sdk.domain.payment.PaymentResponse;
+import com.realexpayments.remote.sdk.http.Deadline;
+
+/**
+ * Tests for {@link ConcurrencyLimiter}.
+ */
+public class ConcurrencyLimiterTest {
+
+	private static ConcurrencyLimitPolicy policy(int initialLimit) {
+		ConcurrencyLimitPolicy policy = new ConcurrencyLimitPolicy();
+		policy.setInitialLimit(initialLimit);
+		policy.setBackoffRatio(0.5);
+		return policy;
+	}
+
+	private static PaymentResponse response(long timeTaken) {
+		PaymentResponse response = new PaymentResponse();
+		response.setTimeTaken(timeTaken);
+		return response;
+	}
+
+	/**
+	 * Test requests beyond the limit wait up to the maximum wait, and are then rejected.
+	 */
+	@Test
+	public void rejectsBeyondLimitTest() throws InterruptedException {
+		ConcurrencyLimitPolicy policy = policy(1);
+		policy.setMaxWait(50);
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter("merchant/account", policy);
+
+		CompletableFuture<PaymentResponse> inProgress = new CompletableFuture<PaymentResponse>();
+		Assert.assertSame(inProgress, limiter.callAsync(() -> inProgress));
+		Assert.assertEquals(1, limiter.getInFlight());
+		Assert.assertTrue(limiter.callAsync(() -> CompletableFuture.completedFuture(response(0))).isCompletedExceptionally());
+
+		long start = System.nanoTime();
+		try {
+			limiter.call(() -> response(0));
+			Assert.fail("RealexRejectedException should have been thrown before this point.");
+		} catch (RealexRejectedException ex) {
+			Assert.assertTrue(System.nanoTime() - start >= 40000000L);
+		}
+
+		//a waiting request is sent once another completes
+		Thread waiter = new Thread(() -> limiter.call(() -> response(0)));
+		waiter.start();
+		Thread.sleep(10);
+		inProgress.complete(response(0));
+		waiter.join(1000);
+		Assert.assertFalse(waiter.isAlive());
+		Assert.assertEquals(0, limiter.getInFlight());
+	}
+
+	/**
+	 * Test a request with a deadline sooner than the maximum wait waits only until its deadline.
+	 */
+	@Test
+	public void waitsUntilDeadlineTest() {
+		ConcurrencyLimitPolicy policy = policy(1);
+		policy.setMaxWait(10000);
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter("merchant/account", policy);
+		CompletableFuture<PaymentResponse> inProgress = new CompletableFuture<PaymentResponse>();
+		limiter.callAsync(() -> inProgress);
+
+		long start = System.nanoTime();
+		try {
+			limiter.call(() -> response(0), Deadline.afterMillis(50));
+			Assert.fail("RealexTimeoutException should have been thrown before this point.");
+		} catch (RealexTimeoutException ex) {
+			Assert.assertEquals("Deadline exceeded waiting to send the request to Realex.", ex.getMessage());
+			Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+		}
+		Assert.assertEquals(1, limiter.getInFlight());
+
+		inProgress.complete(response(0));
+		limiter.call(() -> response(0), Deadline.afterMillis(50));
+		Assert.assertEquals(0, limiter.getInFlight());
+	}
+
+	/**
+	 * Test the limit is raised while requests are not queueing, and lowered once they are.
+	 */
+	@Test
+	public void adaptsToLatencyTest() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter("merchant/account", policy(2));
+		Assert.assertEquals(-1, limiter.getBaselineLatency());
+
+		limiter.call(() -> response(0));
+		Assert.assertEquals(3, limiter.getLimit());
+		Assert.assertTrue(limiter.getBaselineLatency() >= 0);
+
+		limiter = new ConcurrencyLimiter("merchant/account", policy(20));
+		limiter.call(() -> response(0));
+		limiter.call(() -> {
+			sleep(50);
+			return response(0);
+		});
+		Assert.assertEquals(19, limiter.getLimit());
+
+		//time the gateway reports taking is not queueing
+		limiter.call(() -> {
+			sleep(50);
+			return response(1);
+		});
+		Assert.assertEquals(19, limiter.getLimit());
+	}
+
+	/**
+	 * Test the limit is cut on failures and when the gateway is slow, but not for declined requests.
+	 */
+	@Test
+	public void backsOffTest() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter("merchant/account", policy(20));
+
+		try {
+			limiter.call(() -> {
+				throw new RealexException("Exception communicating with Realex.");
+			});
+			Assert.fail("RealexException should have been thrown before this point.");
+		} catch (RealexException ex) {
+			Assert.assertEquals(10, limiter.getLimit());
+		}
+
+		limiter.call(() -> response(6));
+		Assert.assertEquals(5, limiter.getLimit());
+
+		try {
+			limiter.call(() -> {
+				throw new RealexRejectedException("rejected");
+			});
+		} catch (RealexRejectedException ex) {
+			Assert.assertEquals(5, limiter.getLimit());
+		}
+		Assert.assertEquals(0, limiter.getInFlight());
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
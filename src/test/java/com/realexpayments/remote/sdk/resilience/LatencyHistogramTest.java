@@ -0,0 +1,62 @@
+package com.realexpayments.remote.sdk.resilience;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest {
+
+	/**
+	 * Test no percentile is estimated before a latency is recorded.
+	 */
+	@Test
+	public void emptyTest() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		Assert.assertEquals(0, histogram.getCount());
+		Assert.assertEquals(-1, histogram.getPercentileNanos(95));
+	}
+
+	/**
+	 * Test percentiles of latencies from 1 to 1000 milli-seconds are estimated to within one bucket.
+	 */
+	@Test
+	public void percentileTest() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int millis = 1; millis <= 1000; millis++) {
+			histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+		}
+		Assert.assertEquals(1000, histogram.getCount());
+
+		for (int percentile : new int[] { 1, 50, 90, 95, 99, 100 }) {
+			double estimate = histogram.getPercentileNanos(percentile) / 1e6;
+			Assert.assertTrue("Percentile " + percentile + " estimated as " + estimate,
+					estimate >= percentile * 10 - 1 && estimate <= percentile * 10 * 1.125);
+		}
+	}
+
+	/**
+	 * Test counts are halved once the decay threshold is reached, so percentiles follow recent latencies.
+	 */
+	@Test
+	public void decayTest() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < LatencyHistogram.DECAY_THRESHOLD - 1; i++) {
+			histogram.record(TimeUnit.MILLISECONDS.toNanos(1000));
+		}
+		Assert.assertEquals(LatencyHistogram.DECAY_THRESHOLD - 1, histogram.getCount());
+
+		histogram.record(TimeUnit.MILLISECONDS.toNanos(1000));
+		Assert.assertEquals(LatencyHistogram.DECAY_THRESHOLD / 2, histogram.getCount());
+
+		//after further decays recent fast latencies dominate
+		for (int i = 0; i < 3 * LatencyHistogram.DECAY_THRESHOLD; i++) {
+			histogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+		}
+		Assert.assertTrue(histogram.getPercentileNanos(90) < TimeUnit.MILLISECONDS.toNanos(12));
+	}
+
+}
@@ -0,0 +1,165 @@
+package com.realexpayments.remote.sdk.resilience;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link RequestHedger}, with attempts completed by the test.
+ */
+public class RequestHedgerTest {
+
+	private final List<CompletableFuture<String>> attempts = new CopyOnWriteArrayList<CompletableFuture<String>>();
+
+	private CompletableFuture<String> attempt() {
+		CompletableFuture<String> attempt = new CompletableFuture<String>();
+		attempts.add(attempt);
+		return attempt;
+	}
+
+	private static HedgingPolicy policy(long initialDelay) {
+		HedgingPolicy policy = new HedgingPolicy();
+		policy.setInitialDelay(initialDelay);
+		policy.setMaxHedgeRatio(1);
+		return policy;
+	}
+
+	/**
+	 * Test no second attempt is sent if the first answers within the hedge delay.
+	 */
+	@Test
+	public void noHedgeWhenFastTest() throws Exception {
+		RequestHedger hedger = new RequestHedger(policy(50));
+
+		CompletableFuture<String> result = hedger.hedge(this::attempt);
+		attempts.get(0).complete("first");
+		Assert.assertEquals("first", result.get(1, TimeUnit.SECONDS));
+
+		Thread.sleep(150);
+		Assert.assertEquals(1, attempts.size());
+		Assert.assertEquals(0, hedger.getHedgeCount());
+		Assert.assertEquals(1, hedger.getLatencies().getCount());
+	}
+
+	/**
+	 * Test a second attempt is sent after the hedge delay, the first response being used and the slower 
+	 * attempt cancelled.
+	 */
+	@Test
+	public void hedgeWinsTest() throws Exception {
+		RequestHedger hedger = new RequestHedger(policy(20));
+
+		CompletableFuture<String> result = hedger.hedge(this::attempt);
+		waitForAttempts(2);
+		Assert.assertEquals(1, hedger.getHedgeCount());
+
+		attempts.get(1).complete("second");
+		Assert.assertEquals("second", result.get(1, TimeUnit.SECONDS));
+		Assert.assertTrue(attempts.get(0).isCancelled());
+	}
+
+	/**
+	 * Test the request only fails once both attempts have failed.
+	 */
+	@Test
+	public void bothFailTest() throws Exception {
+		RequestHedger hedger = new RequestHedger(policy(20));
+
+		CompletableFuture<String> result = hedger.hedge(this::attempt);
+		waitForAttempts(2);
+
+		IllegalStateException failure = new IllegalStateException("second");
+		attempts.get(0).completeExceptionally(new IllegalStateException("first"));
+		Assert.assertFalse(result.isDone());
+		attempts.get(1).completeExceptionally(failure);
+		try {
+			result.join();
+			Assert.fail("CompletionException should have been thrown before this point.");
+		} catch (CompletionException ex) {
+			Assert.assertSame(failure, ex.getCause());
+		}
+	}
+
+	/**
+	 * Test a failure of the first attempt before the hedge delay fails the request without hedging.
+	 */
+	@Test
+	public void earlyFailureTest() throws Exception {
+		RequestHedger hedger = new RequestHedger(policy(50));
+
+		CompletableFuture<String> result = hedger.hedge(this::attempt);
+		attempts.get(0).completeExceptionally(new IllegalStateException("failed"));
+		Assert.assertTrue(result.isCompletedExceptionally());
+
+		Thread.sleep(150);
+		Assert.assertEquals(1, attempts.size());
+	}
+
+	/**
+	 * Test requests are not hedged once the hedge budget is exhausted.
+	 */
+	@Test
+	public void budgetTest() throws Exception {
+		HedgingPolicy policy = policy(10);
+		policy.setMaxHedgeRatio(0.5);
+		RequestHedger hedger = new RequestHedger(policy);
+
+		//half a hedge is deposited by the first request, so it is not hedged
+		hedger.hedge(this::attempt);
+		Thread.sleep(100);
+		Assert.assertEquals(1, attempts.size());
+
+		//the second request completes the deposit of a hedge
+		hedger.hedge(this::attempt);
+		waitForAttempts(3);
+		Assert.assertEquals(1, hedger.getHedgeCount());
+	}
+
+	/**
+	 * Test cancelling the request cancels the attempts.
+	 */
+	@Test
+	public void cancelTest() throws Exception {
+		RequestHedger hedger = new RequestHedger(policy(20));
+
+		CompletableFuture<String> result = hedger.hedge(this::attempt);
+		waitForAttempts(2);
+		result.cancel(true);
+		Assert.assertTrue(attempts.get(0).isCancelled());
+		Assert.assertTrue(attempts.get(1).isCancelled());
+	}
+
+	/**
+	 * Test the hedge delay follows the configured percentile of latencies once enough are recorded.
+	 */
+	@Test
+	public void hedgeDelayTest() {
+		HedgingPolicy policy = policy(500);
+		policy.setMinSamples(10);
+		RequestHedger hedger = new RequestHedger(policy);
+		Assert.assertEquals(500, hedger.getHedgeDelay());
+
+		for (int i = 0; i < 10; i++) {
+			hedger.getLatencies().record(TimeUnit.MILLISECONDS.toNanos(100));
+		}
+		long delay = hedger.getHedgeDelay();
+		Assert.assertTrue("Delay " + delay, delay >= 100 && delay <= 113);
+
+		policy.setMaxDelay(50);
+		Assert.assertEquals(50, hedger.getHedgeDelay());
+	}
+
+	private void waitForAttempts(int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (attempts.size() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		Assert.assertEquals(count, attempts.size());
+	}
+
+}
@@ -0,0 +1,184 @@
+package com.realexpayments.remote.sdk.resilience;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.realexpayments.remote.sdk.RealexException;
+import com.realexpayments.remote.sdk.RealexServerException;
+import com.realexpayments.remote.sdk.http.FailurePhase;
+
+/**
+ * Tests for {@link RequestRetrier} and {@link FailurePhase}.
+ */
+public class RequestRetrierTest {
+
+	private static final Function<Throwable, FailurePhase> PHASES = failure -> FailurePhase.of(failure, true);
+
+	private static RealexException communicationException(IOException cause) {
+		return new RealexException("Exception communicating with Realex.", cause);
+	}
+
+	/**
+	 * Test the phase of a failure is found from its causes.
+	 */
+	@Test
+	public void failurePhaseTest() {
+		Assert.assertEquals(FailurePhase.CONNECT, FailurePhase.of(communicationException(new ConnectException()), true));
+		Assert.assertEquals(FailurePhase.LEASE, FailurePhase.of(communicationException(new ConnectionPoolTimeoutException()), false));
+		Assert.assertEquals(FailurePhase.WRITE, FailurePhase.of(communicationException(new IOException("Broken pipe")), false));
+		Assert.assertEquals(FailurePhase.READ, FailurePhase.of(communicationException(new SocketTimeoutException()), true));
+		Assert.assertNull(FailurePhase.of(new RealexException("Response hash is invalid."), true));
+	}
+
+	/**
+	 * Test connect failures are retried at once whatever the request, and failures once the request may have 
+	 * reached Realex only if the request is repeatable.
+	 */
+	@Test
+	public void retryByPhaseTest() {
+		RetryPolicy policy = new RetryPolicy();
+		policy.setInitialBackoff(10);
+		RequestRetrier retrier = new RequestRetrier(policy);
+
+		final AtomicInteger attempts = new AtomicInteger();
+		Assert.assertEquals("ok", retrier.call(() -> {
+			if (attempts.incrementAndGet() == 1) {
+				throw communicationException(new ConnectException("Connection refused"));
+			}
+			return "ok";
+		}, PHASES, false, null));
+		Assert.assertEquals(2, attempts.get());
+
+		attempts.set(0);
+		try {
+			retrier.call(() -> {
+				attempts.incrementAndGet();
+				throw communicationException(new SocketTimeoutException("Read timed out"));
+			}, PHASES, false, null);
+			Assert.fail("RealexException should have been thrown before this point.");
+		} catch (RealexException ex) {
+			Assert.assertEquals(1, attempts.get());
+		}
+
+		attempts.set(0);
+		try {
+			retrier.call(() -> {
+				attempts.incrementAndGet();
+				throw communicationException(new SocketTimeoutException("Read timed out"));
+			}, PHASES, true, null);
+			Assert.fail("RealexException should have been thrown before this point.");
+		} catch (RealexException ex) {
+			Assert.assertEquals(3, attempts.get());
+		}
+
+		Assert.assertEquals(3, retrier.getRetryCount());
+	}
+
+	/**
+	 * Test transient errors returned by Realex are retried only if the request is repeatable, and other errors 
+	 * never are.
+	 */
+	@Test
+	public void retryServerErrorTest() {
+		RetryPolicy policy = new RetryPolicy();
+		policy.setInitialBackoff(10);
+		RequestRetrier retrier = new RequestRetrier(policy);
+
+		final AtomicInteger attempts = new AtomicInteger();
+		Assert.assertEquals("ok", retrier.call(() -> {
+			if (attempts.incrementAndGet() == 1) {
+				throw new RealexServerException("", "", "302", "gateway error");
+			}
+			return "ok";
+		}, PHASES, true, null));
+		Assert.assertEquals(2, attempts.get());
+
+		String[] errorCodes = { "302", "508" };
+		boolean[] repeatable = { false, true };
+		for (int i = 0; i < errorCodes.length; i++) {
+			final String errorCode = errorCodes[i];
+			attempts.set(0);
+			try {
+				retrier.call(() -> {
+					attempts.incrementAndGet();
+					throw new RealexServerException("", "", errorCode, "error");
+				}, PHASES, repeatable[i], null);
+				Assert.fail("RealexServerException should have been thrown before this point.");
+			} catch (RealexServerException ex) {
+				Assert.assertEquals(1, attempts.get());
+			}
+		}
+		Assert.assertEquals(1, retrier.getRetryCount());
+	}
+
+	/**
+	 * Test retries stop once the retry budget is spent.
+	 */
+	@Test
+	public void retryBudgetTest() {
+		RetryPolicy policy = new RetryPolicy();
+		policy.setMaxAttempts(100);
+		policy.setInitialBackoff(0);
+		policy.setBudgetRatio(0);
+		RequestRetrier retrier = new RequestRetrier(policy);
+
+		final AtomicInteger attempts = new AtomicInteger();
+		try {
+			retrier.call(() -> {
+				attempts.incrementAndGet();
+				throw communicationException(new ConnectException("Connection refused"));
+			}, PHASES, false, null);
+			Assert.fail("RealexException should have been thrown before this point.");
+		} catch (RealexException ex) {
+			Assert.assertEquals(11, attempts.get());
+		}
+	}
+
+	/**
+	 * Test asynchronous requests are retried after the backoff.
+	 */
+	@Test
+	public void retryAsyncTest() {
+		RetryPolicy policy = new RetryPolicy();
+		policy.setInitialBackoff(20);
+		RequestRetrier retrier = new RequestRetrier(policy);
+
+		final AtomicInteger attempts = new AtomicInteger();
+		CompletableFuture<String> result = retrier.callAsync(() -> {
+			CompletableFuture<String> attempt = new CompletableFuture<String>();
+			if (attempts.incrementAndGet() < 3) {
+				attempt.completeExceptionally(communicationException(new IOException("Connection reset")));
+			} else {
+				attempt.complete("ok");
+			}
+			return attempt;
+		}, failure -> FailurePhase.of(failure, false), false, null);
+		Assert.assertEquals("ok", result.join());
+		Assert.assertEquals(3, attempts.get());
+
+		attempts.set(0);
+		result = retrier.callAsync(() -> {
+			attempts.incrementAndGet();
+			CompletableFuture<String> attempt = new CompletableFuture<String>();
+			attempt.completeExceptionally(communicationException(new SocketTimeoutException("Read timed out")));
+			return attempt;
+		}, PHASES, false, null);
+		try {
+			result.join();
+			Assert.fail("CompletionException should have been thrown before this point.");
+		} catch (CompletionException ex) {
+			Assert.assertTrue(ex.getCause() instanceof RealexException);
+			Assert.assertEquals(1, attempts.get());
+		}
+	}
+
+}
@@ -0,0 +1,52 @@
+package com.realexpayments.remote.sdk.resilience;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link TokenBucket}.
+ */
+public class TokenBucketTest {
+
+	/**
+	 * Test the burst of permits may be taken at once, after which none are available until issued.
+	 */
+	@Test
+	public void burstTest() throws InterruptedException {
+		TokenBucket tokenBucket = new TokenBucket("merchant/auth", new RateLimit(20, 3));
+		Assert.assertEquals(3, tokenBucket.getAvailablePermits());
+
+		Assert.assertTrue(tokenBucket.tryAcquire());
+		Assert.assertTrue(tokenBucket.tryAcquire());
+		Assert.assertTrue(tokenBucket.tryAcquire());
+		Assert.assertFalse(tokenBucket.tryAcquire());
+		Assert.assertEquals(0, tokenBucket.getAvailablePermits());
+
+		//a permit is issued every 50ms
+		Thread.sleep(60);
+		Assert.assertTrue(tokenBucket.tryAcquire());
+		Assert.assertFalse(tokenBucket.tryAcquire());
+	}
+
+	/**
+	 * Test a request waits for its permit to be issued, if within the timeout.
+	 */
+	@Test
+	public void waitTest() {
+		TokenBucket tokenBucket = new TokenBucket("merchant/settle", new RateLimit(10, 1));
+		Assert.assertTrue(tokenBucket.tryAcquire(0, TimeUnit.MILLISECONDS));
+
+		Assert.assertFalse(tokenBucket.tryAcquire(20, TimeUnit.MILLISECONDS));
+
+		long start = System.nanoTime();
+		Assert.assertTrue(tokenBucket.tryAcquire(500, TimeUnit.MILLISECONDS));
+		Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+
+		//the next permit is reserved after the one waited for
+		Assert.assertFalse(tokenBucket.tryAcquire());
+		Assert.assertTrue(tokenBucket.tryAcquire(500, TimeUnit.MILLISECONDS));
+	}
+
+}
@@ -0,0 +1,123 @@
+package com.realexpayments.remote.sdk.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Test;
+
+/**
+ * HashEngine unit tests. Hashes are compared against a reference implementation using commons-codec.
+ */
+public class HashEngineTest {
+
+	private static final String SECRET = "mysecret";
+
+	/**
+	 * Reference implementation of the Realex hash.
+	 */
+	private static String referenceHash(String toHash, String secret) {
+		return DigestUtils.sha1Hex(DigestUtils.sha1Hex(toHash) + "." + secret);
+	}
+
+	/**
+	 * Test the hash of appended fields matches the hash of the concatenated fields.
+	 */
+	@Test
+	public void testHashFields() {
+		String expectedResult = "368df010076481d47a21e777871012b62b976339";
+
+		String result = HashEngine.start().append("20120926112654").append("thestore").append("ORD453-11").append("00")
+				.append("Successful").append("3737468273643").append("79347").hash(SECRET);
+		assertEquals(expectedResult, result);
+	}
+
+	/**
+	 * Test null fields are hashed as empty strings, and numeric fields as their decimal representation.
+	 */
+	@Test
+	public void testHashNullAndNumericFields() {
+		assertEquals(referenceHash("20120926112654..ORD453-11.29900..-5", SECRET),
+				HashEngine.start().append("20120926112654").append((String) null).append("ORD453-11").append(29900L)
+						.append((Long) null).append(-5L).hash(SECRET));
+		assertEquals(referenceHash(String.valueOf(Long.MIN_VALUE) + "." + Long.MAX_VALUE + ".0", SECRET),
+				HashEngine.start().append(Long.MIN_VALUE).append(Long.MAX_VALUE).append(0L).hash(SECRET));
+		assertEquals(referenceHash("", "null"), HashEngine.start().append((String) null).hash((String) null));
+	}
+
+	/**
+	 * Test non-ASCII fields and secrets are UTF-8 encoded, including supplementary and unpaired surrogate characters.
+	 */
+	@Test
+	public void testHashNonAscii() {
+		String[] values = { "Seán Ó Briain", "€100", "😀 smile", "unpaired \ud83d high", "unpaired \ude00 low",
+				"trailing \ud83d" };
+		for (String value : values) {
+			assertEquals(value, referenceHash(value + ".x", value), HashEngine.start().append(value).append("x").hash(value));
+		}
+	}
+
+	/**
+	 * Test random fields of varying lengths, exceeding the initial buffer size.
+	 */
+	@Test
+	public void testHashRandomFields() {
+		Random random = new Random(42);
+		for (int i = 0; i < 200; i++) {
+			StringBuilder toHash = new StringBuilder();
+			HashEngine engine = HashEngine.start();
+			int fields = 1 + random.nextInt(8);
+			for (int j = 0; j < fields; j++) {
+				char[] chars = new char[random.nextInt(i + 1)];
+				for (int k = 0; k < chars.length; k++) {
+					chars[k] = (char) (random.nextBoolean() ? 32 + random.nextInt(95) : random.nextInt(0x10000));
+				}
+				String field = new String(chars);
+				toHash.append(j > 0 ? "." : "").append(field);
+				engine.append(field);
+			}
+			assertEquals(referenceHash(toHash.toString(), SECRET), engine.hash(SECRET));
+		}
+	}
+
+	/**
+	 * Test matching against an expected hash.
+	 */
+	@Test
+	public void testMatches() {
+		assertTrue(HashEngine.start().append("a").append("b").matches(SECRET, referenceHash("a.b", SECRET)));
+		assertFalse(HashEngine.start().append("a").append("b").matches(SECRET, referenceHash("a.c", SECRET)));
+		assertFalse(HashEngine.start().append("a").append("b").matches(SECRET, referenceHash("a.b", SECRET).toUpperCase()));
+		assertFalse(HashEngine.start().append("a").append("b").matches(SECRET, "abc"));
+		assertFalse(HashEngine.start().append("a").append("b").matches(SECRET, null));
+	}
+
+	/**
+	 * Test starting the engine again discards previously appended fields.
+	 */
+	@Test
+	public void testStartResets() {
+		HashEngine.start().append("discarded");
+		assertEquals(referenceHash("a", SECRET), HashEngine.start().append("a").hash(SECRET));
+		assertEquals(referenceHash("a", SECRET), HashEngine.start().append("a").hash(SECRET));
+	}
+
+	/**
+	 * Test a new thread for each hash, as with a virtual thread per request, reuses the pooled engines rather
+	 * than creating one for each thread.
+	 */
+	@Test
+	public void testThreadPerRequestReusesEngine() throws InterruptedException {
+		int stripes = HashEngine.ENGINES.getStripes();
+		long created = HashEngine.ENGINES.getCreated();
+		for (int i = 0; i < stripes * 4; i++) {
+			Thread thread = new Thread(() -> HashEngine.start().append("a").hash(SECRET));
+			thread.start();
+			thread.join();
+		}
+		assertTrue(HashEngine.ENGINES.getCreated() - created <= stripes);
+	}
+}
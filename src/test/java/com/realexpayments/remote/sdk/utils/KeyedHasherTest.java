@@ -0,0 +1,111 @@
+package com.realexpayments.remote.sdk.utils;
+
+import static com.realexpayments.remote.sdk.utils.SampleXmlValidationUtils.PAYMENT_REQUEST_XML_PATH;
+import static com.realexpayments.remote.sdk.utils.SampleXmlValidationUtils.PAYMENT_RESPONSE_XML_PATH;
+import static com.realexpayments.remote.sdk.utils.SampleXmlValidationUtils.SECRET;
+import static com.realexpayments.remote.sdk.utils.SampleXmlValidationUtils.THREE_D_SECURE_VERIFY_ENROLLED_REQUEST_XML_PATH;
+import static com.realexpayments.remote.sdk.utils.SampleXmlValidationUtils.THREE_D_SECURE_VERIFY_ENROLLED_RESPONSE_XML_PATH;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+
+import com.realexpayments.remote.sdk.domain.payment.PaymentRequest;
+import com.realexpayments.remote.sdk.domain.payment.PaymentResponse;
+import com.realexpayments.remote.sdk.domain.threeDSecure.ThreeDSecureRequest;
+import com.realexpayments.remote.sdk.domain.threeDSecure.ThreeDSecureResponse;
+
+/**
+ * KeyedHasher unit tests.
+ */
+public class KeyedHasherTest {
+
+	/**
+	 * Test hash generation matches {@link GenerationUtils#generateHash(String, String)}.
+	 */
+	@Test
+	public void testGenerateHash() {
+		String testString = "20120926112654.thestore.ORD453-11.00.Successful.3737468273643.79347";
+		String expectedResult = "368df010076481d47a21e777871012b62b976339";
+
+		KeyedHasher hasher = new KeyedHasher(SECRET);
+		assertEquals(expectedResult, hasher.generateHash(testString));
+		assertTrue(hasher.isHashValid(testString, expectedResult));
+		assertFalse(hasher.isHashValid(testString + ".", expectedResult));
+
+		String[] secrets = { "", "Seán", "😀", null };
+		for (String secret : secrets) {
+			assertEquals(GenerationUtils.generateHash(testString, secret), new KeyedHasher(secret).generateHash(testString));
+		}
+	}
+
+	/**
+	 * Test appending fields to the engine and completing the hash with the hasher.
+	 */
+	@Test
+	public void testHashFields() {
+		KeyedHasher hasher = new KeyedHasher(SECRET);
+		String expected = HashEngine.start().append("a").append(1L).append((String) null).hash(SECRET);
+
+		assertEquals(expected, hasher.start().append("a").append(1L).append((String) null).hash(hasher));
+		assertTrue(hasher.start().append("a").append(1L).append((String) null).matches(hasher, expected));
+		assertFalse(hasher.start().append("a").append(1L).matches(hasher, expected));
+	}
+
+	/**
+	 * Test requests generate the same hash with the hasher as with the secret.
+	 */
+	@Test
+	public void testRequestGenerateDefaults() {
+		KeyedHasher hasher = new KeyedHasher(SECRET);
+
+		File file = new File(this.getClass().getResource(PAYMENT_REQUEST_XML_PATH).getPath());
+		PaymentRequest paymentRequest = new PaymentRequest().fromXml(new StreamSource(file));
+		String expected = paymentRequest.generateDefaults(SECRET).getHash();
+		assertEquals(expected, paymentRequest.addHash(null).generateDefaults(hasher).getHash());
+
+		file = new File(this.getClass().getResource(THREE_D_SECURE_VERIFY_ENROLLED_REQUEST_XML_PATH).getPath());
+		ThreeDSecureRequest threeDSecureRequest = new ThreeDSecureRequest().fromXml(new StreamSource(file));
+		expected = threeDSecureRequest.generateDefaults(SECRET).getHash();
+		assertEquals(expected, threeDSecureRequest.addHash(null).generateDefaults(hasher).getHash());
+	}
+
+	/**
+	 * Test responses are validated with the hasher.
+	 */
+	@Test
+	public void testResponseIsHashValid() {
+		File file = new File(this.getClass().getResource(PAYMENT_RESPONSE_XML_PATH).getPath());
+		PaymentResponse paymentResponse = new PaymentResponse().fromXml(new StreamSource(file));
+		assertTrue(paymentResponse.isHashValid(new KeyedHasher(SECRET)));
+		assertFalse(paymentResponse.isHashValid(new KeyedHasher(SECRET + "x")));
+
+		file = new File(this.getClass().getResource(THREE_D_SECURE_VERIFY_ENROLLED_RESPONSE_XML_PATH).getPath());
+		ThreeDSecureResponse threeDSecureResponse = new ThreeDSecureResponse().fromXml(new StreamSource(file));
+		assertTrue(threeDSecureResponse.isHashValid(new KeyedHasher(SECRET)));
+		assertFalse(threeDSecureResponse.isHashValid(new KeyedHasher(SECRET + "x")));
+	}
+
+	/**
+	 * Test responses hashed with the hasher have the hash Realex sent with them.
+	 */
+	@Test
+	public void testResponseHash() {
+		File file = new File(this.getClass().getResource(PAYMENT_RESPONSE_XML_PATH).getPath());
+		PaymentResponse paymentResponse = new PaymentResponse().fromXml(new StreamSource(file));
+		String expected = paymentResponse.getHash();
+		paymentResponse.setHash(null);
+		assertEquals(expected, paymentResponse.hash(new KeyedHasher(SECRET)).getHash());
+
+		file = new File(this.getClass().getResource(THREE_D_SECURE_VERIFY_ENROLLED_RESPONSE_XML_PATH).getPath());
+		ThreeDSecureResponse threeDSecureResponse = new ThreeDSecureResponse().fromXml(new StreamSource(file));
+		expected = threeDSecureResponse.getHash();
+		threeDSecureResponse.setHash(null);
+		assertEquals(expected, threeDSecureResponse.hash(new KeyedHasher(SECRET)).getHash());
+	}
+}
@@ -0,0 +1,80 @@
+package com.realexpayments.remote.sdk.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Test;
+
+/**
+ * RandomOrderIdGenerator unit tests.
+ */
+public class RandomOrderIdGeneratorTest {
+
+	private final RandomOrderIdGenerator generator = new RandomOrderIdGenerator();
+
+	/**
+	 * Test order IDs have the format of a URL safe Base64 encoded version 4 UUID.
+	 */
+	@Test
+	public void testUuidFormat() {
+		for (int i = 0; i < 1000; i++) {
+			String orderId = generator.generateOrderId();
+			assertTrue("OrderId " + orderId + " - Regexp doesn't match [A-Za-z0-9-_]{22}", orderId.matches("[A-Za-z0-9-_]{22}"));
+
+			ByteBuffer bytes = ByteBuffer.wrap(Base64.decodeBase64(orderId));
+			UUID uuid = new UUID(bytes.getLong(), bytes.getLong());
+			assertEquals(4, uuid.version());
+			assertEquals(2, uuid.variant());
+			assertEquals(orderId, Base64.encodeBase64URLSafeString(bytes.array()));
+		}
+	}
+
+	/**
+	 * Test order IDs generated by many threads are unique.
+	 */
+	@Test
+	public void testUniqueAcrossThreads() throws InterruptedException {
+		final Set<String> orderIds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		for (int t = 0; t < 8; t++) {
+			executor.execute(() -> {
+				Set<String> local = new HashSet<String>();
+				for (int i = 0; i < 10000; i++) {
+					local.add(generator.generateOrderId());
+				}
+				orderIds.addAll(local);
+			});
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+		assertEquals(80000, orderIds.size());
+	}
+
+	/**
+	 * Test a new thread for each order ID, as with a virtual thread per request, reuses the pooled seeded
+	 * generators rather than seeding one for each thread.
+	 */
+	@Test
+	public void testThreadPerRequestReusesState() throws InterruptedException {
+		int stripes = RandomOrderIdGenerator.STATES.getStripes();
+		long created = RandomOrderIdGenerator.STATES.getCreated();
+		for (int i = 0; i < stripes * 4; i++) {
+			Thread thread = new Thread(generator::generateOrderId);
+			thread.start();
+			thread.join();
+		}
+		assertTrue(RandomOrderIdGenerator.STATES.getCreated() - created <= stripes);
+	}
+}
@@ -3,7 +3,9 @@ package com.realexpayments.remote.sdk.utils;
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.realexpayments.remote.sdk.RealexException;
 import com.realexpayments.remote.sdk.domain.Response;
+import com.realexpayments.remote.sdk.domain.ResultCode.Category;
 import com.realexpayments.remote.sdk.domain.payment.PaymentResponse;
 
 /**
@@ -34,6 +36,31 @@ public class ResponseUtilsTest {
 		//test 5xx code
 		Assert.assertTrue(ResponseUtils.isBasicResponse("500"));
 
+		//test 6xx code
+		Assert.assertTrue(ResponseUtils.isBasicResponse("666"));
+
+	}
+
+	/**
+	 * Test a result which is not a result code cannot be classified.
+	 */
+	@Test(expected = RealexException.class)
+	public void isBasicResponseInvalidTest() {
+		ResponseUtils.isBasicResponse("xyz");
+	}
+
+	/**
+	 * Test the category of the result of a response.
+	 */
+	@Test
+	public void getResultCategoryTest() {
+		PaymentResponse response = new PaymentResponse();
+
+		response.setResult("205");
+		Assert.assertEquals(Category.BANK_ERROR, ResponseUtils.getResultCategory(response));
+
+		response.setResult(null);
+		Assert.assertEquals(Category.UNKNOWN, ResponseUtils.getResultCategory(response));
 	}
 
 	/**
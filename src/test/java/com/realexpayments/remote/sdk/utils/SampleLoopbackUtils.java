@@ -0,0 +1,41 @@
+package com.realexpayments.remote.sdk.utils;
+
+import static com.realexpayments.remote.sdk.utils.SampleXmlValidationUtils.PAYMENT_RESPONSE_BASIC_ERROR_XML_PATH;
+import static com.realexpayments.remote.sdk.utils.SampleXmlValidationUtils.PAYMENT_RESPONSE_XML_PATH;
+
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.transform.stream.StreamSource;
+
+import com.realexpayments.remote.sdk.domain.payment.PaymentResponse;
+import com.realexpayments.remote.sdk.http.LoopbackTransport;
+import com.realexpayments.remote.sdk.http.Transport;
+
+/**
+ * Unit testing utility class providing an in-memory transport answering with the sample responses.
+ */
+public class SampleLoopbackUtils {
+
+	/**
+	 * The sample payment response.
+	 */
+	public static final byte[] RESPONSE = new PaymentResponse()
+			.fromXml(new StreamSource(SampleLoopbackUtils.class.getResourceAsStream(PAYMENT_RESPONSE_XML_PATH))).toXml()
+			.getBytes(StandardCharsets.UTF_8);
+
+	/**
+	 * The sample basic error response.
+	 */
+	public static final byte[] ERROR_RESPONSE = new PaymentResponse()
+			.fromXml(new StreamSource(SampleLoopbackUtils.class.getResourceAsStream(PAYMENT_RESPONSE_BASIC_ERROR_XML_PATH))).toXml()
+			.getBytes(StandardCharsets.UTF_8);
+
+	/**
+	 * Responds with an error to requests for the merchant "fail", otherwise with the sample response.
+	 */
+	public static final LoopbackTransport LOOPBACK = new LoopbackTransport((request, response) -> {
+		String xml = new String(Transport.readFully(request), StandardCharsets.UTF_8);
+		response.write(xml.contains(">fail<") ? ERROR_RESPONSE : RESPONSE);
+	});
+
+}
@@ -0,0 +1,83 @@
+package com.realexpayments.remote.sdk.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import org.junit.Test;
+
+/**
+ * SnowflakeOrderIdGenerator unit tests.
+ */
+public class SnowflakeOrderIdGeneratorTest {
+
+	private static final Clock FIXED_CLOCK = Clock.fixed(Instant.parse("2016-06-01T12:00:00Z"), ZoneOffset.UTC);
+
+	/**
+	 * Test the ID layout of timestamp, node ID and sequence number.
+	 */
+	@Test
+	public void testIdLayout() {
+		SnowflakeOrderIdGenerator generator = new SnowflakeOrderIdGenerator(5, FIXED_CLOCK);
+
+		long millis = FIXED_CLOCK.millis() - SnowflakeOrderIdGenerator.EPOCH;
+		assertEquals(millis << 22 | 5 << 12, generator.nextId());
+		assertEquals(millis << 22 | 5 << 12 | 1, generator.nextId());
+	}
+
+	/**
+	 * Test IDs keep increasing when the sequence overflows within a millisecond.
+	 */
+	@Test
+	public void testSequenceOverflow() {
+		SnowflakeOrderIdGenerator generator = new SnowflakeOrderIdGenerator(0, FIXED_CLOCK);
+
+		long millis = FIXED_CLOCK.millis() - SnowflakeOrderIdGenerator.EPOCH;
+		long last = -1;
+		for (int i = 0; i < 5000; i++) {
+			long id = generator.nextId();
+			assertTrue(id > last);
+			last = id;
+		}
+		assertEquals((millis + 1) << 22 | (5000 - 4096 - 1), last);
+	}
+
+	/**
+	 * Test order IDs are fixed length, URL safe and sort in generation order.
+	 */
+	@Test
+	public void testOrderIdsSortInOrder() {
+		SnowflakeOrderIdGenerator generator = new SnowflakeOrderIdGenerator(SnowflakeOrderIdGenerator.MAX_NODE_ID);
+
+		String last = "";
+		for (int i = 0; i < 10000; i++) {
+			String orderId = generator.generateOrderId();
+			assertTrue("OrderId " + orderId + " - Regexp doesn't match [A-Za-z0-9-_]{11}", orderId.matches("[A-Za-z0-9-_]{11}"));
+			assertTrue(orderId.compareTo(last) > 0);
+			last = orderId;
+		}
+	}
+
+	/**
+	 * Test generators with different node IDs generate different IDs.
+	 */
+	@Test
+	public void testNodeIds() {
+		String first = new SnowflakeOrderIdGenerator(1, FIXED_CLOCK).generateOrderId();
+		String second = new SnowflakeOrderIdGenerator(2, FIXED_CLOCK).generateOrderId();
+
+		assertNotEquals(first, second);
+	}
+
+	/**
+	 * Test an invalid node ID is rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidNodeId() {
+		new SnowflakeOrderIdGenerator(SnowflakeOrderIdGenerator.MAX_NODE_ID + 1);
+	}
+}
@@ -0,0 +1,190 @@
+package com.realexpayments.remote.sdk.utils;
+
+import com.realexpayments.remote.sdk.RealexException;
+import com.realexpayments.remote.sdk.domain.*;
+import com.realexpayments.remote.sdk.domain.payment.*;
+import com.realexpayments.remote.sdk.domain.payment.PaymentRequest.PaymentType;
+import com.realexpayments.remote.sdk.domain.threeDSecure.ThreeDSecureRequest;
+import com.realexpayments.remote.sdk.domain.threeDSecure.ThreeDSecureResponse;
+import com.realexpayments.remote.sdk.utils.XmlUtils.MessageType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import static com.realexpayments.remote.sdk.utils.SampleXmlValidationUtils.*;
+
+/**
+ * Unit test class for StaxXmlCodec. The StAX output is compared against the JAXB output for each of the
+ * sample XML files.
+ */
+public class StaxXmlCodecTest {
+
+    private static final String[] PAYMENT_REQUEST_XML_PATHS = {
+            PAYMENT_REQUEST_XML_PATH,
+            MOBILE_AUTH_PAYMENT_REQUEST_XML_PATH,
+            SETTLE_PAYMENT_REQUEST_XML_PATH,
+            VOID_PAYMENT_REQUEST_XML_PATH,
+            REBATE_PAYMENT_REQUEST_XML_PATH,
+            OTB_PAYMENT_REQUEST_XML_PATH,
+            CREDIT_PAYMENT_REQUEST_XML_PATH,
+            HOLD_PAYMENT_REQUEST_XML_PATH,
+            RELEASE_PAYMENT_REQUEST_XML_PATH,
+            RECEIPT_IN_PAYMENT_REQUEST_XML_PATH,
+            PAYMENT_OUT_PAYMENT_REQUEST_XML_PATH,
+            PAYER_NEW_PAYMENT_REQUEST_XML_PATH,
+            PAYER_EDIT_PAYMENT_REQUEST_XML_PATH,
+            CARD_NEW_PAYMENT_REQUEST_XML_PATH,
+            CARD_EDIT_REPLACE_CARD_PAYMENT_REQUEST_XML_PATH,
+            CARD_EDIT_UPDATE_ISSUE_NO_PAYMENT_REQUEST_XML_PATH,
+            CARD_EDIT_UPDATE_CH_NAME_PAYMENT_REQUEST_XML_PATH,
+            CARD_DELETE_PAYMENT_REQUEST_XML_PATH,
+            CARD_VERIFY_ENROLLED_PAYMENT_REQUEST_XML_PATH,
+            DCC_RATE_LOOKUP_PAYMENT_REQUEST_XML_PATH,
+            DCC_RATE_AUTH_PAYMENT_REQUEST_XML_PATH,
+            RECEIPT_IN_OTB_PAYMENT_REQUEST_XML_PATH,
+            HOLD_PAYMENT_REQUEST_REASONCODE_XML_PATH,
+            RELEASE_PAYMENT_REQUEST_REASONCODE_XML_PATH,
+            DCC_STORED_CARD_REQUEST_XML_PATH,
+            HOLD_PAYMENT_REASON_REQUEST_XML_PATH,
+            HOLD_PAYMENT_REASON_FALSE_REQUEST_XML_PATH,
+            RELEASE_PAYMENT_REASON_REQUEST_XML_PATH
+    };
+
+    private static final String[] PAYMENT_RESPONSE_XML_PATHS = {
+            PAYMENT_RESPONSE_XML_PATH,
+            PAYMENT_RESPONSE_BASIC_ERROR_XML_PATH,
+            PAYMENT_RESPONSE_FULL_ERROR_XML_PATH,
+            PAYMENT_RESPONSE_XML_PATH_UNKNOWN_ELEMENT,
+            PAYMENT_RESPONSE_DCC_INFO_XML_PATH,
+            PAYMENT_RESPONSE_WITH_FRAUD_FILTER_XML_PATH,
+            PAYMENT_RESPONSE_WITH_FRAUD_FILTER_NO_RULES_XML_PATH
+    };
+
+    private final StaxXmlCodec codec = new StaxXmlCodec();
+
+    /**
+     * Tests the StAX codec writes the same XML as JAXB for each of the sample payment requests.
+     */
+    @Test
+    public void paymentRequestToXmlMatchesJaxbTest() {
+        for (String path : PAYMENT_REQUEST_XML_PATHS) {
+            File file = new File(this.getClass().getResource(path).getPath());
+            PaymentRequest request = new PaymentRequest().fromXml(new StreamSource(file));
+
+            Assert.assertEquals("XML differs for " + path, request.toXml(), codec.toXml(request));
+        }
+    }
+
+    /**
+     * Tests the StAX codec streams the UTF-8 encoded JAXB XML for each of the sample payment requests.
+     */
+    @Test
+    public void paymentRequestToXmlStreamMatchesJaxbTest() throws IOException {
+        for (String path : PAYMENT_REQUEST_XML_PATHS) {
+            File file = new File(this.getClass().getResource(path).getPath());
+            PaymentRequest request = new PaymentRequest().fromXml(new StreamSource(file));
+
+            ByteArrayOutputStream staxXml = new ByteArrayOutputStream();
+            codec.toXml(request, staxXml);
+
+            Assert.assertArrayEquals("XML differs for " + path, request.toXml().getBytes(StandardCharsets.UTF_8),
+                    staxXml.toByteArray());
+        }
+    }
+
+    /**
+     * Tests the StAX codec writes the same XML as JAXB for a request with empty values and characters
+     * which must be escaped.
+     */
+    @Test
+    public void paymentRequestToXmlEscapingAndEmptyValuesTest() {
+        PaymentRequest request = new PaymentRequest()
+                .addType(PaymentType.AUTH)
+                .addMerchantId("<merchant & \"id\">")
+                .addAccount("")
+                .addCurrency("EUR")
+                .addCard(new Card().addCardHolderName("Seán O'Brien\t&"))
+                .addComment(null)
+                .addDccInfo(new DccInfo());
+        request.setComments(new ArrayList<Comment>());
+        request.setPayer(new Payer().addRef("a\"<b>&"));
+
+        Assert.assertEquals(request.toXml(), codec.toXml(request));
+    }
+
+    /**
+     * Tests the StAX codec reads the same payment response as JAXB for each of the sample payment responses.
+     */
+    @Test
+    public void paymentResponseFromXmlMatchesJaxbTest() {
+        for (String path : PAYMENT_RESPONSE_XML_PATHS) {
+            File file = new File(this.getClass().getResource(path).getPath());
+            String xml = new PaymentResponse().fromXml(new StreamSource(file)).toXml();
+
+            PaymentResponse jaxbResponse = new PaymentResponse().fromXml(xml);
+            PaymentResponse staxResponse = codec.responseFromXml(new PaymentRequest(), xml);
+
+            Assert.assertEquals("Response differs for " + path, XmlUtils.toXml(jaxbResponse, MessageType.PAYMENT),
+                    XmlUtils.toXml(staxResponse, MessageType.PAYMENT));
+        }
+    }
+
+    /**
+     * Tests the StAX codec reads the sample payment response from a stream.
+     */
+    @Test
+    public void paymentResponseFromXmlStreamTest() {
+        File file = new File(this.getClass().getResource(PAYMENT_RESPONSE_XML_PATH).getPath());
+        String xml = new PaymentResponse().fromXml(new StreamSource(file)).toXml();
+
+        InputStream in = new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+        checkUnmarshalledPaymentResponse(codec.responseFromXml(new PaymentRequest(), in));
+    }
+
+    /**
+     * Tests the StAX codec reads the sample payment response.
+     */
+    @Test
+    public void paymentResponseFromXmlTest() {
+        File file = new File(this.getClass().getResource(PAYMENT_RESPONSE_XML_PATH).getPath());
+        String xml = new PaymentResponse().fromXml(new StreamSource(file)).toXml();
+
+        checkUnmarshalledPaymentResponse(codec.responseFromXml(new PaymentRequest(), xml));
+    }
+
+    /**
+     * Tests the StAX codec delegates requests other than payment requests to JAXB.
+     */
+    @Test
+    public void threeDSecureDelegatesToJaxbTest() {
+        File file = new File(this.getClass().getResource(THREE_D_SECURE_VERIFY_ENROLLED_RESPONSE_XML_PATH).getPath());
+        String xml = new ThreeDSecureResponse().fromXml(new StreamSource(file)).toXml();
+
+        ThreeDSecureResponse response = codec.responseFromXml(new ThreeDSecureRequest(), xml);
+        checkUnmarshalledThreeDSecureEnrolledResponse(response);
+    }
+
+    /**
+     * Tests an exception is thrown for a response with an unexpected root element.
+     */
+    @Test(expected = RealexException.class)
+    public void paymentResponseWrongRootTest() {
+        codec.responseFromXml(new PaymentRequest(), "<request timestamp=\"20151201094345\"/>");
+    }
+
+    /**
+     * Tests an exception is thrown for malformed response XML.
+     */
+    @Test(expected = RealexException.class)
+    public void paymentResponseMalformedXmlTest() {
+        codec.responseFromXml(new PaymentRequest(), "<response><result>00</response>");
+    }
+}
@@ -0,0 +1,116 @@
+package com.realexpayments.remote.sdk.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.text.SimpleDateFormat;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+/**
+ * TimestampSource unit tests.
+ */
+public class TimestampSourceTest {
+
+	/**
+	 * Test the timestamp format.
+	 */
+	@Test
+	public void testTimestampFormat() {
+		TimestampSource source = new TimestampSource(Clock.fixed(Instant.parse("2015-01-31T09:45:59.999Z"), ZoneOffset.UTC));
+
+		assertEquals("20150131094559", source.currentTimestamp());
+	}
+
+	/**
+	 * Test the timestamp is in the clock's time zone, including daylight saving time.
+	 */
+	@Test
+	public void testTimestampTimeZone() {
+		ZoneId dublin = ZoneId.of("Europe/Dublin");
+
+		assertEquals("20150131094559", new TimestampSource(Clock.fixed(Instant.parse("2015-01-31T09:45:59Z"), dublin)).currentTimestamp());
+		assertEquals("20150701104559", new TimestampSource(Clock.fixed(Instant.parse("2015-07-01T09:45:59Z"), dublin)).currentTimestamp());
+	}
+
+	/**
+	 * Test the timestamp matches that formatted by SimpleDateFormat.
+	 */
+	@Test
+	public void testMatchesSimpleDateFormat() {
+		SimpleDateFormat format = new SimpleDateFormat("yyyyMMddHHmmss");
+		format.setTimeZone(TimeZone.getTimeZone("America/New_York"));
+		ZoneId newYork = ZoneId.of("America/New_York");
+
+		for (long millis = 0; millis < 4000000000000L; millis += 7777777777L) {
+			Instant instant = Instant.ofEpochMilli(millis);
+			assertEquals(format.format(new Date(millis)), new TimestampSource(Clock.fixed(instant, newYork)).currentTimestamp());
+		}
+	}
+
+	/**
+	 * Test the timestamp is only formatted once a second.
+	 */
+	@Test
+	public void testCachedWithinSecond() {
+		MutableClock clock = new MutableClock(Instant.parse("2015-01-31T09:45:59.001Z").toEpochMilli());
+		TimestampSource source = new TimestampSource(clock);
+
+		String first = source.currentTimestamp();
+		clock.millis += 998;
+		assertSame(first, source.currentTimestamp());
+
+		clock.millis += 1;
+		String next = source.currentTimestamp();
+		assertNotSame(first, next);
+		assertEquals("20150131094600", next);
+	}
+
+	/**
+	 * Test the generation utils timestamp is taken from the system default source.
+	 */
+	@Test
+	public void testSystemDefault() {
+		assertSame(TimestampSource.systemDefault(), TimestampSource.systemDefault());
+		assertEquals(ZoneId.systemDefault(), TimestampSource.systemDefault().getClock().getZone());
+	}
+
+	/**
+	 * Clock whose time may be changed.
+	 */
+	private static class MutableClock extends Clock {
+
+		private long millis;
+
+		MutableClock(long millis) {
+			this.millis = millis;
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public long millis() {
+			return millis;
+		}
+
+		@Override
+		public Instant instant() {
+			return Instant.ofEpochMilli(millis);
+		}
+	}
+}
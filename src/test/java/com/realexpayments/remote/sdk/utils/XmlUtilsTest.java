@@ -9,13 +9,21 @@ import com.realexpayments.remote.sdk.domain.threeDSecure.ThreeDSecureRequest;
 import com.realexpayments.remote.sdk.domain.threeDSecure.ThreeDSecureRequest.ThreeDSecureType;
 import com.realexpayments.remote.sdk.domain.threeDSecure.ThreeDSecureResponse;
 import com.realexpayments.remote.sdk.utils.XmlUtils.MessageType;
+import org.junit.Assert;
 import org.junit.Test;
 
 import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.realexpayments.remote.sdk.utils.SampleXmlValidationUtils.*;
 
@@ -1427,5 +1435,72 @@ public class XmlUtilsTest {
         checkUnmarshalledPaymentResponseWithFraudFilterNoRules( fromXmlRequest );
     }
 
+    /**
+     * Tests marshalling a {@link PaymentRequest} directly to a stream and unmarshalling it again.
+     */
+    @Test
+    public void paymentRequestToXmlStreamTest() throws IOException {
+        File file = new File(this.getClass().getResource(PAYMENT_REQUEST_XML_PATH).getPath());
+        PaymentRequest request = new PaymentRequest().fromXml(new StreamSource(file));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        request.toXml(out);
+
+        PaymentRequest fromXmlRequest = new PaymentRequest().fromXml(new StreamSource(new ByteArrayInputStream(out.toByteArray())));
+        Assert.assertEquals(request.toXml(), fromXmlRequest.toXml());
+    }
+
+    /**
+     * Tests marshalling and unmarshalling with pooling disabled.
+     */
+    @Test
+    public void poolingDisabledTest() {
+        int poolSize = XmlUtils.getPoolSize();
+        try {
+            XmlUtils.setPoolSize(0);
+            Assert.assertEquals(0, XmlUtils.getPoolSize());
+
+            File file = new File(this.getClass().getResource(PAYMENT_RESPONSE_XML_PATH).getPath());
+            PaymentResponse response = new PaymentResponse().fromXml(new StreamSource(file));
+            checkUnmarshalledPaymentResponse(new PaymentResponse().fromXml(response.toXml()));
+        } finally {
+            XmlUtils.setPoolSize(poolSize);
+        }
+    }
+
+    /**
+     * Tests a negative pool size is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void negativePoolSizeTest() {
+        XmlUtils.setPoolSize(-1);
+    }
+
+    /**
+     * Tests pooled marshallers and unmarshallers are used safely from concurrent threads.
+     */
+    @Test
+    public void concurrentPooledMarshallingTest() throws Exception {
+        File file = new File(this.getClass().getResource(PAYMENT_RESPONSE_XML_PATH).getPath());
+        final String xml = new PaymentResponse().fromXml(new StreamSource(file)).toXml();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < 200; i++) {
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() {
+                        return new PaymentResponse().fromXml(xml).toXml();
+                    }
+                }));
+            }
+            for (Future<String> result : results) {
+                Assert.assertEquals(xml, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
 
 }